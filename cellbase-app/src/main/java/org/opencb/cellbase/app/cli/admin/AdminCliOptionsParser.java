@@ -93,6 +93,10 @@ public class AdminCliOptionsParser extends CliOptionsParser {
 
         @Parameter(names = {"-o", "--outdir"}, description = "Downloaded files will be saved in this directory.", required = true, arity = 1)
         public String outputDirectory;
+
+        @Parameter(names = {"--download-jobs"}, description = "Number of data downloaded at the same time, e.g. 'gene' and 'protein'"
+                + " files can be downloaded while the genome is being downloaded", arity = 1)
+        public int downloadJobs = 1;
     }
 
     @Parameters(commandNames = {"build"}, commandDescription = "Build CellBase data models from all data sources downloaded")
@@ -128,6 +132,26 @@ public class AdminCliOptionsParser extends CliOptionsParser {
                 + "requires more memory and is less efficient.", required = false, arity = 0)
         public boolean flexibleGTFParsing = false;
 
+        @Parameter(names = {"--num-threads"}, description = "Number of threads used for building the data that supports it, e.g. genes", arity = 1)
+        public int numThreads = 1;
+
+        @Parameter(names = {"--build-jobs"}, description = "Maximum number of threads used by the data builders running at the same "
+                + "time, independent data are built concurrently within this budget", arity = 1)
+        public int buildJobs = 1;
+
+        @Parameter(names = {"--build-memory"}, description = "Maximum estimated memory, in GB, used by the data builders running "
+                + "at the same time, 0 means no limit", arity = 1)
+        public int buildMemory = 0;
+
+        @Parameter(names = {"--compression-threads"}, description = "Number of threads used to gzip the largest output files (genome, "
+                + "CADD, REVEL, conservation and splice scores). Files are written as concatenated gzip blocks, 1 to use a single "
+                + "gzip stream", arity = 1)
+        public int compressionThreads = 1;
+
+        @Parameter(names = {"--compression-level"}, description = "Gzip compression level, from 1 (fastest) to 9 (smallest), of the "
+                + "files written with --compression-threads", arity = 1)
+        public int compressionLevel = 6;
+
     }
 
     @Parameters(commandNames = {"data-release"}, commandDescription = "Manage data releases in order to support multiple versions of data")
@@ -207,6 +231,15 @@ public class AdminCliOptionsParser extends CliOptionsParser {
         @Parameter(names = {"--num-threads"}, description = "Number of threads used for loading data into the database", arity = 1)
         public int numThreads = 2;
 
+        @Parameter(names = {"--max-writers"}, description = "Maximum number of loader threads writing to the database at the same "
+                + "time, collections are loaded concurrently within this budget. By default it is equal to --num-threads, i.e. "
+                + "collections are loaded one after another", arity = 1)
+        public int maxWriters = 0;
+
+        @Parameter(names = {"--index-jobs"}, description = "Number of collections indexed at the same time once all the data have "
+                + "been loaded", arity = 1)
+        public int indexJobs = 1;
+
         @Parameter(names = {"--skip-index"}, description = "After loading, add index to the database", arity = 0)
         public boolean skipIndex;
 
@@ -245,8 +278,15 @@ public class AdminCliOptionsParser extends CliOptionsParser {
         public String region;
 
         @Parameter(names = {"-o", "--output"}, required = true, arity = 1,
-                description = "Output directory where to save the JSON data models.")
+                description = "Output directory where to save the exported data models.")
         public String output;
+
+        @Parameter(names = {"--format"}, description = "Export format: json or avro. Avro files are written into a folder per data "
+                + "model, one file per chromosome; data models without an Avro schema are exported as JSON", arity = 1)
+        public String format = "json";
+
+        @Parameter(names = {"--num-threads"}, description = "Number of threads used to write the Avro chromosome files", arity = 1)
+        public int numThreads = 1;
     }
 
     @Parameters(commandNames = {"load"}, commandDescription = "Load the built data models into the database")
@@ -33,10 +33,9 @@ import org.opencb.cellbase.lib.builders.clinical.variant.ClinicalVariantBuilder;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 import static org.opencb.cellbase.lib.EtlCommons.PHARMGKB_DATA;
 
@@ -44,6 +43,28 @@ import static org.opencb.cellbase.lib.EtlCommons.PHARMGKB_DATA;
  * Created by imedina on 03/02/15.
  */
 public class BuildCommandExecutor extends CommandExecutor {
+
+    private static final String BUILD_SUMMARY_FILENAME = "build_summary.tsv";
+    // Builders reading the reference genome FASTA wait for the genome build, which reads the same file
+    private static final Map<String, List<String>> BUILD_DEPENDENCIES = new HashMap<>();
+    // Rough peak memory, in GB, of the builders keeping large in-memory or RocksDB indexes
+    private static final Map<String, Integer> BUILD_MEMORY = new HashMap<>();
+    private static final int DEFAULT_BUILD_MEMORY = 2;
+    // Builders writing the largest JSON files, their output is gzipped in parallel when compression threads are set
+    private static final Set<String> PARALLEL_COMPRESSION_DATA = new HashSet<>(Arrays.asList(EtlCommons.GENOME_DATA,
+            EtlCommons.VARIATION_FUNCTIONAL_SCORE_DATA, EtlCommons.MISSENSE_VARIATION_SCORE_DATA, EtlCommons.CONSERVATION_DATA,
+            EtlCommons.SPLICE_SCORE_DATA));
+
+    static {
+        BUILD_DEPENDENCIES.put(EtlCommons.GENE_DATA, Collections.singletonList(EtlCommons.GENOME_DATA));
+        BUILD_DEPENDENCIES.put(EtlCommons.CLINICAL_VARIANTS_DATA, Collections.singletonList(EtlCommons.GENOME_DATA));
+
+        BUILD_MEMORY.put(EtlCommons.GENE_DATA, 8);
+        BUILD_MEMORY.put(EtlCommons.CLINICAL_VARIANTS_DATA, 4);
+        BUILD_MEMORY.put(EtlCommons.PROTEIN_DATA, 4);
+        BUILD_MEMORY.put(EtlCommons.PHARMACOGENOMICS_DATA, 4);
+    }
+
     private AdminCliOptionsParser.BuildCommandOptions buildCommandOptions;
 
     private Path output;
@@ -114,82 +135,107 @@ public class BuildCommandExecutor extends CommandExecutor {
                     buildOptions = buildCommandOptions.data.split(",");
                 }
 
-                for (int i = 0; i < buildOptions.length; i++) {
-                    String buildOption = buildOptions[i];
+                BuildScheduler scheduler = new BuildScheduler(buildCommandOptions.buildJobs, buildCommandOptions.buildMemory);
+                for (String buildOption : new LinkedHashSet<>(Arrays.asList(buildOptions))) {
+                    scheduler.addTask(buildOption, BUILD_DEPENDENCIES.get(buildOption), getBuildThreads(buildOption),
+                            BUILD_MEMORY.getOrDefault(buildOption, DEFAULT_BUILD_MEMORY), () -> build(buildOption));
+                }
+                scheduler.run();
 
-                    logger.info("Building '{}' data", buildOption);
-                    CellBaseBuilder parser = null;
-                    switch (buildOption) {
+                String summary = scheduler.getSummary();
+                logger.info("Build summary:\n{}", summary);
+                Files.write(buildFolder.resolve(BUILD_SUMMARY_FILENAME), summary.getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (InterruptedException e) {
+            logger.error("Build interrupted: " + e.getMessage());
+            Thread.currentThread().interrupt();
+        } catch (ParameterException e) {
+            logger.error("Error parsing build command line parameters: " + e.getMessage(), e);
+        } catch (IOException | CellBaseException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    private void build(String buildOption) throws Exception {
+        logger.info("Building '{}' data", buildOption);
+        CellBaseBuilder parser = null;
+        switch (buildOption) {
 //                        case EtlCommons.GENOME_INFO_DATA:
 //                            buildGenomeInfo();
 //                            break;
-                        case EtlCommons.GENOME_DATA:
-                            parser = buildGenomeSequence();
-                            break;
-                        case EtlCommons.GENE_DATA:
-                            parser = buildGene();
-                            break;
-                        case EtlCommons.REFSEQ_DATA:
-                            parser = buildRefSeq();
-                            break;
-                        case EtlCommons.VARIATION_FUNCTIONAL_SCORE_DATA:
-                            parser = buildCadd();
-                            break;
-                        case EtlCommons.MISSENSE_VARIATION_SCORE_DATA:
-                            parser = buildRevel();
-                            break;
-                        case EtlCommons.REGULATION_DATA:
-                            parser = buildRegulation();
-                            break;
-                        case EtlCommons.PROTEIN_DATA:
-                            parser = buildProtein();
-                            break;
+            case EtlCommons.GENOME_DATA:
+                parser = buildGenomeSequence();
+                break;
+            case EtlCommons.GENE_DATA:
+                parser = buildGene();
+                break;
+            case EtlCommons.REFSEQ_DATA:
+                parser = buildRefSeq();
+                break;
+            case EtlCommons.VARIATION_FUNCTIONAL_SCORE_DATA:
+                parser = buildCadd();
+                break;
+            case EtlCommons.MISSENSE_VARIATION_SCORE_DATA:
+                parser = buildRevel();
+                break;
+            case EtlCommons.REGULATION_DATA:
+                parser = buildRegulation();
+                break;
+            case EtlCommons.PROTEIN_DATA:
+                parser = buildProtein();
+                break;
 //                        case EtlCommons.PPI_DATA:
 //                            parser = getInteractionParser();
 //                            break;
-                        case EtlCommons.CONSERVATION_DATA:
-                            parser = buildConservation();
-                            break;
-                        case EtlCommons.CLINICAL_VARIANTS_DATA:
-                            parser = buildClinicalVariants();
-                            break;
-                        case EtlCommons.REPEATS_DATA:
-                            parser = buildRepeats();
-                            break;
-                        case EtlCommons.OBO_DATA:
-                            parser = buildObo();
-                            break;
-                        case EtlCommons.SPLICE_SCORE_DATA:
-                            parser = buildSplice();
-                            break;
-                        case EtlCommons.PUBMED_DATA:
-                            parser = buildPubMed();
-                            break;
-                        case EtlCommons.PHARMACOGENOMICS_DATA:
-                            parser = buildPharmacogenomics();
-                            break;
-                        default:
-                            logger.error("Build option '" + buildCommandOptions.data + "' is not valid");
-                            break;
-                    }
-
-                    if (parser != null) {
-                        try {
-                            parser.parse();
-                        } catch (Exception e) {
-                            logger.error("Error executing 'build' command " + buildCommandOptions.data + ": " + e.getMessage(), e);
-                        }
-                        parser.disconnect();
-                    }
-                }
+            case EtlCommons.CONSERVATION_DATA:
+                parser = buildConservation();
+                break;
+            case EtlCommons.CLINICAL_VARIANTS_DATA:
+                parser = buildClinicalVariants();
+                break;
+            case EtlCommons.REPEATS_DATA:
+                parser = buildRepeats();
+                break;
+            case EtlCommons.OBO_DATA:
+                parser = buildObo();
+                break;
+            case EtlCommons.SPLICE_SCORE_DATA:
+                parser = buildSplice();
+                break;
+            case EtlCommons.PUBMED_DATA:
+                parser = buildPubMed();
+                break;
+            case EtlCommons.PHARMACOGENOMICS_DATA:
+                parser = buildPharmacogenomics();
+                break;
+            default:
+                logger.error("Build option '" + buildOption + "' is not valid");
+                break;
+        }
+
+        if (parser != null) {
+            try {
+                parser.parse();
+            } finally {
+                parser.disconnect();
             }
-        } catch (ParameterException e) {
-            logger.error("Error parsing build command line parameters: " + e.getMessage(), e);
-        } catch (IOException | CellBaseException e) {
-            logger.error(e.getMessage());
         }
     }
 
+    private int getBuildThreads(String buildOption) {
+        int threads = EtlCommons.GENE_DATA.equals(buildOption) ? buildCommandOptions.numThreads : 1;
+        if (PARALLEL_COMPRESSION_DATA.contains(buildOption) && buildCommandOptions.compressionThreads > 1) {
+            threads += buildCommandOptions.compressionThreads;
+        }
+        return threads;
+    }
+
+    private CellBaseJsonFileSerializer setCompressionOptions(CellBaseJsonFileSerializer serializer) {
+        return serializer
+                .setNumThreads(buildCommandOptions.compressionThreads)
+                .setCompressionLevel(buildCommandOptions.compressionLevel);
+    }
+
     private CellBaseBuilder buildRepeats() {
         Path repeatsFilesDir = downloadFolder.resolve(EtlCommons.REPEATS_FOLDER);
         copyVersionFiles(Arrays.asList(repeatsFilesDir.resolve(EtlCommons.TRF_VERSION_FILE)));
@@ -252,7 +298,9 @@ public class BuildCommandExecutor extends CommandExecutor {
     private CellBaseBuilder buildGenomeSequence() {
         copyVersionFiles(Collections.singletonList(downloadFolder.resolve("genome/genomeVersion.json")));
         Path fastaFile = getFastaReferenceGenome();
-        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(buildFolder, "genome_sequence");
+        // Genome chunks are not modified once serialized, so they can also be converted to JSON in parallel
+        CellBaseSerializer serializer = setCompressionOptions(new CellBaseJsonFileSerializer(buildFolder, "genome_sequence"))
+                .setParallelSerialization(true);
         return new GenomeSequenceFastaBuilder(fastaFile, serializer);
     }
 
@@ -265,7 +313,8 @@ public class BuildCommandExecutor extends CommandExecutor {
                 geneFolderPath.resolve("gnomadVersion.json")));
         Path genomeFastaFilePath = getFastaReferenceGenome();
         CellBaseSerializer serializer = new CellBaseJsonFileSerializer(buildFolder, "gene");
-        return new GeneBuilder(geneFolderPath, genomeFastaFilePath, speciesConfiguration, flexibleGTFParsing, serializer);
+        return new GeneBuilder(geneFolderPath, genomeFastaFilePath, speciesConfiguration, flexibleGTFParsing, serializer)
+                .setNumThreads(buildCommandOptions.numThreads);
     }
 
     private CellBaseBuilder buildRefSeq() {
@@ -279,14 +328,15 @@ public class BuildCommandExecutor extends CommandExecutor {
         Path variationFunctionalScorePath = downloadFolder.resolve("variation_functional_score");
         copyVersionFiles(Arrays.asList(variationFunctionalScorePath.resolve("caddVersion.json")));
         Path caddFilePath = variationFunctionalScorePath.resolve("whole_genome_SNVs.tsv.gz");
-        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(buildFolder, "cadd");
+        CellBaseFileSerializer serializer = setCompressionOptions(new CellBaseJsonFileSerializer(buildFolder, "cadd"));
         return new CaddScoreBuilder(caddFilePath, serializer);
     }
 
     private CellBaseBuilder buildRevel() {
         Path missensePredictionScorePath = downloadFolder.resolve(EtlCommons.MISSENSE_VARIATION_SCORE_DATA);
         copyVersionFiles(Arrays.asList(missensePredictionScorePath.resolve("revelVersion.json")));
-        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(buildFolder, EtlCommons.MISSENSE_VARIATION_SCORE_DATA);
+        CellBaseFileSerializer serializer = setCompressionOptions(new CellBaseJsonFileSerializer(buildFolder,
+                EtlCommons.MISSENSE_VARIATION_SCORE_DATA));
         return new RevelScoreBuilder(missensePredictionScorePath, serializer);
     }
 
@@ -343,7 +393,7 @@ public class BuildCommandExecutor extends CommandExecutor {
                 conservationFilesDir.resolve("phyloPVersion.json")));
         // TODO: chunk size is not really used in ConvervedRegionParser, remove?
         int conservationChunkSize = MongoDBCollectionConfiguration.CONSERVATION_CHUNK_SIZE;
-        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(buildFolder);
+        CellBaseFileSerializer serializer = setCompressionOptions(new CellBaseJsonFileSerializer(buildFolder));
         return new ConservationBuilder(conservationFilesDir, conservationChunkSize, serializer);
     }
 
@@ -398,7 +448,7 @@ public class BuildCommandExecutor extends CommandExecutor {
                     StandardCopyOption.REPLACE_EXISTING);
         }
 
-        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(spliceOutputFolder);
+        CellBaseFileSerializer serializer = setCompressionOptions(new CellBaseJsonFileSerializer(spliceOutputFolder));
         return new SpliceBuilder(spliceInputFolder, serializer);
     }
 
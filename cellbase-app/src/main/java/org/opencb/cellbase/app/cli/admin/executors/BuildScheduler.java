@@ -0,0 +1,293 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.app.cli.admin.executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Runs build tasks as a DAG: a task starts once all the tasks it depends on have finished, and independent tasks run
+ * concurrently as long as the sum of their declared threads and memory fits within the budget. Tasks that depend on a
+ * failed task are skipped. Dependencies on tasks that have not been added are ignored.
+ */
+public class BuildScheduler {
+
+    private final int maxThreads;
+    private final int maxMemory;
+    // Insertion order is kept so that tasks start in the order they were requested
+    private final Map<String, BuildTask> tasks;
+
+    private Logger logger;
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED,
+        SKIPPED
+    }
+
+    @FunctionalInterface
+    public interface BuildAction {
+        void execute() throws Exception;
+    }
+
+    public static class BuildTask {
+        private final String name;
+        private final Set<String> dependencies;
+        private final int threads;
+        private final int memory;
+        private final BuildAction action;
+
+        private volatile Status status;
+        private volatile long startTime;
+        private volatile long endTime;
+        private volatile Exception exception;
+
+        BuildTask(String name, Set<String> dependencies, int threads, int memory, BuildAction action) {
+            this.name = name;
+            this.dependencies = dependencies;
+            this.threads = threads;
+            this.memory = memory;
+            this.action = action;
+            this.status = Status.PENDING;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("BuildTask{");
+            sb.append("name='").append(name).append('\'');
+            sb.append(", dependencies=").append(dependencies);
+            sb.append(", threads=").append(threads);
+            sb.append(", memory=").append(memory);
+            sb.append(", status=").append(status);
+            sb.append('}');
+            return sb.toString();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Set<String> getDependencies() {
+            return dependencies;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getMemory() {
+            return memory;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public long getEndTime() {
+            return endTime;
+        }
+
+        public long getElapsedTime() {
+            return status == Status.DONE || status == Status.FAILED ? endTime - startTime : 0;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param maxThreads maximum number of threads used by the tasks running at the same time, at least 1
+     * @param maxMemory maximum memory, in GB, used by the tasks running at the same time, 0 means no limit
+     */
+    public BuildScheduler(int maxThreads, int maxMemory) {
+        this.maxThreads = Math.max(1, maxThreads);
+        this.maxMemory = Math.max(0, maxMemory);
+        this.tasks = new LinkedHashMap<>();
+
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    /**
+     * Adds a task to the scheduler. A task declaring more threads or memory than the budget runs alone.
+     *
+     * @param name unique name of the task
+     * @param dependencies names of the tasks that must finish before this one starts
+     * @param threads number of threads used by the task
+     * @param memory estimated memory, in GB, used by the task
+     * @param action the work to be done
+     * @return this scheduler
+     */
+    public BuildScheduler addTask(String name, Collection<String> dependencies, int threads, int memory, BuildAction action) {
+        if (tasks.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicated build task '" + name + "'");
+        }
+        Set<String> taskDependencies = dependencies == null ? Collections.emptySet() : new LinkedHashSet<>(dependencies);
+        tasks.put(name, new BuildTask(name, taskDependencies, Math.max(1, threads), Math.max(0, memory), action));
+        return this;
+    }
+
+    /**
+     * Runs all the tasks and waits for them to finish.
+     *
+     * @return the tasks, in the order they were added, with their final status and times
+     * @throws InterruptedException if the thread is interrupted while waiting for the tasks
+     */
+    public List<BuildTask> run() throws InterruptedException {
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        BlockingQueue<BuildTask> finishedTasks = new LinkedBlockingQueue<>();
+        int usedThreads = 0;
+        int usedMemory = 0;
+        int runningTasks = 0;
+        try {
+            while (true) {
+                skipBlockedTasks();
+                for (BuildTask task : tasks.values()) {
+                    if (task.status != Status.PENDING || !dependenciesDone(task)) {
+                        continue;
+                    }
+                    int threads = Math.min(task.threads, maxThreads);
+                    int memory = maxMemory > 0 ? Math.min(task.memory, maxMemory) : 0;
+                    if (runningTasks > 0
+                            && (usedThreads + threads > maxThreads || (maxMemory > 0 && usedMemory + memory > maxMemory))) {
+                        continue;
+                    }
+
+                    usedThreads += threads;
+                    usedMemory += memory;
+                    runningTasks++;
+                    task.status = Status.RUNNING;
+                    task.startTime = System.currentTimeMillis();
+                    logger.info("Starting build task '{}'", task.name);
+                    executorService.submit(() -> {
+                        try {
+                            task.action.execute();
+                            task.status = Status.DONE;
+                        } catch (Exception e) {
+                            logger.error("Error executing build task '" + task.name + "': " + e.getMessage(), e);
+                            task.exception = e;
+                            task.status = Status.FAILED;
+                        } catch (Throwable t) {
+                            logger.error("Error executing build task '" + task.name + "': " + t.getMessage(), t);
+                            task.exception = new RuntimeException(t);
+                            task.status = Status.FAILED;
+                        } finally {
+                            task.endTime = System.currentTimeMillis();
+                            finishedTasks.add(task);
+                        }
+                    });
+                }
+
+                if (runningTasks == 0) {
+                    // Nothing running and nothing can start: any task still pending is part of a dependency cycle
+                    for (BuildTask task : tasks.values()) {
+                        if (task.status == Status.PENDING) {
+                            logger.error("Build task '{}' skipped, circular dependency found: {}", task.name, task.dependencies);
+                            task.status = Status.SKIPPED;
+                        }
+                    }
+                    break;
+                }
+
+                BuildTask finishedTask = finishedTasks.take();
+                usedThreads -= Math.min(finishedTask.threads, maxThreads);
+                usedMemory -= maxMemory > 0 ? Math.min(finishedTask.memory, maxMemory) : 0;
+                runningTasks--;
+                logger.info("Build task '{}' finished with status {} in {} s", finishedTask.name, finishedTask.status,
+                        finishedTask.getElapsedTime() / 1000.0);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        return new ArrayList<>(tasks.values());
+    }
+
+    private boolean dependenciesDone(BuildTask task) {
+        for (String dependency : task.dependencies) {
+            BuildTask dependencyTask = tasks.get(dependency);
+            if (dependencyTask != null && dependencyTask.status != Status.DONE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipBlockedTasks() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BuildTask task : tasks.values()) {
+                if (task.status != Status.PENDING) {
+                    continue;
+                }
+                for (String dependency : task.dependencies) {
+                    BuildTask dependencyTask = tasks.get(dependency);
+                    if (dependencyTask != null
+                            && (dependencyTask.status == Status.FAILED || dependencyTask.status == Status.SKIPPED)) {
+                        logger.warn("Build task '{}' skipped, dependency '{}' has not been built", task.name, dependency);
+                        task.status = Status.SKIPPED;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tab separated timing summary of the tasks: name, status, start time, elapsed seconds and dependencies.
+     *
+     * @return the summary, one line per task after a header line
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder("#task\tstatus\tstart\tseconds\tdependencies\n");
+        for (BuildTask task : tasks.values()) {
+            sb.append(task.name).append('\t')
+                    .append(task.status).append('\t')
+                    .append(task.startTime > 0 ? new Date(task.startTime).toInstant().toString() : "-").append('\t')
+                    .append(task.getElapsedTime() / 1000.0).append('\t')
+                    .append(String.join(",", task.dependencies)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public int getMaxMemory() {
+        return maxMemory;
+    }
+
+    public List<BuildTask> getTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+}
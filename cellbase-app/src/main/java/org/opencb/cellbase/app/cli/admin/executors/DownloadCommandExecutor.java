@@ -32,9 +32,7 @@ import org.opencb.cellbase.lib.download.Downloader;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 
 /**
  * Created by imedina on 03/02/15.
@@ -58,67 +56,71 @@ public class DownloadCommandExecutor extends CommandExecutor {
         try {
             String species = downloadCommandOptions.speciesAndAssemblyOptions.species;
             String assembly = downloadCommandOptions.speciesAndAssemblyOptions.assembly;
-            List<DownloadFile> downloadFiles = new ArrayList<>();
             List<String> dataList = getDataList(species);
             Downloader downloader = new Downloader(species, assembly, outputDirectory, configuration);
-            for (String data : dataList) {
-                switch (data) {
-                    case EtlCommons.GENOME_DATA:
-                        downloadFiles.addAll(downloader.downloadGenome());
-                        break;
-                    case EtlCommons.GENE_DATA:
-                        downloadFiles.addAll(downloader.downloadGene());
-                        break;
-//                    case EtlCommons.VARIATION_DATA:
-//                        downloadManager.downloadVariation();
-//                        break;
-                    case EtlCommons.VARIATION_FUNCTIONAL_SCORE_DATA:
-                        downloadFiles.addAll(downloader.downloadCaddScores());
-                        break;
-                    case EtlCommons.MISSENSE_VARIATION_SCORE_DATA:
-                        downloadFiles.addAll(downloader.downloadPredictionScores());
-                        break;
-                    case EtlCommons.REGULATION_DATA:
-                        downloadFiles.addAll(downloader.downloadRegulation());
-                        break;
-                    case EtlCommons.PROTEIN_DATA:
-                        downloadFiles.addAll(downloader.downloadProtein());
-                        break;
-                    case EtlCommons.CONSERVATION_DATA:
-                        downloadFiles.addAll(downloader.downloadConservation());
-                        break;
-                    case EtlCommons.CLINICAL_VARIANTS_DATA:
-                        downloadFiles.addAll(downloader.downloadClinicalVariants());
-                        break;
-//                    case EtlCommons.STRUCTURAL_VARIANTS_DATA:
-//                        downloadFiles.add(downloadManager.downloadStructuralVariants());
-//                        break;
-                    case EtlCommons.REPEATS_DATA:
-                        downloadFiles.addAll(downloader.downloadRepeats());
-                        break;
-                    case EtlCommons.OBO_DATA:
-                        downloadFiles.addAll(downloader.downloadOntologies());
-                        break;
-                    case EtlCommons.PUBMED_DATA:
-                        downloadFiles.addAll(downloader.downloadPubMed());
-                        break;
-                    case EtlCommons.PHARMACOGENOMICS_DATA:
-                        downloadFiles.addAll(downloader.downloadPharmKGB());
-                        break;
-                    default:
-                        System.out.println("Value \"" + data + "\" is not allowed for the data parameter. Allowed values"
-                                + " are: {genome, gene, gene_disease_association, variation, variation_functional_score,"
-                                + " regulation, protein, conservation, clinical_variants, ontology, pubmed}");
-                        break;
-                }
+
+            // Each data is downloaded by one task, up to 'downloadJobs' data at the same time. Files are logged in the
+            // same order as the data list no matter which download finishes first
+            Set<String> dataSet = new LinkedHashSet<>(dataList);
+            Map<String, List<DownloadFile>> downloadFilesByData = Collections.synchronizedMap(new HashMap<>());
+            BuildScheduler scheduler = new BuildScheduler(Math.max(1, downloadCommandOptions.downloadJobs), 0);
+            for (String data : dataSet) {
+                scheduler.addTask(data, null, 1, 0, () -> downloadFilesByData.put(data, download(downloader, data)));
+            }
+            scheduler.run();
+            logger.info("Download summary:\n{}", scheduler.getSummary());
+
+            List<DownloadFile> downloadFiles = new ArrayList<>();
+            for (String data : dataSet) {
+                downloadFiles.addAll(downloadFilesByData.getOrDefault(data, Collections.emptyList()));
             }
             AbstractDownloadManager.writeDownloadLogFile(outputDirectory, downloadFiles);
-        } catch (ParameterException | IOException | CellBaseException | InterruptedException | NoSuchMethodException
-                | FileFormatException e) {
+        } catch (ParameterException | IOException | CellBaseException | InterruptedException e) {
             logger.error("Error in 'download' command line: " + e.getMessage());
         }
     }
 
+    private List<DownloadFile> download(Downloader downloader, String data) throws IOException, CellBaseException, InterruptedException,
+            NoSuchMethodException, FileFormatException {
+        switch (data) {
+            case EtlCommons.GENOME_DATA:
+                return downloader.downloadGenome();
+            case EtlCommons.GENE_DATA:
+                return downloader.downloadGene();
+//            case EtlCommons.VARIATION_DATA:
+//                downloadManager.downloadVariation();
+//                break;
+            case EtlCommons.VARIATION_FUNCTIONAL_SCORE_DATA:
+                return downloader.downloadCaddScores();
+            case EtlCommons.MISSENSE_VARIATION_SCORE_DATA:
+                return downloader.downloadPredictionScores();
+            case EtlCommons.REGULATION_DATA:
+                return downloader.downloadRegulation();
+            case EtlCommons.PROTEIN_DATA:
+                return downloader.downloadProtein();
+            case EtlCommons.CONSERVATION_DATA:
+                return downloader.downloadConservation();
+            case EtlCommons.CLINICAL_VARIANTS_DATA:
+                return downloader.downloadClinicalVariants();
+//            case EtlCommons.STRUCTURAL_VARIANTS_DATA:
+//                downloadFiles.add(downloadManager.downloadStructuralVariants());
+//                break;
+            case EtlCommons.REPEATS_DATA:
+                return downloader.downloadRepeats();
+            case EtlCommons.OBO_DATA:
+                return downloader.downloadOntologies();
+            case EtlCommons.PUBMED_DATA:
+                return downloader.downloadPubMed();
+            case EtlCommons.PHARMACOGENOMICS_DATA:
+                return downloader.downloadPharmKGB();
+            default:
+                System.out.println("Value \"" + data + "\" is not allowed for the data parameter. Allowed values"
+                        + " are: {genome, gene, gene_disease_association, variation, variation_functional_score,"
+                        + " regulation, protein, conservation, clinical_variants, ontology, pubmed}");
+                return Collections.emptyList();
+        }
+    }
+
     private List<String> getDataList(String species) throws CellBaseException {
         if (StringUtils.isEmpty(downloadCommandOptions.data) || downloadCommandOptions.data.equals("all")) {
             return SpeciesUtils.getSpeciesConfiguration(configuration, species).getData();
@@ -29,6 +29,7 @@ import org.opencb.cellbase.core.api.query.QueryException;
 import org.opencb.cellbase.core.exception.CellBaseException;
 import org.opencb.cellbase.core.models.DataRelease;
 import org.opencb.cellbase.core.result.CellBaseDataResult;
+import org.opencb.cellbase.core.serializer.CellBaseAvroFileSerializer;
 import org.opencb.cellbase.core.serializer.CellBaseFileSerializer;
 import org.opencb.cellbase.core.serializer.CellBaseJsonFileSerializer;
 import org.opencb.cellbase.lib.EtlCommons;
@@ -59,11 +60,15 @@ public class ExportCommandExecutor extends CommandExecutor {
     private String[] dataToExport;
     private int dataRelease;
     private String token;
+    private String format;
+    private int numThreads;
 
     private String database;
     private CellBaseManagerFactory managerFactory;
 
     private static final int THRESHOLD_LENGTH = 1000;
+    private static final String JSON_FORMAT = "json";
+    private static final String AVRO_FORMAT = "avro";
 
     public ExportCommandExecutor(AdminCliOptionsParser.ExportCommandOptions exportCommandOptions) {
         super(exportCommandOptions.commonOptions.logLevel, exportCommandOptions.commonOptions.conf);
@@ -72,6 +77,8 @@ public class ExportCommandExecutor extends CommandExecutor {
 
         this.dataRelease = exportCommandOptions.dataRelease;
         this.token = exportCommandOptions.token;
+        this.format = exportCommandOptions.format;
+        this.numThreads = Math.max(1, exportCommandOptions.numThreads);
 
         this.output = Paths.get(exportCommandOptions.output);
 
@@ -97,6 +104,10 @@ public class ExportCommandExecutor extends CommandExecutor {
      * @throws CellBaseException CellBase exception
      */
     public void execute() throws CellBaseException {
+        if (!JSON_FORMAT.equals(format) && !AVRO_FORMAT.equals(format)) {
+            throw new CellBaseException("Invalid export format '" + format + "'. Valid formats are: " + JSON_FORMAT + ", "
+                    + AVRO_FORMAT);
+        }
         checkDataRelease();
 
         logger.info("Exporting from data release {}", dataRelease);
@@ -320,7 +331,14 @@ public class ExportCommandExecutor extends CommandExecutor {
     private int exportClinicalVariantData(List<Region> regions) throws CellBaseException, QueryException, IllegalAccessException,
             IOException {
         String baseFilename = CLINICAL_VARIANTS_DATA + ".full";
-        CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(output, baseFilename);
+        boolean avro = AVRO_FORMAT.equals(format);
+        CellBaseFileSerializer serializer;
+        if (avro) {
+            checkPath(output.resolve(baseFilename));
+            serializer = new CellBaseAvroFileSerializer(output.resolve(baseFilename));
+        } else {
+            serializer = new CellBaseJsonFileSerializer(output, baseFilename);
+        }
         ClinicalManager clinicalManager = managerFactory.getClinicalManager(species, assembly);
         ClinicalVariantQuery query = new ClinicalVariantQuery();
         query.setDataRelease(dataRelease);
@@ -331,7 +349,11 @@ public class ExportCommandExecutor extends CommandExecutor {
             CellBaseDataResult<Variant> results = clinicalManager.search(query);
             logger.info("{} retrieved clinical variant data from region {}", results.getNumResults(), region);
             for (Variant variant : results.getResults()) {
-                serializer.serialize(variant);
+                if (avro) {
+                    serializer.serialize(variant, baseFilename + "_" + variant.getChromosome());
+                } else {
+                    serializer.serialize(variant);
+                }
                 counter++;
                 if (counter % 1000 == 0) {
                     logger.info("{} clinical variants written....", counter);
@@ -440,6 +462,14 @@ public class ExportCommandExecutor extends CommandExecutor {
 
     private int writeExportedData(List<?> objects, String baseFilename, Path outDir) throws IOException {
         checkPath(outDir);
+        if (AVRO_FORMAT.equals(format)) {
+            if (objects.isEmpty() || CellBaseAvroFileSerializer.isSupported(objects.get(0).getClass())) {
+                // Data models are written into outDir/baseFilename/baseFilename_chromosome.avro files
+                return CellBaseAvroFileSerializer.writePartitions(objects, outDir, baseFilename, numThreads);
+            }
+            logger.warn("No Avro schema can be derived from {}, '{}' data is exported as JSON", objects.get(0).getClass().getName(),
+                    baseFilename);
+        }
         int counter = 0;
         CellBaseFileSerializer serializer = new CellBaseJsonFileSerializer(outDir);
         for (Object object : objects) {
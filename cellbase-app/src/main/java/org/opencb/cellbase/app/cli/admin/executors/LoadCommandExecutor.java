@@ -38,10 +38,7 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -65,6 +62,15 @@ public class LoadCommandExecutor extends CommandExecutor {
     private boolean createIndexes;
     private IndexManager indexManager;
     private DataReleaseManager dataReleaseManager;
+    private int maxWriters;
+    private int indexJobs;
+
+    // Collections waiting for their indexes to be built, in load order
+    private final List<String> pendingIndexes = Collections.synchronizedList(new ArrayList<>());
+    // key = collection, release updates waiting for the collection indexes to be built
+    private final Map<String, List<ReleaseUpdate>> pendingReleaseUpdates = Collections.synchronizedMap(new HashMap<>());
+    // key = collection
+    private final Map<String, LoadStats> loadStats = Collections.synchronizedMap(new LinkedHashMap<>());
 
     public LoadCommandExecutor(AdminCliOptionsParser.LoadCommandOptions loadCommandOptions) {
         super(loadCommandOptions.commonOptions.logLevel, loadCommandOptions.commonOptions.conf);
@@ -121,193 +127,205 @@ public class LoadCommandExecutor extends CommandExecutor {
                 indexManager = new IndexManager(database, indexFile, configuration);
             }
 
-            for (String loadOption : loadOptions) {
-                try {
-                    switch (loadOption) {
-                        case EtlCommons.GENOME_DATA: {
-                            // Load data
-                            if (input.resolve("genome_info.json").toFile().exists()) {
-                                loadIfExists(input.resolve("genome_info.json"), "genome_info");
-                            } else {
-                                loadIfExists(input.resolve("genome_info.json.gz"), "genome_info");
-                            }
-                            loadIfExists(input.resolve("genome_sequence.json.gz"), "genome_sequence");
-
-                            // Create index
-                            createIndex("genome_info");
-                            createIndex("genome_sequence");
-
-                            // Update release (collection and sources)
-                            List<Path> sources = new ArrayList<>(Arrays.asList(
-                                    input.resolve("genomeVersion.json")
-                            ));
-                            dataReleaseManager.update(dataRelease, "genome_info", EtlCommons.GENOME_DATA, sources);
-                            dataReleaseManager.update(dataRelease, "genome_sequence", null, null);
-                            break;
-                        }
-                        case EtlCommons.GENE_DATA: {
-                            // Load data
-                            loadIfExists(input.resolve("gene.json.gz"), "gene");
-
-                            // Create index
-                            createIndex("gene");
-
-                            // Update release (collection and sources)
-                            List<Path> sources = new ArrayList<>(Arrays.asList(
-                                    input.resolve("dgidbVersion.json"),
-                                    input.resolve("ensemblCoreVersion.json"),
-                                    input.resolve("uniprotXrefVersion.json"),
-                                    input.resolve("geneExpressionAtlasVersion.json"),
-                                    input.resolve("hpoVersion.json"),
-                                    input.resolve("disgenetVersion.json"),
-                                    input.resolve("gnomadVersion.json")
-                            ));
-                            dataReleaseManager.update(dataRelease, "gene", EtlCommons.GENE_DATA, sources);
-                            break;
-                        }
-                        case EtlCommons.REFSEQ_DATA: {
-                            // Load data
-                            loadIfExists(input.resolve("refseq.json.gz"), "refseq");
-
-                            // Create index
-                            createIndex("refseq");
-
-                            // Update release (collection and sources)
-                            List<Path> sources = new ArrayList<>(
-                                    Collections.singletonList(input.resolve("refseqVersion.json")));
-                            dataReleaseManager.update(dataRelease, "refseq", EtlCommons.REFSEQ_DATA, sources);
-                            break;
-                        }
-                        case EtlCommons.VARIATION_DATA: {
-                            // Load data, create index and update release
-                            loadVariationData();
-                            break;
-                        }
-                        case EtlCommons.VARIATION_FUNCTIONAL_SCORE_DATA: {
-                            // Load data
-                            loadIfExists(input.resolve("cadd.json.gz"), "variation_functional_score");
-
-                            // Create index
-                            createIndex("variation_functional_score");
-
-                            // Update release (collection and sources)
-                            List<Path> sources = new ArrayList<>(Collections.singletonList(input.resolve("caddVersion.json")));
-                            dataReleaseManager.update(dataRelease, "variation_functional_score",
-                                    EtlCommons.VARIATION_FUNCTIONAL_SCORE_DATA, sources);
-                            break;
-                        }
-                        case EtlCommons.MISSENSE_VARIATION_SCORE_DATA: {
-                            // Load data
-                            loadIfExists(input.resolve("missense_variation_functional_score.json.gz"),
-                                    "missense_variation_functional_score");
-
-                            // Create index
-                            createIndex("missense_variation_functional_score");
-
-                            // Update release (collection and sources)
-                            List<Path> sources = new ArrayList<>(Collections.singletonList(input.resolve("revelVersion.json")));
-                            dataReleaseManager.update(dataRelease, "missense_variation_functional_score",
-                                    EtlCommons.MISSENSE_VARIATION_SCORE_DATA, sources);
-                            break;
-                        }
-                        case EtlCommons.CONSERVATION_DATA: {
-                            // Load data, create index and update release
-                            loadConservation();
-                            break;
-                        }
-                        case EtlCommons.REGULATION_DATA: {
-                            // Load data (regulatory region and regulatory PFM))
-                            loadIfExists(input.resolve("regulatory_region.json.gz"), "regulatory_region");
-                            loadIfExists(input.resolve("regulatory_pfm.json.gz"), "regulatory_pfm");
-
-                            // Create index
-                            createIndex("regulatory_region");
-                            createIndex("regulatory_pfm");
-
-                            // Update release (collection and sources)
-                            List<Path> sources = new ArrayList<>(Collections.singletonList(input.resolve("ensemblRegulationVersion.json")));
-                            dataReleaseManager.update(dataRelease, "regulatory_region", EtlCommons.REGULATION_DATA, sources);
-                            dataReleaseManager.update(dataRelease, "regulatory_pfm", null, null);
-                            break;
-                        }
-                        case EtlCommons.PROTEIN_DATA: {
-                            // Load data
-                            loadIfExists(input.resolve("protein.json.gz"), "protein");
-
-                            // Create index
-                            createIndex("protein");
-
-                            // Update release (collection and sources)
-                            List<Path> sources = new ArrayList<>(Arrays.asList(
-                                    input.resolve("uniprotVersion.json"),
-                                    input.resolve("interproVersion.json")
-                            ));
-                            dataReleaseManager.update(dataRelease, "protein", EtlCommons.PROTEIN_DATA, sources);
-                            break;
-                        }
+            // Collections are loaded concurrently within the writer budget, each load uses 'numThreads' writers
+            BuildScheduler loadScheduler = new BuildScheduler(maxWriters, 0);
+            for (String loadOption : new LinkedHashSet<>(Arrays.asList(loadOptions))) {
+                loadScheduler.addTask(loadOption, null, numThreads, 0, () -> load(loadOption));
+            }
+            try {
+                loadScheduler.run();
+                logger.info("Load summary:\n{}", loadScheduler.getSummary());
+
+                // Indexes are built once all the data is in, for different collections at the same time
+                createIndexes();
+            } catch (InterruptedException e) {
+                logger.error("Load interrupted: " + e.getMessage());
+                Thread.currentThread().interrupt();
+            }
+            logger.info("Load throughput:\n{}", getLoadThroughput());
+        }
+    }
+
+    private void load(String loadOption) throws Exception {
+        switch (loadOption) {
+            case EtlCommons.GENOME_DATA: {
+                // Load data
+                if (input.resolve("genome_info.json").toFile().exists()) {
+                    loadIfExists(input.resolve("genome_info.json"), "genome_info");
+                } else {
+                    loadIfExists(input.resolve("genome_info.json.gz"), "genome_info");
+                }
+                loadIfExists(input.resolve("genome_sequence.json.gz"), "genome_sequence");
+
+                // Create index
+                scheduleIndex("genome_info");
+                scheduleIndex("genome_sequence");
+
+                // Update release (collection and sources)
+                List<Path> sources = new ArrayList<>(Arrays.asList(
+                        input.resolve("genomeVersion.json")
+                ));
+                updateRelease("genome_info", EtlCommons.GENOME_DATA, sources);
+                updateRelease("genome_sequence", null, null);
+                break;
+            }
+            case EtlCommons.GENE_DATA: {
+                // Load data
+                loadIfExists(input.resolve("gene.json.gz"), "gene");
+
+                // Create index
+                scheduleIndex("gene");
+
+                // Update release (collection and sources)
+                List<Path> sources = new ArrayList<>(Arrays.asList(
+                        input.resolve("dgidbVersion.json"),
+                        input.resolve("ensemblCoreVersion.json"),
+                        input.resolve("uniprotXrefVersion.json"),
+                        input.resolve("geneExpressionAtlasVersion.json"),
+                        input.resolve("hpoVersion.json"),
+                        input.resolve("disgenetVersion.json"),
+                        input.resolve("gnomadVersion.json")
+                ));
+                updateRelease("gene", EtlCommons.GENE_DATA, sources);
+                break;
+            }
+            case EtlCommons.REFSEQ_DATA: {
+                // Load data
+                loadIfExists(input.resolve("refseq.json.gz"), "refseq");
+
+                // Create index
+                scheduleIndex("refseq");
+
+                // Update release (collection and sources)
+                List<Path> sources = new ArrayList<>(
+                        Collections.singletonList(input.resolve("refseqVersion.json")));
+                updateRelease("refseq", EtlCommons.REFSEQ_DATA, sources);
+                break;
+            }
+            case EtlCommons.VARIATION_DATA: {
+                // Load data, create index and update release
+                loadVariationData();
+                break;
+            }
+            case EtlCommons.VARIATION_FUNCTIONAL_SCORE_DATA: {
+                // Load data
+                loadIfExists(input.resolve("cadd.json.gz"), "variation_functional_score");
+
+                // Create index
+                scheduleIndex("variation_functional_score");
+
+                // Update release (collection and sources)
+                List<Path> sources = new ArrayList<>(Collections.singletonList(input.resolve("caddVersion.json")));
+                updateRelease("variation_functional_score",
+                        EtlCommons.VARIATION_FUNCTIONAL_SCORE_DATA, sources);
+                break;
+            }
+            case EtlCommons.MISSENSE_VARIATION_SCORE_DATA: {
+                // Load data
+                loadIfExists(input.resolve("missense_variation_functional_score.json.gz"),
+                        "missense_variation_functional_score");
+
+                // Create index
+                scheduleIndex("missense_variation_functional_score");
+
+                // Update release (collection and sources)
+                List<Path> sources = new ArrayList<>(Collections.singletonList(input.resolve("revelVersion.json")));
+                updateRelease("missense_variation_functional_score",
+                        EtlCommons.MISSENSE_VARIATION_SCORE_DATA, sources);
+                break;
+            }
+            case EtlCommons.CONSERVATION_DATA: {
+                // Load data, create index and update release
+                loadConservation();
+                break;
+            }
+            case EtlCommons.REGULATION_DATA: {
+                // Load data (regulatory region and regulatory PFM))
+                loadIfExists(input.resolve("regulatory_region.json.gz"), "regulatory_region");
+                loadIfExists(input.resolve("regulatory_pfm.json.gz"), "regulatory_pfm");
+
+                // Create index
+                scheduleIndex("regulatory_region");
+                scheduleIndex("regulatory_pfm");
+
+                // Update release (collection and sources)
+                List<Path> sources = new ArrayList<>(Collections.singletonList(input.resolve("ensemblRegulationVersion.json")));
+                updateRelease("regulatory_region", EtlCommons.REGULATION_DATA, sources);
+                updateRelease("regulatory_pfm", null, null);
+                break;
+            }
+            case EtlCommons.PROTEIN_DATA: {
+                // Load data
+                loadIfExists(input.resolve("protein.json.gz"), "protein");
+
+                // Create index
+                scheduleIndex("protein");
+
+                // Update release (collection and sources)
+                List<Path> sources = new ArrayList<>(Arrays.asList(
+                        input.resolve("uniprotVersion.json"),
+                        input.resolve("interproVersion.json")
+                ));
+                updateRelease("protein", EtlCommons.PROTEIN_DATA, sources);
+                break;
+            }
 //                        case EtlCommons.PPI_DATA:
 //                            loadIfExists(input.resolve("protein_protein_interaction.json.gz"), "protein_protein_interaction");
 //                            loadIfExists(input.resolve("intactVersion.json"), METADATA);
-//                            createIndex("protein_protein_interaction");
+//                            scheduleIndex("protein_protein_interaction");
 //                            break;
-                        case EtlCommons.PROTEIN_FUNCTIONAL_PREDICTION_DATA: {
-                            // Load data, create index and update release
-                            loadProteinFunctionalPrediction();
-                            break;
-                        }
-                        case EtlCommons.CLINICAL_VARIANTS_DATA: {
-                            // Load data, create index and update release
-                            loadClinical();
-                            break;
-                        }
-                        case EtlCommons.REPEATS_DATA: {
-                            // Load data, create index and update release
-                            loadRepeats();
-                            break;
-                        }
+            case EtlCommons.PROTEIN_FUNCTIONAL_PREDICTION_DATA: {
+                // Load data, create index and update release
+                loadProteinFunctionalPrediction();
+                break;
+            }
+            case EtlCommons.CLINICAL_VARIANTS_DATA: {
+                // Load data, create index and update release
+                loadClinical();
+                break;
+            }
+            case EtlCommons.REPEATS_DATA: {
+                // Load data, create index and update release
+                loadRepeats();
+                break;
+            }
 //                        case EtlCommons.STRUCTURAL_VARIANTS_DATA:
 //                            loadStructuralVariants();
 //                            break;
-                        case EtlCommons.OBO_DATA: {
-                            // Load data
-                            loadIfExists(input.resolve("ontology.json.gz"), "ontology");
-
-                            // Create index
-                            createIndex("ontology");
-
-                            // Update release (collection and sources)
-                            List<Path> sources = new ArrayList<>(Arrays.asList(
-                                    input.resolve(EtlCommons.HPO_VERSION_FILE),
-                                    input.resolve(EtlCommons.GO_VERSION_FILE),
-                                    input.resolve(EtlCommons.DO_VERSION_FILE)
-                            ));
-                            dataReleaseManager.update(dataRelease, "ontology", EtlCommons.OBO_DATA, sources);
-                            break;
-                        }
-                        case EtlCommons.SPLICE_SCORE_DATA: {
-                            // Load data, create index and update release
-                            loadSpliceScores();
-                            break;
-                        }
-                        case EtlCommons.PUBMED_DATA: {
-                            // Load data, create index and update release
-                            loadPubMed();
-                            break;
-                        }
-                        case EtlCommons.PHARMACOGENOMICS_DATA: {
-                            // Load data, create index and update release
-                            loadPharmacogenomica();
-                            break;
-                        }
-                        default:
-                            logger.warn("Not valid 'data'. We should not reach this point");
-                            break;
-                    }
-                } catch (IllegalAccessException | InstantiationException | InvocationTargetException | ExecutionException
-                        | NoSuchMethodException | InterruptedException | ClassNotFoundException | LoaderException | IOException e) {
-                    e.printStackTrace();
-                }
+            case EtlCommons.OBO_DATA: {
+                // Load data
+                loadIfExists(input.resolve("ontology.json.gz"), "ontology");
+
+                // Create index
+                scheduleIndex("ontology");
+
+                // Update release (collection and sources)
+                List<Path> sources = new ArrayList<>(Arrays.asList(
+                        input.resolve(EtlCommons.HPO_VERSION_FILE),
+                        input.resolve(EtlCommons.GO_VERSION_FILE),
+                        input.resolve(EtlCommons.DO_VERSION_FILE)
+                ));
+                updateRelease("ontology", EtlCommons.OBO_DATA, sources);
+                break;
+            }
+            case EtlCommons.SPLICE_SCORE_DATA: {
+                // Load data, create index and update release
+                loadSpliceScores();
+                break;
             }
+            case EtlCommons.PUBMED_DATA: {
+                // Load data, create index and update release
+                loadPubMed();
+                break;
+            }
+            case EtlCommons.PHARMACOGENOMICS_DATA: {
+                // Load data, create index and update release
+                loadPharmacogenomica();
+                break;
+            }
+            default:
+                logger.warn("Not valid 'data'. We should not reach this point");
+                break;
         }
     }
 
@@ -331,7 +349,7 @@ public class LoadCommandExecutor extends CommandExecutor {
         File file = new File(path.toString());
         if (file.exists()) {
             if (file.isFile()) {
-                loadRunner.load(path, collection, dataRelease);
+                loadFile(path, collection);
             } else {
                 logger.warn("{} is not a file - skipping", path);
             }
@@ -348,6 +366,9 @@ public class LoadCommandExecutor extends CommandExecutor {
             logger.warn("Incorrect number of numThreads, it must be a positive value. This has been set to '{}'", numThreads);
         }
 
+        maxWriters = Math.max(numThreads, loadCommandOptions.maxWriters);
+        indexJobs = Math.max(1, loadCommandOptions.indexJobs);
+
         if (field != null) {
             if (loadCommandOptions.data == null) {
                 logger.error("--data option cannot be empty. Please provide a valid value for the --data parameter.");
@@ -380,17 +401,17 @@ public class LoadCommandExecutor extends CommandExecutor {
 
             for (Path entry : stream) {
                 logger.info("Loading file '{}'", entry);
-                loadRunner.load(input.resolve(entry.getFileName()), "variation", dataRelease);
+                loadFile(input.resolve(entry.getFileName()), "variation");
             }
 
             // Create index
-            createIndex("variation");
+            scheduleIndex("variation");
 
             // Update release (collection and sources)
             List<Path> sources = new ArrayList<>(Arrays.asList(
                     input.resolve("ensemblVariationVersion.json")
             ));
-            dataReleaseManager.update(dataRelease, "variation", EtlCommons.VARIATION_DATA, sources);
+            updateRelease("variation", EtlCommons.VARIATION_DATA, sources);
 
             // Custom update required e.g. population freqs loading
         } else {
@@ -408,11 +429,11 @@ public class LoadCommandExecutor extends CommandExecutor {
 
         for (Path entry : stream) {
             logger.info("Loading file '{}'", entry);
-            loadRunner.load(input.resolve(entry.getFileName()), "conservation", dataRelease);
+            loadFile(input.resolve(entry.getFileName()), "conservation");
         }
 
         // Create index
-        createIndex("conservation");
+        scheduleIndex("conservation");
 
         // Update release (collection and sources)
         List<Path> sources = new ArrayList<>(Arrays.asList(
@@ -420,7 +441,7 @@ public class LoadCommandExecutor extends CommandExecutor {
                 input.resolve("phastConsVersion.json"),
                 input.resolve("phyloPVersion.json")
         ));
-        dataReleaseManager.update(dataRelease, "conservation", EtlCommons.CONSERVATION_DATA, sources);
+        updateRelease("conservation", EtlCommons.CONSERVATION_DATA, sources);
     }
 
     private void loadProteinFunctionalPrediction() throws NoSuchMethodException, InterruptedException, ExecutionException,
@@ -432,14 +453,14 @@ public class LoadCommandExecutor extends CommandExecutor {
 
         for (Path entry : stream) {
             logger.info("Loading file '{}'", entry);
-            loadRunner.load(input.resolve(entry.getFileName()), "protein_functional_prediction", dataRelease);
+            loadFile(input.resolve(entry.getFileName()), "protein_functional_prediction");
         }
 
         // Create index
-        createIndex("protein_functional_prediction");
+        scheduleIndex("protein_functional_prediction");
 
         // Update release (collection and sources)
-        dataReleaseManager.update(dataRelease, "protein_functional_prediction", null, null);
+        updateRelease("protein_functional_prediction", null, null);
     }
 
     private void loadClinical() throws FileNotFoundException {
@@ -448,10 +469,10 @@ public class LoadCommandExecutor extends CommandExecutor {
             try {
                 // Load data
                 logger.info("Loading '{}' ...", path);
-                loadRunner.load(path, "clinical_variants", dataRelease);
+                loadFile(path, "clinical_variants");
 
                 // Create index
-                createIndex("clinical_variants");
+                scheduleIndex("clinical_variants");
 
                 // Update release (collection and sources)
                 List<Path> sources = new ArrayList<>(Arrays.asList(
@@ -459,7 +480,7 @@ public class LoadCommandExecutor extends CommandExecutor {
                         input.resolve("cosmicVersion.json"),
                         input.resolve("gwasVersion.json")
                 ));
-                dataReleaseManager.update(dataRelease, "clinical_variants", EtlCommons.CLINICAL_VARIANTS_DATA, sources);
+                updateRelease("clinical_variants", EtlCommons.CLINICAL_VARIANTS_DATA, sources);
             } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | InvocationTargetException
                     | IllegalAccessException | ExecutionException | IOException | InterruptedException | CellBaseException e) {
                 logger.error(e.toString());
@@ -477,10 +498,10 @@ public class LoadCommandExecutor extends CommandExecutor {
             try {
                 // Load data
                 logger.debug("Loading '{}' ...", path);
-                loadRunner.load(path, "repeats", dataRelease);
+                loadFile(path, "repeats");
 
                 // Create index
-                createIndex("repeats");
+                scheduleIndex("repeats");
 
                 // Update release (collection and sources)
                 List<Path> sources = new ArrayList<>(Arrays.asList(
@@ -488,7 +509,7 @@ public class LoadCommandExecutor extends CommandExecutor {
                         input.resolve(EtlCommons.GSD_VERSION_FILE),
                         input.resolve(EtlCommons.WM_VERSION_FILE)
                 ));
-                dataReleaseManager.update(dataRelease, "repeats", EtlCommons.REPEATS_DATA, sources);
+                updateRelease("repeats", EtlCommons.REPEATS_DATA, sources);
             } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | InvocationTargetException
                     | IllegalAccessException | ExecutionException | IOException | InterruptedException | CellBaseException e) {
                 logger.error(e.toString());
@@ -511,14 +532,14 @@ public class LoadCommandExecutor extends CommandExecutor {
         loadSpliceScores(input.resolve(EtlCommons.SPLICE_SCORE_DATA + "/" + EtlCommons.SPLICEAI_SUBDIRECTORY));
 
         // Create index
-        createIndex("splice_score");
+        scheduleIndex("splice_score");
 
         // Update release (collection and sources)
         List<Path> sources = new ArrayList<>(Arrays.asList(
                 input.resolve(EtlCommons.SPLICE_SCORE_DATA + "/" + EtlCommons.MMSPLICE_VERSION_FILENAME),
                 input.resolve(EtlCommons.SPLICE_SCORE_DATA + "/" + EtlCommons.SPLICEAI_VERSION_FILENAME)
         ));
-        dataReleaseManager.update(dataRelease, "splice_score", EtlCommons.SPLICE_SCORE_DATA, sources);
+        updateRelease("splice_score", EtlCommons.SPLICE_SCORE_DATA, sources);
     }
 
     private void loadSpliceScores(Path spliceFolder) throws IOException, ExecutionException, InterruptedException,
@@ -531,7 +552,7 @@ public class LoadCommandExecutor extends CommandExecutor {
         // Load from JSON files
         for (Path entry : stream) {
             logger.info("Loading file '{}'", entry);
-            loadRunner.load(spliceFolder.resolve(entry.getFileName()), "splice_score", dataRelease);
+            loadFile(spliceFolder.resolve(entry.getFileName()), "splice_score");
         }
     }
 
@@ -544,7 +565,7 @@ public class LoadCommandExecutor extends CommandExecutor {
                 if (file.isFile() && (file.getName().endsWith("gz"))) {
                     logger.info("Loading file '{}'", file.getName());
                     try {
-                        loadRunner.load(file.toPath(), EtlCommons.PUBMED_DATA, dataRelease);
+                        loadFile(file.toPath(), EtlCommons.PUBMED_DATA);
                     } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | InvocationTargetException
                             | IllegalAccessException | ExecutionException | IOException | InterruptedException | LoaderException e) {
                         logger.error("Error loading file '{}': {}", file.getName(), e.toString());
@@ -552,11 +573,11 @@ public class LoadCommandExecutor extends CommandExecutor {
                 }
             }
             // Create index
-            createIndex(EtlCommons.PUBMED_DATA);
+            scheduleIndex(EtlCommons.PUBMED_DATA);
 
             // Update release (collection and sources)
             List<Path> sources = Collections.singletonList(pubmedPath.resolve(EtlCommons.PUBMED_VERSION_FILENAME));
-            dataReleaseManager.update(dataRelease, EtlCommons.PUBMED_DATA, EtlCommons.PUBMED_DATA, sources);
+            updateRelease(EtlCommons.PUBMED_DATA, EtlCommons.PUBMED_DATA, sources);
         } else {
             logger.warn("PubMed folder {} not found", pubmedPath);
         }
@@ -574,7 +595,7 @@ public class LoadCommandExecutor extends CommandExecutor {
         Path pharmaJsonPath = pharmaPath.resolve(EtlCommons.PHARMACOGENOMICS_DATA + ".json.gz");
         logger.info("Loading file '{}'", pharmaJsonPath.toFile().getName());
         try {
-            loadRunner.load(pharmaJsonPath, EtlCommons.PHARMACOGENOMICS_DATA, dataRelease);
+            loadFile(pharmaJsonPath, EtlCommons.PHARMACOGENOMICS_DATA);
         } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | InvocationTargetException
                 | IllegalAccessException | ExecutionException | IOException | InterruptedException | CellBaseException
                 | LoaderException e) {
@@ -582,23 +603,136 @@ public class LoadCommandExecutor extends CommandExecutor {
         }
 
         // Create index
-        createIndex(EtlCommons.PHARMACOGENOMICS_DATA);
+        scheduleIndex(EtlCommons.PHARMACOGENOMICS_DATA);
 
         // Update release (collection and sources)
         List<Path> sources = Collections.singletonList(pharmaPath.resolve(EtlCommons.PHARMGKB_VERSION_FILENAME));
-        dataReleaseManager.update(dataRelease, EtlCommons.PHARMACOGENOMICS_DATA, EtlCommons.PHARMACOGENOMICS_DATA, sources);
+        updateRelease(EtlCommons.PHARMACOGENOMICS_DATA, EtlCommons.PHARMACOGENOMICS_DATA, sources);
+
+        // Load the variant-keyed index used by the variant annotation, it is only available if it was built
+        Path pharmaVariantJsonPath = pharmaPath.resolve(EtlCommons.PHARMACOGENOMICS_VARIANT_DATA + ".json.gz");
+        if (Files.exists(pharmaVariantJsonPath)) {
+            logger.info("Loading file '{}'", pharmaVariantJsonPath.toFile().getName());
+            try {
+                loadFile(pharmaVariantJsonPath, EtlCommons.PHARMACOGENOMICS_VARIANT_DATA);
+            } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | InvocationTargetException
+                    | IllegalAccessException | ExecutionException | IOException | InterruptedException | CellBaseException
+                    | LoaderException e) {
+                logger.error("Error loading file '{}': {}", pharmaVariantJsonPath.toFile().getName(), e.toString());
+            }
+            scheduleIndex(EtlCommons.PHARMACOGENOMICS_VARIANT_DATA);
+            updateRelease(EtlCommons.PHARMACOGENOMICS_VARIANT_DATA, null, null);
+        } else {
+            logger.warn("Pharmacogenomics variant index {} not found, variant annotation will query chemicals by location",
+                    pharmaVariantJsonPath);
+        }
     }
 
-    private void createIndex(String collection) {
+    private void loadFile(Path path, String collection) throws NoSuchMethodException, InterruptedException, ExecutionException,
+            InstantiationException, IOException, IllegalAccessException, InvocationTargetException, ClassNotFoundException,
+            LoaderException, CellBaseException {
+        long start = System.currentTimeMillis();
+        int documents = loadRunner.load(path, collection, dataRelease);
+        long time = System.currentTimeMillis() - start;
+        loadStats.computeIfAbsent(collection, LoadStats::new).add(documents, Files.size(path), time);
+    }
+
+    private void scheduleIndex(String collection) {
         if (!createIndexes) {
             return;
         }
-        String collectionName = CellBaseDBAdaptor.buildCollectionName(collection, dataRelease);
-        logger.info("Loading indexes for '{}' collection ...", collectionName);
-        try {
-            indexManager.createMongoDBIndexes(Collections.singletonList(collectionName), true);
-        } catch (IOException e) {
-            logger.error("Error creating index: {}", e.getMessage());
+        // Indexes are not built right after loading, so MongoDB spends its time loading while other collections are
+        // still being loaded
+        pendingIndexes.add(collection);
+    }
+
+    private void updateRelease(String collection, String data, List<Path> sources) throws CellBaseException {
+        if (createIndexes && pendingIndexes.contains(collection)) {
+            // The collection is not added to the data release until its indexes are built, otherwise the release
+            // would point to a collection that can not be queried yet
+            pendingReleaseUpdates.computeIfAbsent(collection, k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(new ReleaseUpdate(collection, data, sources));
+        } else {
+            dataReleaseManager.update(dataRelease, collection, data, sources);
+        }
+    }
+
+    private void createIndexes() throws InterruptedException {
+        if (!createIndexes || pendingIndexes.isEmpty()) {
+            return;
+        }
+        BuildScheduler indexScheduler = new BuildScheduler(indexJobs, 0);
+        for (String collection : new LinkedHashSet<>(pendingIndexes)) {
+            String collectionName = CellBaseDBAdaptor.buildCollectionName(collection, dataRelease);
+            indexScheduler.addTask(collectionName, null, 1, 0, () -> {
+                logger.info("Loading indexes for '{}' collection ...", collectionName);
+                indexManager.createMongoDBIndexes(Collections.singletonList(collectionName), true);
+
+                // Only collections with all their indexes are added to the data release
+                List<ReleaseUpdate> releaseUpdates = pendingReleaseUpdates.remove(collection);
+                if (releaseUpdates != null) {
+                    for (ReleaseUpdate releaseUpdate : releaseUpdates) {
+                        dataReleaseManager.update(dataRelease, releaseUpdate.collection, releaseUpdate.data, releaseUpdate.sources);
+                    }
+                }
+            });
+        }
+        indexScheduler.run();
+        logger.info("Index summary:\n{}", indexScheduler.getSummary());
+        if (!pendingReleaseUpdates.isEmpty()) {
+            logger.warn("Data release {} not updated for collections {}, their indexes could not be built", dataRelease,
+                    pendingReleaseUpdates.keySet());
+        }
+    }
+
+    private String getLoadThroughput() {
+        StringBuilder sb = new StringBuilder("#collection\tdocuments\tMB\tseconds\tdocs/s\tMB/s\n");
+        for (LoadStats stats : loadStats.values()) {
+            sb.append(stats).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Documents and input bytes loaded into one collection, and the time spent loading them.
+     */
+    private static class LoadStats {
+        private final String collection;
+        private long documents;
+        private long bytes;
+        private long time;
+
+        LoadStats(String collection) {
+            this.collection = collection;
+        }
+
+        synchronized void add(long documents, long bytes, long time) {
+            this.documents += documents;
+            this.bytes += bytes;
+            this.time += time;
+        }
+
+        @Override
+        public synchronized String toString() {
+            double seconds = Math.max(time, 1) / 1000.0;
+            double megabytes = bytes / (1024.0 * 1024.0);
+            return String.format("%s\t%d\t%.1f\t%.1f\t%.1f\t%.2f", collection, documents, megabytes, time / 1000.0,
+                    documents / seconds, megabytes / seconds);
+        }
+    }
+
+    /**
+     * Collection and data sources to be added to the data release once the collection indexes are built.
+     */
+    private static class ReleaseUpdate {
+        private final String collection;
+        private final String data;
+        private final List<Path> sources;
+
+        ReleaseUpdate(String collection, String data, List<Path> sources) {
+            this.collection = collection;
+            this.data = data;
+            this.sources = sources;
         }
     }
 
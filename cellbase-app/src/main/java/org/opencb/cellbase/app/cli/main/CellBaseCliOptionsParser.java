@@ -188,6 +188,17 @@ public class CellBaseCliOptionsParser extends CliOptionsParser {
                 + " By default imprecision annotation is enabled.", required = false, arity = 0)
         public boolean noImprecision;
 
+        @Parameter(names = {"--cache-size"}, description = "Number of variant annotations kept in the client-side annotation"
+                + " cache when annotating in remote mode (--local NOT present). Variants already annotated are not sent"
+                + " again to the server. Set to 0 to disable the cache, or to keep annotations only in --cache-dir.",
+                required = false, arity = 1)
+        public int cacheSize = 0;
+
+        @Parameter(names = {"--cache-dir"}, description = "Directory of a local RocksDB file where the client-side annotation"
+                + " cache is persisted, so that it can be reused between runs. Only used when annotating in remote mode.",
+                required = false, arity = 1)
+        public String cacheDir;
+
         @Parameter(names = {"--check-aminoacid-change"}, description = "true/false to specify whether variant match in " +
                 "the clinical variant collection should also be performed at the aminoacid change level",
                 required = false,
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.app.cli.main.annotation;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.tools.variant.VariantNormalizer;
+import org.opencb.cellbase.lib.variant.annotation.PrefetchSequenceAdaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Normalizes batches of variants inside the annotation tasks, so normalization runs in as many threads as the
+ * annotation. When left alignment uses a PrefetchSequenceAdaptor the reference windows of the whole batch are fetched
+ * before normalizing it. Each task must use its own instance.
+ */
+public class BatchVariantNormalizer {
+
+    private final VariantNormalizer normalizer;
+    private final PrefetchSequenceAdaptor prefetchSequenceAdaptor;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public BatchVariantNormalizer(VariantNormalizer.VariantNormalizerConfig variantNormalizerConfig) {
+        this(variantNormalizerConfig, null);
+    }
+
+    /**
+     * @param variantNormalizerConfig normalizer configuration, left alignment must already be enabled with
+     *                                prefetchSequenceAdaptor when it is not null
+     * @param prefetchSequenceAdaptor sequence adaptor used by the normalizer, null if the sequences are not prefetched
+     */
+    public BatchVariantNormalizer(VariantNormalizer.VariantNormalizerConfig variantNormalizerConfig,
+                                  PrefetchSequenceAdaptor prefetchSequenceAdaptor) {
+        this.normalizer = new VariantNormalizer(variantNormalizerConfig);
+        this.prefetchSequenceAdaptor = prefetchSequenceAdaptor;
+    }
+
+    public List<Variant> apply(List<Variant> variantList) {
+        if (prefetchSequenceAdaptor != null) {
+            prefetchSequenceAdaptor.prefetch(variantList);
+        }
+        List<Variant> normalizedVariantList = new ArrayList<>(variantList.size());
+        for (Variant variant : variantList) {
+            try {
+                normalizedVariantList.addAll(normalizer.apply(Collections.singletonList(variant)));
+            } catch (RuntimeException e) {
+                logger.warn("Error found during variant normalization. Variant: {}", variant.toString());
+                logger.warn("This variant will be skipped and annotation will continue");
+                logger.warn("Full stack trace", e);
+            }
+        }
+        return normalizedVariantList;
+    }
+
+    public PrefetchSequenceAdaptor getPrefetchSequenceAdaptor() {
+        return prefetchSequenceAdaptor;
+    }
+}
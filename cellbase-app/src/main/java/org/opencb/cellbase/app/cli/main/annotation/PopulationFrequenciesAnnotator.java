@@ -16,13 +16,11 @@
 
 package org.opencb.cellbase.app.cli.main.annotation;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.MapperFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.PopulationFrequency;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.cellbase.app.cli.main.annotation.indexers.ConcurrentBitSet;
+import org.opencb.cellbase.app.cli.main.annotation.indexers.PopulationFrequencyIndexCodec;
 import org.opencb.cellbase.core.result.CellBaseDataResult;
 import org.opencb.cellbase.core.variant.PopulationFrequencyPhasedQueryManager;
 import org.opencb.cellbase.lib.variant.annotation.VariantAnnotator;
@@ -36,6 +34,7 @@ import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -45,23 +44,27 @@ public class PopulationFrequenciesAnnotator implements VariantAnnotator {
 
     private String fileName;
     private RocksDB dbIndex;
+    private ConcurrentBitSet visitedVariants;
     private RandomAccessFile reader;
     private final QueryOptions queryOptions;
 
 
-    private static ObjectMapper mapper = new ObjectMapper();
-    private static ObjectWriter jsonObjectWriter;
     private static PopulationFrequencyPhasedQueryManager phasedQueryManager
             = new PopulationFrequencyPhasedQueryManager();
 
-    static {
-        mapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
-        jsonObjectWriter = mapper.writer();
-    }
-
-    public PopulationFrequenciesAnnotator(String fileName, RocksDB dbIndex, QueryOptions queryOptions) {
+    /**
+     * The index is only read, variants found are flagged in visitedVariants.
+     *
+     * @param fileName population frequencies file
+     * @param dbIndex population frequencies index, values in the PopulationFrequencyIndexCodec format
+     * @param visitedVariants bit set where variant ordinals found in the index are flagged, shared by all the annotators
+     * @param queryOptions query options
+     */
+    public PopulationFrequenciesAnnotator(String fileName, RocksDB dbIndex, ConcurrentBitSet visitedVariants,
+                                          QueryOptions queryOptions) {
         this.fileName = fileName;
         this.dbIndex = dbIndex;
+        this.visitedVariants = visitedVariants;
         this.queryOptions = queryOptions;
     }
 
@@ -82,10 +85,7 @@ public class PopulationFrequenciesAnnotator implements VariantAnnotator {
      */
     public void run(List<Variant> variantList) {
 
-        List<CellBaseDataResult<Variant>> variantCellBaseDataResult = new ArrayList<>(variantList.size());
-        for (Variant variant: variantList) {
-            variantCellBaseDataResult.add(getPopulationFrequencies(variant));
-        }
+        List<CellBaseDataResult<Variant>> variantCellBaseDataResult = getPopulationFrequencies(variantList);
 
         if (queryOptions.get(IGNORE_PHASE) != null && !queryOptions.getBoolean(IGNORE_PHASE)) {
             variantCellBaseDataResult = phasedQueryManager.run(variantList, variantCellBaseDataResult);
@@ -93,7 +93,7 @@ public class PopulationFrequenciesAnnotator implements VariantAnnotator {
 
         for (int i = 0; i < variantList.size(); i++) {
             if (variantCellBaseDataResult != null && variantCellBaseDataResult.get(i).getResults() != null
-                    && variantCellBaseDataResult.get(i).getResults().isEmpty()) {
+                    && !variantCellBaseDataResult.get(i).getResults().isEmpty()) {
                 // Assuming if it gets to this point the variant has VariantAnnotation
                 // Only one variant  can be returned per query to RocksDB
                 List<PopulationFrequency> populationFrequencies
@@ -115,42 +115,46 @@ public class PopulationFrequenciesAnnotator implements VariantAnnotator {
         }
     }
 
-    private CellBaseDataResult<Variant> getPopulationFrequencies(Variant variant) {
-        CellBaseDataResult<Variant> populationFrequencyCellBaseDataResult = new CellBaseDataResult<>();
-        populationFrequencyCellBaseDataResult.setId(variant.toString());
+    private List<CellBaseDataResult<Variant>> getPopulationFrequencies(List<Variant> variantList) {
+        List<CellBaseDataResult<Variant>> populationFrequencyCellBaseDataResults = new ArrayList<>(variantList.size());
+        List<byte[]> variantKeys = new ArrayList<>(variantList.size());
+        for (Variant variant : variantList) {
+            populationFrequencyCellBaseDataResults.add(new CellBaseDataResult<>(variant.toString()));
+            variantKeys.add(variant.toString().getBytes());
+        }
+
         long start = System.currentTimeMillis();
         try {
-            byte[] variantKey = variant.toString().getBytes();
-            byte[] dbContent = dbIndex.get(variantKey);
-            if (dbContent != null) {
-                Variant variant1 = mapper.readValue(dbContent, Variant.class);
-                flagVisitedVariant(variantKey, variant1);
-
-                populationFrequencyCellBaseDataResult.setResults(Collections.singletonList(variant1));
-                populationFrequencyCellBaseDataResult.setNumResults(1);
-                populationFrequencyCellBaseDataResult.setNumMatches(1);
+            // One lookup for the whole batch, results are keyed by the same key instances
+            Map<byte[], byte[]> dbContents = dbIndex.multiGet(variantKeys);
+            for (int i = 0; i < variantList.size(); i++) {
+                byte[] dbContent = dbContents.get(variantKeys.get(i));
+                if (dbContent != null) {
+                    visitedVariants.set(PopulationFrequencyIndexCodec.getOrdinal(dbContent));
+
+                    Variant variant = variantList.get(i);
+                    Variant variant1 = new Variant(variant.getChromosome(), variant.getStart(), variant.getEnd(),
+                            variant.getReference(), variant.getAlternate());
+                    VariantAnnotation variantAnnotation = new VariantAnnotation();
+                    variantAnnotation.setPopulationFrequencies(PopulationFrequencyIndexCodec.getPopulationFrequencies(dbContent));
+                    variant1.setAnnotation(variantAnnotation);
+
+                    CellBaseDataResult<Variant> populationFrequencyCellBaseDataResult = populationFrequencyCellBaseDataResults.get(i);
+                    populationFrequencyCellBaseDataResult.setResults(Collections.singletonList(variant1));
+                    populationFrequencyCellBaseDataResult.setNumResults(1);
+                    populationFrequencyCellBaseDataResult.setNumMatches(1);
+                }
             }
-        } catch (RocksDBException | IOException e) {
+        } catch (RocksDBException e) {
             e.printStackTrace();
         }
 
         long end = System.currentTimeMillis();
-        populationFrequencyCellBaseDataResult.setTime((int) (end - start));
-
-        return populationFrequencyCellBaseDataResult;
-    }
-
-    private void flagVisitedVariant(byte[] key, Variant variant) {
-        // The annotation.additionalAttributes field is initialized with an empty map to flag this variant as
-        // already visited
-        variant.getAnnotation().setAdditionalAttributes(Collections.emptyMap());
-        try {
-            dbIndex.put(key, jsonObjectWriter.writeValueAsBytes(variant));
-        } catch (RocksDBException e) {
-            e.printStackTrace();
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
+        for (CellBaseDataResult<Variant> populationFrequencyCellBaseDataResult : populationFrequencyCellBaseDataResults) {
+            populationFrequencyCellBaseDataResult.setTime((int) (end - start));
         }
+
+        return populationFrequencyCellBaseDataResults;
     }
 
     public boolean close() {
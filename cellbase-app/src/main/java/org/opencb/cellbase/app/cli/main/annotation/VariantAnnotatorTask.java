@@ -34,9 +34,19 @@ public class VariantAnnotatorTask implements
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private List<VariantAnnotator> variantAnnotatorList;
+    private BatchVariantNormalizer normalizer;
 
     public VariantAnnotatorTask(List<VariantAnnotator> variantAnnotatorList) {
+        this(variantAnnotatorList, null);
+    }
+
+    /**
+     * @param variantAnnotatorList annotators run over each batch
+     * @param normalizer normalizer run over each batch before the annotators, null if the variants are already normalized
+     */
+    public VariantAnnotatorTask(List<VariantAnnotator> variantAnnotatorList, BatchVariantNormalizer normalizer) {
         this.variantAnnotatorList = variantAnnotatorList;
+        this.normalizer = normalizer;
     }
 
     public void pre() {
@@ -46,7 +56,7 @@ public class VariantAnnotatorTask implements
     }
 
     public List<Variant> apply(List<Variant> batch) throws Exception {
-        List<Variant> variantListToAnnotate = filterReferenceBlocksOut(batch);
+        List<Variant> variantListToAnnotate = filterReferenceBlocksOut(normalizer != null ? normalizer.apply(batch) : batch);
         for (VariantAnnotator variantAnnotator : variantAnnotatorList) {
             variantAnnotator.run(variantListToAnnotate);
         }
@@ -68,6 +78,10 @@ public class VariantAnnotatorTask implements
         for (VariantAnnotator variantAnnotator : variantAnnotatorList) {
             variantAnnotator.close();
         }
+        if (normalizer != null && normalizer.getPrefetchSequenceAdaptor() != null) {
+            logger.debug("Normalization sequence queries: {} prefetched, {} fetched",
+                    normalizer.getPrefetchSequenceAdaptor().getHits(), normalizer.getPrefetchSequenceAdaptor().getMisses());
+        }
     }
 
 }
@@ -53,8 +53,7 @@ public class VcfStringAnnotatorTask implements ParallelTaskRunner.TaskWithExcept
     private FullVcfCodec vcfCodec;
     private VariantContextToVariantConverter converter;
 //    private static VariantNormalizer normalizer = new VariantNormalizer(true, false, true);
-    private VariantNormalizer normalizer;
-    private boolean normalize;
+    private BatchVariantNormalizer normalizer;
 
     public VcfStringAnnotatorTask(VCFHeader header, VCFHeaderVersion version,
                                   List<VariantAnnotator> variantAnnotatorList, SharedContext sharedContext) {
@@ -65,13 +64,26 @@ public class VcfStringAnnotatorTask implements ParallelTaskRunner.TaskWithExcept
     public VcfStringAnnotatorTask(VCFHeader header, VCFHeaderVersion version,
                                   List<VariantAnnotator> variantAnnotatorList, SharedContext sharedContext,
                                   boolean normalize, VariantNormalizer.VariantNormalizerConfig variantNormalizerConfig) {
+        this(header, version, variantAnnotatorList, sharedContext,
+                normalize ? new BatchVariantNormalizer(variantNormalizerConfig) : null);
+    }
+
+    /**
+     * @param header VCF header
+     * @param version VCF header version
+     * @param variantAnnotatorList annotators run over each batch
+     * @param sharedContext context shared by all the tasks
+     * @param normalizer normalizer run over each batch before the annotators, null to skip normalization
+     */
+    public VcfStringAnnotatorTask(VCFHeader header, VCFHeaderVersion version,
+                                  List<VariantAnnotator> variantAnnotatorList, SharedContext sharedContext,
+                                  BatchVariantNormalizer normalizer) {
         this.vcfCodec = new FullVcfCodec();
         this.vcfCodec.setVCFHeader(header, version);
 
         this.variantAnnotatorList = variantAnnotatorList;
         this.sharedContext = sharedContext;
-        this.normalize = normalize;
-        normalizer = new VariantNormalizer(variantNormalizerConfig);
+        this.normalizer = normalizer;
 
         // htsjdk automatically and inevitably sorts sample data in alphabetical order. Need to recover the original
         // order in the VCF from the header and initialise the converter with the original order so that the order
@@ -101,21 +113,7 @@ public class VcfStringAnnotatorTask implements ParallelTaskRunner.TaskWithExcept
 
     private List<Variant> normalizeAndAnnotate(List<Variant> variantList)
             throws InterruptedException, ExecutionException, QueryException, IllegalAccessException, CellBaseException {
-        List<Variant> normalizedVariantList;
-        if (normalize) {
-            normalizedVariantList = new ArrayList<>(variantList.size());
-            for (Variant variant : variantList) {
-                try {
-                    normalizedVariantList.addAll(normalizer.apply(Collections.singletonList(variant)));
-                } catch (RuntimeException e) {
-                    logger.warn("Error found during variant normalization. Variant: {}", variant.toString());
-                    logger.warn("This variant will be skipped and annotation will continue");
-                    logger.warn("Full stack trace", e);
-                }
-            }
-        } else {
-            normalizedVariantList = variantList;
-        }
+        List<Variant> normalizedVariantList = normalizer != null ? normalizer.apply(variantList) : variantList;
         for (VariantAnnotator variantAnnotator : variantAnnotatorList) {
             variantAnnotator.run(normalizedVariantList);
         }
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.app.cli.main.annotation.indexers;
+
+import org.apache.commons.io.FileUtils;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds a RocksDB index from unsorted key/values with one sorted write per key instead of a get/put per input entry.
+ *
+ * Entries are kept in memory per chromosome and spilled to sorted run files when the buffer is full. Once all the
+ * entries have been added, the runs of each chromosome are merged, in parallel for different chromosomes, and written
+ * in key order in large batches without WAL. Keys of different chromosomes never overlap (all of them start with the
+ * chromosome and ':'), so the chromosomes can be written concurrently. Entries with the same key are merged with
+ * {@link VariantIndexer#mergeIndexValues} in input order.
+ */
+class BulkIndexBuilder {
+
+    private static final long MAX_BUFFER_BYTES = 256L * 1024 * 1024;
+    private static final long MAX_BATCH_BYTES = 16L * 1024 * 1024;
+    // Approximate memory used by an entry besides its key and value
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final Comparator<Entry> ENTRY_COMPARATOR = (entry1, entry2) -> compareKeys(entry1.key, entry2.key);
+
+    private final VariantIndexer variantIndexer;
+    private final Path tmpFolder;
+    private final int numThreads;
+    private final long maxBufferBytes;
+
+    // key = chromosome
+    private final Map<String, ChromosomeEntries> chromosomeEntries;
+    private long bufferedBytes;
+
+    private final Logger logger = LoggerFactory.getLogger(BulkIndexBuilder.class);
+
+    private static class Entry {
+        private final byte[] key;
+        private byte[] value;
+
+        Entry(byte[] key, byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static class ChromosomeEntries {
+        private final int id;
+        private List<Entry> entries = new ArrayList<>();
+        private final List<Path> runs = new ArrayList<>();
+
+        ChromosomeEntries(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Sorted entries of a run file or of the memory buffer, consumed in order by the merge.
+     */
+    private abstract static class EntrySource {
+        // Sources added later have newer entries
+        private final int order;
+        private Entry current;
+
+        EntrySource(int order) {
+            this.order = order;
+        }
+
+        abstract Entry read() throws IOException;
+
+        boolean next() throws IOException {
+            current = read();
+            return current != null;
+        }
+
+        void close() throws IOException {
+        }
+    }
+
+    BulkIndexBuilder(VariantIndexer variantIndexer, Path tmpFolder, int numThreads) throws IOException {
+        this(variantIndexer, tmpFolder, numThreads, MAX_BUFFER_BYTES);
+    }
+
+    BulkIndexBuilder(VariantIndexer variantIndexer, Path tmpFolder, int numThreads, long maxBufferBytes) throws IOException {
+        this.variantIndexer = variantIndexer;
+        this.tmpFolder = tmpFolder;
+        this.numThreads = Math.max(1, numThreads);
+        this.maxBufferBytes = maxBufferBytes;
+        this.chromosomeEntries = new LinkedHashMap<>();
+
+        FileUtils.deleteDirectory(tmpFolder.toFile());
+        Files.createDirectories(tmpFolder);
+    }
+
+    void add(String chromosome, byte[] key, byte[] value) throws IOException {
+        chromosomeEntries.computeIfAbsent(chromosome, k -> new ChromosomeEntries(chromosomeEntries.size()))
+                .entries.add(new Entry(key, value));
+        bufferedBytes += key.length + value.length + ENTRY_OVERHEAD;
+        if (bufferedBytes > maxBufferBytes) {
+            spill();
+        }
+    }
+
+    /**
+     * Merges the entries of all the chromosomes and writes them in the database.
+     *
+     * @param dbIndex database, created empty
+     * @return number of different keys written
+     * @throws IOException if the temporary files can not be read or written
+     * @throws RocksDBException if the database is not empty or the entries can not be written
+     */
+    long build(RocksDB dbIndex) throws IOException, RocksDBException {
+        // Values such as the population frequency ordinals are only valid within a single build
+        RocksIterator rocksIterator = dbIndex.newIterator();
+        try {
+            rocksIterator.seekToFirst();
+            if (rocksIterator.isValid()) {
+                throw new RocksDBException("Index must be empty before being built");
+            }
+        } finally {
+            rocksIterator.dispose();
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        long numKeys = 0;
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (ChromosomeEntries entries : chromosomeEntries.values()) {
+                futures.add(executorService.submit(() -> write(entries, dbIndex)));
+            }
+            for (Future<Long> future : futures) {
+                numKeys += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the index", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RocksDBException) {
+                throw (RocksDBException) e.getCause();
+            }
+            throw new IOException("Error writing the index", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        logger.info("Compacting index with {} keys", numKeys);
+        dbIndex.compactRange();
+        FileUtils.deleteDirectory(tmpFolder.toFile());
+        return numKeys;
+    }
+
+    private void spill() throws IOException {
+        for (ChromosomeEntries entries : chromosomeEntries.values()) {
+            if (entries.entries.isEmpty()) {
+                continue;
+            }
+            Path runFile = tmpFolder.resolve("run_" + entries.id + "_" + entries.runs.size() + ".bin");
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile),
+                    1024 * 1024))) {
+                for (Entry entry : sortAndMerge(entries.entries)) {
+                    outputStream.writeInt(entry.key.length);
+                    outputStream.write(entry.key);
+                    outputStream.writeInt(entry.value.length);
+                    outputStream.write(entry.value);
+                }
+            }
+            entries.runs.add(runFile);
+            entries.entries = new ArrayList<>();
+        }
+        bufferedBytes = 0;
+    }
+
+    private List<Entry> sortAndMerge(List<Entry> entries) {
+        // The sort is stable, entries with the same key keep the input order
+        entries.sort(ENTRY_COMPARATOR);
+        List<Entry> mergedEntries = new ArrayList<>(entries.size());
+        Entry previous = null;
+        for (Entry entry : entries) {
+            if (previous != null && compareKeys(previous.key, entry.key) == 0) {
+                previous.value = variantIndexer.mergeIndexValues(previous.value, entry.value);
+            } else {
+                mergedEntries.add(entry);
+                previous = entry;
+            }
+        }
+        return mergedEntries;
+    }
+
+    private long write(ChromosomeEntries entries, RocksDB dbIndex) throws IOException, RocksDBException {
+        PriorityQueue<EntrySource> queue = new PriorityQueue<>((source1, source2) -> {
+            int compare = compareKeys(source1.current.key, source2.current.key);
+            return compare != 0 ? compare : Integer.compare(source1.order, source2.order);
+        });
+        List<EntrySource> sources = new ArrayList<>();
+        long numKeys = 0;
+        WriteOptions writeOptions = new WriteOptions().setDisableWAL(true);
+        WriteBatch writeBatch = new WriteBatch();
+        try {
+            for (Path runFile : entries.runs) {
+                sources.add(newRunSource(sources.size(), runFile));
+            }
+            // Entries still in memory are the last ones read
+            Iterator<Entry> iterator = sortAndMerge(entries.entries).iterator();
+            entries.entries = Collections.emptyList();
+            sources.add(new EntrySource(sources.size()) {
+                @Override
+                Entry read() {
+                    return iterator.hasNext() ? iterator.next() : null;
+                }
+            });
+            for (EntrySource source : sources) {
+                if (source.next()) {
+                    queue.add(source);
+                }
+            }
+
+            long batchBytes = 0;
+            while (!queue.isEmpty()) {
+                EntrySource source = queue.poll();
+                byte[] key = source.current.key;
+                byte[] value = source.current.value;
+                if (source.next()) {
+                    queue.add(source);
+                }
+                // Same key in newer runs
+                while (!queue.isEmpty() && compareKeys(queue.peek().current.key, key) == 0) {
+                    EntrySource duplicate = queue.poll();
+                    value = variantIndexer.mergeIndexValues(value, duplicate.current.value);
+                    if (duplicate.next()) {
+                        queue.add(duplicate);
+                    }
+                }
+                value = variantIndexer.completeIndexValue(value);
+
+                writeBatch.put(key, value);
+                batchBytes += key.length + value.length;
+                numKeys++;
+                if (batchBytes > MAX_BATCH_BYTES) {
+                    dbIndex.write(writeOptions, writeBatch);
+                    writeBatch.clear();
+                    batchBytes = 0;
+                }
+            }
+            if (batchBytes > 0) {
+                dbIndex.write(writeOptions, writeBatch);
+            }
+        } finally {
+            writeBatch.dispose();
+            writeOptions.dispose();
+            for (EntrySource source : sources) {
+                source.close();
+            }
+        }
+        for (Path runFile : entries.runs) {
+            Files.deleteIfExists(runFile);
+        }
+        return numKeys;
+    }
+
+    int getNumRuns() {
+        return chromosomeEntries.values().stream().mapToInt(entries -> entries.runs.size()).sum();
+    }
+
+    private static EntrySource newRunSource(int order, Path runFile) throws IOException {
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFile), 1024 * 1024));
+        return new EntrySource(order) {
+            @Override
+            Entry read() throws IOException {
+                int keyLength;
+                try {
+                    keyLength = inputStream.readInt();
+                } catch (EOFException e) {
+                    return null;
+                }
+                byte[] key = new byte[keyLength];
+                inputStream.readFully(key);
+                byte[] value = new byte[inputStream.readInt()];
+                inputStream.readFully(value);
+                return new Entry(key, value);
+            }
+
+            @Override
+            void close() throws IOException {
+                inputStream.close();
+            }
+        };
+    }
+
+    /**
+     * Compares keys as unsigned bytes, the order of the default RocksDB comparator.
+     *
+     * @param key1 first key
+     * @param key2 second key
+     * @return negative, zero or positive if the first key sorts before, equal to or after the second key
+     */
+    static int compareKeys(byte[] key1, byte[] key2) {
+        int length = Math.min(key1.length, key2.length);
+        for (int i = 0; i < length; i++) {
+            int compare = (key1[i] & 0xff) - (key2[i] & 0xff);
+            if (compare != 0) {
+                return compare;
+            }
+        }
+        return key1.length - key2.length;
+    }
+}
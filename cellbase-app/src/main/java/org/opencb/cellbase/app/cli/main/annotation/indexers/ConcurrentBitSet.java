@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.app.cli.main.annotation.indexers;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size bit set that can be updated from different threads without locking, used to flag the indexed variants
+ * found during the annotation. It takes one bit per indexed variant.
+ */
+public class ConcurrentBitSet {
+
+    private final int size;
+    private final AtomicLongArray words;
+
+    public ConcurrentBitSet(int size) {
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    public void set(int index) {
+        checkIndex(index);
+        long mask = 1L << index;
+        int word = index >>> 6;
+        // Most variants are only visited once, the compare and set is skipped when the bit is already set
+        if ((words.get(word) & mask) == 0) {
+            words.getAndAccumulate(word, mask, (current, bit) -> current | bit);
+        }
+    }
+
+    public boolean get(int index) {
+        checkIndex(index);
+        return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < words.length(); i++) {
+            cardinality += Long.bitCount(words.get(i));
+        }
+        return cardinality;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+}
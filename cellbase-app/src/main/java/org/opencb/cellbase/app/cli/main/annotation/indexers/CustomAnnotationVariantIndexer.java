@@ -20,7 +20,6 @@ import org.opencb.biodata.formats.variant.io.VariantReader;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.VariantBuilder;
 import org.opencb.biodata.models.variant.avro.VariantType;
-import org.rocksdb.RocksDBException;
 
 import java.io.IOException;
 import java.util.*;
@@ -40,15 +39,11 @@ public class CustomAnnotationVariantIndexer extends VariantIndexer {
     }
 
     @Override
-    protected void updateIndex(List<Variant> variantList) throws IOException, RocksDBException {
-        for (Variant variant : variantList) {
-            if (variant.getType() != VariantType.NO_VARIATION) {
-                dbIndex.put(variant.toString().getBytes(),
-                        jsonObjectWriter.writeValueAsBytes(getVariantToIndex(variant)));
-            }
-
+    protected byte[] getIndexValue(Variant variant) throws IOException {
+        if (variant.getType() == VariantType.NO_VARIATION) {
+            return null;
         }
-
+        return jsonObjectWriter.writeValueAsBytes(getVariantToIndex(variant));
     }
 
     private Variant getVariantToIndex(Variant variant) {
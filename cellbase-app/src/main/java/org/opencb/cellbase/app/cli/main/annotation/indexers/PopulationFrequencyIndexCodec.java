@@ -0,0 +1,230 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.app.cli.main.annotation.indexers;
+
+import org.opencb.biodata.models.variant.avro.PopulationFrequency;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary format of the values of the population frequencies RocksDB index. Only the population frequencies are stored,
+ * the variant itself is the key. Each value is:
+ *
+ *   format version (byte) | variant ordinal (int) | number of population frequencies (int) | population frequencies
+ *
+ * The ordinal is a sequential number given to each variant when it is first indexed, used to track the visited
+ * variants in a bitmap. Each population frequency is a bitmask (short) with the non-null fields followed by those
+ * fields: strings as length (int) and UTF-8 bytes, frequencies as floats and counts as ints.
+ */
+public final class PopulationFrequencyIndexCodec {
+
+    private static final byte FORMAT_VERSION = 1;
+    // version, ordinal and number of population frequencies
+    private static final int HEADER_SIZE = 9;
+
+    private static final int STUDY = 1;
+    private static final int POPULATION = 1 << 1;
+    private static final int REF_ALLELE = 1 << 2;
+    private static final int ALT_ALLELE = 1 << 3;
+    private static final int REF_ALLELE_FREQ = 1 << 4;
+    private static final int ALT_ALLELE_FREQ = 1 << 5;
+    private static final int REF_ALLELE_COUNT = 1 << 6;
+    private static final int ALT_ALLELE_COUNT = 1 << 7;
+    private static final int REF_HOM_GENOTYPE_FREQ = 1 << 8;
+    private static final int HET_GENOTYPE_FREQ = 1 << 9;
+    private static final int ALT_HOM_GENOTYPE_FREQ = 1 << 10;
+    private static final int REF_HOM_GENOTYPE_COUNT = 1 << 11;
+    private static final int HET_GENOTYPE_COUNT = 1 << 12;
+    private static final int ALT_HOM_GENOTYPE_COUNT = 1 << 13;
+
+    private PopulationFrequencyIndexCodec() {
+    }
+
+    public static byte[] encode(int ordinal, List<PopulationFrequency> populationFrequencies) {
+        List<PopulationFrequency> list = populationFrequencies == null ? Collections.emptyList() : populationFrequencies;
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(16 + list.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(byteArrayOutputStream)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(ordinal);
+            out.writeInt(list.size());
+            for (PopulationFrequency populationFrequency : list) {
+                out.writeShort(getMask(populationFrequency));
+                writeString(out, populationFrequency.getStudy());
+                writeString(out, populationFrequency.getPopulation());
+                writeString(out, populationFrequency.getRefAllele());
+                writeString(out, populationFrequency.getAltAllele());
+                writeFloat(out, populationFrequency.getRefAlleleFreq());
+                writeFloat(out, populationFrequency.getAltAlleleFreq());
+                writeInt(out, populationFrequency.getRefAlleleCount());
+                writeInt(out, populationFrequency.getAltAlleleCount());
+                writeFloat(out, populationFrequency.getRefHomGenotypeFreq());
+                writeFloat(out, populationFrequency.getHetGenotypeFreq());
+                writeFloat(out, populationFrequency.getAltHomGenotypeFreq());
+                writeInt(out, populationFrequency.getRefHomGenotypeCount());
+                writeInt(out, populationFrequency.getHetGenotypeCount());
+                writeInt(out, populationFrequency.getAltHomGenotypeCount());
+            }
+        } catch (IOException e) {
+            // Not thrown by a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    public static int getOrdinal(byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        checkVersion(buffer);
+        return buffer.getInt();
+    }
+
+    /**
+     * Copy of a value with a different variant ordinal.
+     *
+     * @param value encoded value
+     * @param ordinal new variant ordinal
+     * @return encoded value with the new ordinal
+     */
+    public static byte[] withOrdinal(byte[] value, int ordinal) {
+        checkVersion(ByteBuffer.wrap(value));
+        byte[] newValue = value.clone();
+        ByteBuffer.wrap(newValue).putInt(1, ordinal);
+        return newValue;
+    }
+
+    /**
+     * Appends the population frequencies of a value to the ones of a previous value, without decoding them. The
+     * ordinal of the previous value is kept.
+     *
+     * @param previousValue encoded value
+     * @param value encoded value whose population frequencies are appended
+     * @return encoded value with the population frequencies of both values
+     */
+    public static byte[] merge(byte[] previousValue, byte[] value) {
+        ByteBuffer previousBuffer = ByteBuffer.wrap(previousValue);
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        checkVersion(previousBuffer);
+        checkVersion(buffer);
+        int size = previousBuffer.getInt(HEADER_SIZE - 4) + buffer.getInt(HEADER_SIZE - 4);
+
+        byte[] mergedValue = new byte[previousValue.length + value.length - HEADER_SIZE];
+        System.arraycopy(previousValue, 0, mergedValue, 0, previousValue.length);
+        System.arraycopy(value, HEADER_SIZE, mergedValue, previousValue.length, value.length - HEADER_SIZE);
+        ByteBuffer.wrap(mergedValue).putInt(HEADER_SIZE - 4, size);
+        return mergedValue;
+    }
+
+    public static List<PopulationFrequency> getPopulationFrequencies(byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        checkVersion(buffer);
+        // Skip the ordinal
+        buffer.getInt();
+        int size = buffer.getInt();
+        List<PopulationFrequency> populationFrequencies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int mask = buffer.getShort();
+            PopulationFrequency populationFrequency = new PopulationFrequency();
+            populationFrequency.setStudy(readString(buffer, mask, STUDY));
+            populationFrequency.setPopulation(readString(buffer, mask, POPULATION));
+            populationFrequency.setRefAllele(readString(buffer, mask, REF_ALLELE));
+            populationFrequency.setAltAllele(readString(buffer, mask, ALT_ALLELE));
+            populationFrequency.setRefAlleleFreq(readFloat(buffer, mask, REF_ALLELE_FREQ));
+            populationFrequency.setAltAlleleFreq(readFloat(buffer, mask, ALT_ALLELE_FREQ));
+            populationFrequency.setRefAlleleCount(readInt(buffer, mask, REF_ALLELE_COUNT));
+            populationFrequency.setAltAlleleCount(readInt(buffer, mask, ALT_ALLELE_COUNT));
+            populationFrequency.setRefHomGenotypeFreq(readFloat(buffer, mask, REF_HOM_GENOTYPE_FREQ));
+            populationFrequency.setHetGenotypeFreq(readFloat(buffer, mask, HET_GENOTYPE_FREQ));
+            populationFrequency.setAltHomGenotypeFreq(readFloat(buffer, mask, ALT_HOM_GENOTYPE_FREQ));
+            populationFrequency.setRefHomGenotypeCount(readInt(buffer, mask, REF_HOM_GENOTYPE_COUNT));
+            populationFrequency.setHetGenotypeCount(readInt(buffer, mask, HET_GENOTYPE_COUNT));
+            populationFrequency.setAltHomGenotypeCount(readInt(buffer, mask, ALT_HOM_GENOTYPE_COUNT));
+            populationFrequencies.add(populationFrequency);
+        }
+        return populationFrequencies;
+    }
+
+    private static void checkVersion(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported population frequencies index format " + version + ", please rebuild "
+                    + "the index");
+        }
+    }
+
+    private static int getMask(PopulationFrequency populationFrequency) {
+        int mask = 0;
+        mask |= populationFrequency.getStudy() != null ? STUDY : 0;
+        mask |= populationFrequency.getPopulation() != null ? POPULATION : 0;
+        mask |= populationFrequency.getRefAllele() != null ? REF_ALLELE : 0;
+        mask |= populationFrequency.getAltAllele() != null ? ALT_ALLELE : 0;
+        mask |= populationFrequency.getRefAlleleFreq() != null ? REF_ALLELE_FREQ : 0;
+        mask |= populationFrequency.getAltAlleleFreq() != null ? ALT_ALLELE_FREQ : 0;
+        mask |= populationFrequency.getRefAlleleCount() != null ? REF_ALLELE_COUNT : 0;
+        mask |= populationFrequency.getAltAlleleCount() != null ? ALT_ALLELE_COUNT : 0;
+        mask |= populationFrequency.getRefHomGenotypeFreq() != null ? REF_HOM_GENOTYPE_FREQ : 0;
+        mask |= populationFrequency.getHetGenotypeFreq() != null ? HET_GENOTYPE_FREQ : 0;
+        mask |= populationFrequency.getAltHomGenotypeFreq() != null ? ALT_HOM_GENOTYPE_FREQ : 0;
+        mask |= populationFrequency.getRefHomGenotypeCount() != null ? REF_HOM_GENOTYPE_COUNT : 0;
+        mask |= populationFrequency.getHetGenotypeCount() != null ? HET_GENOTYPE_COUNT : 0;
+        mask |= populationFrequency.getAltHomGenotypeCount() != null ? ALT_HOM_GENOTYPE_COUNT : 0;
+        return mask;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void writeFloat(DataOutputStream out, Float value) throws IOException {
+        if (value != null) {
+            out.writeFloat(value);
+        }
+    }
+
+    private static void writeInt(DataOutputStream out, Integer value) throws IOException {
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, int mask, int field) {
+        if ((mask & field) == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Float readFloat(ByteBuffer buffer, int mask, int field) {
+        return (mask & field) == 0 ? null : buffer.getFloat();
+    }
+
+    private static Integer readInt(ByteBuffer buffer, int mask, int field) {
+        return (mask & field) == 0 ? null : buffer.getInt();
+    }
+}
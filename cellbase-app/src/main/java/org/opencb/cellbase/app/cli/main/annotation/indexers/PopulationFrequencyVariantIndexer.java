@@ -26,47 +26,94 @@ import org.opencb.cellbase.core.variant.AnnotationBasedPhasedQueryManager;
 import org.rocksdb.RocksDBException;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PopulationFrequencyVariantIndexer extends VariantIndexer {
     private static final String EMPTY_ALLELE_STRING = "";
     private static final char SHIFTED_POSITION_CHARACTER = '-';
     private static final char UKNOWN_NUCLEOTIDE = 'n';
+    // Metadata entry with the number of variants in the index. Keys of variants start with the chromosome, never with '#'
+    private static final byte[] NUM_VARIANTS_KEY = "#numVariants".getBytes(StandardCharsets.UTF_8);
+
+    // Number of different variants in the index, used as the ordinal of the next new variant
+    private final AtomicInteger numVariants;
+    private ConcurrentBitSet visitedVariants;
 
     public PopulationFrequencyVariantIndexer(VariantReader variantReader, int maxOpenFiles, boolean forceCreate) {
         super(variantReader, maxOpenFiles, forceCreate);
+        this.numVariants = new AtomicInteger();
     }
 
     @Override
-    protected void updateIndex(List<Variant> variantList) throws IOException, RocksDBException {
-        for (Variant variant : variantList) {
-            // If MNV then edit alternate allele to include a string tha represents all variants forming the MNV
-            String haplotypeString = AnnotationBasedPhasedQueryManager.getSampleAttribute(variant,
-                    AnnotationBasedPhasedQueryManager.PHASE_SET_TAG);
-            if (StringUtils.isNotBlank(haplotypeString)) {
-                Pair<String, String> alleleAlignment = getAlleleAlignment(haplotypeString, variant);
-                for (PopulationFrequency populationFrequency : variant.getAnnotation().getPopulationFrequencies()) {
-                    populationFrequency.setRefAllele(alleleAlignment.getLeft());
-                    populationFrequency.setAltAllele(alleleAlignment.getRight());
-                }
+    protected byte[] getIndexValue(Variant variant) {
+        // If MNV then edit alternate allele to include a string tha represents all variants forming the MNV
+        String haplotypeString = AnnotationBasedPhasedQueryManager.getSampleAttribute(variant,
+                AnnotationBasedPhasedQueryManager.PHASE_SET_TAG);
+        if (StringUtils.isNotBlank(haplotypeString)) {
+            Pair<String, String> alleleAlignment = getAlleleAlignment(haplotypeString, variant);
+            for (PopulationFrequency populationFrequency : variant.getAnnotation().getPopulationFrequencies()) {
+                populationFrequency.setRefAllele(alleleAlignment.getLeft());
+                populationFrequency.setAltAllele(alleleAlignment.getRight());
             }
+        }
 
-            byte[] dbContent = dbIndex.get(variant.toString().getBytes());
-            Variant variantToIndex;
+        // Values only keep the population frequencies, in the binary format of PopulationFrequencyIndexCodec. The
+        // ordinal is set once all the occurrences of the variant have been merged
+        return PopulationFrequencyIndexCodec.encode(0, variant.getAnnotation().getPopulationFrequencies());
+    }
 
-            if (dbContent == null) {
-                variantToIndex = variant;
-            } else {
-                variantToIndex = jsonObjectMapper.readValue(dbContent, Variant.class);
+    @Override
+    protected byte[] mergeIndexValues(byte[] previousValue, byte[] value) {
+        // Add all pop frequencies from current variant
+        return PopulationFrequencyIndexCodec.merge(previousValue, value);
+    }
 
-                // Add all pop frequencies from current variant
-                variantToIndex
-                        .getAnnotation()
-                        .getPopulationFrequencies().addAll(variant.getAnnotation().getPopulationFrequencies());
-            }
+    @Override
+    protected byte[] completeIndexValue(byte[] value) {
+        // Chromosomes are written in parallel, ordinals are unique but not sorted by key
+        return PopulationFrequencyIndexCodec.withOrdinal(value, numVariants.getAndIncrement());
+    }
 
-            dbIndex.put(variantToIndex.toString().getBytes(), jsonObjectWriter.writeValueAsBytes(variantToIndex));
+    @Override
+    public void run() throws IOException, RocksDBException {
+        super.run();
+        if (isIndexingNeeded()) {
+            // Stored with the index, so reopening it does not need a scan of all the values to size the bit set
+            dbIndex.put(NUM_VARIANTS_KEY, ByteBuffer.allocate(Integer.BYTES).putInt(numVariants.get()).array());
+        } else {
+            byte[] value = dbIndex.get(NUM_VARIANTS_KEY);
+            if (value == null) {
+                throw new IllegalStateException("Population frequencies index " + getDbLocation() + " has no number of variants,"
+                        + " please rebuild the index");
+            }
+            // Ordinals go from 0 to the number of variants - 1
+            numVariants.set(ByteBuffer.wrap(value).getInt());
         }
+        visitedVariants = new ConcurrentBitSet(numVariants.get());
+    }
+
+    /**
+     * Whether a key of the index is a metadata entry rather than a variant.
+     *
+     * @param key index key
+     * @return true for metadata entries, which must be skipped when iterating over the variants
+     */
+    public static boolean isMetadataKey(byte[] key) {
+        return Arrays.equals(NUM_VARIANTS_KEY, key);
+    }
+
+    /**
+     * Variants of the index found in the annotated file, one bit per variant ordinal. Variants are flagged here instead
+     * of rewriting their values in the index, so annotation never writes to RocksDB.
+     *
+     * @return the visited variants, null before the index is built
+     */
+    public ConcurrentBitSet getVisitedVariants() {
+        return visitedVariants;
     }
 
     private Pair<String, String> getAlleleAlignment(String haplotypeString, Variant variant) {
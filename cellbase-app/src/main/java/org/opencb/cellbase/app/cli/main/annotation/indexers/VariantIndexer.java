@@ -19,6 +19,7 @@ package org.opencb.cellbase.app.cli.main.annotation.indexers;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.commons.io.FileUtils;
 import org.opencb.biodata.formats.variant.io.VariantReader;
 import org.opencb.biodata.models.variant.Variant;
 import org.rocksdb.Options;
@@ -48,11 +49,13 @@ public abstract class VariantIndexer {
     private Options dbOption;
     private String dbLocation;
     private boolean indexingNeeded;
+    private int numThreads;
 
     public VariantIndexer(VariantReader variantReader, int maxOpenFiles, boolean forceCreate) {
         this.variantReader = variantReader;
         this.forceCreate = forceCreate;
         this.maxOpenFiles = maxOpenFiles;
+        this.numThreads = 1;
 
         jsonObjectMapper = new ObjectMapper();
         jsonObjectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
@@ -68,6 +71,19 @@ public abstract class VariantIndexer {
         return dbLocation;
     }
 
+    public boolean isIndexingNeeded() {
+        return indexingNeeded;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public VariantIndexer setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+        return this;
+    }
+
     public void open() {
         Object[] dbConnection = getDBConnection();
         dbIndex = (RocksDB) dbConnection[0];
@@ -96,12 +112,14 @@ public abstract class VariantIndexer {
         try {
             // a factory method that returns a RocksDB instance
             if (indexingNeeded) {
+                // An index left by a previous run may have values in an older format, it is rebuilt from scratch
+                FileUtils.deleteDirectory(Paths.get(dbLocation).toFile());
                 db = RocksDB.open(options, dbLocation);
             } else {
                 db = RocksDB.openReadOnly(options, dbLocation);
             }
             // do something
-        } catch (RocksDBException e) {
+        } catch (RocksDBException | IOException e) {
             // do some error handling
             e.printStackTrace();
             System.exit(1);
@@ -113,12 +131,19 @@ public abstract class VariantIndexer {
 
     public void run() throws IOException, RocksDBException {
         if (indexingNeeded) {
+            // Values are sorted and written once per key at the end, instead of being read and put back one by one
+            BulkIndexBuilder bulkIndexBuilder = new BulkIndexBuilder(this, Paths.get(dbLocation + ".tmp"), numThreads);
             int recordCounter = 0;
             List<Variant> variantList = variantReader.read();
             while (!variantList.isEmpty()) {
                 try {
-                    updateIndex(variantList);
-                } catch (IOException | RocksDBException e) {
+                    for (Variant variant : variantList) {
+                        byte[] value = getIndexValue(variant);
+                        if (value != null) {
+                            bulkIndexBuilder.add(variant.getChromosome(), variant.toString().getBytes(), value);
+                        }
+                    }
+                } catch (IOException e) {
                     e.printStackTrace();
                     throw e;
                 } catch (Exception e) {
@@ -137,6 +162,8 @@ public abstract class VariantIndexer {
                 }
                 variantList = variantReader.read();
             }
+            long numKeys = bulkIndexBuilder.build(dbIndex);
+            logger.info("{} variants indexed in {}", numKeys, dbLocation);
         } else {
             logger.info("Index already present. Skipping index creation for {}",
                     variantReader.getVariantFileMetadata().getPath());
@@ -144,7 +171,35 @@ public abstract class VariantIndexer {
 
     }
 
-    protected abstract void updateIndex(List<Variant> variantList) throws IOException, RocksDBException;
+    /**
+     * Value to be indexed for a variant, the key is the variant string.
+     *
+     * @param variant variant read from the file
+     * @return value to be indexed, null if the variant must not be indexed
+     * @throws IOException if the value can not be serialized
+     */
+    protected abstract byte[] getIndexValue(Variant variant) throws IOException;
+
+    /**
+     * Merges the values of a variant found more than once in the file. By default the last value is kept.
+     *
+     * @param previousValue value of the previous occurrences of the variant
+     * @param value value of the current occurrence of the variant
+     * @return merged value
+     */
+    protected byte[] mergeIndexValues(byte[] previousValue, byte[] value) {
+        return value;
+    }
+
+    /**
+     * Final value of a variant, called once per variant in key order after all the occurrences have been merged.
+     *
+     * @param value merged value
+     * @return value written in the index
+     */
+    protected byte[] completeIndexValue(byte[] value) {
+        return value;
+    }
 
     public void close() {
         dbIndex.close();
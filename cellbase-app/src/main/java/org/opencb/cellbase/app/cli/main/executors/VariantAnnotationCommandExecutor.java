@@ -38,19 +38,24 @@ import org.opencb.biodata.tools.variant.VariantVcfHtsjdkReader;
 import org.opencb.cellbase.app.cli.CommandExecutor;
 import org.opencb.cellbase.app.cli.main.CellBaseCliOptionsParser;
 import org.opencb.cellbase.app.cli.main.annotation.*;
+import org.opencb.cellbase.app.cli.main.annotation.indexers.ConcurrentBitSet;
 import org.opencb.cellbase.app.cli.main.annotation.indexers.CustomAnnotationVariantIndexer;
+import org.opencb.cellbase.app.cli.main.annotation.indexers.PopulationFrequencyIndexCodec;
 import org.opencb.cellbase.app.cli.main.annotation.indexers.PopulationFrequencyVariantIndexer;
 import org.opencb.cellbase.app.cli.main.annotation.indexers.VariantIndexer;
 import org.opencb.cellbase.client.config.ClientConfiguration;
 import org.opencb.cellbase.client.rest.CellBaseClient;
+import org.opencb.cellbase.client.rest.VariantAnnotationCache;
 import org.opencb.cellbase.core.exception.CellBaseException;
 import org.opencb.cellbase.core.result.CellBaseDataResult;
 import org.opencb.cellbase.lib.impl.core.MongoDBAdaptorFactory;
 import org.opencb.cellbase.lib.impl.core.VariantMongoDBAdaptor;
 import org.opencb.cellbase.lib.managers.CellBaseManagerFactory;
+import org.opencb.cellbase.lib.managers.GenomeSequenceCache;
 import org.opencb.cellbase.lib.managers.GenomeManager;
 import org.opencb.cellbase.lib.managers.VariantManager;
 import org.opencb.cellbase.lib.variant.annotation.CellBaseNormalizerSequenceAdaptor;
+import org.opencb.cellbase.lib.variant.annotation.PrefetchSequenceAdaptor;
 import org.opencb.cellbase.lib.variant.annotation.VariantAnnotationCalculator;
 import org.opencb.cellbase.lib.variant.annotation.VariantAnnotator;
 import org.opencb.commons.ProgressLogger;
@@ -112,11 +117,15 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
     private int maxOpenFiles = -1;
     private FileFormat inputFormat;
     private FileFormat outputFormat;
+    private VariantAnnotationCache annotationCache;
+    private GenomeSequenceCache genomeSequenceCache;
 
     // Only options meant to be sent to the server should be included in this serverQueryOptions
     private QueryOptions serverQueryOptions;
 
     private MongoDBAdaptorFactory dbAdaptorFactory = null;
+    // Shared by the normalizers and the local annotators of all the threads, created on first use
+    private CellBaseManagerFactory cellBaseManagerFactory = null;
 //    private ReleaseManager releaseManager = null;
 
     private final int QUEUE_CAPACITY = 10;
@@ -201,10 +210,9 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
             if (variantAnnotationCommandOptions.variant != null && !variantAnnotationCommandOptions.variant.isEmpty()) {
                 List<Variant> variants = Variant.parseVariants(variantAnnotationCommandOptions.variant);
                 if (local) {
-                    CellBaseManagerFactory cellBaseManagerFactory = new CellBaseManagerFactory(configuration);
                     VariantAnnotationCalculator variantAnnotationCalculator =
                             new VariantAnnotationCalculator(this.species, this.assembly, variantAnnotationCommandOptions.dataRelease,
-                                    variantAnnotationCommandOptions.token, cellBaseManagerFactory);
+                                    variantAnnotationCommandOptions.token, getCellBaseManagerFactory());
                     List<CellBaseDataResult<VariantAnnotation>> annotationByVariantList =
                             variantAnnotationCalculator.getAnnotationByVariantList(variants, serverQueryOptions);
 
@@ -229,9 +237,10 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
             // expensive to parse, i.e.: multisample vcf with thousands of samples. A specific task is created to enable
             // parallel parsing of these lines
             if (input != null) {
-                VariantReader variantReader = getVariantReader(input);
+                // Variants are normalized by the annotation tasks, in parallel, instead of by the reader
+                VariantReader variantReader = getVariantReader(input, serverQueryOptions.getBoolean("ignorePhase"), null);
                 List<ParallelTaskRunner.TaskWithException<Variant, Variant, Exception>> variantAnnotatorTaskList
-                        = getVariantAnnotatorTaskList();
+                        = getVariantAnnotatorTaskList(normalize);
                 DataWriter<Variant> dataWriter = getVariantDataWriter(output.toString());
 
                 ParallelTaskRunner.Config config = new ParallelTaskRunner.Config(numThreads, batchSize, QUEUE_CAPACITY, false);
@@ -249,7 +258,7 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
 //                    Query query = new Query();
                     QueryOptions options = new QueryOptions("include", "chromosome,start,reference,alternate,type");
                     List<ParallelTaskRunner.TaskWithException<Variant, Variant, Exception>> variantAnnotatorTaskList
-                            = getVariantAnnotatorTaskList();
+                            = getVariantAnnotatorTaskList(false);
                     ParallelTaskRunner.Config config = new ParallelTaskRunner.Config(numThreads, batchSize, QUEUE_CAPACITY, false);
 
                     for (String chromosome : chromosomeList) {
@@ -272,11 +281,18 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
             if (customFiles != null || populationFrequenciesFile != null) {
                 closeIndexes();
             }
+            if (annotationCache != null) {
+                annotationCache.close();
+            }
 //            if (dbAdaptorFactory != null) {
 //                dbAdaptorFactory.close();
 //            }
         }
 
+        if (genomeSequenceCache != null) {
+            logger.info("Genome sequence cache: {} block hits, {} block misses", genomeSequenceCache.getHits(),
+                    genomeSequenceCache.getMisses());
+        }
         logger.info("Variant annotation finished.");
         return false;
     }
@@ -288,8 +304,11 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
     private VariantReader getVariantReader(Path input, boolean ignorePhase) throws IOException, CellBaseException {
         // Leaving variantNormalizer = null if CLI indicates to skip normalisation. If no normalizer is provided to
         // the readers they will NOT perform normalisation
-        VariantNormalizer variantNormalizer = normalize ? new VariantNormalizer(getNormalizerConfig()) : null;
+        return getVariantReader(input, ignorePhase, normalize ? new VariantNormalizer(getNormalizerConfig()) : null);
+    }
 
+    private VariantReader getVariantReader(Path input, boolean ignorePhase, VariantNormalizer variantNormalizer)
+            throws IOException, CellBaseException {
         switch (getFileFormat(input)) {
             case VCF:
                 logger.info("Using HTSJDK to read variants.");
@@ -316,19 +335,25 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
 
                 // Population frequencies rocks db will always be the last one in the list. DO NOT change the name of the
                 // rocksIterator variable - for some unexplainable reason Java VM crashes if it's named "iterator"
-                RocksIterator rocksIterator = variantIndexerList.get(variantIndexerList.size() - 1)
-                        .getDbIndex()
-                        .newIterator();
+                PopulationFrequencyVariantIndexer variantIndexer
+                        = (PopulationFrequencyVariantIndexer) variantIndexerList.get(variantIndexerList.size() - 1);
+                ConcurrentBitSet visitedVariants = variantIndexer.getVisitedVariants();
+                RocksIterator rocksIterator = variantIndexer.getDbIndex().newIterator();
 
-                ObjectMapper mapper = new ObjectMapper();
                 logger.info("Writing variants with frequencies that were not found within the input file {} to {}",
                         populationFrequenciesFile.toString(), output.toString());
                 int counter = 0;
                 for (rocksIterator.seekToFirst(); rocksIterator.isValid(); rocksIterator.next()) {
-                    Variant variant = mapper.readValue(rocksIterator.value(), Variant.class);
-                    // The additional attributes field initialized with an empty map is used as the flag to indicate that
-                    // this variant was not visited during the annotation process
-                    if (variant.getAnnotation().getAdditionalAttributes() == null) {
+                    if (PopulationFrequencyVariantIndexer.isMetadataKey(rocksIterator.key())) {
+                        continue;
+                    }
+                    // Variants found during the annotation process are flagged in the visited variants bit set
+                    byte[] value = rocksIterator.value();
+                    if (!visitedVariants.get(PopulationFrequencyIndexCodec.getOrdinal(value))) {
+                        Variant variant = new Variant(new String(rocksIterator.key()));
+                        VariantAnnotation variantAnnotation = new VariantAnnotation();
+                        variantAnnotation.setPopulationFrequencies(PopulationFrequencyIndexCodec.getPopulationFrequencies(value));
+                        variant.setAnnotation(variantAnnotation);
                         dataWriter.write(variant);
                     }
 
@@ -337,6 +362,7 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
                         logger.info("{} written", counter);
                     }
                 }
+                rocksIterator.dispose();
                 dataWriter.post();
                 dataWriter.close();
                 logger.info("Done.");
@@ -388,22 +414,44 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
         return dataWriter;
     }
 
-    private List<ParallelTaskRunner.TaskWithException<Variant, Variant, Exception>> getVariantAnnotatorTaskList()
+    private List<ParallelTaskRunner.TaskWithException<Variant, Variant, Exception>> getVariantAnnotatorTaskList(boolean normalizeVariants)
             throws IOException, CellBaseException {
         List<ParallelTaskRunner.TaskWithException<Variant, Variant, Exception>> variantAnnotatorTaskList = new ArrayList<>(numThreads);
 
         for (int i = 0; i < numThreads; i++) {
             List<VariantAnnotator> variantAnnotatorList = createAnnotators();
-            variantAnnotatorTaskList.add(new VariantAnnotatorTask(variantAnnotatorList));
+            variantAnnotatorTaskList.add(new VariantAnnotatorTask(variantAnnotatorList,
+                    normalizeVariants ? getBatchVariantNormalizer() : null));
         }
         return variantAnnotatorTaskList;
     }
 
-    private VariantNormalizer.VariantNormalizerConfig getNormalizerConfig() throws IOException, CellBaseException {
-        VariantNormalizer.VariantNormalizerConfig variantNormalizerConfig = (new VariantNormalizer.VariantNormalizerConfig())
+    private BatchVariantNormalizer getBatchVariantNormalizer() throws IOException, CellBaseException {
+        // Each task gets its own normalizer and sequence adaptor, the prefetched windows belong to the batch being normalized
+        if (leftAlign && referenceFasta == null) {
+            PrefetchSequenceAdaptor prefetchSequenceAdaptor = new PrefetchSequenceAdaptor(new CellBaseNormalizerSequenceAdaptor(
+                    getCellBaseManagerFactory().getGenomeManager(species, assembly), variantAnnotationCommandOptions.dataRelease));
+            return new BatchVariantNormalizer(newNormalizerConfig().enableLeftAlign(prefetchSequenceAdaptor), prefetchSequenceAdaptor);
+        }
+        return new BatchVariantNormalizer(getNormalizerConfig());
+    }
+
+    private synchronized CellBaseManagerFactory getCellBaseManagerFactory() {
+        if (cellBaseManagerFactory == null) {
+            cellBaseManagerFactory = new CellBaseManagerFactory(configuration);
+        }
+        return cellBaseManagerFactory;
+    }
+
+    private VariantNormalizer.VariantNormalizerConfig newNormalizerConfig() {
+        return (new VariantNormalizer.VariantNormalizerConfig())
                 .setReuseVariants(true)
                 .setNormalizeAlleles(false)
                 .setDecomposeMNVs(decompose);
+    }
+
+    private VariantNormalizer.VariantNormalizerConfig getNormalizerConfig() throws IOException, CellBaseException {
+        VariantNormalizer.VariantNormalizerConfig variantNormalizerConfig = newNormalizerConfig();
 
         // Enable left align
         if (leftAlign) {
@@ -416,10 +464,8 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
 //                if (dbAdaptorFactory == null) {
 //                    dbAdaptorFactory = new MongoDBAdaptorFactory(configuration);
 //                }
-                CellBaseManagerFactory cellBaseManagerFactory = new CellBaseManagerFactory(configuration);
-                return variantNormalizerConfig
-                        .enableLeftAlign(new CellBaseNormalizerSequenceAdaptor(cellBaseManagerFactory.getGenomeManager(species, assembly),
-                                variantAnnotationCommandOptions.dataRelease));
+                return variantNormalizerConfig.enableLeftAlign(new CellBaseNormalizerSequenceAdaptor(
+                        getCellBaseManagerFactory().getGenomeManager(species, assembly), variantAnnotationCommandOptions.dataRelease));
             }
         }
         return variantNormalizerConfig;
@@ -459,9 +505,10 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
         // Include population-frequencies file if required
         if (populationFrequenciesFile != null) {
             // Rocks db indexer for population frequencies  is always the last in the list
-            int i = variantIndexerList.size() - 1;
+            PopulationFrequencyVariantIndexer variantIndexer
+                    = (PopulationFrequencyVariantIndexer) variantIndexerList.get(variantIndexerList.size() - 1);
             variantAnnotatorList.add(new PopulationFrequenciesAnnotator(populationFrequenciesFile.toString(),
-                    variantIndexerList.get(i).getDbIndex(), serverQueryOptions));
+                    variantIndexer.getDbIndex(), variantIndexer.getVisitedVariants(), serverQueryOptions));
 
         }
 
@@ -478,9 +525,10 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
             // Normalization should just be performed in one place: before calling the annotation calculator - within the
             // corresponding *AnnotatorTask since the AnnotatorTasks need that the number of sent variants coincides
             // equals the number of returned annotations
-            CellBaseManagerFactory cellBaseManagerFactory = new CellBaseManagerFactory(configuration);
+            // Shared by all the genome managers of the database, kept to report its hit ratio
+            genomeSequenceCache = getCellBaseManagerFactory().getGenomeManager(species, assembly).getSequenceCache();
             return new CellBaseLocalVariantAnnotator(new VariantAnnotationCalculator(species, assembly,
-                    variantAnnotationCommandOptions.dataRelease, variantAnnotationCommandOptions.token, cellBaseManagerFactory),
+                    variantAnnotationCommandOptions.dataRelease, variantAnnotationCommandOptions.token, getCellBaseManagerFactory()),
                     serverQueryOptions);
         } else {
             try {
@@ -496,7 +544,8 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
 
                 // TODO: normalization must be carried out in the client - phase set must be sent together with the
                 // TODO: variant string to the server for proper phase annotation by REST
-                return new CellBaseWSVariantAnnotator(cellBaseClient.getVariantClient(), serverQueryOptions);
+                return new CellBaseWSVariantAnnotator(cellBaseClient.getVariantClient().setAnnotationCache(annotationCache),
+                        serverQueryOptions);
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -517,7 +566,8 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
                 VariantIndexer variantIndexer
                         = new CustomAnnotationVariantIndexer(getVariantReader(customFiles.get(i), true),
                         maxOpenFiles,
-                        customFileFields.get(i));
+                        customFileFields.get(i))
+                        .setNumThreads(numThreads);
                 variantIndexer.open();
                 variantIndexer.run();
                 variantIndexerList.add(variantIndexer);
@@ -532,7 +582,8 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
             // these files implies deletions on the RocksDB database. Whatever is already there will probably be wrong
             VariantIndexer variantIndexer = new PopulationFrequencyVariantIndexer(variantReader,
                     maxOpenFiles,
-                    true);
+                    true)
+                    .setNumThreads(numThreads);
             variantIndexer.open();
             variantIndexer.run();
             variantIndexerList.add(variantIndexer);
@@ -656,6 +707,7 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
             } else {
                 throw new ParameterException("Please check command line syntax. Provide a valid URL to access CellBase web services.");
             }
+            initAnnotationCache();
             // Left align in remote mode can only be enabled if a reference fasta is provided
             if (leftAlign) {
                 if (referenceFasta == null) {
@@ -786,6 +838,25 @@ public class VariantAnnotationCommandExecutor extends CommandExecutor {
 
     }
 
+    /**
+     * Client-side annotation cache, shared by all annotator threads. With --cache-size 0 and --cache-dir only the
+     * persistent cache is used.
+     *
+     * @throws IOException if the persistent cache can not be opened
+     */
+    private void initAnnotationCache() throws IOException {
+        if (variantAnnotationCommandOptions.cacheSize < 0) {
+            throw new ParameterException("--cache-size must be a positive number, or 0 to disable the in-memory cache");
+        }
+        if (variantAnnotationCommandOptions.cacheSize > 0 || variantAnnotationCommandOptions.cacheDir != null) {
+            Path cacheDir = variantAnnotationCommandOptions.cacheDir != null
+                    ? Paths.get(variantAnnotationCommandOptions.cacheDir)
+                    : null;
+            annotationCache = new VariantAnnotationCache(variantAnnotationCommandOptions.cacheSize, cacheDir);
+            logger.info("Client-side annotation cache enabled: {}", annotationCache);
+        }
+    }
+
     private void parsePhaseConfiguration() {
         // TODO: remove "phased" CLI parameter in next release. Default behavior from here onwards should be
         //  ignorePhase = false
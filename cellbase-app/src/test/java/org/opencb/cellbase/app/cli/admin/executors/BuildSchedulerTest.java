@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.app.cli.admin.executors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BuildSchedulerTest {
+
+    @Test
+    public void testDependencies() throws Exception {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        BuildScheduler scheduler = new BuildScheduler(4, 0)
+                .addTask("gene", Collections.singletonList("genome"), 1, 0, () -> executed.add("gene"))
+                .addTask("genome", null, 1, 0, () -> executed.add("genome"))
+                .addTask("clinical_variants", Arrays.asList("genome", "missing"), 1, 0, () -> executed.add("clinical_variants"));
+
+        List<BuildScheduler.BuildTask> tasks = scheduler.run();
+
+        assertEquals(3, executed.size());
+        assertEquals("genome", executed.get(0));
+        for (BuildScheduler.BuildTask task : tasks) {
+            assertEquals(BuildScheduler.Status.DONE, task.getStatus());
+        }
+        assertTrue(scheduler.getSummary().startsWith("#task"));
+    }
+
+    @Test
+    public void testConcurrentTasks() throws Exception {
+        // Both tasks must be running at the same time to get past the latch
+        CountDownLatch latch = new CountDownLatch(2);
+        BuildScheduler.BuildAction action = () -> {
+            latch.countDown();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        };
+        List<BuildScheduler.BuildTask> tasks = new BuildScheduler(2, 0)
+                .addTask("repeats", null, 1, 0, action)
+                .addTask("obo", null, 1, 0, action)
+                .run();
+
+        for (BuildScheduler.BuildTask task : tasks) {
+            assertEquals(BuildScheduler.Status.DONE, task.getStatus());
+        }
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        BuildScheduler.BuildAction action = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+        };
+        // Enough threads for all of them but memory only for one at a time, the big task runs alone
+        new BuildScheduler(8, 4)
+                .addTask("gene", null, 1, 8, action)
+                .addTask("protein", null, 1, 4, action)
+                .addTask("repeats", null, 1, 2, action)
+                .addTask("obo", null, 1, 2, action)
+                .run();
+
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void testFailedDependency() throws Exception {
+        List<BuildScheduler.BuildTask> tasks = new BuildScheduler(2, 0)
+                .addTask("genome", null, 1, 0, () -> {
+                    throw new Exception("genome failed");
+                })
+                .addTask("gene", Collections.singletonList("genome"), 1, 0, () -> fail("gene must not be built"))
+                .addTask("obo", null, 1, 0, () -> { })
+                .run();
+
+        assertEquals(BuildScheduler.Status.FAILED, tasks.get(0).getStatus());
+        assertEquals("genome failed", tasks.get(0).getException().getMessage());
+        assertEquals(BuildScheduler.Status.SKIPPED, tasks.get(1).getStatus());
+        assertEquals(BuildScheduler.Status.DONE, tasks.get(2).getStatus());
+    }
+}
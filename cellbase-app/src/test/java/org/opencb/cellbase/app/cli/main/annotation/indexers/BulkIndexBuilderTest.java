@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.app.cli.main.annotation.indexers;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.variant.avro.PopulationFrequency;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkIndexBuilderTest {
+
+    private Path outdir;
+    private Options options;
+    private RocksDB dbIndex;
+
+    @BeforeEach
+    public void setUp() throws IOException, RocksDBException {
+        outdir = Files.createTempDirectory("bulk_index");
+        RocksDB.loadLibrary();
+        options = new Options().setCreateIfMissing(true);
+        dbIndex = RocksDB.open(options, outdir.resolve("index.idx").toString());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        dbIndex.close();
+        options.dispose();
+        FileUtils.deleteDirectory(outdir.toFile());
+    }
+
+    @Test
+    public void testBuild() throws IOException, RocksDBException {
+        PopulationFrequencyVariantIndexer variantIndexer = new PopulationFrequencyVariantIndexer(null, 0, true);
+        // A tiny buffer, every few entries are spilled to a new run
+        BulkIndexBuilder bulkIndexBuilder = new BulkIndexBuilder(variantIndexer, outdir.resolve("tmp"), 2, 500);
+
+        // key = variant, expected population frequencies in input order
+        Map<String, List<PopulationFrequency>> expected = new TreeMap<>();
+        Random random = new Random(7);
+        List<String> chromosomes = Arrays.asList("1", "10", "2", "X");
+        for (int i = 0; i < 2000; i++) {
+            String chromosome = chromosomes.get(random.nextInt(chromosomes.size()));
+            // Few positions so that the same variant is found in several runs
+            String variant = chromosome + ":" + (1000 + random.nextInt(100)) + ":A:T";
+            PopulationFrequency populationFrequency = new PopulationFrequency("STUDY_" + i, "ALL", "A", "T", 0.9f, 0.1f,
+                    null, null, null, null, null, null, null, null);
+            expected.computeIfAbsent(variant, k -> new ArrayList<>()).add(populationFrequency);
+            bulkIndexBuilder.add(chromosome, variant.getBytes(),
+                    PopulationFrequencyIndexCodec.encode(0, Collections.singletonList(populationFrequency)));
+        }
+        assertTrue(bulkIndexBuilder.getNumRuns() > chromosomes.size());
+
+        assertEquals(expected.size(), bulkIndexBuilder.build(dbIndex));
+        assertFalse(Files.exists(outdir.resolve("tmp")));
+
+        List<byte[]> keys = new ArrayList<>();
+        Set<Integer> ordinals = new HashSet<>();
+        RocksIterator rocksIterator = dbIndex.newIterator();
+        try {
+            for (rocksIterator.seekToFirst(); rocksIterator.isValid(); rocksIterator.next()) {
+                String variant = new String(rocksIterator.key());
+                assertEquals(expected.get(variant), PopulationFrequencyIndexCodec.getPopulationFrequencies(rocksIterator.value()),
+                        variant);
+                assertTrue(ordinals.add(PopulationFrequencyIndexCodec.getOrdinal(rocksIterator.value())));
+                keys.add(rocksIterator.key());
+            }
+        } finally {
+            rocksIterator.dispose();
+        }
+
+        assertEquals(expected.size(), keys.size());
+        for (int i = 1; i < keys.size(); i++) {
+            assertTrue(BulkIndexBuilder.compareKeys(keys.get(i - 1), keys.get(i)) < 0);
+        }
+        // One ordinal per variant, from 0 to the number of variants - 1
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(ordinals.contains(i));
+        }
+    }
+
+    @Test
+    public void testBuildNotEmpty() throws IOException, RocksDBException {
+        dbIndex.put("1:1000:A:T".getBytes(), PopulationFrequencyIndexCodec.encode(5, Collections.emptyList()));
+
+        BulkIndexBuilder bulkIndexBuilder = new BulkIndexBuilder(new PopulationFrequencyVariantIndexer(null, 0, true),
+                outdir.resolve("tmp"), 1);
+        bulkIndexBuilder.add("1", "1:2000:A:T".getBytes(), PopulationFrequencyIndexCodec.encode(0, Collections.emptyList()));
+        assertThrows(RocksDBException.class, () -> bulkIndexBuilder.build(dbIndex));
+    }
+
+    @Test
+    public void testCompareKeys() {
+        assertTrue(BulkIndexBuilder.compareKeys("1:100".getBytes(), "1:2".getBytes()) < 0);
+        assertTrue(BulkIndexBuilder.compareKeys("1:10".getBytes(), "1:100".getBytes()) < 0);
+        assertTrue(BulkIndexBuilder.compareKeys(new byte[]{(byte) 0xff}, new byte[]{0x01}) > 0);
+        assertEquals(0, BulkIndexBuilder.compareKeys("X:1".getBytes(), "X:1".getBytes()));
+    }
+}
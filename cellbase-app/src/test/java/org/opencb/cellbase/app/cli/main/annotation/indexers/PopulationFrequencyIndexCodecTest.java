@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.app.cli.main.annotation.indexers;
+
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.variant.avro.PopulationFrequency;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PopulationFrequencyIndexCodecTest {
+
+    @Test
+    public void testEncodeDecode() {
+        List<PopulationFrequency> populationFrequencies = Arrays.asList(
+                new PopulationFrequency("1kG_phase3", "EUR", "AT", "TG", 0.999f, 0.001f, null, null, null, null, null, null,
+                        null, null),
+                new PopulationFrequency("GNOMAD_GENOMES", "AMR", "aT-", "-tG", 0.98062956f, 0.01937046f, 15000, 296, 0.96f,
+                        0.039f, 0.001f, 7200, 590, 3));
+
+        byte[] value = PopulationFrequencyIndexCodec.encode(42, populationFrequencies);
+        assertEquals(42, PopulationFrequencyIndexCodec.getOrdinal(value));
+        assertEquals(populationFrequencies, PopulationFrequencyIndexCodec.getPopulationFrequencies(value));
+    }
+
+    @Test
+    public void testEmpty() {
+        byte[] value = PopulationFrequencyIndexCodec.encode(0, null);
+        assertEquals(0, PopulationFrequencyIndexCodec.getOrdinal(value));
+        assertEquals(Collections.emptyList(), PopulationFrequencyIndexCodec.getPopulationFrequencies(value));
+    }
+
+    @Test
+    public void testMerge() {
+        PopulationFrequency populationFrequency1 = new PopulationFrequency("1kG_phase3", "EUR", "A", "T", 0.9f, 0.1f, null, null,
+                null, null, null, null, null, null);
+        PopulationFrequency populationFrequency2 = new PopulationFrequency("GNOMAD_GENOMES", "ALL", "A", "T", 0.8f, 0.2f, 8, 2,
+                null, null, null, null, null, null);
+
+        byte[] value = PopulationFrequencyIndexCodec.merge(
+                PopulationFrequencyIndexCodec.encode(3, Collections.singletonList(populationFrequency1)),
+                PopulationFrequencyIndexCodec.encode(0, Collections.singletonList(populationFrequency2)));
+        assertEquals(3, PopulationFrequencyIndexCodec.getOrdinal(value));
+        assertEquals(Arrays.asList(populationFrequency1, populationFrequency2),
+                PopulationFrequencyIndexCodec.getPopulationFrequencies(value));
+
+        byte[] newValue = PopulationFrequencyIndexCodec.withOrdinal(value, 7);
+        assertEquals(7, PopulationFrequencyIndexCodec.getOrdinal(newValue));
+        assertEquals(3, PopulationFrequencyIndexCodec.getOrdinal(value));
+        assertEquals(Arrays.asList(populationFrequency1, populationFrequency2),
+                PopulationFrequencyIndexCodec.getPopulationFrequencies(newValue));
+    }
+
+    @Test
+    public void testUnsupportedFormat() {
+        byte[] json = "{\"chromosome\":\"1\"}".getBytes();
+        assertThrows(IllegalStateException.class, () -> PopulationFrequencyIndexCodec.getOrdinal(json));
+    }
+
+    @Test
+    public void testVisitedVariants() {
+        ConcurrentBitSet visitedVariants = new ConcurrentBitSet(130);
+        visitedVariants.set(0);
+        visitedVariants.set(64);
+        visitedVariants.set(129);
+        visitedVariants.set(129);
+
+        assertTrue(visitedVariants.get(0));
+        assertFalse(visitedVariants.get(1));
+        assertTrue(visitedVariants.get(64));
+        assertTrue(visitedVariants.get(129));
+        assertEquals(3, visitedVariants.cardinality());
+        assertThrows(IndexOutOfBoundsException.class, () -> visitedVariants.set(130));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.app.cli.main.annotation.indexers;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.PopulationFrequency;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.biodata.tools.variant.VariantJsonReader;
+import org.rocksdb.RocksIterator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PopulationFrequencyVariantIndexerTest {
+
+    private Path outdir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        outdir = Files.createTempDirectory("population_frequency_index");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(outdir.toFile());
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        Path input = outdir.resolve("frequencies.json");
+        try (BufferedWriter bufferedWriter = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            // Variant 1:300:A:T is repeated, 5 different variants
+            for (int start : new int[]{100, 200, 300, 300, 400, 500}) {
+                Variant variant = new Variant("1", start, "A", "T");
+                VariantAnnotation variantAnnotation = new VariantAnnotation();
+                variantAnnotation.setPopulationFrequencies(Collections.singletonList(new PopulationFrequency("GNOMAD_GENOMES",
+                        "ALL", "A", "T", 0.9f, 0.1f, 90, 10, 0.81f, 0.18f, 0.01f, 41, 8, 1)));
+                variant.setAnnotation(variantAnnotation);
+                bufferedWriter.write(variant.toJson());
+                bufferedWriter.newLine();
+            }
+        }
+
+        PopulationFrequencyVariantIndexer variantIndexer = new PopulationFrequencyVariantIndexer(new VariantJsonReader(input),
+                0, true);
+        variantIndexer.open();
+        variantIndexer.run();
+        assertTrue(variantIndexer.isIndexingNeeded());
+        assertEquals(5, variantIndexer.getVisitedVariants().size());
+        variantIndexer.close();
+
+        // The number of variants is read from the index metadata
+        variantIndexer = new PopulationFrequencyVariantIndexer(new VariantJsonReader(input), 0, false);
+        variantIndexer.open();
+        variantIndexer.run();
+        assertFalse(variantIndexer.isIndexingNeeded());
+        assertEquals(5, variantIndexer.getVisitedVariants().size());
+
+        int numVariants = 0;
+        RocksIterator rocksIterator = variantIndexer.getDbIndex().newIterator();
+        try {
+            for (rocksIterator.seekToFirst(); rocksIterator.isValid(); rocksIterator.next()) {
+                if (!PopulationFrequencyVariantIndexer.isMetadataKey(rocksIterator.key())) {
+                    assertTrue(PopulationFrequencyIndexCodec.getOrdinal(rocksIterator.value()) < 5);
+                    numVariants++;
+                }
+            }
+        } finally {
+            rocksIterator.dispose();
+        }
+        assertEquals(5, numVariants);
+        variantIndexer.close();
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.opencb.cellbase.client.config;
 
+import org.opencb.cellbase.core.result.ResponseFormat;
+
 import java.util.List;
 
 /**
@@ -25,6 +27,10 @@ public class RestConfig {
 
     private List<String> hosts;
     private int timeout = 60000;
+    /**
+     * Encoding requested to the server, binary formats reduce the payload size and the parsing time of large responses.
+     */
+    private ResponseFormat format = ResponseFormat.JSON;
 
     public RestConfig() {
     }
@@ -39,6 +45,7 @@ public class RestConfig {
         final StringBuilder sb = new StringBuilder("RestConfig{");
         sb.append("hosts=").append(hosts);
         sb.append(", timeout=").append(timeout);
+        sb.append(", format=").append(format);
         sb.append('}');
         return sb.toString();
     }
@@ -60,4 +67,13 @@ public class RestConfig {
         this.timeout = timeout;
         return this;
     }
+
+    public ResponseFormat getFormat() {
+        return format;
+    }
+
+    public RestConfig setFormat(ResponseFormat format) {
+        this.format = format;
+        return this;
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.client.grpc;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+import org.opencb.commons.datastore.core.QueryOptions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.opencb.cellbase.core.grpc.VariantAnnotationServiceGrpc.*;
+
+/**
+ * Client of the CellBase gRPC variant annotation service. Variants are streamed to the server and annotations are
+ * received while the server keeps annotating, using the Avro binary encoding instead of JSON.
+ */
+public class VariantAnnotationGrpcClient implements Closeable {
+
+    private final String species;
+    private final String assembly;
+    private final String dataRelease;
+    private final String token;
+    private final ManagedChannel channel;
+
+    public VariantAnnotationGrpcClient(String host, int port, String species, String assembly, String dataRelease, String token) {
+        this(ManagedChannelBuilder.forAddress(host, port).usePlaintext().build(), species, assembly, dataRelease, token);
+    }
+
+    public VariantAnnotationGrpcClient(ManagedChannel channel, String species, String assembly, String dataRelease, String token) {
+        this.channel = channel;
+        this.species = species;
+        this.assembly = assembly;
+        this.dataRelease = dataRelease;
+        this.token = token;
+    }
+
+    /**
+     * Annotates a list of variants and waits for all the annotations.
+     *
+     * @param variants variants to annotate
+     * @param options annotation options, see VariantAnnotationServiceGrpc.ANNOTATION_OPTIONS
+     * @return annotations in the same order as the variants
+     * @throws IOException if the annotation fails or is interrupted
+     */
+    public List<VariantAnnotation> annotate(List<Variant> variants, QueryOptions options) throws IOException {
+        List<VariantAnnotation> variantAnnotations = new ArrayList<>(variants.size());
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        annotate(variants.iterator(), options, new StreamObserver<VariantAnnotation>() {
+            @Override
+            public void onNext(VariantAnnotation variantAnnotation) {
+                variantAnnotations.add(variantAnnotation);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+                future.complete(null);
+            }
+        });
+
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Variant annotation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error annotating variants: " + e.getCause().getMessage(), e.getCause());
+        }
+        return variantAnnotations;
+    }
+
+    /**
+     * Streams the variants to the server and notifies the annotations to the observer as they arrive. Variants are
+     * only taken from the iterator when the server is ready to receive them, so the iterator can be backed by a
+     * large file without loading it in memory.
+     *
+     * @param variants variants to annotate
+     * @param options annotation options, see VariantAnnotationServiceGrpc.ANNOTATION_OPTIONS
+     * @param annotationObserver observer receiving the annotations, onCompleted or onError is called at the end
+     */
+    public void annotate(Iterator<Variant> variants, QueryOptions options, StreamObserver<VariantAnnotation> annotationObserver) {
+        Metadata headers = buildHeaders(options);
+        ClientCalls.asyncBidiStreamingCall(
+                ClientInterceptors.intercept(channel, MetadataUtils.newAttachHeadersInterceptor(headers))
+                        .newCall(ANNOTATE_METHOD, CallOptions.DEFAULT),
+                new ClientResponseObserver<VariantAvro, VariantAnnotation>() {
+                    private boolean requestCompleted = false;
+
+                    @Override
+                    public void beforeStart(ClientCallStreamObserver<VariantAvro> requestStream) {
+                        requestStream.setOnReadyHandler(() -> {
+                            // Send variants while the transport buffer accepts them, gRPC calls this handler again
+                            // when it is ready for more
+                            while (!requestCompleted && requestStream.isReady()) {
+                                if (variants.hasNext()) {
+                                    requestStream.onNext(variants.next().getImpl());
+                                } else {
+                                    requestStream.onCompleted();
+                                    requestCompleted = true;
+                                }
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onNext(VariantAnnotation variantAnnotation) {
+                        annotationObserver.onNext(variantAnnotation);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        annotationObserver.onError(throwable);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        annotationObserver.onCompleted();
+                    }
+                });
+    }
+
+    private Metadata buildHeaders(QueryOptions options) {
+        Metadata headers = new Metadata();
+        headers.put(SPECIES_KEY, species);
+        if (StringUtils.isNotEmpty(assembly)) {
+            headers.put(ASSEMBLY_KEY, assembly);
+        }
+        if (StringUtils.isNotEmpty(dataRelease)) {
+            headers.put(DATA_RELEASE_KEY, dataRelease);
+        }
+        if (StringUtils.isNotEmpty(token)) {
+            headers.put(TOKEN_KEY, token);
+        }
+        if (options != null) {
+            for (String option : ANNOTATION_OPTIONS) {
+                if (options.containsKey(option)) {
+                    headers.put(optionKey(option), String.join(",", options.getAsStringList(option)));
+                }
+            }
+        }
+        return headers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.shutdown();
+        try {
+            if (!channel.awaitTermination(30, TimeUnit.SECONDS)) {
+                channel.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            channel.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("VariantAnnotationGrpcClient{");
+        sb.append("species='").append(species).append('\'');
+        sb.append(", assembly='").append(assembly).append('\'');
+        sb.append(", dataRelease='").append(dataRelease).append('\'');
+        sb.append(", channel=").append(channel);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -18,6 +18,7 @@ package org.opencb.cellbase.client.rest;
 
 import org.apache.commons.lang3.StringUtils;
 import org.opencb.cellbase.client.config.ClientConfiguration;
+import org.opencb.cellbase.client.grpc.VariantAnnotationGrpcClient;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -110,6 +111,17 @@ public class CellBaseClient {
         return getClient("GENERIC", () -> new GenericClient(species, assembly, dataRelease, token, clientConfiguration));
     }
 
+    /**
+     * Creates a client for the gRPC variant annotation service. The caller must close it.
+     *
+     * @param host gRPC server host
+     * @param port gRPC server port, see server.grpc.port in the server configuration
+     * @return the gRPC variant annotation client
+     */
+    public VariantAnnotationGrpcClient getVariantAnnotationGrpcClient(String host, int port) {
+        return new VariantAnnotationGrpcClient(host, port, species, assembly, dataRelease, token);
+    }
+
     @SuppressWarnings("unchecked")
     private <T extends ParentRestClient> T getClient(String key, Supplier<T> constructorIfAbsent) {
         // Avoid concurrent modifications
@@ -35,6 +35,7 @@ import org.opencb.cellbase.client.rest.models.mixin.DrugResponseClassificationMi
 import org.opencb.cellbase.core.api.query.AbstractQuery;
 import org.opencb.cellbase.core.result.CellBaseDataResponse;
 import org.opencb.cellbase.core.result.CellBaseDataResult;
+import org.opencb.cellbase.core.result.ResponseFormat;
 import org.opencb.commons.datastore.core.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,7 +44,9 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.net.URI;
@@ -73,6 +76,7 @@ public class ParentRestClient<T> {
     protected final ClientConfiguration configuration;
 
     protected static ObjectMapper jsonObjectMapper;
+    private static Map<ResponseFormat, ObjectMapper> binaryObjectMappers;
     protected final Logger logger;
 
     public static final int LIMIT = 10;
@@ -127,14 +131,25 @@ public class ParentRestClient<T> {
     }
 
     static {
-        jsonObjectMapper = new ObjectMapper();
-        jsonObjectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        jsonObjectMapper.addMixIn(DrugResponseClassification.class, DrugResponseClassificationMixIn.class);
-        jsonObjectMapper.addMixIn(CellBaseDataResponse.class, CellBaseDataResponseMixIn.class);
-        jsonObjectMapper.addMixIn(CellBaseDataResult.class, CellBaseDataResultMixIn.class);
-        jsonObjectMapper.addMixIn(VariantAnnotation.class, VariantAnnotationMixin.class);
-        jsonObjectMapper.addMixIn(ConsequenceType.class, ConsequenceTypeMixin.class);
+        jsonObjectMapper = createObjectMapper(ResponseFormat.JSON);
 
+        binaryObjectMappers = new EnumMap<>(ResponseFormat.class);
+        for (ResponseFormat responseFormat : ResponseFormat.values()) {
+            if (responseFormat.isBinary()) {
+                binaryObjectMappers.put(responseFormat, createObjectMapper(responseFormat));
+            }
+        }
+    }
+
+    private static ObjectMapper createObjectMapper(ResponseFormat responseFormat) {
+        ObjectMapper objectMapper = new ObjectMapper(responseFormat.createJsonFactory());
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.addMixIn(DrugResponseClassification.class, DrugResponseClassificationMixIn.class);
+        objectMapper.addMixIn(CellBaseDataResponse.class, CellBaseDataResponseMixIn.class);
+        objectMapper.addMixIn(CellBaseDataResult.class, CellBaseDataResultMixIn.class);
+        objectMapper.addMixIn(VariantAnnotation.class, VariantAnnotationMixin.class);
+        objectMapper.addMixIn(ConsequenceType.class, ConsequenceTypeMixin.class);
+        return objectMapper;
     }
 
     // These methods keep backwark compatability with CellBase 4.x
@@ -465,6 +480,22 @@ public class ParentRestClient<T> {
             }
         }
 
+        ResponseFormat responseFormat = configuration.getRest().getFormat();
+        if (responseFormat != null && responseFormat.isBinary()) {
+            // JSON is still accepted, with lower preference, so servers without binary support keep working
+            Invocation.Builder request = callUrl.request()
+                    .accept(responseFormat.getMediaType(), MediaType.APPLICATION_JSON + ";q=0.5");
+            Response response;
+            if (post) {
+                logger.debug("Making POST call to REST URL: {}", callUrl.getUri().toURL());
+                response = request.post(Entity.text(ids));
+            } else {
+                logger.debug("Making GET call to REST URL: {}", callUrl.getUri().toURL());
+                response = request.get();
+            }
+            return parseResult(response, clazz);
+        }
+
         String jsonString;
         if (post) {
             logger.debug("Making POST call to REST URL: {}", callUrl.getUri().toURL());
@@ -477,6 +508,25 @@ public class ParentRestClient<T> {
         return parseResult(jsonString, clazz);
     }
 
+    private static <U> CellBaseDataResponse<U> parseResult(Response response, Class<U> clazz) throws IOException {
+        try {
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                throw new WebApplicationException(response);
+            }
+            byte[] content = response.readEntity(byte[].class);
+            ResponseFormat responseFormat = ResponseFormat.fromAcceptHeader(response.getMediaType() != null
+                    ? response.getMediaType().getType() + "/" + response.getMediaType().getSubtype()
+                    : null);
+            ObjectMapper objectMapper = responseFormat.isBinary() ? binaryObjectMappers.get(responseFormat) : jsonObjectMapper;
+            return objectMapper
+                    .readerFor(objectMapper.getTypeFactory().constructParametrizedType(CellBaseDataResponse.class,
+                            CellBaseDataResult.class, clazz))
+                    .readValue(content);
+        } finally {
+            response.close();
+        }
+    }
+
     protected WebTarget getBaseUrl(List<String> hosts, String version) {
         return client
                     .target(URI.create(hosts.get(0)))
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.client.rest;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.specific.SpecificData;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.cellbase.core.api.query.AbstractQuery;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side cache of variant annotations returned by the REST server. Annotations are kept in an in-memory LRU
+ * map and, optionally, in a local RocksDB file so that they survive between runs. Entries are keyed by variant
+ * annotation id, species, assembly, data release, data access token and the QueryOptions sent to the server, so the
+ * same variant annotated with different options, against a different release or with different licensed data is
+ * never mixed up.
+ *
+ * This class is thread safe and one instance can be shared by several VariantClient objects.
+ */
+public class VariantAnnotationCache implements Closeable {
+
+    public static final int DEFAULT_MAX_SIZE = 100000;
+
+    private static final char KEY_SEPARATOR = '|';
+
+    private final int maxSize;
+    private final Map<String, VariantAnnotation> lruCache;
+
+    private RocksDB rocksDB;
+    private Options rocksDBOptions;
+    private final ObjectMapper jsonObjectMapper;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    private final Logger logger = LoggerFactory.getLogger(VariantAnnotationCache.class);
+
+    public VariantAnnotationCache() throws IOException {
+        this(DEFAULT_MAX_SIZE, null);
+    }
+
+    /**
+     * Creates the cache.
+     *
+     * @param maxSize maximum number of annotations kept in memory, older entries are evicted in LRU order. With 0 no
+     *                annotation is kept in memory and only the RocksDB level is used, a negative value uses DEFAULT_MAX_SIZE
+     * @param rocksDBPath optional path to a RocksDB directory used as a persistent second level. May be null
+     * @throws IOException if the RocksDB directory cannot be opened
+     */
+    public VariantAnnotationCache(int maxSize, Path rocksDBPath) throws IOException {
+        this.maxSize = maxSize >= 0 ? maxSize : DEFAULT_MAX_SIZE;
+        this.lruCache = new LinkedHashMap<String, VariantAnnotation>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VariantAnnotation> eldest) {
+                return size() > VariantAnnotationCache.this.maxSize;
+            }
+        };
+
+        jsonObjectMapper = new ObjectMapper();
+        jsonObjectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+        jsonObjectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+
+        if (rocksDBPath != null) {
+            openRocksDB(rocksDBPath);
+        }
+    }
+
+    private void openRocksDB(Path rocksDBPath) throws IOException {
+        Files.createDirectories(rocksDBPath);
+        RocksDB.loadLibrary();
+        rocksDBOptions = new Options().setCreateIfMissing(true);
+        try {
+            rocksDB = RocksDB.open(rocksDBOptions, rocksDBPath.toAbsolutePath().toString());
+            logger.info("Variant annotation cache opened at {}", rocksDBPath);
+        } catch (RocksDBException e) {
+            rocksDBOptions.dispose();
+            throw new IOException("Could not open variant annotation cache at " + rocksDBPath, e);
+        }
+    }
+
+    /**
+     * Builds the cache key for one variant. QueryOptions are sorted so that the key does not depend on insertion order.
+     * The data access token is part of the key as a SHA-256 hash, so annotations with licensed data are only returned
+     * to clients with the same token, and the token itself is never written to disk.
+     *
+     * @param variantId variant annotation id as sent to the server, see VariantClient.getVariantAnnotationId
+     * @param species species
+     * @param assembly assembly, may be null
+     * @param dataRelease data release, may be null for the server default
+     * @param token data access token, may be null
+     * @param options QueryOptions sent to the server, a token in the options is hashed too
+     * @return cache key
+     */
+    public static String buildKey(String variantId, String species, String assembly, String dataRelease, String token,
+                                  QueryOptions options) {
+        return species + KEY_SEPARATOR + assembly + KEY_SEPARATOR + (dataRelease != null ? dataRelease : "")
+                + KEY_SEPARATOR + tokenKey(token) + KEY_SEPARATOR + optionsKey(options) + KEY_SEPARATOR + variantId;
+    }
+
+    static String tokenKey(String token) {
+        if (StringUtils.isEmpty(token)) {
+            return "";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String optionsKey(QueryOptions options) {
+        if (options == null || options.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Object> entry : new TreeMap<>(options).entrySet()) {
+            if (AbstractQuery.DATA_ACCESS_TOKEN.equals(entry.getKey())) {
+                sb.append(entry.getKey()).append('=').append(tokenKey(String.valueOf(entry.getValue()))).append(';');
+            } else {
+                sb.append(entry.getKey()).append('=').append(entry.getValue()).append(';');
+            }
+        }
+        return sb.toString();
+    }
+
+    public VariantAnnotation get(String key) {
+        return get(key, true);
+    }
+
+    /**
+     * Returns a copy of the cached annotation.
+     *
+     * @param key cache key, see buildKey
+     * @param persistent whether the RocksDB level is read too. Annotations of the server default data release are only
+     *                   kept in memory, since the default release may change between runs
+     * @return the annotation, null if not found
+     */
+    public VariantAnnotation get(String key, boolean persistent) {
+        VariantAnnotation annotation;
+        synchronized (lruCache) {
+            annotation = lruCache.get(key);
+        }
+
+        if (annotation == null && persistent && rocksDB != null) {
+            try {
+                byte[] value = rocksDB.get(key.getBytes(StandardCharsets.UTF_8));
+                if (value != null) {
+                    annotation = jsonObjectMapper.readValue(value, VariantAnnotation.class);
+                    if (maxSize > 0) {
+                        synchronized (lruCache) {
+                            lruCache.put(key, annotation);
+                        }
+                    }
+                }
+            } catch (RocksDBException | IOException e) {
+                logger.warn("Error reading key '{}' from the variant annotation cache: {}", key, e.getMessage());
+            }
+        }
+
+        if (annotation != null) {
+            hits.incrementAndGet();
+            // Callers usually modify the returned annotation (e.g. merging custom annotations), a copy is returned so
+            // that the cached object is never altered
+            return SpecificData.get().deepCopy(annotation.getSchema(), annotation);
+        } else {
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void put(String key, VariantAnnotation annotation) {
+        put(key, annotation, true);
+    }
+
+    /**
+     * Stores a copy of the annotation.
+     *
+     * @param key cache key, see buildKey
+     * @param annotation annotation
+     * @param persistent whether the annotation is written to the RocksDB level too
+     */
+    public void put(String key, VariantAnnotation annotation, boolean persistent) {
+        if (annotation == null) {
+            return;
+        }
+        if (maxSize > 0) {
+            synchronized (lruCache) {
+                lruCache.put(key, SpecificData.get().deepCopy(annotation.getSchema(), annotation));
+            }
+        }
+
+        if (persistent && rocksDB != null) {
+            try {
+                rocksDB.put(key.getBytes(StandardCharsets.UTF_8), jsonObjectMapper.writeValueAsBytes(annotation));
+            } catch (RocksDBException | IOException e) {
+                logger.warn("Error writing key '{}' to the variant annotation cache: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (lruCache) {
+            return lruCache.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void close() {
+        logger.info("Variant annotation cache: {} hits, {} misses", hits.get(), misses.get());
+        if (rocksDB != null) {
+            rocksDB.close();
+            rocksDBOptions.dispose();
+            rocksDB = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("VariantAnnotationCache{");
+        sb.append("maxSize=").append(maxSize);
+        sb.append(", size=").append(size());
+        sb.append(", persistent=").append(rocksDB != null);
+        sb.append(", hits=").append(hits);
+        sb.append(", misses=").append(misses);
+        sb.append('}');
+        return sb.toString();
+    }
+}
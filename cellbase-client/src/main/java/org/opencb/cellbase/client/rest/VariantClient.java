@@ -20,6 +20,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.*;
 import org.opencb.cellbase.client.config.ClientConfiguration;
+import org.opencb.cellbase.core.api.query.AbstractQuery;
 import org.opencb.cellbase.core.result.CellBaseDataResponse;
 import org.opencb.cellbase.core.result.CellBaseDataResult;
 import org.opencb.cellbase.core.variant.AnnotationBasedPhasedQueryManager;
@@ -44,6 +45,8 @@ public final class VariantClient extends FeatureClient<Variant> {
     private static final char ABSENT_ALLELE = '0';
     private static final String REFERENCE_HOMOZYGOUS_GENOTYPE = "0|0";
 
+    private VariantAnnotationCache annotationCache;
+
     VariantClient(String species, String assembly, String dataRelease, String token, ClientConfiguration configuration) {
         super(species, assembly, dataRelease, token, configuration);
         this.clazz = Variant.class;
@@ -100,14 +103,88 @@ public final class VariantClient extends FeatureClient<Variant> {
 
     public CellBaseDataResponse<VariantAnnotation> getAnnotation(List<Variant> variants, QueryOptions options, boolean post)
             throws IOException {
-        CellBaseDataResponse<VariantAnnotation> result = execute(getVariantAnnotationIds(variants,
-                options.getBoolean(IGNORE_PHASE)),
+        List<String> variantIds = getVariantAnnotationIds(variants, options.getBoolean(IGNORE_PHASE));
+        if (annotationCache != null) {
+            return getCachedAnnotation(variantIds, options, post);
+        }
+
+        CellBaseDataResponse<VariantAnnotation> result = execute(variantIds,
                 "annotation",
                 options,
                 VariantAnnotation.class, post);
         return initRequiredAnnotation(result);
     }
 
+    /**
+     * Annotates a list of variant ids looking first into the annotation cache. Only cache misses are sent to the server,
+     * returned annotations are stored in the cache and merged back so that the order of the input list is kept.
+     */
+    private CellBaseDataResponse<VariantAnnotation> getCachedAnnotation(List<String> variantIds, QueryOptions options, boolean post)
+            throws IOException {
+        if (variantIds == null || variantIds.isEmpty()) {
+            return new CellBaseDataResponse<>();
+        }
+
+        // Same precedence as the REST call: data release and token in the options override the client ones. Annotations of
+        // the server default data release are only cached in memory, the default may be a different release next run
+        String release = StringUtils.isNotEmpty(options.getString(AbstractQuery.DATA_RELEASE))
+                ? options.getString(AbstractQuery.DATA_RELEASE)
+                : dataRelease;
+        String cacheToken = StringUtils.isNotEmpty(options.getString(AbstractQuery.DATA_ACCESS_TOKEN))
+                ? options.getString(AbstractQuery.DATA_ACCESS_TOKEN)
+                : token;
+        boolean persistent = StringUtils.isNotEmpty(release) && !"0".equals(release);
+
+        List<String> cacheKeys = new ArrayList<>(variantIds.size());
+        List<CellBaseDataResult<VariantAnnotation>> cellBaseDataResults = new ArrayList<>(variantIds.size());
+        List<String> missingIds = new ArrayList<>();
+        List<Integer> missingPositions = new ArrayList<>();
+        for (int i = 0; i < variantIds.size(); i++) {
+            String cacheKey = VariantAnnotationCache.buildKey(variantIds.get(i), species, assembly, release, cacheToken, options);
+            cacheKeys.add(cacheKey);
+            VariantAnnotation annotation = annotationCache.get(cacheKey, persistent);
+            if (annotation != null) {
+                cellBaseDataResults.add(new CellBaseDataResult<>(variantIds.get(i), 0, Collections.emptyList(), 1,
+                        Collections.singletonList(annotation), 1));
+            } else {
+                cellBaseDataResults.add(new CellBaseDataResult<>(variantIds.get(i), 0, Collections.emptyList(), 0));
+                missingIds.add(variantIds.get(i));
+                missingPositions.add(i);
+            }
+        }
+        logger.debug("{} out of {} variant annotations found in cache", variantIds.size() - missingIds.size(), variantIds.size());
+
+        int time = 0;
+        if (!missingIds.isEmpty()) {
+            CellBaseDataResponse<VariantAnnotation> response = initRequiredAnnotation(execute(missingIds, "annotation", options,
+                    VariantAnnotation.class, post));
+            time = response.getTime();
+            if (response.getResponses() != null) {
+                int numResponses = Math.min(response.getResponses().size(), missingIds.size());
+                for (int i = 0; i < numResponses; i++) {
+                    int position = missingPositions.get(i);
+                    CellBaseDataResult<VariantAnnotation> cellBaseDataResult = response.getResponses().get(i);
+                    cellBaseDataResults.set(position, cellBaseDataResult);
+                    if (cellBaseDataResult.getResults() != null && !cellBaseDataResult.getResults().isEmpty()) {
+                        annotationCache.put(cacheKeys.get(position), cellBaseDataResult.first(), persistent);
+                    }
+                }
+            }
+        }
+
+        return new CellBaseDataResponse<>(configuration.getVersion(), 0, getToken(), time, null, new ObjectMap(options),
+                cellBaseDataResults);
+    }
+
+    public VariantAnnotationCache getAnnotationCache() {
+        return annotationCache;
+    }
+
+    public VariantClient setAnnotationCache(VariantAnnotationCache annotationCache) {
+        this.annotationCache = annotationCache;
+        return this;
+    }
+
 
     // FIXME Next two methods should be moved near the Variant Annotation tool
     public String getVariantAnnotationId(Variant variant, Boolean ignorePhase) {
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.client.rest;
+
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.cellbase.core.api.query.AbstractQuery;
+import org.opencb.commons.datastore.core.QueryOptions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VariantAnnotationCacheTest {
+
+    private VariantAnnotation createAnnotation(String chromosome, int start, String reference, String alternate) {
+        VariantAnnotation annotation = new VariantAnnotation();
+        annotation.setChromosome(chromosome);
+        annotation.setStart(start);
+        annotation.setReference(reference);
+        annotation.setAlternate(alternate);
+        annotation.setId(chromosome + ":" + start + ":" + reference + ":" + alternate);
+        return annotation;
+    }
+
+    @Test
+    public void testKey() {
+        QueryOptions options1 = new QueryOptions("include", "consequenceType").append("normalize", false);
+        QueryOptions options2 = new QueryOptions("normalize", false).append("include", "consequenceType");
+        assertEquals(VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", null, options1),
+                VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", null, options2));
+
+        assertNotEquals(VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", null, options1),
+                VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "3", null, options1));
+        assertNotEquals(VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", null, options1),
+                VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", null, new QueryOptions()));
+        assertFalse(VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", null, null, options1).contains("null"));
+    }
+
+    @Test
+    public void testTokenKey() {
+        String key = VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", "token1", new QueryOptions());
+        assertEquals(key, VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", "token1", new QueryOptions()));
+        assertNotEquals(key, VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", "token2", new QueryOptions()));
+        assertNotEquals(key, VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", null, new QueryOptions()));
+
+        // Tokens are hashed, also when given in the options
+        QueryOptions options = new QueryOptions(AbstractQuery.DATA_ACCESS_TOKEN, "token3");
+        assertFalse(key.contains("token1"));
+        assertFalse(VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", null, options).contains("token3"));
+        assertNotEquals(VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", null, options),
+                VariantAnnotationCache.buildKey("1:100:A:T", "hsapiens", "grch38", "2", null,
+                        new QueryOptions(AbstractQuery.DATA_ACCESS_TOKEN, "token4")));
+    }
+
+    @Test
+    public void testLru() throws Exception {
+        try (VariantAnnotationCache cache = new VariantAnnotationCache(2, null)) {
+            cache.put("a", createAnnotation("1", 100, "A", "T"));
+            cache.put("b", createAnnotation("1", 200, "C", "G"));
+            // Access "a" so that "b" becomes the eldest entry
+            assertNotNull(cache.get("a"));
+            cache.put("c", createAnnotation("1", 300, "G", "A"));
+
+            assertEquals(2, cache.size());
+            assertNotNull(cache.get("a"));
+            assertNull(cache.get("b"));
+            assertNotNull(cache.get("c"));
+            assertEquals(3, cache.getHits());
+            assertEquals(1, cache.getMisses());
+        }
+    }
+
+    @Test
+    public void testReturnedCopy() throws Exception {
+        try (VariantAnnotationCache cache = new VariantAnnotationCache(10, null)) {
+            cache.put("a", createAnnotation("1", 100, "A", "T"));
+            cache.get("a").setChromosome("2");
+            assertEquals("1", cache.get("a").getChromosome());
+        }
+    }
+
+    @Test
+    public void testPersistent() throws Exception {
+        Path rocksDBPath = Files.createTempDirectory("variant_annotation_cache");
+        try (VariantAnnotationCache cache = new VariantAnnotationCache(10, rocksDBPath)) {
+            cache.put("a", createAnnotation("1", 100, "A", "T"));
+        }
+
+        try (VariantAnnotationCache cache = new VariantAnnotationCache(10, rocksDBPath)) {
+            VariantAnnotation annotation = cache.get("a");
+            assertNotNull(annotation);
+            assertEquals("1:100:A:T", annotation.getId());
+            assertEquals(100, annotation.getStart().intValue());
+        }
+    }
+
+    @Test
+    public void testPersistentOnly() throws Exception {
+        Path rocksDBPath = Files.createTempDirectory("variant_annotation_cache");
+        try (VariantAnnotationCache cache = new VariantAnnotationCache(0, rocksDBPath)) {
+            cache.put("a", createAnnotation("1", 100, "A", "T"));
+            // Nothing is kept in memory, the annotation is read from RocksDB
+            assertEquals(0, cache.size());
+            assertEquals("1:100:A:T", cache.get("a").getId());
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void testNotPersistent() throws Exception {
+        Path rocksDBPath = Files.createTempDirectory("variant_annotation_cache");
+        try (VariantAnnotationCache cache = new VariantAnnotationCache(10, rocksDBPath)) {
+            // e.g. annotations of the server default data release
+            cache.put("a", createAnnotation("1", 100, "A", "T"), false);
+            assertNotNull(cache.get("a", false));
+        }
+
+        try (VariantAnnotationCache cache = new VariantAnnotationCache(10, rocksDBPath)) {
+            assertNull(cache.get("a"));
+        }
+    }
+}
@@ -17,20 +17,16 @@
 package org.opencb.cellbase.core.api.query;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.reflect.FieldUtils;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
 import java.util.*;
 
 /**
@@ -48,14 +44,8 @@ public abstract class AbstractQuery extends CellBaseQueryOptions {
     public static final String DATA_RELEASE = "dataRelease";
     public static final String DATA_ACCESS_TOKEN = "token";
 
-    // list of fields in this class
-    private Map<String, Field> classFields;
-    // key = transcripts.biotype, value = transcriptsBiotype
-    private Map<String, String> dotNotationToCamelCase;
-    // list of fields in this class, and associated type
-    private Map<String, Class<?>> classAttributesToType;
-    // key = camelCase name (transcriptsBiotype) to annotations
-    private Map<String, QueryParameter> annotations;
+    // fields, annotations and REST parameter names of this query class, shared by all the instances of the class
+    private QueryMetadata metadata;
 
     @QueryParameter(id = DATA_RELEASE)
     private Integer dataRelease;
@@ -63,6 +53,11 @@ public abstract class AbstractQuery extends CellBaseQueryOptions {
     @QueryParameter(id = DATA_ACCESS_TOKEN)
     private String token;
 
+    static {
+        // ObjectMapper is thread safe and caches the (de)serializers of each query class, it must be created only once
+        objectMapper = new ObjectMapper();
+    }
+
     public AbstractQuery() {
         init();
     }
@@ -74,7 +69,7 @@ public abstract class AbstractQuery extends CellBaseQueryOptions {
     }
 
     private void init() {
-        objectMapper = new ObjectMapper();
+        metadata = QueryMetadata.get(this.getClass(), objectMapper);
 
         logger = LoggerFactory.getLogger(this.getClass());
     }
@@ -87,16 +82,12 @@ public abstract class AbstractQuery extends CellBaseQueryOptions {
      * @throws IllegalAccessException if field is not accessible
      */
     public ObjectMap toObjectMap() throws IllegalAccessException {
-        annotations = getAnnotations();
-        classFields = getClassFields();
         QueryOptions queryOptions = toQueryOptions();
         ObjectMap queryMap = new ObjectMap();
-        for (Map.Entry<String, QueryParameter> entry : annotations.entrySet()) {
+        for (Map.Entry<String, QueryParameter> entry : metadata.getAnnotations().entrySet()) {
             String fieldNameCamelCase = entry.getKey();
-            String dotNotationName = annotations.get(fieldNameCamelCase).id();
-            Field field = classFields.get(fieldNameCamelCase);
-            field.setAccessible(true);
-            Object value = field.get(this);
+            String dotNotationName = entry.getValue().id();
+            Object value = metadata.getValue(this, fieldNameCamelCase);
             // don't add query options to the actual query
             if (value != null && !queryOptions.containsKey(dotNotationName) && !"exclude".equals(dotNotationName)) {
                 queryMap.put(dotNotationName, value);
@@ -120,58 +111,21 @@ public abstract class AbstractQuery extends CellBaseQueryOptions {
      * @param uriParams map from the REST
      */
     public void updateParams(Map<String, String> uriParams) {
-        classAttributesToType = getClassAttributesToType();
-        annotations = getAnnotations();
-
         try {
-            validateParams(uriParams, classAttributesToType, annotations);
+            validateParams(uriParams);
 
             Map<String, Object> objectHashMap = new HashMap<>();
-            for (Map.Entry<String, Class<?>> entry : classAttributesToType.entrySet()) {
-                String fieldNameDotNotation = null;
-                String[] fieldAliases = new String[0];
-                String fieldNameCamelCase = entry.getKey();
-                Class fieldType = entry.getValue();
-                QueryParameter queryParameter = annotations.get(fieldNameCamelCase);
-                if (queryParameter != null) {
-                    fieldNameDotNotation = queryParameter.id();
-                    fieldAliases = queryParameter.alias();
-                }
-                if (fieldNameDotNotation == null) {
-                    // field has no annotation
-                    continue;
-                }
+            for (QueryMetadata.Parameter parameter : metadata.getParameters()) {
                 String value = null;
-                String s = fieldNameDotNotation.replace("\\.", "\\\\.");
-                if (uriParams.containsKey(s)) {
-                    value = uriParams.get(s);
-                } else {
-                    for (String alias : fieldAliases) {
-                        s = alias.replace("\\.", "\\\\.");
-                        if (uriParams.containsKey(s)) {
-                            value = uriParams.get(s);
-                            break;
-                        }
+                // the parameter id has priority over the aliases
+                for (String uriParam : parameter.getUriParams()) {
+                    if (uriParams.containsKey(uriParam)) {
+                        value = uriParams.get(uriParam);
+                        break;
                     }
                 }
                 if (value != null) {
-                    if (Collection.class.isAssignableFrom(fieldType)) {
-                        if (LogicalList.class.isAssignableFrom(fieldType)) {
-                            // AND
-                            if (value.contains(";")) {
-                                List valuesList = Arrays.asList(value.split(";"));
-                                objectHashMap.put(fieldNameCamelCase, new LogicalList(valuesList, true));
-                                // OR
-                            } else {
-                                List valuesList = Arrays.asList(value.split(","));
-                                objectHashMap.put(fieldNameCamelCase, new LogicalList(valuesList, false));
-                            }
-                        } else {
-                            objectHashMap.put(fieldNameCamelCase, Arrays.asList(value.split(",")));
-                        }
-                    } else {
-                        objectHashMap.put(fieldNameCamelCase, value);
-                    }
+                    objectHashMap.put(parameter.getName(), parameter.convert(value));
                 }
             }
             objectMapper.updateValue(this, objectHashMap);
@@ -180,80 +134,14 @@ public abstract class AbstractQuery extends CellBaseQueryOptions {
         }
     }
 
-    private void validateParams(Map<String, String> uriParams, Map<String, Class<?>> classAttributesToType,
-                                Map<String, QueryParameter> annotations) throws QueryException {
+    private void validateParams(Map<String, String> uriParams) throws QueryException {
         for (String uriParamName : uriParams.keySet()) {
-            boolean validUriParamName = false;
-            for (Map.Entry<String, Class<?>> entry : classAttributesToType.entrySet()) {
-                String fieldNameDotNotation = null;
-                String[] fieldAliases = new String[0];
-                String fieldNameCamelCase = entry.getKey();
-                QueryParameter queryParameter = annotations.get(fieldNameCamelCase);
-                if (queryParameter != null) {
-                    fieldNameDotNotation = queryParameter.id();
-                    fieldAliases = queryParameter.alias();
-                }
-                if (fieldNameDotNotation == null) {
-                    // field has no annotation
-                    continue;
-                }
-                String s = fieldNameDotNotation.replace("\\.", "\\\\.");
-                if (uriParamName.equals(s)) {
-                    validUriParamName = true;
-                    break;
-                } else {
-                    for (String alias : fieldAliases) {
-                        s = alias.replace("\\.", "\\\\.");
-                        if (uriParamName.equals(s)) {
-                            validUriParamName = true;
-                            break;
-                        }
-                    }
-                }
-            }
-            if (!validUriParamName) {
+            if (!metadata.isValidParameter(uriParamName)) {
                 throw new QueryException("Unknown query parameter '" + uriParamName + "'");
             }
         }
     }
 
-    /**
-     * For this Query class, returns a map of class attributes and the types of those attributes.
-     *
-     *  key: fieldName, e.g. transcriptsBiotype
-     *  value: type, e.g. List<String>
-     *
-     * @return map of field names to type
-     */
-    private Map<String, Class<?>> loadPropertiesMap() {
-        final ObjectMapper objectMapper = new ObjectMapper();
-        BeanDescription beanDescription = objectMapper.getSerializationConfig().introspect(objectMapper.constructType(this.getClass()));
-        Map<String, Class<?>> internalPropertiesMap = new HashMap<>(beanDescription.findProperties().size() * 2);
-        for (BeanPropertyDefinition property : beanDescription.findProperties()) {
-            internalPropertiesMap.put(property.getName(), property.getRawPrimaryType());
-        }
-        return internalPropertiesMap;
-    }
-
-    /**
-     * For this Query Class, generates a map of all annotations.
-     *
-     *  key: fieldName, e.g. transcriptsBiotype
-     *  value: QueryParameter for transcriptsBiotype
-     *
-     * @return map of field names to annotations.
-     */
-    private Map<String, QueryParameter> loadAnnotationMap() {
-        Map<String, QueryParameter> annotations = new HashMap<>();
-        for (Field declaredField : FieldUtils.getAllFields(this.getClass())) {
-            QueryParameter declaredAnnotation = declaredField.getDeclaredAnnotation(QueryParameter.class);
-            if (declaredAnnotation != null) {
-                annotations.put(declaredField.getName(), declaredAnnotation);
-            }
-        }
-        return annotations;
-    }
-
     /**
      * Subclasses can optionally add custom validation if needed.
      *
@@ -280,65 +168,11 @@ public abstract class AbstractQuery extends CellBaseQueryOptions {
         this.validateQuery();
     }
 
-    private Map<String, Class<?>> getClassAttributesToType() {
-        if (classAttributesToType == null) {
-            classAttributesToType = loadPropertiesMap();
-        }
-        return classAttributesToType;
-    }
-
-    private Map<String, QueryParameter> getAnnotations() {
-        if (annotations == null) {
-            annotations = loadAnnotationMap();
-        }
-        return annotations;
-    }
-
-    private Map<String, Field> getClassFields() {
-        if (classFields == null) {
-            classFields = new HashMap<>();
-            for (Field declaredField : FieldUtils.getAllFields(this.getClass())) {
-                classFields.put(declaredField.getName(), declaredField);
-            }
-        }
-        return classFields;
-    }
-
-    /**
-     * Returns the map. If map is empty, generates map.
-     *
-     * - key: dot notation, e.g. transcripts.biotype
-     * - value: camel case, e.g. transcriptsBiotype
-     *
-     * @return the map from dot notation to camel case
-     */
-    private Map<String, String> getDotNotationToCamelCase() {
-        if (dotNotationToCamelCase == null) {
-            dotNotationToCamelCase = new HashMap<>();
-            for (Map.Entry<String, Class<?>> entry : getClassAttributesToType().entrySet()) {
-                String fieldNameCamelCase = entry.getKey();
-                QueryParameter queryParameter = annotations.get(fieldNameCamelCase);
-                if (queryParameter != null) {
-                    String fieldNameDotNotation = queryParameter.id();
-                    dotNotationToCamelCase.put(fieldNameDotNotation, fieldNameCamelCase);
-                }
-            }
-        }
-        return dotNotationToCamelCase;
-    }
-
     private void validateParams() throws QueryException, IllegalAccessException {
-        for (Map.Entry<String, Class<?>> classEntry : getClassAttributesToType().entrySet()) {
-            String fieldNameCamelCase = classEntry.getKey();
-            QueryParameter queryParameter = getAnnotations().get(fieldNameCamelCase);
-            if (queryParameter == null) {
-                // no annotation for this field, carry on
-                continue;
-            }
-
-            Field field = getClassFields().get(fieldNameCamelCase);
-            field.setAccessible(true);
-            Object value = field.get(this);
+        for (QueryMetadata.Parameter parameter : metadata.getParameters()) {
+            String fieldNameCamelCase = parameter.getName();
+            QueryParameter queryParameter = parameter.getAnnotation();
+            Object value = metadata.getValue(this, fieldNameCamelCase);
 
             if (value == null) {
                 if (queryParameter.required()) {
@@ -362,9 +196,8 @@ public abstract class AbstractQuery extends CellBaseQueryOptions {
 
     private void checkDependsOn(String fieldNameCamelCase, String requiredFieldDotNotation) throws IllegalAccessException, QueryException {
         if (StringUtils.isNotEmpty(requiredFieldDotNotation)) {
-            String requiredFieldCamelCase = getDotNotationToCamelCase().get(requiredFieldDotNotation);
-            Field requiredField = getClassFields().get(requiredFieldCamelCase);
-            if (requiredField.get(this) == null) {
+            String requiredFieldCamelCase = metadata.getCamelCaseName(requiredFieldDotNotation);
+            if (metadata.getValue(this, requiredFieldCamelCase) == null) {
                 throw new QueryException(requiredFieldCamelCase + " is required because " + fieldNameCamelCase + " has a value");
             }
         }
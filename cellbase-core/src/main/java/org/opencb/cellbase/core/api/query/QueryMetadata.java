@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.api.query;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import org.apache.commons.lang3.reflect.FieldUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Reflection metadata of a query class: the QueryParameter annotated fields, the REST parameter names and aliases
+ * accepted for them, the converter used for the REST string values and a MethodHandle to read each field.
+ *
+ * The metadata only depends on the class, so it is built once per query class and shared by all its instances.
+ */
+final class QueryMetadata {
+
+    private static final Map<Class<?>, QueryMetadata> CACHE = new ConcurrentHashMap<>();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    // annotated fields that are also bean properties, in the same order Jackson reports them
+    private final List<Parameter> parameters;
+    // REST parameter names and aliases accepted by this query class
+    private final Set<String> uriParams;
+    // key = transcripts.biotype, value = transcriptsBiotype
+    private final Map<String, String> dotNotationToCamelCase;
+    // key = camelCase name (transcriptsBiotype) to annotations, for all annotated fields
+    private final Map<String, QueryParameter> annotations;
+    // key = camelCase name to getter, for all annotated fields
+    private final Map<String, MethodHandle> getters;
+
+    static final class Parameter {
+        private final String name;
+        private final QueryParameter annotation;
+        // REST parameter id first, then the aliases
+        private final List<String> uriParams;
+        private final Function<String, Object> converter;
+
+        private Parameter(String name, QueryParameter annotation, Function<String, Object> converter) {
+            this.name = name;
+            this.annotation = annotation;
+            this.converter = converter;
+
+            List<String> names = new ArrayList<>(annotation.alias().length + 1);
+            names.add(toUriParam(annotation.id()));
+            for (String alias : annotation.alias()) {
+                names.add(toUriParam(alias));
+            }
+            this.uriParams = Collections.unmodifiableList(names);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        QueryParameter getAnnotation() {
+            return annotation;
+        }
+
+        List<String> getUriParams() {
+            return uriParams;
+        }
+
+        Object convert(String value) {
+            return converter.apply(value);
+        }
+    }
+
+    private QueryMetadata(Class<?> queryClass, ObjectMapper objectMapper) {
+        annotations = new HashMap<>();
+        getters = new HashMap<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Field field : FieldUtils.getAllFields(queryClass)) {
+            QueryParameter queryParameter = field.getDeclaredAnnotation(QueryParameter.class);
+            if (queryParameter == null || annotations.containsKey(field.getName())) {
+                continue;
+            }
+            annotations.put(field.getName(), queryParameter);
+            try {
+                field.setAccessible(true);
+                getters.put(field.getName(), lookup.unreflectGetter(field).asType(GETTER_TYPE));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Field '" + field.getName() + "' of " + queryClass.getName() + " is not accessible", e);
+            }
+        }
+
+        parameters = new ArrayList<>();
+        uriParams = new HashSet<>();
+        dotNotationToCamelCase = new HashMap<>();
+        BeanDescription beanDescription = objectMapper.getSerializationConfig().introspect(objectMapper.constructType(queryClass));
+        for (BeanPropertyDefinition property : beanDescription.findProperties()) {
+            QueryParameter queryParameter = annotations.get(property.getName());
+            if (queryParameter == null) {
+                // field has no annotation
+                continue;
+            }
+            Parameter parameter = new Parameter(property.getName(), queryParameter, createConverter(property.getRawPrimaryType()));
+            parameters.add(parameter);
+            dotNotationToCamelCase.put(queryParameter.id(), property.getName());
+            uriParams.addAll(parameter.getUriParams());
+        }
+    }
+
+    static QueryMetadata get(Class<?> queryClass, ObjectMapper objectMapper) {
+        return CACHE.computeIfAbsent(queryClass, key -> new QueryMetadata(key, objectMapper));
+    }
+
+    private static String toUriParam(String name) {
+        return name.replace("\\.", "\\\\.");
+    }
+
+    private static Function<String, Object> createConverter(Class<?> fieldType) {
+        if (LogicalList.class.isAssignableFrom(fieldType)) {
+            return value -> {
+                if (value.contains(";")) {
+                    // AND
+                    return new LogicalList<>(Arrays.asList(value.split(";")), true);
+                } else {
+                    // OR
+                    return new LogicalList<>(Arrays.asList(value.split(",")), false);
+                }
+            };
+        } else if (Collection.class.isAssignableFrom(fieldType)) {
+            return value -> Arrays.asList(value.split(","));
+        } else {
+            return value -> value;
+        }
+    }
+
+    List<Parameter> getParameters() {
+        return parameters;
+    }
+
+    boolean isValidParameter(String uriParam) {
+        return uriParams.contains(uriParam);
+    }
+
+    Map<String, QueryParameter> getAnnotations() {
+        return annotations;
+    }
+
+    String getCamelCaseName(String dotNotationName) {
+        return dotNotationToCamelCase.get(dotNotationName);
+    }
+
+    Object getValue(Object query, String fieldName) throws IllegalAccessException {
+        MethodHandle getter = getters.get(fieldName);
+        if (getter == null) {
+            throw new IllegalAccessException("Unknown query field '" + fieldName + "'");
+        }
+        try {
+            return (Object) getter.invokeExact(query);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
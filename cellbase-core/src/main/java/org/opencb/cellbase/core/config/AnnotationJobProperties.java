@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.config;
+
+/**
+ * Configuration of the asynchronous variant annotation jobs run by the REST server.
+ */
+public class AnnotationJobProperties {
+
+    /**
+     * Number of annotation jobs run at the same time.
+     */
+    private int numThreads;
+    /**
+     * Maximum number of jobs waiting to be run, new submissions are rejected when the queue is full.
+     */
+    private int queueSize;
+    /**
+     * Number of variants annotated per batch.
+     */
+    private int batchSize;
+    /**
+     * Local directory where job inputs and results are stored.
+     */
+    private String outputDir;
+    /**
+     * Hours a finished job and its results are kept before being removed.
+     */
+    private int retentionHours;
+
+    public static final int DEFAULT_NUM_THREADS = 2;
+    public static final int DEFAULT_QUEUE_SIZE = 50;
+    public static final int DEFAULT_BATCH_SIZE = 200;
+    public static final String DEFAULT_OUTPUT_DIR = "/tmp/cellbase/annotation-jobs";
+    public static final int DEFAULT_RETENTION_HOURS = 24;
+
+    public AnnotationJobProperties() {
+        this.numThreads = DEFAULT_NUM_THREADS;
+        this.queueSize = DEFAULT_QUEUE_SIZE;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+        this.outputDir = DEFAULT_OUTPUT_DIR;
+        this.retentionHours = DEFAULT_RETENTION_HOURS;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("AnnotationJobProperties{");
+        sb.append("numThreads=").append(numThreads);
+        sb.append(", queueSize=").append(queueSize);
+        sb.append(", batchSize=").append(batchSize);
+        sb.append(", outputDir='").append(outputDir).append('\'');
+        sb.append(", retentionHours=").append(retentionHours);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public AnnotationJobProperties setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+        return this;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public AnnotationJobProperties setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public AnnotationJobProperties setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public String getOutputDir() {
+        return outputDir;
+    }
+
+    public AnnotationJobProperties setOutputDir(String outputDir) {
+        this.outputDir = outputDir;
+        return this;
+    }
+
+    public int getRetentionHours() {
+        return retentionHours;
+    }
+
+    public AnnotationJobProperties setRetentionHours(int retentionHours) {
+        this.retentionHours = retentionHours;
+        return this;
+    }
+}
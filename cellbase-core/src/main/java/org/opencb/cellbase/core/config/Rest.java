@@ -19,6 +19,10 @@ package org.opencb.cellbase.core.config;
 public class Rest {
     private String url;
     private int port;
+    // build the managers and open the database connections when the server starts instead of on the first request
+    private boolean warmUp;
+    // seconds between data release refreshes, 0 to disable
+    private int dataReleaseRefreshInterval;
 
     public String getUrl() {
         return url;
@@ -35,4 +39,20 @@ public class Rest {
     public void setPort(int port) {
         this.port = port;
     }
+
+    public boolean isWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public int getDataReleaseRefreshInterval() {
+        return dataReleaseRefreshInterval;
+    }
+
+    public void setDataReleaseRefreshInterval(int dataReleaseRefreshInterval) {
+        this.dataReleaseRefreshInterval = dataReleaseRefreshInterval;
+    }
 }
@@ -19,6 +19,8 @@ package org.opencb.cellbase.core.config;
 public class ServerProperties {
 
     private Rest rest;
+    private Grpc grpc;
+    private AnnotationJobProperties annotationJobs;
 
     public Rest getRest() {
         return rest;
@@ -27,4 +29,20 @@ public class ServerProperties {
     public void setRest(Rest rest) {
         this.rest = rest;
     }
+
+    public Grpc getGrpc() {
+        return grpc;
+    }
+
+    public void setGrpc(Grpc grpc) {
+        this.grpc = grpc;
+    }
+
+    public AnnotationJobProperties getAnnotationJobs() {
+        return annotationJobs;
+    }
+
+    public void setAnnotationJobs(AnnotationJobProperties annotationJobs) {
+        this.annotationJobs = annotationJobs;
+    }
 }
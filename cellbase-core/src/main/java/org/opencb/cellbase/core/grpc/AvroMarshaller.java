@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.grpc;
+
+import io.grpc.MethodDescriptor;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * gRPC marshaller that encodes Avro records using the Avro binary encoding. Biodata models are already Avro
+ * records, so they can be sent through gRPC without any protobuf definition or conversion.
+ *
+ * @param <T> Avro record class
+ */
+public class AvroMarshaller<T extends SpecificRecord> implements MethodDescriptor.Marshaller<T> {
+
+    private final SpecificDatumWriter<T> datumWriter;
+    private final SpecificDatumReader<T> datumReader;
+
+    public AvroMarshaller(Schema schema) {
+        this.datumWriter = new SpecificDatumWriter<>(schema);
+        this.datumReader = new SpecificDatumReader<>(schema);
+    }
+
+    @Override
+    public InputStream stream(T value) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(outputStream, null);
+        try {
+            datumWriter.write(value, encoder);
+            encoder.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error encoding Avro record " + value.getSchema().getFullName(), e);
+        }
+        return new ByteArrayInputStream(outputStream.toByteArray());
+    }
+
+    @Override
+    public T parse(InputStream stream) {
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(stream, null);
+        try {
+            return datumReader.read(null, decoder);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error decoding Avro record", e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.grpc;
+
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Definition of the CellBase variant annotation gRPC service, shared by the server and the client.
+ *
+ * The service has a single bidirectional streaming method: the client streams VariantAvro records and the server
+ * streams back one or more VariantAnnotation per variant, in the same order. Messages use the Avro binary encoding,
+ * see AvroMarshaller. Species, assembly, data release, token and annotation options are sent as call headers.
+ */
+public final class VariantAnnotationServiceGrpc {
+
+    public static final String SERVICE_NAME = "org.opencb.cellbase.VariantAnnotationService";
+
+    public static final MethodDescriptor<VariantAvro, VariantAnnotation> ANNOTATE_METHOD =
+            MethodDescriptor.<VariantAvro, VariantAnnotation>newBuilder()
+                    .setType(MethodDescriptor.MethodType.BIDI_STREAMING)
+                    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "Annotate"))
+                    .setRequestMarshaller(new AvroMarshaller<>(VariantAvro.getClassSchema()))
+                    .setResponseMarshaller(new AvroMarshaller<>(VariantAnnotation.getClassSchema()))
+                    .build();
+
+    public static final Metadata.Key<String> SPECIES_KEY = Metadata.Key.of("species", Metadata.ASCII_STRING_MARSHALLER);
+    public static final Metadata.Key<String> ASSEMBLY_KEY = Metadata.Key.of("assembly", Metadata.ASCII_STRING_MARSHALLER);
+    public static final Metadata.Key<String> DATA_RELEASE_KEY = Metadata.Key.of("data-release", Metadata.ASCII_STRING_MARSHALLER);
+    public static final Metadata.Key<String> TOKEN_KEY = Metadata.Key.of("token", Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Annotation options accepted by the service, the same ones accepted by the REST annotation endpoint.
+     */
+    public static final List<String> ANNOTATION_OPTIONS = Arrays.asList("include", "exclude", "normalize", "decompose", "leftAlign",
+            "ignorePhase", "imprecise", "svExtraPadding", "cnvExtraPadding", "checkAminoAcidChange", "consequenceTypeSource");
+
+    private static final String OPTION_KEY_PREFIX = "option-";
+
+    private VariantAnnotationServiceGrpc() {
+    }
+
+    /**
+     * Header key for an annotation option. gRPC header names are lower case, so option names are lower cased.
+     *
+     * @param option annotation option, one of ANNOTATION_OPTIONS
+     * @return the header key
+     */
+    public static Metadata.Key<String> optionKey(String option) {
+        return Metadata.Key.of(OPTION_KEY_PREFIX + option.toLowerCase(), Metadata.ASCII_STRING_MARSHALLER);
+    }
+}
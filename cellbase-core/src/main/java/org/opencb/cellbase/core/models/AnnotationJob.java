@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.models;
+
+/**
+ * Status of an asynchronous variant annotation job submitted to the REST server.
+ */
+public class AnnotationJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE,
+        ERROR
+    }
+
+    private String id;
+    private String species;
+    private String assembly;
+    private int dataRelease;
+    // Updated by the job thread while REST threads read them
+    private volatile Status status;
+    private volatile long numVariants;
+    private volatile long numAnnotations;
+    private String submissionDate;
+    private String startDate;
+    private String endDate;
+    private String errorMessage;
+
+    public AnnotationJob() {
+    }
+
+    public AnnotationJob(String id, String species, String assembly, int dataRelease, String submissionDate) {
+        this.id = id;
+        this.species = species;
+        this.assembly = assembly;
+        this.dataRelease = dataRelease;
+        this.submissionDate = submissionDate;
+        this.status = Status.QUEUED;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("AnnotationJob{");
+        sb.append("id='").append(id).append('\'');
+        sb.append(", species='").append(species).append('\'');
+        sb.append(", assembly='").append(assembly).append('\'');
+        sb.append(", dataRelease=").append(dataRelease);
+        sb.append(", status=").append(status);
+        sb.append(", numVariants=").append(numVariants);
+        sb.append(", numAnnotations=").append(numAnnotations);
+        sb.append(", submissionDate='").append(submissionDate).append('\'');
+        sb.append(", startDate='").append(startDate).append('\'');
+        sb.append(", endDate='").append(endDate).append('\'');
+        sb.append(", errorMessage='").append(errorMessage).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public AnnotationJob setId(String id) {
+        this.id = id;
+        return this;
+    }
+
+    public String getSpecies() {
+        return species;
+    }
+
+    public AnnotationJob setSpecies(String species) {
+        this.species = species;
+        return this;
+    }
+
+    public String getAssembly() {
+        return assembly;
+    }
+
+    public AnnotationJob setAssembly(String assembly) {
+        this.assembly = assembly;
+        return this;
+    }
+
+    public int getDataRelease() {
+        return dataRelease;
+    }
+
+    public AnnotationJob setDataRelease(int dataRelease) {
+        this.dataRelease = dataRelease;
+        return this;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public AnnotationJob setStatus(Status status) {
+        this.status = status;
+        return this;
+    }
+
+    public long getNumVariants() {
+        return numVariants;
+    }
+
+    public AnnotationJob setNumVariants(long numVariants) {
+        this.numVariants = numVariants;
+        return this;
+    }
+
+    public long getNumAnnotations() {
+        return numAnnotations;
+    }
+
+    public AnnotationJob setNumAnnotations(long numAnnotations) {
+        this.numAnnotations = numAnnotations;
+        return this;
+    }
+
+    public String getSubmissionDate() {
+        return submissionDate;
+    }
+
+    public AnnotationJob setSubmissionDate(String submissionDate) {
+        this.submissionDate = submissionDate;
+        return this;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public AnnotationJob setStartDate(String startDate) {
+        this.startDate = startDate;
+        return this;
+    }
+
+    public String getEndDate() {
+        return endDate;
+    }
+
+    public AnnotationJob setEndDate(String endDate) {
+        this.endDate = endDate;
+        return this;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public AnnotationJob setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+        return this;
+    }
+}
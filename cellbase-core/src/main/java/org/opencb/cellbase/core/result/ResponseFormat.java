@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.result;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Encodings supported for CellBaseDataResponse. Binary formats are selected by the client through the HTTP Accept
+ * header and encode exactly the same document as JSON, so any Jackson ObjectMapper configuration, mixins included,
+ * applies to all of them. Smile and CBOR are more compact than JSON and much faster to write and parse.
+ */
+public enum ResponseFormat {
+
+    JSON("application/json"),
+    SMILE("application/x-jackson-smile"),
+    CBOR("application/cbor");
+
+    private final String mediaType;
+
+    ResponseFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * Creates the Jackson factory for this format, to be used as new ObjectMapper(format.createJsonFactory()).
+     *
+     * @return a new JsonFactory
+     */
+    public JsonFactory createJsonFactory() {
+        switch (this) {
+            case SMILE:
+                return new SmileFactory();
+            case CBOR:
+                return new CBORFactory();
+            case JSON:
+            default:
+                return new JsonFactory();
+        }
+    }
+
+    /**
+     * Returns the first binary format found in an Accept header, JSON is returned if no binary format is accepted.
+     * Media types with q=0 are ignored.
+     *
+     * @param acceptHeader value of the HTTP Accept header, may be null
+     * @return the response format
+     */
+    public static ResponseFormat fromAcceptHeader(String acceptHeader) {
+        if (StringUtils.isEmpty(acceptHeader)) {
+            return JSON;
+        }
+        for (String acceptedType : acceptHeader.split(",")) {
+            String[] parts = acceptedType.split(";");
+            String mediaType = parts[0].trim();
+            boolean rejected = false;
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].trim().replace(" ", "").matches("q=0(\\.0*)?")) {
+                    rejected = true;
+                }
+            }
+            if (rejected) {
+                continue;
+            }
+            for (ResponseFormat responseFormat : values()) {
+                if (responseFormat.isBinary() && responseFormat.mediaType.equalsIgnoreCase(mediaType)) {
+                    return responseFormat;
+                }
+            }
+        }
+        return JSON;
+    }
+}
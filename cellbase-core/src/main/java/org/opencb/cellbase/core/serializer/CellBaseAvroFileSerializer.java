@@ -0,0 +1,281 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.core.serializer;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumReader;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Writes the data models into Avro container files, one per file name, so they can be read by analytics tools without
+ * parsing JSON. Biodata Avro models are written with their own schema, Variants are written as VariantAvro, and any other
+ * model with a schema derived by reflection where every field is nullable.
+ */
+public class CellBaseAvroFileSerializer implements CellBaseFileSerializer {
+
+    public static final String AVRO_EXTENSION = ".avro";
+    // Partition of the data models without chromosome
+    public static final String ALL_CHROMOSOMES = "all";
+
+    private static final Map<Class<?>, Schema> SCHEMAS = new ConcurrentHashMap<>();
+
+    private final Path outdir;
+    private final String fileName;
+    private final Map<String, DataFileWriter<Object>> dataFileWriters;
+
+    private int compressionLevel;
+
+    public CellBaseAvroFileSerializer(Path outdir) {
+        this(outdir, null);
+    }
+
+    public CellBaseAvroFileSerializer(Path outdir, String baseFileName) {
+        this.outdir = outdir;
+        this.fileName = baseFileName;
+        this.dataFileWriters = new HashMap<>();
+        this.compressionLevel = 6;
+    }
+
+    @Override
+    public void serialize(Object object) {
+        this.serialize(object, this.fileName);
+    }
+
+    @Override
+    public void serialize(Object object, String filename) {
+        try {
+            Object record = toRecord(object);
+            if (dataFileWriters.get(filename) == null) {
+                dataFileWriters.put(filename, createWriter(record.getClass(), outdir.resolve(filename + AVRO_EXTENSION)));
+            }
+            dataFileWriters.get(filename).append(record);
+        } catch (IOException e) {
+            // CellBaseFileSerializer does not declare checked exceptions, failures must not be silently skipped
+            throw new UncheckedIOException("Error writing '" + filename + "' Avro file", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataFileWriter<Object> dataFileWriter : dataFileWriters.values()) {
+            dataFileWriter.close();
+        }
+    }
+
+    /**
+     * Returns the Avro schema used to write the objects of a class.
+     *
+     * @param clazz data model class
+     * @return Avro schema, an AvroRuntimeException is thrown if no schema can be derived from the class
+     */
+    public static Schema getSchema(Class<?> clazz) {
+        Class<?> recordClass = Variant.class.equals(clazz) ? VariantAvro.class : clazz;
+        // schemas are derived once per class, partitions of the same data model are written in parallel
+        return SCHEMAS.computeIfAbsent(recordClass, key -> SpecificRecord.class.isAssignableFrom(key)
+                ? SpecificData.get().getSchema(key)
+                : ReflectData.AllowNull.get().getSchema(key));
+    }
+
+    /**
+     * Checks whether the objects of a class can be written into Avro files.
+     *
+     * @param clazz data model class
+     * @return true if an Avro schema can be derived from the class
+     */
+    public static boolean isSupported(Class<?> clazz) {
+        try {
+            return getSchema(clazz).getType() == Schema.Type.RECORD;
+        } catch (AvroRuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the objects into outDir/baseFilename/baseFilename_chromosome.avro files, one task per chromosome. Objects
+     * without chromosome are written into the baseFilename_all.avro file.
+     *
+     * @param objects     data models, all of the same class
+     * @param outDir      output directory
+     * @param baseFilename base name of the partition directory and files
+     * @param numThreads  maximum number of partitions written in parallel
+     * @return number of objects written
+     * @throws IOException if any partition can not be written
+     */
+    public static int writePartitions(List<?> objects, Path outDir, String baseFilename, int numThreads) throws IOException {
+        Path partitionDir = outDir.resolve(baseFilename);
+        Files.createDirectories(partitionDir);
+        Map<String, List<Object>> partitions = new TreeMap<>();
+        for (Object object : objects) {
+            partitions.computeIfAbsent(getChromosome(object), key -> new ArrayList<>()).add(object);
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(numThreads, partitions.size())));
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (Map.Entry<String, List<Object>> partition : partitions.entrySet()) {
+                futures.add(executorService.submit(() -> {
+                    CellBaseAvroFileSerializer serializer = new CellBaseAvroFileSerializer(partitionDir,
+                            baseFilename + "_" + partition.getKey());
+                    try {
+                        for (Object object : partition.getValue()) {
+                            serializer.serialize(object);
+                        }
+                    } finally {
+                        serializer.close();
+                    }
+                    return partition.getValue().size();
+                }));
+            }
+            int counter = 0;
+            for (Future<Integer> future : futures) {
+                counter += future.get();
+            }
+            return counter;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing '" + baseFilename + "' Avro files");
+        } catch (ExecutionException e) {
+            throw new IOException("Error writing '" + baseFilename + "' Avro files: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Partition of a data model, its chromosome or ALL_CHROMOSOMES for data models without chromosome.
+     *
+     * @param object data model
+     * @return partition name
+     */
+    public static String getChromosome(Object object) {
+        Object chromosome = null;
+        if (object instanceof Map) {
+            chromosome = ((Map<?, ?>) object).get("chromosome");
+        } else {
+            try {
+                Method getter = object.getClass().getMethod("getChromosome");
+                chromosome = getter.invoke(object);
+            } catch (ReflectiveOperationException e) {
+                // data model without chromosome, e.g. proteins
+                return ALL_CHROMOSOMES;
+            }
+        }
+        return chromosome == null ? ALL_CHROMOSOMES : chromosome.toString();
+    }
+
+    /**
+     * Reads all the objects of an Avro file written by this serializer.
+     *
+     * @param path  Avro file
+     * @param clazz data model class used to write the file, VariantAvro for files of Variants
+     * @param <T>   data model type
+     * @return objects in the same order they were written
+     * @throws IOException if the file can not be read
+     */
+    public static <T> List<T> read(Path path, Class<T> clazz) throws IOException {
+        Schema schema = getSchema(clazz);
+        DatumReader<T> datumReader = SpecificRecord.class.isAssignableFrom(clazz)
+                ? new SpecificDatumReader<>(schema)
+                : new CollectionReflectDatumReader<>(schema);
+        List<T> objects = new ArrayList<>();
+        try (DataFileReader<T> dataFileReader = new DataFileReader<>(path.toFile(), datumReader)) {
+            for (T object : dataFileReader) {
+                objects.add(object);
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * Reflect reader that also creates Set fields, e.g. the transcript flags. Avro only instantiates List interfaces.
+     */
+    private static class CollectionReflectDatumReader<T> extends ReflectDatumReader<T> {
+
+        CollectionReflectDatumReader(Schema schema) {
+            super(schema, schema, ReflectData.AllowNull.get());
+        }
+
+        @Override
+        protected Object newArray(Object old, int size, Schema schema) {
+            if (!(old instanceof Collection)) {
+                String collectionClass = schema.getProp(SpecificData.CLASS_PROP);
+                if (SortedSet.class.getName().equals(collectionClass)) {
+                    return new TreeSet<>();
+                } else if (Set.class.getName().equals(collectionClass)) {
+                    return new LinkedHashSet<>(size);
+                }
+            }
+            return super.newArray(old, size, schema);
+        }
+    }
+
+    private Object toRecord(Object object) {
+        return object instanceof Variant ? ((Variant) object).getImpl() : object;
+    }
+
+    private DataFileWriter<Object> createWriter(Class<?> clazz, Path path) throws IOException {
+        Schema schema = getSchema(clazz);
+        DatumWriter<Object> datumWriter = SpecificRecord.class.isAssignableFrom(clazz)
+                ? new SpecificDatumWriter<>(schema)
+                : new ReflectDatumWriter<>(schema, ReflectData.AllowNull.get());
+        DataFileWriter<Object> dataFileWriter = new DataFileWriter<>(datumWriter);
+        dataFileWriter.setCodec(CodecFactory.deflateCodec(compressionLevel));
+        return dataFileWriter.create(schema, path.toFile());
+    }
+
+    @Override
+    public Path getOutdir() {
+        return outdir;
+    }
+
+    @Override
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public CellBaseAvroFileSerializer setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+}
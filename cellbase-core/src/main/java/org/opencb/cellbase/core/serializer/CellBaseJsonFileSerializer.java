@@ -23,26 +23,44 @@ import com.fasterxml.jackson.databind.ObjectWriter;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.zip.GZIPOutputStream;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
 
 /**
  * Created by parce on 2/6/15.
+ *
+ * By default every file is compressed by a single gzip stream in the calling thread. With more than one thread the files
+ * are compressed in parallel blocks (see ParallelGzipOutputStream) and, if parallel serialization is enabled, objects
+ * are also converted to JSON in the thread pool and written in the same order they were serialized.
  */
 public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
 
     private final Path outdir;
     private final String fileName;
-    private final HashMap<String, BufferedWriter> bufferedWriters;
+    private final HashMap<String, JsonFileWriter> bufferedWriters;
 
     private boolean serializeEmptyValues;
     private boolean excludeNullValues;
     private boolean requireGettersForSetters;
     private ObjectWriter jsonObjectWriter;
 
+    private int numThreads;
+    private int compressionLevel;
+    private boolean parallelSerialization;
+    private ExecutorService executorService;
+
+    // objects converted to JSON in each task when parallel serialization is enabled
+    private static final int SERIALIZATION_BATCH_SIZE = 100;
+
     public CellBaseJsonFileSerializer(Path outdir) {
         this(outdir, null);
     }
@@ -63,6 +81,8 @@ public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
         this.excludeNullValues = excludeNullValues;
         this.requireGettersForSetters = requireGettersForSetters;
         this.bufferedWriters = new HashMap<>();
+        this.numThreads = 1;
+        this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
         init();
     }
 
@@ -72,10 +92,16 @@ public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
 
     @Override
     public void close() throws IOException {
-        for (BufferedWriter bw : bufferedWriters.values()) {
-            bw.close();
+        try {
+            for (JsonFileWriter bw : bufferedWriters.values()) {
+                bw.close();
+            }
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+                executorService = null;
+            }
         }
-
     }
 
     private void init() {
@@ -95,17 +121,100 @@ public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
         try {
             if (bufferedWriters.get(filename) == null) {
                 Path outputFilePath = outdir.resolve(filename + ".json.gz");
-                BufferedWriter bw = new BufferedWriter(
-                        new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(outputFilePath))));
-                bufferedWriters.put(filename, bw);
+                bufferedWriters.put(filename, new JsonFileWriter(newOutputStream(outputFilePath)));
+            }
+            if (parallelSerialization && numThreads > 1) {
+                bufferedWriters.get(filename).add(elem);
+            } else {
+                bufferedWriters.get(filename).write(jsonObjectWriter.writeValueAsString(elem));
             }
-            bufferedWriters.get(filename).write(jsonObjectWriter.writeValueAsString(elem));
-            bufferedWriters.get(filename).newLine();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    private OutputStream newOutputStream(Path outputFilePath) throws IOException {
+        if (numThreads > 1) {
+            if (executorService == null) {
+                executorService = Executors.newFixedThreadPool(numThreads);
+            }
+            return new ParallelGzipOutputStream(Files.newOutputStream(outputFilePath), executorService, numThreads, compressionLevel);
+        } else {
+            return ParallelGzipOutputStream.newGzipOutputStream(Files.newOutputStream(outputFilePath), compressionLevel);
+        }
+    }
+
+    private String toJsonLines(List<Object> objects) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Object object : objects) {
+            sb.append(jsonObjectWriter.writeValueAsString(object)).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * JSON lines file. Objects added for parallel serialization are converted to JSON in batches by the thread pool and
+     * written in the same order they were added.
+     */
+    private class JsonFileWriter {
+
+        private final BufferedWriter bufferedWriter;
+        private final Deque<Future<String>> pendingBatches;
+        private List<Object> batch;
+
+        JsonFileWriter(OutputStream outputStream) {
+            this.bufferedWriter = new BufferedWriter(new OutputStreamWriter(outputStream));
+            this.pendingBatches = new ArrayDeque<>();
+            this.batch = new ArrayList<>(SERIALIZATION_BATCH_SIZE);
+        }
+
+        void write(String json) throws IOException {
+            bufferedWriter.write(json);
+            bufferedWriter.newLine();
+        }
+
+        void add(Object elem) throws IOException {
+            batch.add(elem);
+            if (batch.size() == SERIALIZATION_BATCH_SIZE) {
+                submitBatch();
+            }
+        }
+
+        private void submitBatch() throws IOException {
+            final List<Object> objects = batch;
+            pendingBatches.add(executorService.submit(() -> toJsonLines(objects)));
+            batch = new ArrayList<>(SERIALIZATION_BATCH_SIZE);
+
+            while (pendingBatches.size() > 2 * numThreads) {
+                writeNextBatch();
+            }
+        }
+
+        private void writeNextBatch() throws IOException {
+            try {
+                bufferedWriter.write(pendingBatches.poll().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while serializing JSON objects");
+            } catch (ExecutionException e) {
+                throw new IOException("Error serializing JSON objects", e.getCause());
+            }
+        }
+
+        void close() throws IOException {
+            try {
+                if (!batch.isEmpty()) {
+                    submitBatch();
+                }
+                while (!pendingBatches.isEmpty()) {
+                    writeNextBatch();
+                }
+            } finally {
+                bufferedWriter.close();
+            }
+        }
+    }
+
     public Object deserialize(String line) {
         // TODO: implement
         // TODO: receive class object?
@@ -119,4 +228,49 @@ public class CellBaseJsonFileSerializer implements CellBaseFileSerializer {
     public String getFileName() {
         return fileName;
     }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Sets the number of threads used to compress and, if enabled, serialize the files. Must be set before the first
+     * object is serialized.
+     *
+     * @param numThreads number of threads, 1 to compress each file in the calling thread
+     * @return this serializer
+     */
+    public CellBaseJsonFileSerializer setNumThreads(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+        return this;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public CellBaseJsonFileSerializer setCompressionLevel(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+                && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid gzip compression level " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    public boolean isParallelSerialization() {
+        return parallelSerialization;
+    }
+
+    /**
+     * Converts the objects to JSON in the thread pool. Objects are serialized after serialize() returns, so they must
+     * not be modified afterwards by the caller.
+     *
+     * @param parallelSerialization true to serialize the objects in the thread pool
+     * @return this serializer
+     */
+    public CellBaseJsonFileSerializer setParallelSerialization(boolean parallelSerialization) {
+        this.parallelSerialization = parallelSerialization;
+        return this;
+    }
 }
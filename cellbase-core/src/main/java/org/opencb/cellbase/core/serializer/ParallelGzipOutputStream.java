@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.core.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip output stream that compresses fixed size blocks in parallel, as pigz does. Every block is written as a complete
+ * gzip member in the same order it was received, the concatenated members are a valid gzip file that GZIPInputStream
+ * and the gzip tools read as a single stream.
+ *
+ * This stream is not thread safe, it is written by one thread and only the compression runs in the executor, which
+ * is not shut down when the stream is closed.
+ */
+class ParallelGzipOutputStream extends OutputStream {
+
+    static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private final OutputStream outputStream;
+    private final ExecutorService executorService;
+    private final int compressionLevel;
+    private final int blockSize;
+    private final int maxPendingBlocks;
+    // compressed blocks in output order
+    private final Deque<Future<byte[]>> pendingBlocks;
+
+    private byte[] buffer;
+    private int count;
+    private boolean empty;
+    private boolean closed;
+
+    ParallelGzipOutputStream(OutputStream outputStream, ExecutorService executorService, int numThreads, int compressionLevel) {
+        this(outputStream, executorService, numThreads, compressionLevel, DEFAULT_BLOCK_SIZE);
+    }
+
+    ParallelGzipOutputStream(OutputStream outputStream, ExecutorService executorService, int numThreads, int compressionLevel,
+                             int blockSize) {
+        this.outputStream = outputStream;
+        this.executorService = executorService;
+        this.compressionLevel = compressionLevel;
+        this.blockSize = blockSize;
+        // enough blocks to keep all threads busy while the oldest one is written
+        this.maxPendingBlocks = 2 * Math.max(1, numThreads);
+        this.pendingBlocks = new ArrayDeque<>();
+        this.buffer = new byte[blockSize];
+        this.empty = true;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == blockSize) {
+            submitBlock();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (count == blockSize) {
+                submitBlock();
+            }
+            int n = Math.min(length, blockSize - count);
+            System.arraycopy(bytes, offset, buffer, count, n);
+            count += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Compresses the buffered bytes and writes all the pending blocks, a flush ends the current gzip member.
+     *
+     * @throws IOException if a block can not be compressed or written
+     */
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            submitBlock();
+        }
+        while (!pendingBlocks.isEmpty()) {
+            writeNextBlock();
+        }
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0 || empty) {
+                // an empty file must still be a valid gzip file
+                submitBlock();
+            }
+            while (!pendingBlocks.isEmpty()) {
+                writeNextBlock();
+            }
+        } finally {
+            for (Future<byte[]> pendingBlock : pendingBlocks) {
+                pendingBlock.cancel(true);
+            }
+            pendingBlocks.clear();
+            outputStream.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] block = buffer;
+        final int length = count;
+        pendingBlocks.add(executorService.submit(() -> compress(block, length, compressionLevel)));
+        empty = false;
+        buffer = new byte[blockSize];
+        count = 0;
+
+        while (pendingBlocks.size() > maxPendingBlocks) {
+            writeNextBlock();
+        }
+    }
+
+    private void writeNextBlock() throws IOException {
+        try {
+            outputStream.write(pendingBlocks.peek().get());
+            pendingBlocks.poll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing gzip block");
+        } catch (ExecutionException e) {
+            throw new IOException("Error compressing gzip block", e.getCause());
+        }
+    }
+
+    static byte[] compress(byte[] bytes, int length, int compressionLevel) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = newGzipOutputStream(byteArrayOutputStream, compressionLevel)) {
+            gzipOutputStream.write(bytes, 0, length);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Creates a single threaded gzip stream with the given compression level.
+     *
+     * @param outputStream     stream the compressed data is written to
+     * @param compressionLevel compression level from 1 to 9, or -1 for the default level
+     * @return gzip output stream
+     * @throws IOException if the gzip header can not be written
+     */
+    static GZIPOutputStream newGzipOutputStream(OutputStream outputStream, int compressionLevel) throws IOException {
+        return new LevelGzipOutputStream(outputStream, compressionLevel);
+    }
+
+    private static class LevelGzipOutputStream extends GZIPOutputStream {
+
+        LevelGzipOutputStream(OutputStream outputStream, int compressionLevel) throws IOException {
+            super(outputStream, 8192);
+            if (compressionLevel != Deflater.DEFAULT_COMPRESSION) {
+                def.setLevel(compressionLevel);
+            }
+        }
+    }
+}
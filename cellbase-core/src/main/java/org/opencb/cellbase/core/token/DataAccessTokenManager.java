@@ -25,7 +25,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 import static org.opencb.cellbase.core.token.DataAccessTokenSources.dateFormatter;
@@ -36,11 +39,45 @@ public class DataAccessTokenManager {
     private Key publicKey;
     private JwtParser jwtParser;
 
+    // Verified tokens in LRU order, key = token hash
+    private final Map<String, VerifiedToken> verifiedTokens;
+
     private final Logger logger = LoggerFactory.getLogger(DataAccessTokenManager.class);
 
     public static final int SECRET_KEY_MIN_LENGTH = 50;
     public static final String VERSION_FIELD_NAME = "version";
     public static final String SOURCES_FIELD_NAME = "sources";
+    public static final int MAX_VERIFIED_TOKENS = 1000;
+
+    /**
+     * Claims of a token whose signature has already been verified, with its sources precomputed.
+     */
+    private static final class VerifiedToken {
+        private final Claims claims;
+        private final Map<String, Long> sources;
+        private final Set<String> sourceNames;
+        // earliest expiration of the token sources, all of them are valid until then
+        private final long sourcesExpiration;
+        // JWT expiration, the token must be verified again after it
+        private final long expiration;
+
+        private VerifiedToken(Claims claims) {
+            this.claims = claims;
+            Map<String, Long> tokenSources = new HashMap<>();
+            long minExpiration = Long.MAX_VALUE;
+            if (claims.get(SOURCES_FIELD_NAME) instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) claims.get(SOURCES_FIELD_NAME)).entrySet()) {
+                    long sourceExpiration = ((Number) entry.getValue()).longValue();
+                    tokenSources.put(String.valueOf(entry.getKey()), sourceExpiration);
+                    minExpiration = Math.min(minExpiration, sourceExpiration);
+                }
+            }
+            this.sources = Collections.unmodifiableMap(tokenSources);
+            this.sourceNames = Collections.unmodifiableSet(new HashSet<>(tokenSources.keySet()));
+            this.sourcesExpiration = minExpiration;
+            this.expiration = claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime();
+        }
+    }
 
     public DataAccessTokenManager(String key) {
         this(SignatureAlgorithm.HS256.getValue(), new SecretKeySpec(TextCodec.BASE64.decode(key), SignatureAlgorithm.HS256.getJcaName()));
@@ -51,10 +88,21 @@ public class DataAccessTokenManager {
         this.privateKey = secretKey;
         this.publicKey = secretKey;
         jwtParser = Jwts.parserBuilder().setSigningKey(publicKey).build();
+        verifiedTokens = createVerifiedTokenCache();
     }
 
     public DataAccessTokenManager() {
         jwtParser = Jwts.parserBuilder().build();
+        verifiedTokens = createVerifiedTokenCache();
+    }
+
+    private static Map<String, VerifiedToken> createVerifiedTokenCache() {
+        return new LinkedHashMap<String, VerifiedToken>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > MAX_VERIFIED_TOKENS;
+            }
+        };
     }
 
     public String encode(String organization, DataAccessTokenSources dat) {
@@ -133,9 +181,12 @@ public class DataAccessTokenManager {
         }
 
         if (StringUtils.isNotEmpty(token)) {
-            DataAccessTokenSources dat = decode(token);
-            if (MapUtils.isNotEmpty(dat.getSources())) {
-                for (Map.Entry<String, Long> entry : dat.getSources().entrySet()) {
+            VerifiedToken verifiedToken = getVerifiedToken(token);
+            if (new Date().getTime() <= verifiedToken.sourcesExpiration) {
+                // Fast path, no source has expired yet
+                validSources.addAll(verifiedToken.sourceNames);
+            } else {
+                for (Map.Entry<String, Long> entry : verifiedToken.sources.entrySet()) {
                     if (new Date().getTime() <= entry.getValue()) {
                         validSources.add(entry.getKey());
                     } else {
@@ -178,6 +229,43 @@ public class DataAccessTokenManager {
     }
 
     private Claims parse(String token) {
+        return getVerifiedToken(token).claims;
+    }
+
+    /**
+     * Returns the verified claims of the token. Parsing and verifying the signature is only done the first time a token
+     * is seen, or after its JWT expiration date, the result is cached by token hash. Invalid tokens are never cached.
+     *
+     * @param token token
+     * @return verified token
+     */
+    private VerifiedToken getVerifiedToken(String token) {
+        String tokenHash = hash(token);
+        VerifiedToken verifiedToken;
+        synchronized (verifiedTokens) {
+            verifiedToken = verifiedTokens.get(tokenHash);
+        }
+        if (verifiedToken != null && new Date().getTime() < verifiedToken.expiration) {
+            return verifiedToken;
+        }
+
+        verifiedToken = new VerifiedToken(parseAndVerify(token));
+        synchronized (verifiedTokens) {
+            verifiedTokens.put(tokenHash, verifiedToken);
+        }
+        return verifiedToken;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private Claims parseAndVerify(String token) {
         if (publicKey == null) {
             // Remove signature to parse JWT
             token = token.substring(0, token.lastIndexOf(".") + 1);
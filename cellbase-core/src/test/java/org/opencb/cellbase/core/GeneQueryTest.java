@@ -60,6 +60,40 @@ public class GeneQueryTest {
 
 
 
+    @Test
+    public void testAlias() throws QueryException {
+        paramMap.put("transcriptBiotype", "protein_coding");
+        paramMap.put("roleInCancer", "oncogene,fusion");
+        geneQuery.updateParams(paramMap);
+        assertEquals("protein_coding", geneQuery.getTranscriptsBiotype().get(0));
+        assertEquals(2, geneQuery.getAnnotationRoleInCancer().size());
+
+        // query parameter metadata is shared, a new instance must parse the same way
+        GeneQuery otherQuery = new GeneQuery(paramMap);
+        assertEquals(geneQuery.getTranscriptsBiotype(), otherQuery.getTranscriptsBiotype());
+        assertEquals(geneQuery.getAnnotationRoleInCancer(), otherQuery.getAnnotationRoleInCancer());
+    }
+
+    @Test
+    public void testUnknownParam() {
+        paramMap.put("xyz", "this should throw an exception!");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> geneQuery.updateParams(paramMap));
+    }
+
+    @Test
+    public void testToObjectMap() throws Exception {
+        paramMap.put("id", "geneId123");
+        paramMap.put("transcriptBiotype", "protein_coding");
+        paramMap.put("limit", "10");
+        geneQuery.updateParams(paramMap);
+
+        ObjectMap objectMap = geneQuery.toObjectMap();
+        assertEquals("geneId123", objectMap.getAsStringList("id").get(0));
+        assertEquals("protein_coding", objectMap.getAsStringList("transcripts.biotype").get(0));
+        // query options are not part of the query
+        assertFalse(objectMap.containsKey("limit"));
+    }
+
     @Test
     public void testFacets() throws QueryException {
         paramMap.put("facet", "biotype");
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.grpc;
+
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AvroMarshallerTest {
+
+    @Test
+    public void testVariant() {
+        Variant variant = new Variant("19:45411941:T:C");
+        VariantAvro variantAvro = VariantAnnotationServiceGrpc.ANNOTATE_METHOD.parseRequest(
+                VariantAnnotationServiceGrpc.ANNOTATE_METHOD.streamRequest(variant.getImpl()));
+        assertEquals(variant, new Variant(variantAvro));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.core.result;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ResponseFormatTest {
+
+    @Test
+    public void testFromAcceptHeader() {
+        assertEquals(ResponseFormat.JSON, ResponseFormat.fromAcceptHeader(null));
+        assertEquals(ResponseFormat.JSON, ResponseFormat.fromAcceptHeader("*/*"));
+        assertEquals(ResponseFormat.JSON, ResponseFormat.fromAcceptHeader("application/json"));
+        assertEquals(ResponseFormat.SMILE, ResponseFormat.fromAcceptHeader("application/x-jackson-smile, application/json;q=0.5"));
+        assertEquals(ResponseFormat.CBOR, ResponseFormat.fromAcceptHeader("application/json;q=0.5,application/cbor"));
+        assertEquals(ResponseFormat.JSON, ResponseFormat.fromAcceptHeader("application/cbor;q=0, application/json"));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        CellBaseDataResult<String> result = new CellBaseDataResult<>("id", 10, Collections.emptyList(), 2,
+                Arrays.asList("a", "b"), 2);
+        CellBaseDataResponse<String> response = new CellBaseDataResponse<>(new ObjectMap("species", "hsapiens"),
+                Collections.singletonList(result));
+
+        for (ResponseFormat responseFormat : ResponseFormat.values()) {
+            ObjectMapper objectMapper = new ObjectMapper(responseFormat.createJsonFactory());
+            objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            byte[] bytes = objectMapper.writeValueAsBytes(response);
+            CellBaseDataResponse<String> parsed = objectMapper.readValue(bytes, objectMapper.getTypeFactory()
+                    .constructParametrizedType(CellBaseDataResponse.class, CellBaseDataResult.class, String.class));
+            assertEquals(response.getResponses().get(0).getResults(), parsed.getResponses().get(0).getResults());
+            assertEquals("hsapiens", parsed.getParams().getString("species"));
+        }
+    }
+}
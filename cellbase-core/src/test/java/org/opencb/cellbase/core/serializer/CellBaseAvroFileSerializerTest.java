@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.core.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.core.Exon;
+import org.opencb.biodata.models.core.Gene;
+import org.opencb.biodata.models.core.Transcript;
+import org.opencb.biodata.models.core.Xref;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CellBaseAvroFileSerializerTest {
+
+    private Path outdir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        outdir = Files.createTempDirectory("avro_export");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(outdir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(outdir);
+    }
+
+    @Test
+    public void testReflectRoundTrip() throws IOException {
+        List<Region> regions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Region region = new Region("1", i * 1000, "region_" + i);
+            region.tags = Arrays.asList("a", "b");
+            region.attributes = Collections.singletonMap("source", "test");
+            region.parent = i % 2 == 0 ? new Region("1", 0, "parent") : null;
+            regions.add(region);
+        }
+        // missing values must be written too
+        regions.add(new Region(null, 0, null));
+
+        CellBaseAvroFileSerializer serializer = new CellBaseAvroFileSerializer(outdir, "region_1");
+        for (Region region : regions) {
+            serializer.serialize(region);
+        }
+        serializer.close();
+
+        List<Region> readRegions = CellBaseAvroFileSerializer.read(outdir.resolve("region_1.avro"), Region.class);
+        assertEquals(regions, readRegions);
+        // Strings are read as String, not as Avro Utf8, also inside collections and maps
+        for (Map.Entry<String, String> entry : readRegions.get(0).attributes.entrySet()) {
+            assertEquals(String.class, ((Object) entry.getKey()).getClass());
+            assertEquals(String.class, ((Object) entry.getValue()).getClass());
+        }
+        assertEquals(String.class, ((Object) readRegions.get(0).tags.get(0)).getClass());
+        assertEquals(String.class, ((Object) readRegions.get(0).chromosome).getClass());
+    }
+
+    @Test
+    public void testWritePartitions() throws IOException {
+        List<Gene> genes = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String chromosome = i % 3 == 0 ? "X" : String.valueOf(i % 3);
+            Transcript transcript = new Transcript()
+                    .setId("ENST" + i).setName("T" + i).setChromosome(chromosome).setStart(1000 * i).setEnd(1000 * i + 500)
+                    .setStrand("+").setBiotype("protein_coding").setStatus("KNOWN").setProteinId("ENSP" + i)
+                    .setVersion("1").setSource("ensembl")
+                    .setExons(Collections.singletonList(new Exon("ENSE" + i, chromosome, 1000 * i, 1000 * i + 500, "+", 0, 0, 0,
+                            0, 0, 0, 0, 1, "ACGT")))
+                    .setXrefs(Arrays.asList(new Xref("ENST" + i, "ensembl_transcript", "Ensembl transcript"),
+                            new Xref("T" + i, "hgnc_symbol", "HGNC symbol")))
+                    .setFlags(new HashSet<>(Arrays.asList("basic", "MANE Select")));
+            genes.add(new Gene("ENSG" + i, "G" + i, chromosome, 1000 * i, 1000 * i + 500, "+", "1", "protein_coding", "KNOWN",
+                    "ensembl", "gene " + i, new ArrayList<>(Collections.singletonList(transcript)), null, null));
+        }
+
+        assertEquals(genes.size(), CellBaseAvroFileSerializer.writePartitions(genes, outdir, "gene", 2));
+
+        Path partitionDir = outdir.resolve("gene");
+        List<Gene> readGenes = new ArrayList<>();
+        for (String chromosome : Arrays.asList("1", "2", "X")) {
+            List<Gene> partition = CellBaseAvroFileSerializer.read(partitionDir.resolve("gene_" + chromosome + ".avro"), Gene.class);
+            assertEquals(10, partition.size());
+            for (Gene gene : partition) {
+                assertEquals(chromosome, gene.getChromosome());
+            }
+            readGenes.addAll(partition);
+        }
+        // Partitions keep the input order of their genes
+        readGenes.sort(Comparator.comparing(gene -> Integer.valueOf(gene.getId().substring(4))));
+        ObjectWriter objectWriter = new ObjectMapper().writer();
+        for (int i = 0; i < genes.size(); i++) {
+            assertEquals(objectWriter.writeValueAsString(genes.get(i)), objectWriter.writeValueAsString(readGenes.get(i)));
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(partitionDir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(partitionDir);
+    }
+
+    @Test
+    public void testSerializeError() {
+        CellBaseAvroFileSerializer serializer = new CellBaseAvroFileSerializer(outdir.resolve("missing"), "region");
+        assertThrows(UncheckedIOException.class, () -> serializer.serialize(new Region("1", 1, "region")));
+    }
+
+    @Test
+    public void testSpecificRecordRoundTrip() throws IOException {
+        List<SequenceOntologyTerm> terms = Arrays.asList(new SequenceOntologyTerm("SO:0001583", "missense_variant"),
+                new SequenceOntologyTerm("SO:0001819", "synonymous_variant"));
+        List<Variant> variants = Arrays.asList(new Variant("1:1000:A:T"), new Variant("X:2000:C:-"));
+
+        CellBaseAvroFileSerializer serializer = new CellBaseAvroFileSerializer(outdir);
+        for (SequenceOntologyTerm term : terms) {
+            serializer.serialize(term, "so");
+        }
+        for (Variant variant : variants) {
+            serializer.serialize(variant, "variation");
+        }
+        serializer.close();
+
+        assertEquals(terms, CellBaseAvroFileSerializer.read(outdir.resolve("so.avro"), SequenceOntologyTerm.class));
+        List<VariantAvro> variantAvros = CellBaseAvroFileSerializer.read(outdir.resolve("variation.avro"), VariantAvro.class);
+        assertEquals(variants.size(), variantAvros.size());
+        for (int i = 0; i < variants.size(); i++) {
+            assertEquals(variants.get(i).getImpl(), variantAvros.get(i));
+        }
+    }
+
+    @Test
+    public void testIsSupported() {
+        assertTrue(CellBaseAvroFileSerializer.isSupported(Region.class));
+        assertTrue(CellBaseAvroFileSerializer.isSupported(Variant.class));
+        assertFalse(CellBaseAvroFileSerializer.isSupported(String.class));
+    }
+
+    public static class Region {
+        private String chromosome;
+        private int start;
+        private String id;
+        private List<String> tags;
+        private Map<String, String> attributes;
+        private Region parent;
+
+        public Region() {
+        }
+
+        public Region(String chromosome, int start, String id) {
+            this.chromosome = chromosome;
+            this.start = start;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Region region = (Region) o;
+            return start == region.start && Objects.equals(chromosome, region.chromosome) && Objects.equals(id, region.id)
+                    && Objects.equals(tags, region.tags) && Objects.equals(attributes, region.attributes)
+                    && Objects.equals(parent, region.parent);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(chromosome, start, id, tags, attributes, parent);
+        }
+    }
+}
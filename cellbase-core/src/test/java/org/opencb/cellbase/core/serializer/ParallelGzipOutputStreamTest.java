@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.core.serializer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelGzipOutputStreamTest {
+
+    private ExecutorService executorService;
+    private Path outdir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        executorService = Executors.newFixedThreadPool(4);
+        outdir = Files.createTempDirectory("parallel_gzip");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        executorService.shutdownNow();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(outdir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(outdir);
+    }
+
+    @Test
+    public void testConcatenatedMembers() throws IOException {
+        byte[] data = new byte[100_000];
+        Random random = new Random(1);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('A' + random.nextInt(4));
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        // small blocks, many more than threads, written with single bytes and arrays crossing block boundaries
+        try (ParallelGzipOutputStream outputStream = new ParallelGzipOutputStream(compressed, executorService, 4, 1, 1000)) {
+            outputStream.write(data[0]);
+            outputStream.write(data, 1, 2499);
+            outputStream.write(data, 2500, data.length - 2500);
+        }
+
+        assertArrayEquals(data, gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, executorService, 4, 6).close();
+
+        assertTrue(compressed.size() > 0);
+        assertEquals(0, gunzip(compressed.toByteArray()).length);
+    }
+
+    @Test
+    public void testSerializerOutput() throws IOException {
+        List<Map<String, Object>> objects = new ArrayList<>();
+        for (int i = 0; i < 1234; i++) {
+            Map<String, Object> object = new LinkedHashMap<>();
+            object.put("id", "chunk_" + i);
+            object.put("start", i * 2000);
+            objects.add(object);
+        }
+
+        CellBaseJsonFileSerializer serializer = new CellBaseJsonFileSerializer(outdir, "single");
+        for (Map<String, Object> object : objects) {
+            serializer.serialize(object);
+        }
+        serializer.close();
+
+        CellBaseJsonFileSerializer parallelSerializer = new CellBaseJsonFileSerializer(outdir, "parallel")
+                .setNumThreads(4)
+                .setCompressionLevel(1)
+                .setParallelSerialization(true);
+        for (Map<String, Object> object : objects) {
+            parallelSerializer.serialize(object);
+        }
+        parallelSerializer.close();
+
+        byte[] expected = gunzip(Files.readAllBytes(outdir.resolve("single.json.gz")));
+        assertTrue(new String(expected, StandardCharsets.UTF_8).startsWith("{\"id\":\"chunk_0\",\"start\":0}"));
+        assertArrayEquals(expected, gunzip(Files.readAllBytes(outdir.resolve("parallel.json.gz"))));
+    }
+
+    private byte[] gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = inputStream.read(buffer)) != -1) {
+                uncompressed.write(buffer, 0, n);
+            }
+        }
+        return uncompressed.toByteArray();
+    }
+}
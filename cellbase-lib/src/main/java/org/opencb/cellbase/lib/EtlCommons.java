@@ -49,6 +49,7 @@ public class EtlCommons {
     public static final String SPLICE_SCORE_DATA = "splice_score";
 
     public static final String PHARMACOGENOMICS_DATA = "pharmacogenomics";
+    public static final String PHARMACOGENOMICS_VARIANT_DATA = "pharmacogenomics_variant";
     public static final String PHARMGKB_NAME = "PharmGKB";
     public static final String PHARMGKB_DATA = "pharmgkb";
     public static final String PHARMGKB_VERSION_FILENAME = "pharmgkbVersion.json";
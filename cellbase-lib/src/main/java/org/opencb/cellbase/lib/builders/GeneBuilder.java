@@ -34,11 +34,11 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class GeneBuilder extends CellBaseBuilder {
 
-    private Map<String, Integer> transcriptDict;
-    private Map<String, Exon> exonDict;
+    private static final int PENDING_GENES_PER_THREAD = 100;
 
     private Path gtfFile;
     private Path proteinFastaFile;
@@ -66,6 +66,7 @@ public class GeneBuilder extends CellBaseBuilder {
     private Path tso500File;
     private Path eglhHaemOncFile;
     private boolean flexibleGTFParsing;
+    private int numThreads;
 
     // source for genes is either ensembl or refseq
     private final String SOURCE = ParamConstants.QueryParams.ENSEMBL.key();
@@ -151,18 +152,22 @@ public class GeneBuilder extends CellBaseBuilder {
         this.genomeSequenceFilePath = genomeSequenceFilePath;
         this.speciesConfiguration = speciesConfiguration;
         this.flexibleGTFParsing = flexibleGTFParsing;
+        this.numThreads = 1;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
 
-        transcriptDict = new HashMap<>(250000);
-        exonDict = new HashMap<>(8000000);
+    public GeneBuilder setNumThreads(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+        return this;
     }
 
     public void parse() throws Exception {
-        Gene gene = null;
-        Transcript transcript;
-        Exon exon = null;
-        int cdna = 1;
-        int cds = 1;
         EnsemblGeneBuilderIndexer indexer = new EnsemblGeneBuilderIndexer(gtfFile.getParent());
+        List<GeneBuildContext> contexts = new ArrayList<>();
+        ExecutorService executorService = null;
 
         try {
             // process files and put values in rocksdb
@@ -172,21 +177,20 @@ public class GeneBuilder extends CellBaseBuilder {
                     miRTarBaseFile, cancerGeneCensusFile, cancerHostpotFile, ensemblCanonicalFile,
                     tso500File, eglhHaemOncFile);
 
-            TabixReader tabixReader = null;
             if (!Files.exists(tfbsFile) || !Files.exists(tabixFile)) {
                 logger.error("Tfbs or tabix file not found. Download them and try again.");
-            } else {
-                tabixReader = new TabixReader(tfbsFile.toAbsolutePath().toString(), tabixFile.toAbsolutePath().toString());
             }
 
-            // Preparing the fasta file for fast accessing
-//            System.out.println("genomeSequenceFilePath.toString() = " + genomeSequenceFilePath.toString());
-            FastaIndex fastaIndex = new FastaIndex(genomeSequenceFilePath);
+            // Neither FastaIndex nor TabixReader are thread safe, each worker gets its own readers while the RocksDB
+            // indexer is only read from here on and is shared
+            BlockingQueue<GeneBuildContext> availableContexts = new LinkedBlockingQueue<>();
+            for (int i = 0; i < numThreads; i++) {
+                GeneBuildContext context = new GeneBuildContext();
+                contexts.add(context);
+                availableContexts.add(context);
+            }
 
-            // Empty transcript and exon dictionaries
-            transcriptDict.clear();
-            exonDict.clear();
-            logger.info("Parsing gtf...");
+            logger.info("Parsing gtf using {} threads...", numThreads);
             GtfReader gtfReader = new GtfReader(gtfFile);
 
             // Gene->Transcript->Feature->GTF line
@@ -196,185 +200,279 @@ public class GeneBuilder extends CellBaseBuilder {
                 initializePointers(gtfMap);
             }
 
+            // Genes are built in parallel but serialized in the same order they appear in the GTF, so the output is
+            // identical to the serial build. The number of genes in flight is bounded to keep memory under control
+            if (numThreads > 1) {
+                executorService = Executors.newFixedThreadPool(numThreads);
+            }
+            Deque<Future<Gene>> pendingGenes = new ArrayDeque<>();
+            int maxPendingGenes = numThreads * PENDING_GENES_PER_THREAD;
+
+            List<Gtf> geneGtfs = new ArrayList<>();
             Gtf gtf;
             while ((gtf = getGTFEntry(gtfReader, gtfMap)) != null) {
-
                 if (gtf.getFeature().equals("gene") || gtf.getFeature().equals("transcript")
                         || gtf.getFeature().equals("UTR") || gtf.getFeature().equals("Selenocysteine")) {
                     continue;
                 }
 
+                // A new gene starts every time the gene_id changes
                 String geneId = gtf.getAttributes().get("gene_id");
-                String transcriptId = gtf.getAttributes().get("transcript_id");
-                String geneName = gtf.getAttributes().get("gene_name");
-                if (newGene(gene, geneId)) {
-                    // If new geneId is different from the current then we must serialize before data new gene
-                    if (gene != null) {
-                        serializer.serialize(gene);
+                if (!geneGtfs.isEmpty() && !geneId.equals(geneGtfs.get(0).getAttributes().get("gene_id"))) {
+                    submitGene(geneGtfs, indexer, availableContexts, executorService, pendingGenes);
+                    geneGtfs = new ArrayList<>();
+                    while (pendingGenes.size() > maxPendingGenes) {
+                        serializer.serialize(getGene(pendingGenes.poll()));
                     }
+                }
+                geneGtfs.add(gtf);
+            }
+            if (!geneGtfs.isEmpty()) {
+                submitGene(geneGtfs, indexer, availableContexts, executorService, pendingGenes);
+            }
 
-                    GeneAnnotation geneAnnotation = new GeneAnnotation(indexer.getExpression(geneId), indexer.getDiseases(geneName),
-                            indexer.getDrugs(geneName), indexer.getConstraints(geneId), indexer.getMirnaTargets(geneName),
-                            indexer.getCancerGeneCensus(geneName), indexer.getCancerHotspot(geneName));
+            // last genes must be serialized
+            while (!pendingGenes.isEmpty()) {
+                serializer.serialize(getGene(pendingGenes.poll()));
+            }
 
-                    gene = new Gene(geneId, geneName, gtf.getSequenceName().replaceFirst("chr", ""),
-                            gtf.getStart(), gtf.getEnd(), gtf.getStrand(), gtf.getAttributes().get("gene_version"),
-                            gtf.getAttributes().get("gene_biotype"), "KNOWN", SOURCE, indexer.getDescription(geneId),
-                            new ArrayList<>(), indexer.getMirnaGene(transcriptId), geneAnnotation);
-                }
+            // cleaning
+            gtfReader.close();
+            serializer.close();
+            for (GeneBuildContext context : contexts) {
+                context.close();
+            }
+            indexer.close();
+        } catch (Exception e) {
+            indexer.close();
+            throw e;
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+        }
+    }
+
+    private void submitGene(List<Gtf> geneGtfs, EnsemblGeneBuilderIndexer indexer, BlockingQueue<GeneBuildContext> availableContexts,
+                            ExecutorService executorService, Deque<Future<Gene>> pendingGenes) throws Exception {
+        Callable<Gene> task = () -> {
+            GeneBuildContext context = availableContexts.take();
+            try {
+                return buildGene(geneGtfs, indexer, context);
+            } finally {
+                availableContexts.put(context);
+            }
+        };
+
+        if (executorService == null) {
+            FutureTask<Gene> futureTask = new FutureTask<>(task);
+            futureTask.run();
+            pendingGenes.add(futureTask);
+        } else {
+            pendingGenes.add(executorService.submit(task));
+        }
+    }
+
+    private Gene getGene(Future<Gene> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private Gene buildGene(List<Gtf> geneGtfs, EnsemblGeneBuilderIndexer indexer, GeneBuildContext context) throws Exception {
+        // Transcript and exon dictionaries only need to live as long as the gene they belong to
+        Map<String, Integer> transcriptDict = new HashMap<>();
+        Map<String, Exon> exonDict = new HashMap<>();
+        Transcript transcript;
+        Exon exon = null;
+        int cdna = 1;
+        int cds = 1;
+
+        Gtf firstGtf = geneGtfs.get(0);
+        String geneId = firstGtf.getAttributes().get("gene_id");
+        String geneName = firstGtf.getAttributes().get("gene_name");
+        GeneAnnotation geneAnnotation = new GeneAnnotation(indexer.getExpression(geneId), indexer.getDiseases(geneName),
+                indexer.getDrugs(geneName), indexer.getConstraints(geneId), indexer.getMirnaTargets(geneName),
+                indexer.getCancerGeneCensus(geneName), indexer.getCancerHotspot(geneName));
 
-                // Check if Transcript exist in the Gene Set of transcripts
-                if (!transcriptDict.containsKey(transcriptId)) {
-                    transcript = getTranscript(gene, indexer, tabixReader, gtf, transcriptId);
+        Gene gene = new Gene(geneId, geneName, firstGtf.getSequenceName().replaceFirst("chr", ""),
+                firstGtf.getStart(), firstGtf.getEnd(), firstGtf.getStrand(), firstGtf.getAttributes().get("gene_version"),
+                firstGtf.getAttributes().get("gene_biotype"), "KNOWN", SOURCE, indexer.getDescription(geneId),
+                new ArrayList<>(), indexer.getMirnaGene(firstGtf.getAttributes().get("transcript_id")), geneAnnotation);
+
+        for (Gtf gtf : geneGtfs) {
+            String transcriptId = gtf.getAttributes().get("transcript_id");
+
+            // Check if Transcript exist in the Gene Set of transcripts
+            if (!transcriptDict.containsKey(transcriptId)) {
+                transcript = getTranscript(gene, indexer, context.tabixReader, gtf, transcriptId, transcriptDict);
+            } else {
+                transcript = gene.getTranscripts().get(transcriptDict.get(transcriptId));
+            }
+
+            // At this point gene and transcript objects are set up
+            // Update gene and transcript genomic coordinates, start must be the
+            // lower, and end the higher
+            updateTranscriptAndGeneCoords(transcript, gene, gtf);
+
+            String transcriptIdWithoutVersion = transcript.getId().split("\\.")[0];
+            if (gtf.getFeature().equalsIgnoreCase("exon")) {
+                // Obtaining the exon sequence
+                String exonId = gtf.getAttributes().get("exon_id") + "." + gtf.getAttributes().get("exon_version");
+                String exonSequence = context.fastaIndex.query(gtf.getSequenceName(), gtf.getStart(), gtf.getEnd());
+
+                exon = new Exon(exonId, gtf.getSequenceName().replaceFirst("chr", ""),
+                        gtf.getStart(), gtf.getEnd(), gtf.getStrand(), 0, 0, 0, 0, 0, 0, -1, Integer.parseInt(gtf
+                        .getAttributes().get("exon_number")), exonSequence);
+                transcript.getExons().add(exon);
+
+                exonDict.put(transcriptIdWithoutVersion + "_" + exon.getExonNumber(), exon);
+                if (gtf.getAttributes().get("exon_number").equals("1")) {
+                    cdna = 1;
+                    cds = 1;
                 } else {
-                    transcript = gene.getTranscripts().get(transcriptDict.get(transcriptId));
+                    // with every exon we update cDNA length with the previous exon length
+                    cdna += exonDict.get(transcriptIdWithoutVersion + "_" + (exon.getExonNumber() - 1)).getEnd()
+                            - exonDict.get(transcriptIdWithoutVersion + "_" + (exon.getExonNumber() - 1)).getStart() + 1;
                 }
-
-                // At this point gene and transcript objects are set up
-                // Update gene and transcript genomic coordinates, start must be the
-                // lower, and end the higher
-                updateTranscriptAndGeneCoords(transcript, gene, gtf);
-
-                String transcriptIdWithoutVersion = transcript.getId().split("\\.")[0];
-                if (gtf.getFeature().equalsIgnoreCase("exon")) {
-                    // Obtaining the exon sequence
-                    String exonId = gtf.getAttributes().get("exon_id") + "." + gtf.getAttributes().get("exon_version");
-                    String exonSequence = fastaIndex.query(gtf.getSequenceName(), gtf.getStart(), gtf.getEnd());
-
-                    exon = new Exon(exonId, gtf.getSequenceName().replaceFirst("chr", ""),
-                            gtf.getStart(), gtf.getEnd(), gtf.getStrand(), 0, 0, 0, 0, 0, 0, -1, Integer.parseInt(gtf
-                            .getAttributes().get("exon_number")), exonSequence);
-                    transcript.getExons().add(exon);
-
-                    exonDict.put(transcriptIdWithoutVersion + "_" + exon.getExonNumber(), exon);
-                    if (gtf.getAttributes().get("exon_number").equals("1")) {
-                        cdna = 1;
-                        cds = 1;
+            } else {
+                exon = exonDict.get(transcriptIdWithoutVersion + "_" + exon.getExonNumber());
+                if (gtf.getFeature().equalsIgnoreCase("CDS")) {
+                    // Protein ID is only present in CDS lines
+                    String proteinId = gtf.getAttributes().get("protein_id") != null
+                            ? gtf.getAttributes().get("protein_id") + "." + gtf.getAttributes().get("protein_version")
+                            : "";
+                    transcript.setProteinId(proteinId);
+                    transcript.setProteinSequence(indexer.getProteinFasta(proteinId));
+
+                    if (gtf.getStrand().equals("+") || gtf.getStrand().equals("1")) {
+                        // CDS states the beginning of coding start
+                        exon.setGenomicCodingStart(gtf.getStart());
+                        exon.setGenomicCodingEnd(gtf.getEnd());
+
+                        // cDNA coordinates
+                        exon.setCdnaCodingStart(gtf.getStart() - exon.getStart() + cdna);
+                        exon.setCdnaCodingEnd(gtf.getEnd() - exon.getStart() + cdna);
+                        // Set cdnaCodingEnd to prevent those cases without stop_codon
+
+                        transcript.setCdnaCodingEnd(gtf.getEnd() - exon.getStart() + cdna);
+                        exon.setCdsStart(cds);
+                        exon.setCdsEnd(gtf.getEnd() - gtf.getStart() + cds);
+
+                        // increment in the coding length
+                        cds += gtf.getEnd() - gtf.getStart() + 1;
+                        transcript.setCdsLength(cds - 1);  // Set cdnaCodingEnd to prevent those cases without stop_codon
+
+                        exon.setPhase(Integer.parseInt(gtf.getFrame()));
+
+                        if (transcript.getGenomicCodingStart() == 0 || transcript.getGenomicCodingStart() > gtf.getStart()) {
+                            transcript.setGenomicCodingStart(gtf.getStart());
+                        }
+                        if (transcript.getGenomicCodingEnd() == 0 || transcript.getGenomicCodingEnd() < gtf.getEnd()) {
+                            transcript.setGenomicCodingEnd(gtf.getEnd());
+                        }
+                        // only first time
+                        if (transcript.getCdnaCodingStart() == 0) {
+                            transcript.setCdnaCodingStart(gtf.getStart() - exon.getStart() + cdna);
+                        }
+                        // strand -
                     } else {
-                        // with every exon we update cDNA length with the previous exon length
-                        cdna += exonDict.get(transcriptIdWithoutVersion + "_" + (exon.getExonNumber() - 1)).getEnd()
-                                - exonDict.get(transcriptIdWithoutVersion + "_" + (exon.getExonNumber() - 1)).getStart() + 1;
-                    }
-                } else {
-                    exon = exonDict.get(transcriptIdWithoutVersion + "_" + exon.getExonNumber());
-                    if (gtf.getFeature().equalsIgnoreCase("CDS")) {
-                        // Protein ID is only present in CDS lines
-                        String proteinId = gtf.getAttributes().get("protein_id") != null
-                                ? gtf.getAttributes().get("protein_id") + "." + gtf.getAttributes().get("protein_version")
-                                : "";
-                        transcript.setProteinId(proteinId);
-                        transcript.setProteinSequence(indexer.getProteinFasta(proteinId));
-
-                        if (gtf.getStrand().equals("+") || gtf.getStrand().equals("1")) {
-                            // CDS states the beginning of coding start
-                            exon.setGenomicCodingStart(gtf.getStart());
-                            exon.setGenomicCodingEnd(gtf.getEnd());
-
-                            // cDNA coordinates
-                            exon.setCdnaCodingStart(gtf.getStart() - exon.getStart() + cdna);
-                            exon.setCdnaCodingEnd(gtf.getEnd() - exon.getStart() + cdna);
-                            // Set cdnaCodingEnd to prevent those cases without stop_codon
-
-                            transcript.setCdnaCodingEnd(gtf.getEnd() - exon.getStart() + cdna);
-                            exon.setCdsStart(cds);
-                            exon.setCdsEnd(gtf.getEnd() - gtf.getStart() + cds);
-
-                            // increment in the coding length
-                            cds += gtf.getEnd() - gtf.getStart() + 1;
-                            transcript.setCdsLength(cds - 1);  // Set cdnaCodingEnd to prevent those cases without stop_codon
-
-                            exon.setPhase(Integer.parseInt(gtf.getFrame()));
-
-                            if (transcript.getGenomicCodingStart() == 0 || transcript.getGenomicCodingStart() > gtf.getStart()) {
-                                transcript.setGenomicCodingStart(gtf.getStart());
-                            }
-                            if (transcript.getGenomicCodingEnd() == 0 || transcript.getGenomicCodingEnd() < gtf.getEnd()) {
-                                transcript.setGenomicCodingEnd(gtf.getEnd());
-                            }
-                            // only first time
-                            if (transcript.getCdnaCodingStart() == 0) {
-                                transcript.setCdnaCodingStart(gtf.getStart() - exon.getStart() + cdna);
-                            }
-                            // strand -
-                        } else {
-                            // CDS states the beginning of coding start
-                            exon.setGenomicCodingStart(gtf.getStart());
-                            exon.setGenomicCodingEnd(gtf.getEnd());
-                            // cDNA coordinates
+                        // CDS states the beginning of coding start
+                        exon.setGenomicCodingStart(gtf.getStart());
+                        exon.setGenomicCodingEnd(gtf.getEnd());
+                        // cDNA coordinates
+                        // cdnaCodingStart points to the same base position than genomicCodingEnd
+                        exon.setCdnaCodingStart(exon.getEnd() - gtf.getEnd() + cdna);
+                        // cdnaCodingEnd points to the same base position than genomicCodingStart
+                        exon.setCdnaCodingEnd(exon.getEnd() - gtf.getStart() + cdna);
+                        // Set cdnaCodingEnd to prevent those cases without stop_codon
+                        transcript.setCdnaCodingEnd(exon.getEnd() - gtf.getStart() + cdna);
+                        exon.setCdsStart(cds);
+                        exon.setCdsEnd(gtf.getEnd() - gtf.getStart() + cds);
+
+                        // increment in the coding length
+                        cds += gtf.getEnd() - gtf.getStart() + 1;
+                        transcript.setCdsLength(cds - 1);  // Set cdnaCodingEnd to prevent those cases without stop_codon
+                        exon.setPhase(Integer.parseInt(gtf.getFrame()));
+
+                        if (transcript.getGenomicCodingStart() == 0 || transcript.getGenomicCodingStart() > gtf.getStart()) {
+                            transcript.setGenomicCodingStart(gtf.getStart());
+                        }
+                        if (transcript.getGenomicCodingEnd() == 0 || transcript.getGenomicCodingEnd() < gtf.getEnd()) {
+                            transcript.setGenomicCodingEnd(gtf.getEnd());
+                        }
+                        // only first time
+                        if (transcript.getCdnaCodingStart() == 0) {
                             // cdnaCodingStart points to the same base position than genomicCodingEnd
-                            exon.setCdnaCodingStart(exon.getEnd() - gtf.getEnd() + cdna);
-                            // cdnaCodingEnd points to the same base position than genomicCodingStart
-                            exon.setCdnaCodingEnd(exon.getEnd() - gtf.getStart() + cdna);
-                            // Set cdnaCodingEnd to prevent those cases without stop_codon
-                            transcript.setCdnaCodingEnd(exon.getEnd() - gtf.getStart() + cdna);
-                            exon.setCdsStart(cds);
-                            exon.setCdsEnd(gtf.getEnd() - gtf.getStart() + cds);
-
-                            // increment in the coding length
-                            cds += gtf.getEnd() - gtf.getStart() + 1;
-                            transcript.setCdsLength(cds - 1);  // Set cdnaCodingEnd to prevent those cases without stop_codon
-                            exon.setPhase(Integer.parseInt(gtf.getFrame()));
-
-                            if (transcript.getGenomicCodingStart() == 0 || transcript.getGenomicCodingStart() > gtf.getStart()) {
-                                transcript.setGenomicCodingStart(gtf.getStart());
-                            }
-                            if (transcript.getGenomicCodingEnd() == 0 || transcript.getGenomicCodingEnd() < gtf.getEnd()) {
-                                transcript.setGenomicCodingEnd(gtf.getEnd());
-                            }
-                            // only first time
-                            if (transcript.getCdnaCodingStart() == 0) {
-                                // cdnaCodingStart points to the same base position than genomicCodingEnd
-                                transcript.setCdnaCodingStart(exon.getEnd() - gtf.getEnd() + cdna);
-                            }
+                            transcript.setCdnaCodingStart(exon.getEnd() - gtf.getEnd() + cdna);
                         }
-
                     }
+
+                }
 //                if (gtf.getFeature().equalsIgnoreCase("start_codon")) {
 //                    // nothing to do
 //                    System.out.println("Empty block, this should be redesigned");
 //                }
-                    if (gtf.getFeature().equalsIgnoreCase("stop_codon")) {
-                        //                      setCdnaCodingEnd = false; // stop_codon found, cdnaCodingEnd will be set here,
-                        //                      no need to set it at the beginning of next feature
-                        if (exon.getStrand().equals("+")) {
-                            updateStopCodingDataPositiveExon(exon, cdna, cds, gtf);
-
-                            cds += gtf.getEnd() - gtf.getStart();
-                            // If stop_codon appears, overwrite values
-                            transcript.setGenomicCodingEnd(gtf.getEnd());
-                            transcript.setCdnaCodingEnd(gtf.getEnd() - exon.getStart() + cdna);
-                            transcript.setCdsLength(cds - 1);
+                if (gtf.getFeature().equalsIgnoreCase("stop_codon")) {
+                    //                      setCdnaCodingEnd = false; // stop_codon found, cdnaCodingEnd will be set here,
+                    //                      no need to set it at the beginning of next feature
+                    if (exon.getStrand().equals("+")) {
+                        updateStopCodingDataPositiveExon(exon, cdna, cds, gtf);
+
+                        cds += gtf.getEnd() - gtf.getStart();
+                        // If stop_codon appears, overwrite values
+                        transcript.setGenomicCodingEnd(gtf.getEnd());
+                        transcript.setCdnaCodingEnd(gtf.getEnd() - exon.getStart() + cdna);
+                        transcript.setCdsLength(cds - 1);
 
-                        } else {
-                            updateNegativeExonCodingData(exon, cdna, cds, gtf);
-
-                            cds += gtf.getEnd() - gtf.getStart();
-                            // If stop_codon appears, overwrite values
-                            transcript.setGenomicCodingStart(gtf.getStart());
-                            // cdnaCodingEnd points to the same base position than genomicCodingStart
-                            transcript.setCdnaCodingEnd(exon.getEnd() - gtf.getStart() + cdna);
-                            transcript.setCdsLength(cds - 1);
-                        }
+                    } else {
+                        updateNegativeExonCodingData(exon, cdna, cds, gtf);
+
+                        cds += gtf.getEnd() - gtf.getStart();
+                        // If stop_codon appears, overwrite values
+                        transcript.setGenomicCodingStart(gtf.getStart());
+                        // cdnaCodingEnd points to the same base position than genomicCodingStart
+                        transcript.setCdnaCodingEnd(exon.getEnd() - gtf.getStart() + cdna);
+                        transcript.setCdsLength(cds - 1);
                     }
                 }
             }
+        }
+
+        return gene;
+    }
 
-            // last gene must be serialized
-            serializer.serialize(gene);
+    /**
+     * Readers owned by one worker, FastaIndex and TabixReader can not be shared between threads.
+     */
+    private class GeneBuildContext {
+        private final FastaIndex fastaIndex;
+        private final TabixReader tabixReader;
 
-            // cleaning
-            gtfReader.close();
-            serializer.close();
+        GeneBuildContext() throws IOException {
+            fastaIndex = new FastaIndex(genomeSequenceFilePath);
+            if (Files.exists(tfbsFile) && Files.exists(tabixFile)) {
+                tabixReader = new TabixReader(tfbsFile.toAbsolutePath().toString(), tabixFile.toAbsolutePath().toString());
+            } else {
+                tabixReader = null;
+            }
+        }
+
+        void close() throws IOException {
             fastaIndex.close();
-            indexer.close();
-        } catch (Exception e) {
-            indexer.close();
-            throw e;
+            if (tabixReader != null) {
+                tabixReader.close();
+            }
         }
     }
 
-    private Transcript getTranscript(Gene gene, EnsemblGeneBuilderIndexer indexer, TabixReader tabixReader, Gtf gtf, String transcriptId)
-            throws IOException, RocksDBException {
+    private Transcript getTranscript(Gene gene, EnsemblGeneBuilderIndexer indexer, TabixReader tabixReader, Gtf gtf, String transcriptId,
+                                     Map<String, Integer> transcriptDict) throws IOException, RocksDBException {
         Map<String, String> gtfAttributes = gtf.getAttributes();
 
         // To match Ensembl, we set the ID as transcript+version. This also matches the Ensembl website.
@@ -871,10 +969,6 @@ public class GeneBuilder extends CellBaseBuilder {
 
 
 
-    private boolean newGene(Gene previousGene, String newGeneId) {
-        return previousGene == null || !newGeneId.equals(previousGene.getId());
-    }
-
     private void updateTranscriptAndGeneCoords(Transcript transcript, Gene gene, Gtf gtf) {
         if (transcript.getStart() > gtf.getStart()) {
             transcript.setStart(gtf.getStart());
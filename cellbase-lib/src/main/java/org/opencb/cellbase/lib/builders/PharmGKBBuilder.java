@@ -124,8 +124,20 @@ public class PharmGKBBuilder extends CellBaseBuilder {
                 logger.info("\t\t {} chemicals/drugs written.", counter);
             }
         }
-        serializer.close();
         logger.info("Writing {} JSON file done!", PHARMACOGENOMICS_DATA);
+
+        // Generation of the variant-keyed index used by the variant annotation
+        logger.info("Writing {} JSON file to {} ...", PHARMACOGENOMICS_VARIANT_DATA, serializer.getOutdir());
+        PharmacogenomicsVariantIndexBuilder variantIndexBuilder = new PharmacogenomicsVariantIndexBuilder();
+        counter = 0;
+        for (PharmaChemical pharmaChemical : chemicalsMap.values()) {
+            for (Map<String, Object> document : variantIndexBuilder.build(pharmaChemical)) {
+                ((CellBaseFileSerializer) serializer).serialize(document, PHARMACOGENOMICS_VARIANT_DATA);
+                counter++;
+            }
+        }
+        serializer.close();
+        logger.info("Writing {} JSON file done! {} chemical-variant documents written.", PHARMACOGENOMICS_VARIANT_DATA, counter);
     }
 
     private Map<String, PharmaChemical> parseChemicalFile() throws IOException {
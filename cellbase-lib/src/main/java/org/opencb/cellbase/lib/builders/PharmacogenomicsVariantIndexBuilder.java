@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.builders;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.pharma.PharmaChemical;
+import org.opencb.biodata.models.pharma.PharmaClinicalAllele;
+import org.opencb.biodata.models.pharma.PharmaVariantAnnotation;
+import org.opencb.biodata.models.variant.Variant;
+
+import java.util.*;
+
+/**
+ * Builds the variant-keyed pharmacogenomics index used by the variant annotation. PharmGKB data is stored by
+ * chemical/drug, each chemical containing all its clinical variant annotations. This index contains one document per
+ * chemical and variant, with only that variant in the 'variants' list, so documents keep the PharmaChemical format.
+ *
+ * Each document stores in '_variantKeys' the keys chromosome:position:allele it matches: one key for each homozygous
+ * genotype of the clinical annotation, or the wildcard key chromosome:position:* when the annotation has no alleles or
+ * any of them contains 'null' or '*'. The annotator queries the keys of the HOM ALT genotype and the wildcard key of
+ * each variant, so only the matching clinical annotations are returned.
+ */
+public class PharmacogenomicsVariantIndexBuilder {
+
+    public static final String VARIANT_KEYS_FIELD = "_variantKeys";
+
+    private static final String KEY_SEPARATOR = ":";
+    private static final String ANY_ALLELE = "*";
+
+    /**
+     * Splits a chemical into one index document per clinical variant annotation with a genomic location.
+     *
+     * @param pharmaChemical chemical as built by PharmGKBBuilder
+     * @return the index documents, empty if no clinical variant annotation has a genomic location
+     */
+    public List<Map<String, Object>> build(PharmaChemical pharmaChemical) {
+        if (CollectionUtils.isEmpty(pharmaChemical.getVariants())) {
+            return Collections.emptyList();
+        }
+
+        List<Map<String, Object>> documents = new ArrayList<>();
+        for (PharmaVariantAnnotation pharmaVariantAnnotation : pharmaChemical.getVariants()) {
+            if (StringUtils.isEmpty(pharmaVariantAnnotation.getChromosome()) || pharmaVariantAnnotation.getPosition() <= 0) {
+                continue;
+            }
+
+            Map<String, Object> document = new LinkedHashMap<>();
+            document.put("id", pharmaChemical.getId());
+            document.put("name", pharmaChemical.getName());
+            document.put("source", pharmaChemical.getSource());
+            document.put("types", pharmaChemical.getTypes());
+            document.put("smiles", pharmaChemical.getSmiles());
+            document.put("inChI", pharmaChemical.getInChI());
+            document.put("variants", Collections.singletonList(pharmaVariantAnnotation));
+            document.put(VARIANT_KEYS_FIELD, getVariantKeys(pharmaVariantAnnotation));
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    public static List<String> getVariantKeys(PharmaVariantAnnotation pharmaVariantAnnotation) {
+        String prefix = pharmaVariantAnnotation.getChromosome() + KEY_SEPARATOR + pharmaVariantAnnotation.getPosition() + KEY_SEPARATOR;
+        Set<String> keys = new LinkedHashSet<>();
+        if (CollectionUtils.isEmpty(pharmaVariantAnnotation.getAlleles())) {
+            keys.add(prefix + ANY_ALLELE);
+        } else {
+            for (PharmaClinicalAllele allele : pharmaVariantAnnotation.getAlleles()) {
+                if (allele.getAllele() == null) {
+                    continue;
+                }
+                if (allele.getAllele().contains("null") || allele.getAllele().contains(ANY_ALLELE)) {
+                    keys.add(prefix + ANY_ALLELE);
+                } else {
+                    keys.add(prefix + allele.getAllele().toUpperCase());
+                }
+            }
+        }
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * Keys to query for a variant: its HOM ALT genotype and the wildcard key.
+     *
+     * @param variant variant to annotate
+     * @return the keys to query in the '_variantKeys' field
+     */
+    public static List<String> getQueryKeys(Variant variant) {
+        String prefix = variant.getChromosome() + KEY_SEPARATOR + variant.getStart() + KEY_SEPARATOR;
+        return Arrays.asList(prefix + (variant.getAlternate() + variant.getAlternate()).toUpperCase(), prefix + ANY_ALLELE);
+    }
+
+    public static String getLocationKey(String chromosome, int position) {
+        return chromosome + KEY_SEPARATOR + position;
+    }
+}
@@ -27,17 +27,26 @@ import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.utils.FileUtils;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
 
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -51,7 +60,9 @@ import static org.opencb.cellbase.lib.EtlCommons.CLINVAR_VERSION;
  */
 public class ClinVarIndexer extends ClinicalIndexer {
 
-    private static final String CLINVAR_CONTEXT = "org.opencb.biodata.formats.variant.clinvar.rcv.v64jaxb";
+    private static final int XML_READER_THREADS = 4;
+    private static final int XML_READER_QUEUE_SIZE = 500;
+    private static final int WRITE_BATCH_SIZE = 10000;
 
     private static final String CLINVAR_NAME = "clinvar";
     private static final int VARIANT_SUMMARY_CHR_COLUMN = 18;
@@ -93,6 +104,10 @@ public class ClinVarIndexer extends ClinicalIndexer {
             ModeOfInheritance.monoallelic_not_imprinted, ModeOfInheritance.monoallelic_paternally_imprinted));
     private static final Set<ModeOfInheritance> RECESSIVE_TERM_SET
             = new HashSet<>(Arrays.asList(ModeOfInheritance.biallelic));
+    private WriteBatch writeBatch;
+    private int writeBatchSize = WRITE_BATCH_SIZE;
+    // key = variant string of the entries in writeBatch, value = serialized VariantAnnotation
+    private final Map<ByteBuffer, byte[]> pendingWrites = new HashMap<>();
 
     public ClinVarIndexer(Path clinvarXMLFiles, Path clinvarSummaryFile, Path clinvarVariationAlleleFile,
                           Path clinvarEFOFile, boolean normalize, Path genomeSequenceFilePath, String assembly,
@@ -108,7 +123,26 @@ public class ClinVarIndexer extends ClinicalIndexer {
         this.assembly = assembly;
     }
 
+    ClinVarIndexer setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+        return this;
+    }
+
     public void index() throws RocksDBException {
+        index(true);
+    }
+
+    /**
+     * Indexes the ClinVar records of all the XML chunk files.
+     *
+     * @param streamXml true to parse the chunk files ahead in parallel with StAX and write through WriteBatches. With false
+     *                  each chunk file is unmarshalled whole with JAXB and every entry is put straight into RocksDB, as
+     *                  before the files were streamed. Both produce the same index, the latter is the reference of the tests
+     * @throws RocksDBException if the index can not be read or written
+     */
+    void index(boolean streamXml) throws RocksDBException {
+        writeBatch = streamXml ? new WriteBatch() : null;
+        ExecutorService executorService = null;
         try {
             Map<String, EFO> traitsToEfoTermsMap = loadEFOTerms();
             Map<String, List<AlleleLocationData>> rcvToAlleleLocationData = parseVariantSummary(traitsToEfoTermsMap);
@@ -125,33 +159,37 @@ public class ClinVarIndexer extends ClinicalIndexer {
             ProgressLogger progressLogger = new ProgressLogger("Parsed XML records:", files.length * 10000,
                     200).setBatchSize(10000);
 
-            for (File clinvarXMLFile : files) {
-
-                logger.info("Unmarshalling clinvar file " + clinvarXMLFile + " ...");
-                JAXBElement<ReleaseType> clinvarRelease = unmarshalXML(clinvarXMLFile.toPath());
-                logger.info("Done");
-
-                logger.info("Serializing clinvar records that have Sequence Location for Assembly " + assembly + " ...");
+            if (streamXml) {
+                // XML chunk files are parsed in parallel by a bounded pool while records are indexed here, in file order:
+                // RocksDB entries are read-modified-written so indexing must stay sequential to produce the same output
+                List<XmlChunkReader> chunkReaders = new ArrayList<>(files.length);
+                executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(files.length, XML_READER_THREADS)));
+                for (File clinvarXMLFile : files) {
+                    XmlChunkReader chunkReader = new XmlChunkReader(clinvarXMLFile.toPath());
+                    chunkReaders.add(chunkReader);
+                    executorService.submit(chunkReader);
+                }
 
+                for (XmlChunkReader chunkReader : chunkReaders) {
+                    logger.info("Serializing clinvar records from {} that have Sequence Location for Assembly {} ...",
+                            chunkReader.getFile(), assembly);
 
-                for (PublicSetType publicSet : clinvarRelease.getValue().getClinVarSet()) {
-                    List<AlleleLocationData> alleleLocationDataList =
-                            rcvToAlleleLocationData.get(publicSet.getReferenceClinVarAssertion().getClinVarAccession().getAcc());
-                    if (alleleLocationDataList != null) {
-                        boolean success = false;
-                        // Actually this list is currently not allowed to be > 2
-                        for (int i = 0; i < alleleLocationDataList.size(); i++) {
-                            String mateVariantString = getMateVariantStringByAlleleLocationData(i, alleleLocationDataList);
-                            // updateRocksDB may fail (false) if normalisation process fails
-                            success = updateRocksDB(alleleLocationDataList.get(i), publicSet, mateVariantString,
-                                    traitsToEfoTermsMap) || success;
-                        }
-                        if (success) {
-                            numberIndexedRecords++;
-                        }
+                    PublicSetType publicSet;
+                    while ((publicSet = chunkReader.take()) != null) {
+                        indexPublicSet(publicSet, rcvToAlleleLocationData, traitsToEfoTermsMap);
+                        progressLogger.increment(1);
+                    }
+                }
+            } else {
+                for (File clinvarXMLFile : files) {
+                    logger.info("Unmarshalling clinvar file {} ...", clinvarXMLFile);
+                    JAXBElement<ReleaseType> clinvarRelease = (JAXBElement<ReleaseType>) ClinvarParser.loadXMLInfo(
+                            clinvarXMLFile.toString(), ClinVarXmlReader.CLINVAR_CONTEXT);
+                    logger.info("Serializing clinvar records that have Sequence Location for Assembly {} ...", assembly);
+                    for (PublicSetType publicSet : clinvarRelease.getValue().getClinVarSet()) {
+                        indexPublicSet(publicSet, rcvToAlleleLocationData, traitsToEfoTermsMap);
+                        progressLogger.increment(1);
                     }
-                    progressLogger.increment(1);
-                    totalNumberRecords++;
                 }
             }
             logger.info("Done");
@@ -165,6 +203,78 @@ public class ClinVarIndexer extends ClinicalIndexer {
         } catch (IOException e) {
             logger.error("Error indexing clinvar Xml file: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+            closeWriteBatch();
+        }
+    }
+
+    private void indexPublicSet(PublicSetType publicSet, Map<String, List<AlleleLocationData>> rcvToAlleleLocationData,
+                                Map<String, EFO> traitsToEfoTermsMap) throws RocksDBException, IOException {
+        List<AlleleLocationData> alleleLocationDataList =
+                rcvToAlleleLocationData.get(publicSet.getReferenceClinVarAssertion().getClinVarAccession().getAcc());
+        if (alleleLocationDataList != null) {
+            boolean success = false;
+            // Actually this list is currently not allowed to be > 2
+            for (int i = 0; i < alleleLocationDataList.size(); i++) {
+                String mateVariantString = getMateVariantStringByAlleleLocationData(i, alleleLocationDataList);
+                // updateRocksDB may fail (false) if normalisation process fails
+                success = updateRocksDB(alleleLocationDataList.get(i), publicSet, mateVariantString,
+                        traitsToEfoTermsMap) || success;
+            }
+            if (success) {
+                numberIndexedRecords++;
+            }
+        }
+        totalNumberRecords++;
+    }
+
+    @Override
+    protected VariantAnnotation getVariantAnnotation(byte[] key) throws RocksDBException, IOException {
+        // Entries written to the current batch are not visible to RocksDB yet
+        byte[] pendingContent = pendingWrites.get(ByteBuffer.wrap(key));
+        if (pendingContent != null) {
+            numberVariantUpdates++;
+            return objectReader.readValue(pendingContent);
+        }
+        return super.getVariantAnnotation(key);
+    }
+
+    private void put(byte[] key, byte[] value) throws RocksDBException {
+        if (writeBatch == null) {
+            rdb.put(key, value);
+            return;
+        }
+        writeBatch.put(key, value);
+        pendingWrites.put(ByteBuffer.wrap(key), value);
+        if (pendingWrites.size() >= writeBatchSize) {
+            flushWriteBatch();
+        }
+    }
+
+    private void flushWriteBatch() throws RocksDBException {
+        if (writeBatch != null && writeBatch.count() > 0) {
+            WriteOptions writeOptions = new WriteOptions();
+            try {
+                rdb.write(writeOptions, writeBatch);
+            } finally {
+                writeOptions.dispose();
+            }
+            writeBatch.clear();
+        }
+        pendingWrites.clear();
+    }
+
+    private void closeWriteBatch() throws RocksDBException {
+        try {
+            flushWriteBatch();
+        } finally {
+            if (writeBatch != null) {
+                writeBatch.dispose();
+                writeBatch = null;
+            }
         }
     }
 
@@ -237,7 +347,7 @@ public class ClinVarIndexer extends ClinicalIndexer {
                         clinicalHaplotypeString,
                         traitsToEfoTermsMap);
 
-                rdb.put(normalisedVariantString.getBytes(), jsonObjectWriter.writeValueAsBytes(variantAnnotation));
+                put(normalisedVariantString.getBytes(), jsonObjectWriter.writeValueAsBytes(variantAnnotation));
             }
             return true;
         }
@@ -290,7 +400,7 @@ public class ClinVarIndexer extends ClinicalIndexer {
                             clinicalHaplotypeString, traitsToEfoTermsMap, accession, clinicalSignficanceDescription,
                             reviewStatusName, getObservedIn);
                 }
-                rdb.put(normalisedVariantString.getBytes(), jsonObjectWriter.writeValueAsBytes(variantAnnotation));
+                put(normalisedVariantString.getBytes(), jsonObjectWriter.writeValueAsBytes(variantAnnotation));
             }
             return true;
         }
@@ -406,9 +516,10 @@ public class ClinVarIndexer extends ClinicalIndexer {
             additionalProperties.add(new Property(null, GENOTYPESET, mateVariantString));
         }
 
-        String vcvId= publicSet.getReferenceClinVarAssertion().getMeasureSet().getAcc();
-        if (StringUtils.isNotEmpty(vcvId)) {
-            additionalProperties.add(new Property("VCV_ID", "VCV ID", vcvId));
+        // Records of compound variants have a GenotypeSet instead of a MeasureSet
+        MeasureSetType measureSet = publicSet.getReferenceClinVarAssertion().getMeasureSet();
+        if (measureSet != null && StringUtils.isNotEmpty(measureSet.getAcc())) {
+            additionalProperties.add(new Property("VCV_ID", "VCV ID", measureSet.getAcc()));
         }
 
         // This variant is part of an MNV (haplotype). Leave a flag of all variants that form the MNV
@@ -957,8 +1068,71 @@ public class ClinVarIndexer extends ClinicalIndexer {
         efoTerms.put(columns[0], new ClinVarIndexer.EFO(columns[2], columns[3], columns[1]));
     }
 
-    private JAXBElement<ReleaseType> unmarshalXML(Path clinvarXmlFile) throws JAXBException, IOException {
-        return (JAXBElement<ReleaseType>) ClinvarParser.loadXMLInfo(clinvarXmlFile.toString(), CLINVAR_CONTEXT);
+    /**
+     * Streams the records of one ClinVar XML chunk file into a bounded queue, so that parsing can run ahead of
+     * indexing without holding the whole file in memory.
+     */
+    private static class XmlChunkReader implements Runnable {
+
+        // Marks the end of the file, or an error, in the queue
+        private static final PublicSetType END_OF_FILE = new PublicSetType();
+
+        private final Path file;
+        private final BlockingQueue<PublicSetType> queue;
+        private volatile Exception exception;
+
+        XmlChunkReader(Path file) {
+            this.file = file;
+            this.queue = new ArrayBlockingQueue<>(XML_READER_QUEUE_SIZE);
+        }
+
+        @Override
+        public void run() {
+            try {
+                try (ClinVarXmlReader reader = new ClinVarXmlReader(file)) {
+                    PublicSetType publicSet;
+                    while ((publicSet = reader.read()) != null) {
+                        queue.put(publicSet);
+                    }
+                } catch (IOException | JAXBException | XMLStreamException | RuntimeException e) {
+                    exception = e;
+                }
+                queue.put(END_OF_FILE);
+            } catch (InterruptedException e) {
+                // Indexing has been aborted
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Waits for the next record of the file.
+         *
+         * @return the next record or null when all the records of the file have been returned
+         * @throws IOException if the file could not be read or the thread is interrupted
+         * @throws JAXBException if a record could not be unmarshalled
+         */
+        PublicSetType take() throws IOException, JAXBException {
+            PublicSetType publicSet;
+            try {
+                publicSet = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading " + file);
+            }
+            if (publicSet == END_OF_FILE) {
+                if (exception instanceof JAXBException) {
+                    throw (JAXBException) exception;
+                } else if (exception != null) {
+                    throw new IOException("Error reading " + file + ": " + exception.getMessage(), exception);
+                }
+                return null;
+            }
+            return publicSet;
+        }
+
+        Path getFile() {
+            return file;
+        }
     }
 
     class EFO {
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.builders.clinical.variant;
+
+import org.opencb.biodata.formats.variant.clinvar.rcv.v64jaxb.PublicSetType;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming reader for ClinVar full release XML files. Instead of unmarshalling the whole ReleaseSet, the file is
+ * traversed with StAX and only one ClinVarSet element is unmarshalled at a time, so memory usage does not depend on
+ * the size of the file. Records are returned as the same JAXB PublicSetType objects produced by
+ * ClinvarParser.loadXMLInfo.
+ *
+ * Instances are not thread safe, use one reader per file and thread.
+ */
+public class ClinVarXmlReader implements Closeable {
+
+    public static final String CLINVAR_CONTEXT = "org.opencb.biodata.formats.variant.clinvar.rcv.v64jaxb";
+    private static final String CLINVAR_SET_ELEMENT = "ClinVarSet";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY;
+    private static JAXBContext jaxbContext;
+
+    static {
+        XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        // ClinVar files do not need external entities nor DTDs
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final InputStream inputStream;
+    private final XMLStreamReader xmlStreamReader;
+    private final Unmarshaller unmarshaller;
+
+    public ClinVarXmlReader(Path clinvarXmlFile) throws IOException, JAXBException, XMLStreamException {
+        InputStream fileInputStream = new FileInputStream(clinvarXmlFile.toFile());
+        if (clinvarXmlFile.toString().endsWith(".gz")) {
+            fileInputStream = new GZIPInputStream(fileInputStream, 1 << 16);
+        }
+        this.inputStream = new BufferedInputStream(fileInputStream, 1 << 16);
+        this.xmlStreamReader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+        this.unmarshaller = getJaxbContext().createUnmarshaller();
+    }
+
+    private static synchronized JAXBContext getJaxbContext() throws JAXBException {
+        // JAXBContext creation is expensive and the context is thread safe, it is shared by all the readers
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(CLINVAR_CONTEXT);
+        }
+        return jaxbContext;
+    }
+
+    /**
+     * Reads the next ClinVarSet record of the file.
+     *
+     * @return the next record or null if there are no more records
+     * @throws JAXBException if the record can not be unmarshalled
+     * @throws XMLStreamException if the XML is malformed
+     */
+    public PublicSetType read() throws JAXBException, XMLStreamException {
+        // Unmarshalling leaves the reader on the event right after the END_ELEMENT of the previous record, which
+        // may already be the START_ELEMENT of the next one
+        while (!isClinVarSetStart()) {
+            if (!xmlStreamReader.hasNext()) {
+                return null;
+            }
+            xmlStreamReader.next();
+        }
+        return unmarshaller.unmarshal(xmlStreamReader, PublicSetType.class).getValue();
+    }
+
+    private boolean isClinVarSetStart() {
+        return xmlStreamReader.getEventType() == XMLStreamConstants.START_ELEMENT
+                && CLINVAR_SET_ELEMENT.equals(xmlStreamReader.getLocalName());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xmlStreamReader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -22,20 +22,17 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.opencb.biodata.formats.io.FileFormatException;
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
 import org.opencb.cellbase.core.config.SpeciesConfiguration;
 import org.opencb.cellbase.core.exception.CellBaseException;
 import org.opencb.cellbase.core.utils.SpeciesUtils;
-import org.opencb.cellbase.lib.EtlCommons;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
@@ -66,6 +63,7 @@ public class AbstractDownloadManager {
     protected Path downloadFolder;
     protected Path downloadLogFolder; // /download/log
     protected Path buildFolder; // <output>/<species>_<assembly>/generated-json
+    protected FileDownloader fileDownloader;
     protected Logger logger;
 
     public AbstractDownloadManager(String species, String assembly, Path outdir, CellBaseConfiguration configuration)
@@ -80,6 +78,7 @@ public class AbstractDownloadManager {
 
     private void init() throws CellBaseException, IOException {
         logger = LoggerFactory.getLogger(this.getClass());
+        fileDownloader = new FileDownloader();
 
         // Check Species
         this.speciesConfiguration = SpeciesUtils.getSpeciesConfiguration(configuration, species);
@@ -222,75 +221,66 @@ public class AbstractDownloadManager {
         return downloadFile(url, outputFileName, null);
     }
 
-    protected DownloadFile downloadFile(String url, String outputFileName, List<String> wgetAdditionalArgs)
-            throws IOException, InterruptedException {
+    /**
+     * Downloads a file and records its sizes and MD5 in the returned DownloadFile. The MD5 is checked against the one
+     * published in the checksum URL, if any, or against the Content-MD5 sent by the server.
+     *
+     * @param url URL to download
+     * @param outputFileName output file
+     * @param checksumUrl URL of a file containing the MD5 of the downloaded file, null if there is none
+     * @return the download status
+     * @throws IOException if the output file can not be accessed
+     * @throws InterruptedException if the thread is interrupted
+     */
+    protected DownloadFile downloadFile(String url, String outputFileName, String checksumUrl) throws IOException, InterruptedException {
         DownloadFile downloadFileInfo = new DownloadFile(url, outputFileName, Timestamp.valueOf(LocalDateTime.now()).toString());
         Long startTime = System.currentTimeMillis();
-        if (Paths.get(outputFileName).toFile().exists()) {
+        Path outputFile = Paths.get(outputFileName);
+        if (outputFile.toFile().exists()) {
+            // Downloads are written to a '.part' file, so the output file only exists if it was completely downloaded
             logger.warn("File '{}' is already downloaded", outputFileName);
-            setDownloadStatusAndMessage(outputFileName, downloadFileInfo, "File '" + outputFileName + "' is already downloaded", true);
+            downloadFileInfo.setExpectedFileSize(Files.size(outputFile))
+                    .setActualFileSize(Files.size(outputFile))
+                    .setStatus(DownloadFile.Status.OK)
+                    .setMessage("File '" + outputFileName + "' is already downloaded");
         } else {
-            final String outputLog = downloadLogFolder + "/" + Paths.get(outputFileName).toFile().getName() + ".log";
-            List<String> wgetArgs = new ArrayList<>(Arrays.asList("--tries=10", url, "-O", outputFileName, "-o", outputLog));
-            if (wgetAdditionalArgs != null && !wgetAdditionalArgs.isEmpty()) {
-                wgetArgs.addAll(wgetAdditionalArgs);
+            try {
+                String expectedMd5 = checksumUrl != null ? fileDownloader.getMd5(checksumUrl) : null;
+                FileDownloader.Result result = fileDownloader.download(url, outputFile);
+                downloadFileInfo.setExpectedFileSize(result.getExpectedSize())
+                        .setActualFileSize(result.getSize())
+                        .setMd5(result.getMd5());
+                if (expectedMd5 == null) {
+                    expectedMd5 = result.getExpectedMd5();
+                }
+
+                if (result.getExpectedSize() >= 0 && result.getExpectedSize() != result.getSize()) {
+                    downloadFileInfo.setStatus(DownloadFile.Status.ERROR);
+                    downloadFileInfo.setMessage("Expected downloaded file size " + downloadFileInfo.getExpectedFileSize()
+                            + ", Actual file size " + downloadFileInfo.getActualFileSize());
+                } else if (expectedMd5 != null && !expectedMd5.equalsIgnoreCase(result.getMd5())) {
+                    downloadFileInfo.setStatus(DownloadFile.Status.ERROR);
+                    downloadFileInfo.setMessage("Expected MD5 " + expectedMd5 + ", Actual MD5 " + result.getMd5());
+                } else {
+                    downloadFileInfo.setStatus(DownloadFile.Status.OK);
+                    downloadFileInfo.setMessage("File downloaded successfully");
+                }
+            } catch (IOException e) {
+                logger.error("Error downloading '{}': {}", url, e.getMessage());
+                downloadFileInfo.setStatus(DownloadFile.Status.ERROR);
+                downloadFileInfo.setMessage(e.getMessage());
             }
-            boolean downloaded = EtlCommons.runCommandLineProcess(null, "wget", wgetArgs, outputLog);
-            setDownloadStatusAndMessage(outputFileName, downloadFileInfo, outputLog, downloaded);
         }
         downloadFileInfo.setElapsedTime(startTime, System.currentTimeMillis());
         return downloadFileInfo;
     }
 
-    private void setDownloadStatusAndMessage(String outputFileName, DownloadFile downloadFile, String outputLog, boolean downloaded) {
-        if (downloaded) {
-            boolean validFileSize = validateDownloadFile(downloadFile, outputFileName, outputLog);
-            if (validFileSize) {
-                downloadFile.setStatus(DownloadFile.Status.OK);
-                downloadFile.setMessage("File downloaded successfully");
-            } else {
-                downloadFile.setStatus(DownloadFile.Status.ERROR);
-                downloadFile.setMessage("Expected downloaded file size " + downloadFile.getExpectedFileSize()
-                + ", Actual file size " + downloadFile.getActualFileSize());
-            }
-        } else {
-            downloadFile.setMessage("See full error message in " + outputLog);
-            downloadFile.setStatus(DownloadFile.Status.ERROR);
-            // because we use the -O flag, a file will be written, even on error. See #467
-//            Files.deleteIfExists((new File(outputFileName)).toPath());
-        }
-    }
-
     public static void writeDownloadLogFile(Path downloadFolder, List<DownloadFile> downloadFiles) throws IOException {
         ObjectMapper mapper = new ObjectMapper();
         ObjectWriter writer = mapper.writer(new DefaultPrettyPrinter());
         writer.writeValue(new File(downloadFolder + "/download_log.json"), downloadFiles);
     }
 
-    private boolean validateDownloadFile(DownloadFile downloadFile, String outputFileName, String outputFileLog) {
-        long expectedFileSize = getExpectedFileSize(outputFileLog);
-        long actualFileSize = FileUtils.sizeOf(new File(outputFileName));
-        downloadFile.setActualFileSize(actualFileSize);
-        downloadFile.setExpectedFileSize(expectedFileSize);
-        return expectedFileSize == actualFileSize;
-    }
-
-    private long getExpectedFileSize(String outputFileLog) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(outputFileLog))) {
-            String line = null;
-            while ((line = reader.readLine()) != null) {
-                // looking for: Length: 13846591 (13M)
-                if (line.startsWith("Length:")) {
-                    String[] parts = line.split("\\s");
-                    return Long.valueOf(parts[1]);
-                }
-            }
-        } catch (Exception e) {
-            logger.info("Error getting expected file size " + e.getMessage());
-        }
-        return -1;
-    }
-
     protected String getVersionFromVersionLine(Path path, String tag) {
         Files.exists(path);
         try {
@@ -25,6 +25,7 @@ public class DownloadFile {
     private String message;
     private long expectedFileSize;
     private long actualFileSize;
+    private String md5;
     private String outputFile;
     private String url;
 
@@ -79,6 +80,15 @@ public class DownloadFile {
         return this;
     }
 
+    public String getMd5() {
+        return md5;
+    }
+
+    public DownloadFile setMd5(String md5) {
+        this.md5 = md5;
+        return this;
+    }
+
     public String getOutputFile() {
         return outputFile;
     }
@@ -105,6 +115,7 @@ public class DownloadFile {
                 + ", message='" + message + '\''
                 + ", expectedFileSize=" + expectedFileSize
                 + ", actualFileSize=" + actualFileSize
+                + ", md5='" + md5 + '\''
                 + ", outputFile='" + outputFile + '\''
                 + ", url='" + url + '\''
                 + '}';
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.lib.download;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process HTTP(S)/FTP client used to download the data sources.
+ *
+ * Files are written to a '.part' file next to the output file and only renamed to the output file once they are
+ * complete. When the server accepts byte ranges an interrupted download resumes from the bytes already in the '.part'
+ * file, and files bigger than the segment threshold are downloaded through several connections at the same time, one
+ * '.part' file per segment. FTP URLs are downloaded through a single stream and restarted from the beginning.
+ *
+ * This class is thread-safe, the same instance can be used to download different files at the same time.
+ */
+public class FileDownloader {
+
+    public static final int DEFAULT_RETRIES = 10;
+    public static final int DEFAULT_SEGMENTS = 4;
+    public static final long DEFAULT_SEGMENT_THRESHOLD = 512L * 1024 * 1024;
+
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_REDIRECTS = 5;
+    private static final int MAX_RETRY_WAIT_SECONDS = 30;
+    private static final Pattern MD5_PATTERN = Pattern.compile("\\b[0-9a-fA-F]{32}\\b");
+
+    private int retries;
+    private int segments;
+    private long segmentThreshold;
+    private int connectTimeout;
+    private int readTimeout;
+
+    private final Logger logger;
+
+    public FileDownloader() {
+        this.retries = DEFAULT_RETRIES;
+        this.segments = DEFAULT_SEGMENTS;
+        this.segmentThreshold = DEFAULT_SEGMENT_THRESHOLD;
+        this.connectTimeout = 60_000;
+        this.readTimeout = 300_000;
+
+        this.logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    /**
+     * Result of a download: sizes and MD5 checksums of the downloaded file.
+     */
+    public static class Result {
+        private final long expectedSize;
+        private final long size;
+        private final String md5;
+        private final String expectedMd5;
+
+        Result(long expectedSize, long size, String md5, String expectedMd5) {
+            this.expectedSize = expectedSize;
+            this.size = size;
+            this.md5 = md5;
+            this.expectedMd5 = expectedMd5;
+        }
+
+        /**
+         * @return size reported by the server, -1 if unknown
+         */
+        public long getExpectedSize() {
+            return expectedSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getMd5() {
+            return md5;
+        }
+
+        /**
+         * @return MD5 reported by the server in the Content-MD5 header, null if not reported
+         */
+        public String getExpectedMd5() {
+            return expectedMd5;
+        }
+    }
+
+    /**
+     * Properties of the remote file, obtained from the server before downloading it.
+     */
+    private static class RemoteFile {
+        private final URL url;
+        private final long length;
+        private final boolean acceptRanges;
+        private final String md5;
+
+        RemoteFile(URL url, long length, boolean acceptRanges, String md5) {
+            this.url = url;
+            this.length = length;
+            this.acceptRanges = acceptRanges;
+            this.md5 = md5;
+        }
+    }
+
+    /**
+     * Downloads a URL into a file, resuming any previous partial download of the same file.
+     *
+     * @param url URL to download, http, https and ftp are supported
+     * @param outputFile file to write
+     * @return sizes and checksums of the downloaded file
+     * @throws IOException if the file can not be downloaded after all the retries
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public Result download(String url, Path outputFile) throws IOException, InterruptedException {
+        RemoteFile remoteFile = getRemoteFile(new URL(url));
+
+        if (segments > 1 && remoteFile.acceptRanges && remoteFile.length >= segmentThreshold) {
+            downloadSegments(remoteFile, outputFile);
+        } else {
+            Path partFile = getPartFile(outputFile, -1);
+            long expectedSize = downloadRange(remoteFile, partFile, 0, remoteFile.length);
+            Files.move(partFile, outputFile, StandardCopyOption.REPLACE_EXISTING);
+            if (remoteFile.length < 0) {
+                remoteFile = new RemoteFile(remoteFile.url, expectedSize, false, remoteFile.md5);
+            }
+        }
+
+        String md5;
+        try (InputStream inputStream = Files.newInputStream(outputFile)) {
+            md5 = DigestUtils.md5Hex(inputStream);
+        }
+        return new Result(remoteFile.length, Files.size(outputFile), md5, remoteFile.md5);
+    }
+
+    /**
+     * Reads the MD5 published by a checksum file, e.g. the '.md5' files next to the PubMed baseline files.
+     *
+     * @param url URL of the checksum file
+     * @return the first MD5 found in the file, null if there is none
+     * @throws IOException if the checksum file can not be read
+     */
+    public String getMd5(String url) throws IOException {
+        URLConnection connection = openConnection(getRemoteFile(new URL(url)).url, -1, -1);
+        try (InputStream inputStream = connection.getInputStream()) {
+            Matcher matcher = MD5_PATTERN.matcher(IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+            return matcher.find() ? matcher.group().toLowerCase() : null;
+        }
+    }
+
+    private void downloadSegments(RemoteFile remoteFile, Path outputFile) throws IOException, InterruptedException {
+        long segmentSize = (remoteFile.length + segments - 1) / segments;
+        logger.info("Downloading {} through {} connections", remoteFile.url, segments);
+
+        List<Path> partFiles = new ArrayList<>(segments);
+        ExecutorService executorService = Executors.newFixedThreadPool(segments);
+        try {
+            List<Future<Long>> futures = new ArrayList<>(segments);
+            for (int i = 0; i < segments; i++) {
+                long start = i * segmentSize;
+                long end = Math.min(remoteFile.length, start + segmentSize);
+                Path partFile = getPartFile(outputFile, i);
+                partFiles.add(partFile);
+                futures.add(executorService.submit(() -> downloadRange(remoteFile, partFile, start, end)));
+            }
+            for (Future<Long> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error downloading " + remoteFile.url, e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // Segments are kept until the whole file has been written, so a failure here does not lose the downloaded data
+        Path partFile = getPartFile(outputFile, -1);
+        try (FileChannel output = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Path segmentFile : partFiles) {
+                try (FileChannel input = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = input.size();
+                    while (position < size) {
+                        position += input.transferTo(position, size - position, output);
+                    }
+                }
+            }
+        }
+        Files.move(partFile, outputFile, StandardCopyOption.REPLACE_EXISTING);
+        for (Path segmentFile : partFiles) {
+            Files.deleteIfExists(segmentFile);
+        }
+    }
+
+    /**
+     * Downloads the bytes [start, end) of the remote file into the part file, appending to the bytes already in it
+     * when the server accepts byte ranges.
+     *
+     * @return the number of bytes of the range, -1 if unknown
+     */
+    private long downloadRange(RemoteFile remoteFile, Path partFile, long start, long end) throws IOException, InterruptedException {
+        long expectedSize = end < 0 ? -1 : end - start;
+        for (int attempt = 1; ; attempt++) {
+            long offset = Files.exists(partFile) ? Files.size(partFile) : 0;
+            if (offset > 0 && (!remoteFile.acceptRanges || (expectedSize >= 0 && offset > expectedSize))) {
+                offset = 0;
+            }
+            if (expectedSize >= 0 && offset == expectedSize) {
+                return expectedSize;
+            }
+
+            try {
+                URLConnection connection = remoteFile.acceptRanges
+                        ? openConnection(remoteFile.url, start + offset, end)
+                        : openConnection(remoteFile.url, -1, -1);
+                boolean append = offset > 0;
+                if (connection instanceof HttpURLConnection) {
+                    int responseCode = ((HttpURLConnection) connection).getResponseCode();
+                    if (responseCode == HttpURLConnection.HTTP_OK && (start > 0 || (end >= 0 && end < remoteFile.length))) {
+                        throw new IOException("Server ignored the byte range requested for " + remoteFile.url);
+                    }
+                    checkResponseCode(remoteFile.url, responseCode);
+                    append = append && responseCode == HttpURLConnection.HTTP_PARTIAL;
+                }
+                if (!append) {
+                    offset = 0;
+                }
+                if (expectedSize < 0 && connection.getContentLengthLong() >= 0) {
+                    expectedSize = offset + connection.getContentLengthLong();
+                }
+                if (offset > 0) {
+                    logger.info("Resuming download of {} from byte {}", remoteFile.url, start + offset);
+                }
+
+                try (InputStream inputStream = connection.getInputStream();
+                     OutputStream outputStream = append
+                             ? Files.newOutputStream(partFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                             : Files.newOutputStream(partFile)) {
+                    IOUtils.copyLarge(inputStream, outputStream, new byte[BUFFER_SIZE]);
+                }
+
+                long size = Files.size(partFile);
+                if (expectedSize >= 0 && size != expectedSize) {
+                    throw new IOException("Incomplete download of " + remoteFile.url + ", " + size + " out of " + expectedSize
+                            + " bytes");
+                }
+                return size;
+            } catch (FileNotFoundException e) {
+                // Missing files are not retried
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= retries) {
+                    throw e;
+                }
+                int wait = Math.min(attempt * 2, MAX_RETRY_WAIT_SECONDS);
+                logger.warn("Error downloading {} (attempt {} of {}): {}. Retrying in {} seconds", remoteFile.url, attempt, retries,
+                        e.getMessage(), wait);
+                Thread.sleep(wait * 1000L);
+            }
+        }
+    }
+
+    private RemoteFile getRemoteFile(URL url) throws IOException {
+        if (!isHttp(url)) {
+            // FTP does not support byte ranges through URLConnection, the length is taken from the download itself
+            return new RemoteFile(url, -1, false, null);
+        }
+
+        for (int redirects = 0; redirects <= MAX_REDIRECTS; redirects++) {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            // Redirects between http and https are not followed by HttpURLConnection
+            connection.setInstanceFollowRedirects(false);
+            int responseCode = connection.getResponseCode();
+            String location = connection.getHeaderField("Location");
+            connection.disconnect();
+
+            if (responseCode >= 300 && responseCode < 400 && location != null) {
+                url = new URL(url, location);
+                if (!isHttp(url)) {
+                    return new RemoteFile(url, -1, false, null);
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                return new RemoteFile(url, connection.getContentLengthLong(),
+                        "bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges")),
+                        getContentMd5(connection.getHeaderField("Content-MD5")));
+            } else {
+                // Some servers do not implement HEAD, the file is downloaded through a single connection
+                checkResponseCode(url, responseCode);
+                return new RemoteFile(url, -1, false, null);
+            }
+        }
+        throw new IOException("Too many redirects for " + url);
+    }
+
+    private URLConnection openConnection(URL url, long start, long end) throws IOException {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        if (connection instanceof HttpURLConnection && (start > 0 || end >= 0)) {
+            connection.setRequestProperty("Range", "bytes=" + start + "-" + (end >= 0 ? String.valueOf(end - 1) : ""));
+        }
+        return connection;
+    }
+
+    private void checkResponseCode(URL url, int responseCode) throws IOException {
+        if (responseCode == HttpURLConnection.HTTP_NOT_FOUND || responseCode == HttpURLConnection.HTTP_GONE) {
+            throw new FileNotFoundException("File not found: " + url);
+        }
+        if (responseCode >= 400 && responseCode != HttpURLConnection.HTTP_NOT_IMPLEMENTED
+                && responseCode != HttpURLConnection.HTTP_BAD_METHOD) {
+            throw new IOException("HTTP error " + responseCode + " downloading " + url);
+        }
+    }
+
+    private static boolean isHttp(URL url) {
+        return "http".equalsIgnoreCase(url.getProtocol()) || "https".equalsIgnoreCase(url.getProtocol());
+    }
+
+    private static Path getPartFile(Path outputFile, int segment) {
+        String suffix = segment < 0 ? PART_SUFFIX : PART_SUFFIX + segment;
+        return outputFile.resolveSibling(outputFile.getFileName() + suffix);
+    }
+
+    private static String getContentMd5(String contentMd5) {
+        if (contentMd5 == null) {
+            return null;
+        }
+        try {
+            // Content-MD5 is the base64 of the digest
+            StringBuilder sb = new StringBuilder();
+            for (byte b : Base64.getDecoder().decode(contentMd5.trim())) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public FileDownloader setRetries(int retries) {
+        this.retries = Math.max(1, retries);
+        return this;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public FileDownloader setSegments(int segments) {
+        this.segments = Math.max(1, segments);
+        return this;
+    }
+
+    public long getSegmentThreshold() {
+        return segmentThreshold;
+    }
+
+    public FileDownloader setSegmentThreshold(long segmentThreshold) {
+        this.segmentThreshold = segmentThreshold;
+        return this;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public FileDownloader setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public FileDownloader setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+}
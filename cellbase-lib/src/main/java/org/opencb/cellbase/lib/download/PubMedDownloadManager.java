@@ -58,7 +58,8 @@ public class PubMedDownloadManager extends AbstractDownloadManager {
         for (int i = start; i <= end; i++) {
             String filename = name[0] + String.format("%0" + padding + "d", i) + name[2];
             logger.info("\tDownloading file " + filename);
-            list.add(downloadFile(url + "/" + filename, pubmedFolder.resolve(filename).toString()));
+            // PubMed publishes the MD5 of each file in a '.md5' file next to it
+            list.add(downloadFile(url + "/" + filename, pubmedFolder.resolve(filename).toString(), url + "/" + filename + ".md5"));
         }
         return list;
     }
@@ -22,13 +22,11 @@ import org.opencb.cellbase.core.models.DataRelease;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class CellBaseDBAdaptor extends MongoDBAdaptor {
 
-    protected List<DataRelease> dataReleases;
+    private final String databaseName;
     protected Map<Integer, MongoDBCollection> mongoDBCollectionByRelease;
 
     public static final String DATA_RELEASE_SEPARATOR = "__v";
@@ -38,7 +36,18 @@ public class CellBaseDBAdaptor extends MongoDBAdaptor {
         return name;
     }
 
+    /**
+     * Returns the collections of the data for each data release. The map follows the data releases of the database:
+     * when they are refreshed, see DataReleaseRegistry, the map is rebuilt the next time it is read.
+     *
+     * @param data data name, e.g. gene
+     * @return map of data release to collection
+     */
     public Map<Integer, MongoDBCollection> buildCollectionByReleaseMap(String data) {
+        return new CollectionByReleaseMap(data);
+    }
+
+    private Map<Integer, MongoDBCollection> loadCollectionByReleaseMap(String data, List<DataRelease> dataReleases) {
         Map<Integer, MongoDBCollection> collectionMap = new HashMap<>();
         if (CollectionUtils.isNotEmpty(dataReleases)) {
             for (DataRelease dataRelease : dataReleases) {
@@ -52,40 +61,88 @@ public class CellBaseDBAdaptor extends MongoDBAdaptor {
             collectionMap.put(0, mongoDataStore.getCollection(data));
         }
 
-        return collectionMap;
+        return Collections.unmodifiableMap(collectionMap);
     }
 
     public MongoDBCollection getCollectionByRelease(Map<Integer, MongoDBCollection> collectionMap, Integer dataRelease)
             throws CellBaseException {
         int release = dataRelease == null ? 0 : dataRelease;
-        if (!collectionMap.containsKey(release)) {
+        // A single read, the map can be swapped by a data release refresh at any time
+        MongoDBCollection mongoDBCollection = collectionMap.get(release);
+        if (mongoDBCollection == null) {
             // If the data release is invalid, throw an exception
             String msg = "Data not found in release " + release + ". " + collectionMap.toString();
             logger.error(msg);
             throw new CellBaseException(msg);
         }
-        return collectionMap.get(release);
+        return mongoDBCollection;
     }
 
     public CellBaseDBAdaptor(MongoDataStore mongoDataStore) {
         super(mongoDataStore);
-        this.dataReleases = new ReleaseMongoDBAdaptor(mongoDataStore).getAll().getResults();
+        this.databaseName = mongoDataStore.getDatabaseName();
+        // Adaptors created after a new data release has been loaded also update the rest of adaptors of this database
+        DataReleaseRegistry.update(databaseName, new ReleaseMongoDBAdaptor(mongoDataStore).getAll().getResults());
+    }
+
+    /**
+     * Map of data release to collection backed by the current DataReleaseRegistry snapshot. Reads are served from an
+     * immutable map that is replaced as a whole when the snapshot version changes.
+     */
+    private class CollectionByReleaseMap extends AbstractMap<Integer, MongoDBCollection> {
+
+        private final String data;
+        // collections and the snapshot version they were built from, replaced together
+        private volatile Map.Entry<Long, Map<Integer, MongoDBCollection>> loaded;
+
+        CollectionByReleaseMap(String data) {
+            this.data = data;
+        }
+
+        private Map<Integer, MongoDBCollection> current() {
+            DataReleaseRegistry.Snapshot snapshot = DataReleaseRegistry.get(databaseName);
+            long snapshotVersion = snapshot == null ? -1 : snapshot.getVersion();
+            Map.Entry<Long, Map<Integer, MongoDBCollection>> entry = loaded;
+            if (entry == null || entry.getKey() != snapshotVersion) {
+                Map<Integer, MongoDBCollection> collectionMap = loadCollectionByReleaseMap(data,
+                        snapshot == null ? null : snapshot.getDataReleases());
+                entry = new AbstractMap.SimpleImmutableEntry<>(snapshotVersion, collectionMap);
+                loaded = entry;
+            }
+            return entry.getValue();
+        }
+
+        @Override
+        public MongoDBCollection get(Object key) {
+            return current().get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return current().containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<Integer, MongoDBCollection>> entrySet() {
+            return current().entrySet();
+        }
     }
 
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("CellBaseDBAdaptor{");
-        sb.append("dataRelease=").append(dataReleases);
+        sb.append("dataRelease=").append(getDataReleases());
         sb.append('}');
         return sb.toString();
     }
 
     public List<DataRelease> getDataReleases() {
-        return dataReleases;
+        DataReleaseRegistry.Snapshot snapshot = DataReleaseRegistry.get(databaseName);
+        return snapshot == null ? null : snapshot.getDataReleases();
     }
 
     public CellBaseDBAdaptor setDataReleases(List<DataRelease> dataReleases) {
-        this.dataReleases = dataReleases;
+        DataReleaseRegistry.update(databaseName, dataReleases);
         return this;
     }
 }
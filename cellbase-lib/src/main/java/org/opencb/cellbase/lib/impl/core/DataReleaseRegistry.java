@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.impl.core;
+
+import org.opencb.cellbase.core.models.DataRelease;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Data releases of each CellBase database, shared by all the adaptors of that database. Adaptors resolve the
+ * release -> collection mapping against the current snapshot, so when the data releases are refreshed every adaptor
+ * uses the new mapping in its next query without being rebuilt.
+ */
+public final class DataReleaseRegistry {
+
+    // key = database name
+    private static final Map<String, Snapshot> SNAPSHOTS = new ConcurrentHashMap<>();
+
+    /**
+     * Immutable list of data releases. The version changes every time the data releases of the database change.
+     */
+    public static final class Snapshot {
+        private final List<DataRelease> dataReleases;
+        private final String signature;
+        private final long version;
+
+        private Snapshot(List<DataRelease> dataReleases, String signature, long version) {
+            this.dataReleases = dataReleases;
+            this.signature = signature;
+            this.version = version;
+        }
+
+        public List<DataRelease> getDataReleases() {
+            return dataReleases;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    private DataReleaseRegistry() {
+    }
+
+    public static Snapshot get(String databaseName) {
+        return SNAPSHOTS.get(databaseName);
+    }
+
+    /**
+     * Publishes the data releases read from a database. The snapshot is only replaced when the releases, their
+     * collections or their default CellBase versions have changed.
+     *
+     * @param databaseName database name
+     * @param dataReleases data releases read from the data_release collection
+     * @return true if the snapshot has been replaced
+     */
+    public static boolean update(String databaseName, List<DataRelease> dataReleases) {
+        List<DataRelease> releases = dataReleases == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(dataReleases));
+        String signature = signature(releases);
+
+        boolean[] updated = new boolean[1];
+        SNAPSHOTS.compute(databaseName, (key, current) -> {
+            if (current != null && current.signature.equals(signature)) {
+                return current;
+            }
+            updated[0] = true;
+            return new Snapshot(releases, signature, current == null ? 0 : current.version + 1);
+        });
+        return updated[0];
+    }
+
+    private static String signature(List<DataRelease> dataReleases) {
+        // Only the fields used to resolve collections are compared, sorted so the signature does not depend on the order
+        StringBuilder sb = new StringBuilder();
+        List<DataRelease> sortedReleases = new ArrayList<>(dataReleases);
+        sortedReleases.sort(Comparator.comparingInt(DataRelease::getRelease));
+        for (DataRelease dataRelease : sortedReleases) {
+            sb.append(dataRelease.getRelease()).append(':');
+            if (dataRelease.getCollections() != null) {
+                sb.append(new TreeMap<>(dataRelease.getCollections()));
+            }
+            sb.append(':').append(dataRelease.getActiveByDefaultIn()).append(';');
+        }
+        return sb.toString();
+    }
+}
@@ -124,6 +124,23 @@ public class GeneMongoDBAdaptor extends CellBaseDBAdaptor implements CellBaseCor
         return new CellBaseMongoDBIterator<>(iterator);
     }
 
+    /**
+     * Iterates over the Ensembl genes targeted by at least one miRNA. Only gene id, name, biotype and the miRNA target
+     * ids are returned.
+     *
+     * @param dataRelease data release
+     * @return iterator over the targeted genes
+     * @throws CellBaseException if the data release is not valid
+     */
+    public CellBaseIterator<Gene> mirnaTargetIterator(int dataRelease) throws CellBaseException {
+        Bson query = Filters.exists("annotation.mirnaTargets.0");
+        Bson projection = Projections.include("id", "name", "biotype", "annotation.mirnaTargets.id",
+                "annotation.mirnaTargets.sourceId");
+        MongoDBCollection mongoDBCollection = getCollectionByRelease(mongoDBCollectionByRelease, dataRelease);
+        MongoDBIterator<Gene> iterator = mongoDBCollection.iterator(null, query, projection, CONVERTER, new QueryOptions());
+        return new CellBaseMongoDBIterator<>(iterator);
+    }
+
     @Override
     public CellBaseDataResult<String> distinct(GeneQuery geneQuery) throws CellBaseException {
         Bson bsonDocument = parseQuery(geneQuery);
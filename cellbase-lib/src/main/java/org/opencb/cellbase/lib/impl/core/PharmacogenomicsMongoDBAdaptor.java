@@ -18,12 +18,16 @@ package org.opencb.cellbase.lib.impl.core;
 
 import com.mongodb.client.model.Filters;
 import org.bson.Document;
+import org.apache.commons.collections4.CollectionUtils;
 import org.bson.conversions.Bson;
 import org.opencb.biodata.models.pharma.PharmaChemical;
+import org.opencb.biodata.models.pharma.PharmaVariantAnnotation;
+import org.opencb.biodata.models.variant.Variant;
 import org.opencb.cellbase.core.api.PharmaChemicalQuery;
 import org.opencb.cellbase.core.api.query.ProjectionQueryOptions;
 import org.opencb.cellbase.core.exception.CellBaseException;
 import org.opencb.cellbase.core.result.CellBaseDataResult;
+import org.opencb.cellbase.lib.builders.PharmacogenomicsVariantIndexBuilder;
 import org.opencb.cellbase.lib.iterator.CellBaseIterator;
 import org.opencb.cellbase.lib.iterator.CellBaseMongoDBIterator;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -33,9 +37,7 @@ import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.datastore.mongodb.MongoDBIterator;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Created by jtarraga on 9/4/23.
@@ -45,6 +47,8 @@ public class PharmacogenomicsMongoDBAdaptor extends CellBaseDBAdaptor
 
     private static final GenericDocumentComplexConverter<PharmaChemical> CONVERTER;
 
+    private Map<Integer, MongoDBCollection> variantIndexCollectionByRelease;
+
     static {
         CONVERTER = new GenericDocumentComplexConverter<>(PharmaChemical.class);
     }
@@ -57,6 +61,7 @@ public class PharmacogenomicsMongoDBAdaptor extends CellBaseDBAdaptor
 
     private void init() {
         mongoDBCollectionByRelease = buildCollectionByReleaseMap("pharmacogenomics");
+        variantIndexCollectionByRelease = buildCollectionByReleaseMap("pharmacogenomics_variant");
 
         logger.debug("PharmacogenomicsMongoDBAdaptor initialised");
     }
@@ -83,6 +88,88 @@ public class PharmacogenomicsMongoDBAdaptor extends CellBaseDBAdaptor
         return results;
     }
 
+    /**
+     * Checks whether the variant-keyed pharmacogenomics index was loaded for a data release.
+     *
+     * @param dataRelease data release
+     * @return true if the index is available
+     */
+    public boolean hasVariantIndex(int dataRelease) {
+        return variantIndexCollectionByRelease.containsKey(dataRelease);
+    }
+
+    /**
+     * Returns the chemicals with clinical annotations for each variant using the variant-keyed index, with one single
+     * query for the whole list. Each chemical only contains the clinical variant annotations matching the variant
+     * position and its HOM ALT genotype (or any genotype), see PharmacogenomicsVariantIndexBuilder.
+     *
+     * @param variants variants
+     * @param queryOptions projection options
+     * @param dataRelease data release
+     * @return one result per variant, in the same order
+     * @throws CellBaseException if the index is not available for the data release
+     */
+    public List<CellBaseDataResult<PharmaChemical>> getByVariants(List<Variant> variants, ProjectionQueryOptions queryOptions,
+                                                                  int dataRelease) throws CellBaseException {
+        long startTime = System.currentTimeMillis();
+        MongoDBCollection mongoDBCollection = getCollectionByRelease(variantIndexCollectionByRelease, dataRelease);
+
+        // Variants are grouped by location, several variants may share the same location with different alternates
+        Set<String> keys = new HashSet<>();
+        Map<String, List<Integer>> variantIndexesByLocation = new HashMap<>();
+        for (int i = 0; i < variants.size(); i++) {
+            Variant variant = variants.get(i);
+            keys.addAll(PharmacogenomicsVariantIndexBuilder.getQueryKeys(variant));
+            variantIndexesByLocation.computeIfAbsent(PharmacogenomicsVariantIndexBuilder.getLocationKey(variant.getChromosome(),
+                    variant.getStart()), k -> new ArrayList<>()).add(i);
+        }
+
+        List<Map<String, PharmaChemical>> chemicalsByVariant = new ArrayList<>(variants.size());
+        for (int i = 0; i < variants.size(); i++) {
+            chemicalsByVariant.add(new LinkedHashMap<>());
+        }
+
+        Bson query = Filters.in(PharmacogenomicsVariantIndexBuilder.VARIANT_KEYS_FIELD, keys);
+        Bson projection = getProjection(queryOptions);
+        for (PharmaChemical document : mongoDBCollection.find(query, projection, CONVERTER, new QueryOptions()).getResults()) {
+            if (CollectionUtils.isEmpty(document.getVariants())) {
+                continue;
+            }
+            PharmaVariantAnnotation pharmaVariantAnnotation = document.getVariants().get(0);
+            List<Integer> variantIndexes = variantIndexesByLocation.get(PharmacogenomicsVariantIndexBuilder
+                    .getLocationKey(pharmaVariantAnnotation.getChromosome(), pharmaVariantAnnotation.getPosition()));
+            if (variantIndexes == null) {
+                continue;
+            }
+            for (int variantIndex : variantIndexes) {
+                // Index documents contain one clinical annotation, they are merged back into one chemical per variant
+                Map<String, PharmaChemical> chemicals = chemicalsByVariant.get(variantIndex);
+                PharmaChemical pharmaChemical = chemicals.get(document.getId());
+                if (pharmaChemical == null) {
+                    pharmaChemical = new PharmaChemical();
+                    pharmaChemical.setId(document.getId());
+                    pharmaChemical.setName(document.getName());
+                    pharmaChemical.setSource(document.getSource());
+                    pharmaChemical.setTypes(document.getTypes());
+                    pharmaChemical.setSmiles(document.getSmiles());
+                    pharmaChemical.setInChI(document.getInChI());
+                    pharmaChemical.setVariants(new ArrayList<>());
+                    chemicals.put(document.getId(), pharmaChemical);
+                }
+                pharmaChemical.getVariants().add(pharmaVariantAnnotation);
+            }
+        }
+
+        int time = (int) (System.currentTimeMillis() - startTime);
+        List<CellBaseDataResult<PharmaChemical>> results = new ArrayList<>(variants.size());
+        for (int i = 0; i < variants.size(); i++) {
+            List<PharmaChemical> pharmaChemicals = new ArrayList<>(chemicalsByVariant.get(i).values());
+            results.add(new CellBaseDataResult<>(variants.get(i).toString(), time, Collections.emptyList(), pharmaChemicals.size(),
+                    pharmaChemicals, pharmaChemicals.size()));
+        }
+        return results;
+    }
+
     @Override
     public CellBaseIterator<PharmaChemical> iterator(PharmaChemicalQuery query) throws CellBaseException {
         Bson bson = parseQuery(query);
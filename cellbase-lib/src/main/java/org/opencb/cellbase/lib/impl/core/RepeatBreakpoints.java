@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.impl.core;
+
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.avro.Repeat;
+
+import java.util.*;
+
+/**
+ * Interval logic of RepeatsMongoDBAdaptor.getByBreakpoints, kept apart from the database queries. The breakpoints of a
+ * batch of variants are merged per chromosome into a few covering ranges, and the repeats found in those ranges are
+ * assigned back to the variants whose breakpoints they overlap.
+ */
+final class RepeatBreakpoints {
+
+    // key = chromosome, value = breakpoints sorted by start
+    private final Map<String, List<Breakpoint>> breakpointsByChromosome;
+    private final List<Set<Repeat>> repeatsByVariant;
+    private final int maxMergeDistance;
+
+    /**
+     * Groups the breakpoints by chromosome.
+     *
+     * @param breakpointsList list of breakpoint regions of each variant, e.g. one region for SNVs and two for CNVs
+     * @param maxMergeDistance breakpoints closer than this are merged into the same range
+     */
+    RepeatBreakpoints(List<List<Region>> breakpointsList, int maxMergeDistance) {
+        this.maxMergeDistance = maxMergeDistance;
+
+        // Breakpoints are flattened keeping the index of the variant they belong to
+        breakpointsByChromosome = new LinkedHashMap<>();
+        repeatsByVariant = new ArrayList<>(breakpointsList.size());
+        for (int i = 0; i < breakpointsList.size(); i++) {
+            for (Region region : breakpointsList.get(i)) {
+                breakpointsByChromosome.computeIfAbsent(region.getChromosome(), k -> new ArrayList<>())
+                        .add(new Breakpoint(region.getStart(), region.getEnd(), i));
+            }
+            repeatsByVariant.add(new LinkedHashSet<>());
+        }
+        for (List<Breakpoint> breakpoints : breakpointsByChromosome.values()) {
+            breakpoints.sort(Comparator.comparingInt((Breakpoint b) -> b.start));
+        }
+    }
+
+    Set<String> getChromosomes() {
+        return breakpointsByChromosome.keySet();
+    }
+
+    /**
+     * Merges close breakpoints of one chromosome into covering ranges.
+     *
+     * @param chromosome chromosome
+     * @return ranges sorted by start, every breakpoint of the chromosome is contained in one of them
+     */
+    List<Region> getRanges(String chromosome) {
+        List<Region> ranges = new ArrayList<>();
+        Region range = null;
+        for (Breakpoint breakpoint : breakpointsByChromosome.getOrDefault(chromosome, Collections.emptyList())) {
+            if (range != null && breakpoint.start <= range.getEnd() + maxMergeDistance) {
+                range.setEnd(Math.max(range.getEnd(), breakpoint.end));
+            } else {
+                range = new Region(chromosome, breakpoint.start, breakpoint.end);
+                ranges.add(range);
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Assigns the repeats found in the ranges of one chromosome to the variants with an overlapping breakpoint.
+     *
+     * @param chromosome chromosome
+     * @param repeats repeats overlapping the ranges of the chromosome, in any order
+     */
+    void assign(String chromosome, List<Repeat> repeats) {
+        List<Repeat> sortedRepeats = new ArrayList<>(repeats);
+        sortedRepeats.sort(Comparator.comparingInt(Repeat::getStart));
+
+        // Sweep-line: breakpoints and repeats are both sorted by start. A repeat ending before the current breakpoint
+        // start can not overlap any of the next breakpoints either and leaves the active list
+        List<Repeat> activeRepeats = new LinkedList<>();
+        int nextRepeat = 0;
+        for (Breakpoint breakpoint : breakpointsByChromosome.getOrDefault(chromosome, Collections.emptyList())) {
+            while (nextRepeat < sortedRepeats.size() && sortedRepeats.get(nextRepeat).getStart() <= breakpoint.end) {
+                activeRepeats.add(sortedRepeats.get(nextRepeat++));
+            }
+            Iterator<Repeat> iterator = activeRepeats.iterator();
+            while (iterator.hasNext()) {
+                Repeat repeat = iterator.next();
+                if (repeat.getEnd() < breakpoint.start) {
+                    iterator.remove();
+                } else if (repeat.getStart() <= breakpoint.end) {
+                    repeatsByVariant.get(breakpoint.variantIndex).add(repeat);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the distinct repeats overlapping any of the breakpoints of a variant.
+     *
+     * @param variantIndex index of the variant in the breakpoints list
+     * @return repeats, without duplicates
+     */
+    List<Repeat> getRepeats(int variantIndex) {
+        return new ArrayList<>(repeatsByVariant.get(variantIndex));
+    }
+
+    private static class Breakpoint {
+        private final int start;
+        private final int end;
+        private final int variantIndex;
+
+        Breakpoint(int start, int end, int variantIndex) {
+            this.start = start;
+            this.end = end;
+            this.variantIndex = variantIndex;
+        }
+    }
+}
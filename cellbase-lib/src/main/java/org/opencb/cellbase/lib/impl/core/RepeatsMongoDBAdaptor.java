@@ -19,6 +19,7 @@ package org.opencb.cellbase.lib.impl.core;
 import com.mongodb.client.model.Filters;
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.avro.Repeat;
 import org.opencb.cellbase.core.api.RepeatsQuery;
 import org.opencb.cellbase.core.api.query.ProjectionQueryOptions;
@@ -34,9 +35,7 @@ import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.datastore.mongodb.MongoDBIterator;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Created by fjlopez on 10/05/17.
@@ -44,6 +43,9 @@ import java.util.Map;
 public class RepeatsMongoDBAdaptor extends CellBaseDBAdaptor implements CellBaseCoreDBAdaptor<RepeatsQuery, Repeat> {
 
     private static final String REPEAT_COLLECTION = "repeats";
+    // Breakpoints closer than this are queried as one single range, a few extra repeats are cheaper than another range
+    private static final int MAX_MERGE_DISTANCE = 5000;
+    private static final GenericDocumentComplexConverter<Repeat> CONVERTER = new GenericDocumentComplexConverter<>(Repeat.class);
 
     public RepeatsMongoDBAdaptor(MongoDataStore mongoDatastore) {
         super(mongoDatastore);
@@ -88,14 +90,50 @@ public class RepeatsMongoDBAdaptor extends CellBaseDBAdaptor implements CellBase
         }
     }
 
+    /**
+     * Returns the repeats overlapping the breakpoints of a batch of variants. Breakpoints are grouped by chromosome and
+     * merged into a few covering ranges, so the whole batch costs one query per chromosome instead of one per
+     * breakpoint. Repeats are then assigned back to each breakpoint with a sweep-line over both sorted lists.
+     *
+     * @param breakpointsList list of breakpoint regions of each variant, e.g. one region for SNVs and two for CNVs
+     * @param dataRelease data release
+     * @return one result per variant with the distinct repeats overlapping any of its breakpoints
+     * @throws CellBaseException if the data release is not valid
+     */
+    public List<CellBaseDataResult<Repeat>> getByBreakpoints(List<List<Region>> breakpointsList, int dataRelease)
+            throws CellBaseException {
+        long startTime = System.currentTimeMillis();
+        MongoDBCollection mongoDBCollection = getCollectionByRelease(mongoDBCollectionByRelease, dataRelease);
+
+        RepeatBreakpoints repeatBreakpoints = new RepeatBreakpoints(breakpointsList, MAX_MERGE_DISTANCE);
+        for (String chromosome : repeatBreakpoints.getChromosomes()) {
+            // One query for each chromosome, close breakpoints are merged into covering ranges
+            List<Region> ranges = repeatBreakpoints.getRanges(chromosome);
+            RepeatsQuery query = new RepeatsQuery();
+            query.setRegions(ranges);
+            List<Bson> andBsonList = new ArrayList<>();
+            createRegionQuery(query, ranges, MongoDBCollectionConfiguration.REPEATS_CHUNK_SIZE, andBsonList);
+            repeatBreakpoints.assign(chromosome, mongoDBCollection.find(andBsonList.get(0), null, CONVERTER, new QueryOptions())
+                    .getResults());
+        }
+
+        int time = (int) (System.currentTimeMillis() - startTime);
+        List<CellBaseDataResult<Repeat>> results = new ArrayList<>(breakpointsList.size());
+        for (int i = 0; i < breakpointsList.size(); i++) {
+            List<Repeat> repeats = repeatBreakpoints.getRepeats(i);
+            String id = breakpointsList.get(i).isEmpty() ? "" : breakpointsList.get(i).get(0).toString();
+            results.add(new CellBaseDataResult<>(id, time, Collections.emptyList(), repeats.size(), repeats, repeats.size()));
+        }
+        return results;
+    }
+
     @Override
     public CellBaseIterator iterator(RepeatsQuery query) throws CellBaseException {
         Bson bson = parseQuery(query);
         QueryOptions queryOptions = query.toQueryOptions();
         Bson projection = getProjection(query);
-        GenericDocumentComplexConverter<Repeat> converter = new GenericDocumentComplexConverter<>(Repeat.class);
         MongoDBCollection mongoDBCollection = getCollectionByRelease(mongoDBCollectionByRelease, query.getDataRelease());
-        MongoDBIterator<Repeat> iterator = mongoDBCollection.iterator(null, bson, projection, converter, queryOptions);
+        MongoDBIterator<Repeat> iterator = mongoDBCollection.iterator(null, bson, projection, CONVERTER, queryOptions);
         return new CellBaseMongoDBIterator<>(iterator);
     }
 
@@ -128,7 +128,7 @@ public class IndexManager {
         }
     }
 
-    private void checkIndexes() throws IOException {
+    private synchronized void checkIndexes() throws IOException {
         if (indexes == null) {
             indexes = getIndexesFromFile();
         }
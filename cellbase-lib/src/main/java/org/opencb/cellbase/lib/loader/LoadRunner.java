@@ -51,12 +51,9 @@ public class LoadRunner {
 
     protected DataReleaseManager dataReleaseManager;
 
-    protected BlockingQueue<List<String>> blockingQueue;
-
     private final Logger logger;
 
     private static final int QUEUE_CAPACITY = 10;
-    private int batchSize;
     public static final List<String> POISON_PILL = new ArrayList<>();
 
 
@@ -68,8 +65,6 @@ public class LoadRunner {
         this.dataReleaseManager = dataReleaseManager;
         this.cellBaseConfiguration = cellBaseConfiguration;
 
-        this.blockingQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
-
         logger = LoggerFactory.getLogger(this.getClass());
     }
 
@@ -80,13 +75,34 @@ public class LoadRunner {
         load(filePath, data, 0, null, null);
     }
 
-    public void load(Path filePath, String data, int dataRelease) throws ClassNotFoundException, NoSuchMethodException,
+    public int load(Path filePath, String data, int dataRelease) throws ClassNotFoundException, NoSuchMethodException,
             InstantiationException, IllegalAccessException, InvocationTargetException, ExecutionException, InterruptedException,
             IOException, CellBaseException, LoaderException {
-        load(filePath, data, dataRelease, null, null);
+        return load(filePath, data, dataRelease, null, null);
     }
 
-    public void load(Path filePath, String data, int dataRelease, String field, String[] innerFields)
+    /**
+     * Loads a JSON file into the collection of the given data. The queue and batch size are local to each call, so
+     * different files can be loaded at the same time with the same LoadRunner.
+     *
+     * @param filePath JSON file, gzipped or not
+     * @param data data, i.e. collection, to load
+     * @param dataRelease data release to load into
+     * @param field field to update, null to insert whole documents
+     * @param innerFields inner fields of the field to update
+     * @return the number of records loaded into the database
+     * @throws ClassNotFoundException if the loader class does not exist
+     * @throws NoSuchMethodException if the loader class has no valid constructor
+     * @throws InstantiationException if the loader can not be created
+     * @throws IllegalAccessException if the loader can not be created
+     * @throws InvocationTargetException if the loader can not be created
+     * @throws ExecutionException if a loader fails
+     * @throws InterruptedException if the thread is interrupted
+     * @throws IOException if the file does not exist
+     * @throws CellBaseException if the data release is not valid
+     * @throws LoaderException if a loader fails
+     */
+    public int load(Path filePath, String data, int dataRelease, String field, String[] innerFields)
             throws ClassNotFoundException, NoSuchMethodException, InstantiationException, IllegalAccessException, InvocationTargetException,
             ExecutionException, InterruptedException, IOException, CellBaseException, LoaderException {
 
@@ -100,11 +116,13 @@ public class LoadRunner {
         // protein_functional_prediction documents are extremely big. Increasing the batch size will probably
         // lead to an OutOfMemory error for this collection. Batch size can be much higher for the rest of
         // collections though
+        int batchSize;
         if (data.equals(PROTEIN_FUNCTIONAL_PREDICTION)) {
             batchSize = 50;
         } else {
             batchSize = 200;
         }
+        BlockingQueue<List<String>> blockingQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
 
         // One CellBaseLoader is created for each thread in 'numThreads' variable
         List<CellBaseLoader> cellBaseLoaders = new ArrayList<>(numThreads);
@@ -132,7 +150,7 @@ public class LoadRunner {
          * Execution starts by reading the file and loading batches to the blockingQueue. This makes the loaders
          * to start fetching and loading batches into the database. The number of records processed is returned.
          */
-        int processedRecords = readInputJsonFile(filePath);
+        int processedRecords = readInputJsonFile(filePath, blockingQueue, batchSize);
         // Check if all the records have been loaded
         int loadedRecords = 0;
         for (Future<Integer> future : futures) {
@@ -154,6 +172,7 @@ public class LoadRunner {
         }
 
         executorService.shutdown();
+        return loadedRecords;
     }
 
     private void checkDataRelease(int release, DataReleaseManager dataReleaseManager) throws CellBaseException {
@@ -172,7 +191,7 @@ public class LoadRunner {
         }
     }
 
-    private int readInputJsonFile(Path inputFile) {
+    private int readInputJsonFile(Path inputFile, BlockingQueue<List<String>> blockingQueue, int batchSize) {
         int inputFileRecords = 0;
         try {
             BufferedReader br;
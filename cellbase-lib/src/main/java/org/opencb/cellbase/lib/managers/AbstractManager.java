@@ -97,6 +97,10 @@ public class AbstractManager implements AutoCloseable {
         return queries;
     }
 
+    public String getDatabaseName() {
+        return mongoDatastore.getDatabaseName();
+    }
+
     @Override
     public void close()  {
         mongoDBManager.close();
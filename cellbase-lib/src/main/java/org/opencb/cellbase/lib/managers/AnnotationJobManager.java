@@ -0,0 +1,443 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.managers;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.cellbase.core.config.AnnotationJobProperties;
+import org.opencb.cellbase.core.exception.CellBaseException;
+import org.opencb.cellbase.core.models.AnnotationJob;
+import org.opencb.cellbase.core.result.CellBaseDataResult;
+import org.opencb.cellbase.lib.variant.annotation.VariantAnnotationCalculator;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Runs variant annotation jobs asynchronously. Submitted jobs are stored in a bounded queue and run by a fixed pool of
+ * workers, each one reusing a VariantAnnotationCalculator over batches of variants. Inputs and results are written to
+ * local disk, so the REST request threads only submit the job and then poll its status and fetch result pages.
+ * Finished jobs are removed after the configured retention time. Jobs finished before a restart are reloaded, jobs
+ * interrupted by the restart are removed.
+ */
+public class AnnotationJobManager implements AutoCloseable {
+
+    private static final String INPUT_FILENAME = "input.txt";
+    private static final String OUTPUT_FILENAME = "annotations.json";
+    // Finished job, written last so that jobs can be reloaded after a restart
+    private static final String JOB_FILENAME = "job.json";
+    private static final String DATE_FORMAT = "yyyyMMdd_HHmmss";
+    // A result offset is kept every OFFSET_INTERVAL annotations, so a page is read from the nearest offset
+    private static final int OFFSET_INTERVAL = 1000;
+
+    private final AnnotationJobProperties properties;
+    private final Path outputDir;
+    private final ThreadPoolExecutor executorService;
+    private final ScheduledExecutorService cleanerService;
+
+    private final Map<String, AnnotationJob> jobs;
+    private final Map<String, Long> jobEndTimes;
+    // key = job ID, value = byte offsets in the results file of annotations 0, OFFSET_INTERVAL, 2 * OFFSET_INTERVAL...
+    private final Map<String, List<Long>> resultOffsets;
+
+    private final ObjectMapper jsonObjectMapper;
+    private final ObjectWriter jsonObjectWriter;
+
+    private final Logger logger = LoggerFactory.getLogger(AnnotationJobManager.class);
+
+    /**
+     * Annotates a batch of variants, VariantAnnotationCalculator.getAnnotationByVariantList for REST jobs.
+     */
+    interface BatchAnnotator {
+        List<CellBaseDataResult<VariantAnnotation>> annotate(List<Variant> variants, QueryOptions queryOptions) throws Exception;
+    }
+
+    public AnnotationJobManager(AnnotationJobProperties properties) throws CellBaseException {
+        this.properties = properties != null ? properties : new AnnotationJobProperties();
+        this.outputDir = Paths.get(this.properties.getOutputDir());
+        try {
+            Files.createDirectories(outputDir);
+        } catch (IOException e) {
+            throw new CellBaseException("Impossible to create annotation job directory " + outputDir + ": " + e.getMessage());
+        }
+
+        int numThreads = Math.max(1, this.properties.getNumThreads());
+        int queueSize = Math.max(1, this.properties.getQueueSize());
+        // Daemon threads, so jobs never prevent the JVM from stopping even if close() is not called
+        this.executorService = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> newDaemonThread(runnable, "cellbase-annotation-job"));
+
+        this.jobs = new ConcurrentHashMap<>();
+        this.jobEndTimes = new ConcurrentHashMap<>();
+        this.resultOffsets = new ConcurrentHashMap<>();
+
+        this.jsonObjectMapper = new ObjectMapper();
+        jsonObjectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        jsonObjectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+        jsonObjectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.jsonObjectWriter = jsonObjectMapper.writer();
+
+        loadJobs();
+
+        // Expired jobs are checked every 10 minutes
+        this.cleanerService = Executors.newSingleThreadScheduledExecutor(runnable -> newDaemonThread(runnable,
+                "cellbase-annotation-job-cleaner"));
+        cleanerService.scheduleWithFixedDelay(this::removeExpiredJobs, 10, 10, TimeUnit.MINUTES);
+
+        logger.info("Annotation job manager started: {}", this.properties);
+    }
+
+    /**
+     * Stores the variants in the local job directory and queues the annotation job.
+     *
+     * @param variantManager variant manager for the job species and assembly
+     * @param species species
+     * @param assembly assembly
+     * @param variants input stream with the variants, either comma or new line separated variant strings
+     * @param queryOptions annotation options, see VariantManager.initAnnotationQueryOptions
+     * @param dataRelease data release
+     * @param token data access token
+     * @return the job created, with status QUEUED
+     * @throws CellBaseException if the input can not be stored or the job queue is full
+     */
+    public AnnotationJob submit(VariantManager variantManager, String species, String assembly, InputStream variants,
+                                QueryOptions queryOptions, int dataRelease, String token) throws CellBaseException {
+        VariantAnnotationCalculator variantAnnotationCalculator = variantManager.getVariantAnnotationCalculator(dataRelease, token);
+        return submit(species, assembly, variants, queryOptions, dataRelease, variantManager::parseVariant,
+                variantAnnotationCalculator::getAnnotationByVariantList);
+    }
+
+    AnnotationJob submit(String species, String assembly, InputStream variants, QueryOptions queryOptions, int dataRelease,
+                         Function<String, Variant> variantParser, BatchAnnotator batchAnnotator) throws CellBaseException {
+        String jobId = UUID.randomUUID().toString();
+        Path jobDir = outputDir.resolve(jobId);
+        try {
+            Files.createDirectories(jobDir);
+            Files.copy(variants, jobDir.resolve(INPUT_FILENAME), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteJobDir(jobDir);
+            throw new CellBaseException("Impossible to store the variants for annotation job " + jobId + ": " + e.getMessage());
+        }
+
+        AnnotationJob job = new AnnotationJob(jobId, species, assembly, dataRelease, now());
+        jobs.put(jobId, job);
+        try {
+            executorService.execute(() -> run(job, variantParser, batchAnnotator, new QueryOptions(queryOptions), jobDir));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            deleteJobDir(jobDir);
+            throw new CellBaseException("Annotation job queue is full (" + properties.getQueueSize() + " jobs), please try again later");
+        }
+        logger.info("Annotation job {} submitted", jobId);
+        return job;
+    }
+
+    private void run(AnnotationJob job, Function<String, Variant> variantParser, BatchAnnotator batchAnnotator,
+                     QueryOptions queryOptions, Path jobDir) {
+        job.setStatus(AnnotationJob.Status.RUNNING);
+        job.setStartDate(now());
+        int batchSize = properties.getBatchSize() > 0 ? properties.getBatchSize() : AnnotationJobProperties.DEFAULT_BATCH_SIZE;
+
+        List<Long> offsets = new ArrayList<>();
+        AnnotationJob.Status status = AnnotationJob.Status.ERROR;
+        try (BufferedReader bufferedReader = Files.newBufferedReader(jobDir.resolve(INPUT_FILENAME), StandardCharsets.UTF_8);
+             CountingOutputStream outputStream = new CountingOutputStream(new BufferedOutputStream(
+                     Files.newOutputStream(jobDir.resolve(OUTPUT_FILENAME))))) {
+            List<Variant> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                for (String variantString : line.split(",")) {
+                    if (StringUtils.isNotBlank(variantString)) {
+                        batch.add(variantParser.apply(variantString.trim()));
+                    }
+                    if (batch.size() >= batchSize) {
+                        annotate(job, batchAnnotator, batch, queryOptions, outputStream, offsets);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                annotate(job, batchAnnotator, batch, queryOptions, outputStream, offsets);
+            }
+            outputStream.flush();
+            resultOffsets.put(job.getId(), offsets);
+            status = AnnotationJob.Status.DONE;
+            logger.info("Annotation job {} finished: {} variants annotated", job.getId(), job.getNumVariants());
+        } catch (Exception e) {
+            logger.error("Annotation job " + job.getId() + " failed", e);
+            job.setErrorMessage(e.toString());
+        } finally {
+            job.setEndDate(now());
+            jobEndTimes.put(job.getId(), System.currentTimeMillis());
+            try {
+                // Input is not needed anymore, only results are kept
+                Files.deleteIfExists(jobDir.resolve(INPUT_FILENAME));
+            } catch (IOException e) {
+                logger.warn("Impossible to delete input file of annotation job {}: {}", job.getId(), e.getMessage());
+            }
+            writeJob(job, status, jobDir);
+            // Status is changed last, once the job is finished it can be deleted or expire
+            job.setStatus(status);
+        }
+    }
+
+    private void writeJob(AnnotationJob job, AnnotationJob.Status status, Path jobDir) {
+        Path jobFile = jobDir.resolve(JOB_FILENAME);
+        Path tmpJobFile = jobDir.resolve(JOB_FILENAME + ".tmp");
+        try {
+            ObjectNode jobNode = jsonObjectMapper.valueToTree(job);
+            jobNode.put("status", status.name());
+            Files.write(tmpJobFile, jsonObjectWriter.writeValueAsBytes(jobNode));
+            // A job file is never seen half-written, jobs without it are removed on restart
+            Files.move(tmpJobFile, jobFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Impossible to store annotation job {}, it will be lost on restart: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reloads the jobs finished before a restart from their job directories. Job directories without a finished job
+     * belong to jobs that were queued or running when the server stopped, they can not be resumed and are removed.
+     */
+    private void loadJobs() {
+        File[] jobDirs = outputDir.toFile().listFiles(File::isDirectory);
+        if (jobDirs == null) {
+            return;
+        }
+        for (File jobDir : jobDirs) {
+            String jobId = jobDir.getName();
+            try {
+                UUID.fromString(jobId);
+            } catch (IllegalArgumentException e) {
+                // Not a job directory
+                continue;
+            }
+
+            Path jobFile = jobDir.toPath().resolve(JOB_FILENAME);
+            if (!Files.exists(jobFile)) {
+                logger.warn("Removing annotation job {} interrupted by a restart", jobId);
+                deleteJobDir(jobDir.toPath());
+                continue;
+            }
+            try {
+                AnnotationJob job = jsonObjectMapper.readValue(jobFile.toFile(), AnnotationJob.class);
+                if (job.getStatus() == AnnotationJob.Status.DONE) {
+                    List<Long> offsets = readResultOffsets(jobDir.toPath().resolve(OUTPUT_FILENAME), job.getNumAnnotations());
+                    resultOffsets.put(jobId, offsets);
+                } else if (job.getStatus() != AnnotationJob.Status.ERROR) {
+                    throw new IOException("unexpected status " + job.getStatus());
+                }
+                jobs.put(jobId, job);
+                jobEndTimes.put(jobId, Files.getLastModifiedTime(jobFile).toMillis());
+            } catch (IOException e) {
+                logger.warn("Removing annotation job {}, impossible to reload it: {}", jobId, e.getMessage());
+                resultOffsets.remove(jobId);
+                deleteJobDir(jobDir.toPath());
+            }
+        }
+        if (!jobs.isEmpty()) {
+            logger.info("{} annotation jobs reloaded from {}", jobs.size(), outputDir);
+        }
+    }
+
+    private List<Long> readResultOffsets(Path outputFile, long numAnnotations) throws IOException {
+        // Same offsets written while running the job: the start of annotations 0, OFFSET_INTERVAL, 2 * OFFSET_INTERVAL...
+        List<Long> offsets = new ArrayList<>();
+        long counter = 0;
+        long position = 0;
+        boolean lineStart = true;
+        byte[] buffer = new byte[65536];
+        try (InputStream inputStream = Files.newInputStream(outputFile)) {
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                for (int i = 0; i < length; i++) {
+                    if (lineStart) {
+                        if (counter % OFFSET_INTERVAL == 0) {
+                            offsets.add(position + i);
+                        }
+                        counter++;
+                        lineStart = false;
+                    }
+                    if (buffer[i] == '\n') {
+                        lineStart = true;
+                    }
+                }
+                position += length;
+            }
+        }
+        if (counter != numAnnotations) {
+            throw new IOException(counter + " annotations found in " + outputFile + ", expected " + numAnnotations);
+        }
+        return offsets;
+    }
+
+    private void annotate(AnnotationJob job, BatchAnnotator batchAnnotator, List<Variant> batch, QueryOptions queryOptions,
+                          CountingOutputStream outputStream, List<Long> offsets) throws Exception {
+        // VariantAnnotationCalculator modifies the options received, a copy is used for each batch
+        List<CellBaseDataResult<VariantAnnotation>> results = batchAnnotator.annotate(batch, new QueryOptions(queryOptions));
+        for (CellBaseDataResult<VariantAnnotation> result : results) {
+            if (result.getResults() != null) {
+                for (VariantAnnotation variantAnnotation : result.getResults()) {
+                    if (variantAnnotation != null) {
+                        if (job.getNumAnnotations() % OFFSET_INTERVAL == 0) {
+                            offsets.add(outputStream.getByteCount());
+                        }
+                        outputStream.write(jsonObjectWriter.writeValueAsBytes(variantAnnotation));
+                        outputStream.write('\n');
+                        job.setNumAnnotations(job.getNumAnnotations() + 1);
+                    }
+                }
+            }
+        }
+        job.setNumVariants(job.getNumVariants() + batch.size());
+    }
+
+    public AnnotationJob getJob(String jobId) throws CellBaseException {
+        AnnotationJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new CellBaseException("Annotation job '" + jobId + "' not found, it may have expired");
+        }
+        return job;
+    }
+
+    /**
+     * Returns a page of the annotations of a finished job, in the same order as the input variants.
+     *
+     * @param jobId job ID
+     * @param skip number of annotations to skip
+     * @param limit maximum number of annotations to return
+     * @return the page of annotations, numMatches is the total number of annotations in the job
+     * @throws CellBaseException if the job does not exist, has not finished yet or the results can not be read
+     */
+    public CellBaseDataResult<VariantAnnotation> getResults(String jobId, int skip, int limit) throws CellBaseException {
+        AnnotationJob job = getJob(jobId);
+        if (job.getStatus() != AnnotationJob.Status.DONE) {
+            throw new CellBaseException("Annotation job '" + jobId + "' is " + job.getStatus() + ", results are only available"
+                    + " for jobs with status " + AnnotationJob.Status.DONE);
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<VariantAnnotation> variantAnnotations = new ArrayList<>(Math.max(0, Math.min(limit, OFFSET_INTERVAL)));
+        List<Long> offsets = resultOffsets.getOrDefault(jobId, Collections.emptyList());
+        int offsetIndex = Math.min(Math.max(0, skip) / OFFSET_INTERVAL, offsets.size() - 1);
+        try (FileChannel fileChannel = FileChannel.open(outputDir.resolve(jobId).resolve(OUTPUT_FILENAME), StandardOpenOption.READ)) {
+            // Start reading at the nearest offset before the page instead of at the beginning of the file
+            int counter = 0;
+            if (offsetIndex > 0) {
+                fileChannel.position(offsets.get(offsetIndex));
+                counter = offsetIndex * OFFSET_INTERVAL;
+            }
+            BufferedReader bufferedReader = new BufferedReader(Channels.newReader(fileChannel, StandardCharsets.UTF_8.name()));
+            String line = bufferedReader.readLine();
+            while (line != null && variantAnnotations.size() < limit) {
+                if (counter++ >= skip) {
+                    variantAnnotations.add(jsonObjectMapper.readValue(line, VariantAnnotation.class));
+                }
+                line = bufferedReader.readLine();
+            }
+        } catch (IOException e) {
+            throw new CellBaseException("Impossible to read results of annotation job '" + jobId + "': " + e.getMessage());
+        }
+        return new CellBaseDataResult<>(jobId, (int) (System.currentTimeMillis() - startTime), Collections.emptyList(),
+                variantAnnotations.size(), variantAnnotations, job.getNumAnnotations());
+    }
+
+    public AnnotationJob delete(String jobId) throws CellBaseException {
+        AnnotationJob job = getJob(jobId);
+        if (job.getStatus() == AnnotationJob.Status.QUEUED || job.getStatus() == AnnotationJob.Status.RUNNING) {
+            throw new CellBaseException("Annotation job '" + jobId + "' is " + job.getStatus() + " and can not be deleted");
+        }
+        removeJob(jobId);
+        return job;
+    }
+
+    void removeExpiredJobs() {
+        long expirationTime = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(properties.getRetentionHours());
+        for (Map.Entry<String, Long> entry : jobEndTimes.entrySet()) {
+            if (entry.getValue() < expirationTime) {
+                logger.info("Removing expired annotation job {}", entry.getKey());
+                removeJob(entry.getKey());
+            }
+        }
+    }
+
+    private void removeJob(String jobId) {
+        jobs.remove(jobId);
+        jobEndTimes.remove(jobId);
+        resultOffsets.remove(jobId);
+        deleteJobDir(outputDir.resolve(jobId));
+    }
+
+    private void deleteJobDir(Path jobDir) {
+        try {
+            FileUtils.deleteDirectory(jobDir.toFile());
+        } catch (IOException e) {
+            logger.warn("Impossible to delete annotation job directory {}: {}", jobDir, e.getMessage());
+        }
+    }
+
+    public int getNumQueuedJobs() {
+        return executorService.getQueue().size();
+    }
+
+    public int getNumRunningJobs() {
+        return executorService.getActiveCount();
+    }
+
+    private static Thread newDaemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private String now() {
+        return new SimpleDateFormat(DATE_FORMAT).format(new Date());
+    }
+
+    @Override
+    public void close() {
+        cleanerService.shutdownNow();
+        executorService.shutdownNow();
+    }
+}
@@ -16,15 +16,20 @@
 
 package org.opencb.cellbase.lib.managers;
 
+import org.apache.commons.collections4.CollectionUtils;
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
 import org.opencb.cellbase.core.config.SpeciesConfiguration;
 import org.opencb.cellbase.core.exception.CellBaseException;
+import org.opencb.cellbase.core.models.DataRelease;
 import org.opencb.cellbase.core.utils.SpeciesUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class CellBaseManagerFactory {
 
@@ -47,26 +52,56 @@ public class CellBaseManagerFactory {
     private Map<String, PharmacogenomicsManager> pharmacogenomicsManagers;
 
     private Map<String, DataReleaseManager> dataReleaseManagers;
+    private AnnotationJobManager annotationJobManager;
+
+    // key = species_assembly, value = warm-up result
+    private Map<String, String> warmUpStatus;
+    private volatile boolean warmingUp;
+
+    // key = species_assembly, value = species and assembly with at least one manager
+    private Map<String, String[]> activeSpeciesAssemblies;
+    private ScheduledExecutorService dataReleaseRefresher;
 
     private Logger logger;
 
+    /**
+     * Creates a manager, the species and assembly have been already validated.
+     *
+     * @param <T> manager type
+     */
+    @FunctionalInterface
+    private interface ManagerBuilder<T> {
+        T build(String species, String assembly, CellBaseConfiguration configuration) throws CellBaseException;
+    }
+
+    /**
+     * Wraps the exceptions thrown when a manager is built inside ConcurrentHashMap.computeIfAbsent.
+     */
+    private static class ManagerBuildException extends RuntimeException {
+        ManagerBuildException(CellBaseException cause) {
+            super(cause);
+        }
+    }
+
     public CellBaseManagerFactory(CellBaseConfiguration configuration) {
         this.configuration = configuration;
         logger = LoggerFactory.getLogger(this.getClass());
 
-        geneManagers = new HashMap<>();
-        transcriptManagers = new HashMap<>();
-        variantManagers = new HashMap<>();
-        proteinManagers = new HashMap<>();
-        genomeManagers = new HashMap<>();
-        clinicalManagers = new HashMap<>();
-        regulatoryManagers = new HashMap<>();
-        xrefManagers = new HashMap<>();
-        repeatsManagers = new HashMap<>();
-        tfManagers = new HashMap<>();
-        ontologyManagers = new HashMap<>();
-        dataReleaseManagers = new HashMap<>();
-        pharmacogenomicsManagers = new HashMap<>();
+        geneManagers = new ConcurrentHashMap<>();
+        transcriptManagers = new ConcurrentHashMap<>();
+        variantManagers = new ConcurrentHashMap<>();
+        proteinManagers = new ConcurrentHashMap<>();
+        genomeManagers = new ConcurrentHashMap<>();
+        clinicalManagers = new ConcurrentHashMap<>();
+        regulatoryManagers = new ConcurrentHashMap<>();
+        xrefManagers = new ConcurrentHashMap<>();
+        repeatsManagers = new ConcurrentHashMap<>();
+        tfManagers = new ConcurrentHashMap<>();
+        ontologyManagers = new ConcurrentHashMap<>();
+        dataReleaseManagers = new ConcurrentHashMap<>();
+        pharmacogenomicsManagers = new ConcurrentHashMap<>();
+        warmUpStatus = new ConcurrentHashMap<>();
+        activeSpeciesAssemblies = new ConcurrentHashMap<>();
     }
 
     private String getMultiKey(String species, String assembly) {
@@ -87,14 +122,43 @@ public class CellBaseManagerFactory {
     }
 
     public GeneManager getGeneManager(String species, String assembly) throws CellBaseException {
+        return getManager(geneManagers, species, assembly, GeneManager::new);
+    }
+
+    /**
+     * Returns the manager for the species and assembly, creating it the first time. Managers are built at most once per
+     * species and assembly even when several threads ask for them at the same time.
+     *
+     * @param managers managers of this type, by species and assembly
+     * @param species species
+     * @param assembly assembly
+     * @param builder creates the manager when it does not exist
+     * @param <T> manager type
+     * @return the manager
+     * @throws CellBaseException if the species or assembly are not valid or the manager cannot be created
+     */
+    private <T> T getManager(Map<String, T> managers, String species, String assembly, ManagerBuilder<T> builder)
+            throws CellBaseException {
         String multiKey = getMultiKey(species, assembly);
-        if (!geneManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            geneManagers.put(multiKey, new GeneManager(species, assembly, configuration));
+        T manager = managers.get(multiKey);
+        if (manager != null) {
+            return manager;
+        }
+        if (!validateSpeciesAssembly(species, assembly)) {
+            throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
+        }
+        activeSpeciesAssemblies.putIfAbsent(multiKey, new String[]{species, assembly});
+        try {
+            return managers.computeIfAbsent(multiKey, key -> {
+                try {
+                    return builder.build(species, assembly, configuration);
+                } catch (CellBaseException e) {
+                    throw new ManagerBuildException(e);
+                }
+            });
+        } catch (ManagerBuildException e) {
+            throw (CellBaseException) e.getCause();
         }
-        return geneManagers.get(multiKey);
     }
 
     private boolean validateSpeciesAssembly(String species, String assembly) {
@@ -128,14 +192,7 @@ public class CellBaseManagerFactory {
     }
 
     public TranscriptManager getTranscriptManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!transcriptManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            transcriptManagers.put(multiKey, new TranscriptManager(species, assembly, configuration));
-        }
-        return transcriptManagers.get(multiKey);
+        return getManager(transcriptManagers, species, assembly, TranscriptManager::new);
     }
 
     public VariantManager getVariantManager(String species) throws CellBaseException {
@@ -147,14 +204,7 @@ public class CellBaseManagerFactory {
     }
 
     public VariantManager getVariantManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!variantManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            variantManagers.put(multiKey, new VariantManager(species, assembly, configuration));
-        }
-        return variantManagers.get(multiKey);
+        return getManager(variantManagers, species, assembly, VariantManager::new);
     }
 
     public ProteinManager getProteinManager(String species) throws CellBaseException {
@@ -166,14 +216,7 @@ public class CellBaseManagerFactory {
     }
 
     public ProteinManager getProteinManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!proteinManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            proteinManagers.put(multiKey, new ProteinManager(species, assembly, configuration));
-        }
-        return proteinManagers.get(multiKey);
+        return getManager(proteinManagers, species, assembly, ProteinManager::new);
     }
 
     public GenomeManager getGenomeManager(String species) throws CellBaseException {
@@ -185,14 +228,7 @@ public class CellBaseManagerFactory {
     }
 
     public GenomeManager getGenomeManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!genomeManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            genomeManagers.put(multiKey, new GenomeManager(species, assembly, configuration));
-        }
-        return genomeManagers.get(multiKey);
+        return getManager(genomeManagers, species, assembly, GenomeManager::new);
     }
 
     public ClinicalManager getClinicalManager(String species) throws CellBaseException {
@@ -204,14 +240,7 @@ public class CellBaseManagerFactory {
     }
 
     public ClinicalManager getClinicalManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!clinicalManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            clinicalManagers.put(multiKey, new ClinicalManager(species, assembly, configuration));
-        }
-        return clinicalManagers.get(multiKey);
+        return getManager(clinicalManagers, species, assembly, ClinicalManager::new);
     }
 
     public RegulatoryManager getRegulatoryManager(String species) throws CellBaseException {
@@ -223,14 +252,7 @@ public class CellBaseManagerFactory {
     }
 
     public RegulatoryManager getRegulatoryManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!regulatoryManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            regulatoryManagers.put(multiKey, new RegulatoryManager(species, assembly, configuration));
-        }
-        return regulatoryManagers.get(multiKey);
+        return getManager(regulatoryManagers, species, assembly, RegulatoryManager::new);
     }
 
     public XrefManager getXrefManager(String species) throws CellBaseException {
@@ -242,14 +264,7 @@ public class CellBaseManagerFactory {
     }
 
     public XrefManager getXrefManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!xrefManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            xrefManagers.put(multiKey, new XrefManager(species, assembly, configuration));
-        }
-        return xrefManagers.get(multiKey);
+        return getManager(xrefManagers, species, assembly, XrefManager::new);
     }
 
     public RepeatsManager getRepeatsManager(String species) throws CellBaseException {
@@ -261,14 +276,7 @@ public class CellBaseManagerFactory {
     }
 
     public RepeatsManager getRepeatsManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!repeatsManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            repeatsManagers.put(multiKey, new RepeatsManager(species, assembly, configuration));
-        }
-        return repeatsManagers.get(multiKey);
+        return getManager(repeatsManagers, species, assembly, RepeatsManager::new);
     }
 
     public TfbsManager getTFManager(String species) throws CellBaseException {
@@ -280,24 +288,33 @@ public class CellBaseManagerFactory {
     }
 
     public TfbsManager getTFManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!tfManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            tfManagers.put(multiKey, new TfbsManager(species, assembly, configuration));
-        }
-        return tfManagers.get(multiKey);
+        return getManager(tfManagers, species, assembly, TfbsManager::new);
     }
 
-    public MetaManager getMetaManager() throws CellBaseException {
+    public synchronized MetaManager getMetaManager() throws CellBaseException {
         if (metaManager == null) {
             metaManager = new MetaManager(configuration);
         }
         return metaManager;
     }
 
-    public FileManager getFileManager() throws CellBaseException {
+    public synchronized AnnotationJobManager getAnnotationJobManager() throws CellBaseException {
+        if (annotationJobManager == null) {
+            annotationJobManager = new AnnotationJobManager(configuration.getServer() != null
+                    ? configuration.getServer().getAnnotationJobs()
+                    : null);
+        }
+        return annotationJobManager;
+    }
+
+    public synchronized void closeAnnotationJobManager() {
+        if (annotationJobManager != null) {
+            annotationJobManager.close();
+            annotationJobManager = null;
+        }
+    }
+
+    public synchronized FileManager getFileManager() throws CellBaseException {
         if (fileManager == null) {
             fileManager = new FileManager(configuration);
         }
@@ -313,14 +330,7 @@ public class CellBaseManagerFactory {
     }
 
     public OntologyManager getOntologyManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!ontologyManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            ontologyManagers.put(multiKey, new OntologyManager(species, assembly, configuration));
-        }
-        return ontologyManagers.get(multiKey);
+        return getManager(ontologyManagers, species, assembly, OntologyManager::new);
     }
 
     public DataReleaseManager getDataRelesaseManager(String species) throws CellBaseException {
@@ -332,14 +342,7 @@ public class CellBaseManagerFactory {
     }
 
     public DataReleaseManager getDataReleaseManager(String species, String assembly) throws CellBaseException {
-        String multiKey = getMultiKey(species, assembly);
-        if (!dataReleaseManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
-            }
-            dataReleaseManagers.put(multiKey, new DataReleaseManager(species, assembly, configuration));
-        }
-        return dataReleaseManagers.get(multiKey);
+        return getManager(dataReleaseManagers, species, assembly, DataReleaseManager::new);
     }
 //    public OntologyManager getOntologyManager(String species) throws CellBaseException {
 //        if (species == null) {
@@ -349,7 +352,7 @@ public class CellBaseManagerFactory {
 //        return getOntologyManager(species, assembly.getName());
 //    }
 
-    public PublicationManager getPublicationManager() throws CellBaseException {
+    public synchronized PublicationManager getPublicationManager() throws CellBaseException {
         if (publicationManager == null) {
             publicationManager = new PublicationManager(configuration);
         }
@@ -365,13 +368,131 @@ public class CellBaseManagerFactory {
     }
 
     public PharmacogenomicsManager getPharmacogenomicsManager(String species, String assembly) throws CellBaseException {
+        return getManager(pharmacogenomicsManagers, species, assembly, PharmacogenomicsManager::new);
+    }
+
+    /**
+     * Builds the managers of all the configured species and assemblies that have data releases, so the MongoDB connection pools
+     * are opened and a small query is run on every collection of the default data release before serving requests.
+     * Species and assemblies without data are skipped, errors are logged and kept in the warm-up status.
+     */
+    public void warmUp() {
+        warmingUp = true;
+        long startTime = System.currentTimeMillis();
+        try {
+            for (SpeciesConfiguration speciesConfiguration : configuration.getAllSpecies()) {
+                if (CollectionUtils.isEmpty(speciesConfiguration.getAssemblies())) {
+                    continue;
+                }
+                for (SpeciesConfiguration.Assembly assembly : speciesConfiguration.getAssemblies()) {
+                    warmUp(speciesConfiguration.getId(), assembly.getName());
+                }
+            }
+        } finally {
+            warmingUp = false;
+        }
+        logger.info("CellBase managers warmed up in {} ms: {}", System.currentTimeMillis() - startTime, warmUpStatus);
+    }
+
+    private void warmUp(String species, String assembly) {
         String multiKey = getMultiKey(species, assembly);
-        if (!pharmacogenomicsManagers.containsKey(multiKey)) {
-            if (!validateSpeciesAssembly(species, assembly)) {
-                throw new CellBaseException("Invalid species " + species + " or assembly " + assembly);
+        try {
+            DataReleaseManager dataReleaseManager = getDataReleaseManager(species, assembly);
+            List<DataRelease> dataReleases = dataReleaseManager.getReleases().getResults();
+            if (CollectionUtils.isEmpty(dataReleases)) {
+                warmUpStatus.put(multiKey, "no data releases");
+                return;
+            }
+
+            getGeneManager(species, assembly);
+            getTranscriptManager(species, assembly);
+            getVariantManager(species, assembly);
+            getProteinManager(species, assembly);
+            getGenomeManager(species, assembly);
+            getClinicalManager(species, assembly);
+            getRegulatoryManager(species, assembly);
+            getXrefManager(species, assembly);
+            getRepeatsManager(species, assembly);
+            getTFManager(species, assembly);
+            getOntologyManager(species, assembly);
+            getPharmacogenomicsManager(species, assembly);
+
+            // Probe the default data release of this CellBase version or, if there is not one, the last data release
+            DataRelease dataRelease = null;
+            for (DataRelease release : dataReleases) {
+                if (release.getActiveByDefaultIn() != null && release.getActiveByDefaultIn().contains(configuration.getVersion())) {
+                    dataRelease = release;
+                    break;
+                }
+                if (dataRelease == null || release.getRelease() > dataRelease.getRelease()) {
+                    dataRelease = release;
+                }
+            }
+            Map<String, Long> responseTimes = dataReleaseManager.probe(dataRelease);
+            logger.info("Warm-up of {} {}, data release {}: {} collections probed", species, assembly, dataRelease.getRelease(),
+                    responseTimes.size());
+            warmUpStatus.put(multiKey, "ready");
+        } catch (CellBaseException | RuntimeException e) {
+            logger.warn("Warm-up of {} {} failed: {}", species, assembly, e.getMessage());
+            warmUpStatus.put(multiKey, "error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the data releases of every species and assembly in use and publishes the changes to their adaptors, so a new
+     * data release or a new default data release can be used without restarting the server.
+     *
+     * @return species_assembly keys whose data releases have changed
+     */
+    public List<String> refreshDataReleases() {
+        List<String> updated = new ArrayList<>();
+        for (Map.Entry<String, String[]> entry : activeSpeciesAssemblies.entrySet()) {
+            try {
+                if (getDataReleaseManager(entry.getValue()[0], entry.getValue()[1]).refresh()) {
+                    // Caches built from the data releases are dropped, the gene manager is not created if not in use
+                    GeneManager geneManager = geneManagers.get(entry.getKey());
+                    if (geneManager != null) {
+                        geneManager.clearMirnaTargetIndex();
+                    }
+                    updated.add(entry.getKey());
+                }
+            } catch (CellBaseException | RuntimeException e) {
+                logger.warn("Error refreshing data releases of {}: {}", entry.getKey(), e.getMessage());
             }
-            pharmacogenomicsManagers.put(multiKey, new PharmacogenomicsManager(species, assembly, configuration));
         }
-        return pharmacogenomicsManagers.get(multiKey);
+        return updated;
+    }
+
+    /**
+     * Starts a background thread that refreshes the data releases periodically. Calling it again has no effect.
+     *
+     * @param intervalSeconds seconds between refreshes
+     */
+    public synchronized void startDataReleaseRefresher(int intervalSeconds) {
+        if (dataReleaseRefresher != null || intervalSeconds <= 0) {
+            return;
+        }
+        dataReleaseRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cellbase-data-release-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dataReleaseRefresher.scheduleWithFixedDelay(this::refreshDataReleases, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        logger.info("Data releases will be refreshed every {} seconds", intervalSeconds);
+    }
+
+    public synchronized void stopDataReleaseRefresher() {
+        if (dataReleaseRefresher != null) {
+            dataReleaseRefresher.shutdownNow();
+            dataReleaseRefresher = null;
+        }
+    }
+
+    public boolean isWarmingUp() {
+        return warmingUp;
+    }
+
+    public Map<String, String> getWarmUpStatus() {
+        return Collections.unmodifiableMap(new TreeMap<>(warmUpStatus));
     }
 }
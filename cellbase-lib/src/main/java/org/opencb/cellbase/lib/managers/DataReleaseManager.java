@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.ObjectReader;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.bson.Document;
 import org.opencb.cellbase.core.common.GitRepositoryState;
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
 import org.opencb.cellbase.core.exception.CellBaseException;
@@ -29,7 +30,9 @@ import org.opencb.cellbase.core.models.DataRelease;
 import org.opencb.cellbase.core.models.DataReleaseSource;
 import org.opencb.cellbase.core.result.CellBaseDataResult;
 import org.opencb.cellbase.lib.impl.core.CellBaseDBAdaptor;
+import org.opencb.cellbase.lib.impl.core.DataReleaseRegistry;
 import org.opencb.cellbase.lib.impl.core.ReleaseMongoDBAdaptor;
+import org.opencb.commons.datastore.core.QueryOptions;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -60,6 +63,47 @@ public class DataReleaseManager extends AbstractManager {
         return releaseDBAdaptor.getAll();
     }
 
+    /**
+     * Reads the data releases from the database and, if they have changed, publishes them to all the adaptors of this
+     * species and assembly. New data releases and changes in the release collections become visible without restarting.
+     *
+     * @return true if the data releases have changed
+     */
+    public boolean refresh() {
+        boolean updated = DataReleaseRegistry.update(mongoDatastore.getDatabaseName(), getReleases().getResults());
+        if (updated) {
+            logger.info("Data releases of {} {} have changed, adaptors will use the new data releases", species, assembly);
+        }
+        return updated;
+    }
+
+    /**
+     * Runs a one-document query on every collection of the data release, used to open the connections and warm up the
+     * MongoDB servers before the first user request.
+     *
+     * @param dataRelease data release
+     * @return response time in ms of each collection
+     * @throws CellBaseException if any collection cannot be queried
+     */
+    public Map<String, Long> probe(DataRelease dataRelease) throws CellBaseException {
+        Map<String, Long> responseTimes = new LinkedHashMap<>();
+        if (MapUtils.isEmpty(dataRelease.getCollections())) {
+            return responseTimes;
+        }
+        QueryOptions queryOptions = new QueryOptions(QueryOptions.INCLUDE, "_id").append(QueryOptions.LIMIT, 1);
+        for (String collection : dataRelease.getCollections().values()) {
+            long startTime = System.currentTimeMillis();
+            try {
+                mongoDatastore.getCollection(collection).find(new Document(), queryOptions);
+            } catch (RuntimeException e) {
+                throw new CellBaseException("Error querying collection '" + collection + "' of data release " + dataRelease.getRelease()
+                        + ": " + e.getMessage());
+            }
+            responseTimes.put(collection, System.currentTimeMillis() - startTime);
+        }
+        return responseTimes;
+    }
+
     public DataRelease createRelease() throws JsonProcessingException {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
 
@@ -127,7 +171,7 @@ public class DataReleaseManager extends AbstractManager {
         return releaseDBAdaptor.update(release, versions).first();
     }
 
-    public DataRelease update(int release, String collection, String data, List<Path> dataSourcePaths)
+    public synchronized DataRelease update(int release, String collection, String data, List<Path> dataSourcePaths)
             throws CellBaseException {
         DataRelease currDataRelease = get(release);
         if (currDataRelease != null) {
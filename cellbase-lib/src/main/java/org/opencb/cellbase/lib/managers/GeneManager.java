@@ -18,8 +18,10 @@ package org.opencb.cellbase.lib.managers;
 
 import org.opencb.biodata.models.core.Gene;
 import org.opencb.biodata.models.core.GenomeSequenceFeature;
+import org.opencb.biodata.models.core.MirnaTarget;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.core.TranscriptTfbs;
+import org.opencb.biodata.models.variant.avro.GeneMirnaTarget;
 import org.opencb.cellbase.core.api.GeneQuery;
 import org.opencb.cellbase.core.api.query.ProjectionQueryOptions;
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
@@ -28,16 +30,20 @@ import org.opencb.cellbase.core.result.CellBaseDataResult;
 import org.opencb.cellbase.lib.impl.core.CellBaseCoreDBAdaptor;
 import org.opencb.cellbase.lib.impl.core.GeneMongoDBAdaptor;
 import org.opencb.cellbase.lib.impl.core.GenomeMongoDBAdaptor;
+import org.opencb.cellbase.lib.iterator.CellBaseIterator;
 import org.opencb.commons.datastore.core.QueryOptions;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GeneManager extends AbstractManager implements AggregationApi<GeneQuery, Gene> {
 
     private GeneMongoDBAdaptor geneDBAdaptor;
     private GenomeMongoDBAdaptor genomeDBAdaptor;
 
+    // Reverse miRNA-target index for each data release: miRNA (miRTarBase id or mature miRNA name) -> target genes
+    private final Map<Integer, Map<String, List<GeneMirnaTarget>>> mirnaTargetIndexByRelease = new ConcurrentHashMap<>();
+
     public GeneManager(String species, CellBaseConfiguration configuration) throws CellBaseException {
         this(species, null, configuration);
     }
@@ -99,4 +105,81 @@ public class GeneManager extends AbstractManager implements AggregationApi<GeneQ
         return geneDBAdaptor.startsWith(query, queryOptions, dataRelease);
     }
 
+    /**
+     * Returns the genes targeted by any of the given miRNAs. Targets are resolved from an in-memory reverse index that is
+     * built from the gene collection the first time a data release is used, so no database query is executed per miRNA.
+     *
+     * @param mirnas miRTarBase ids or mature miRNA names, e.g. hsa-miR-20a-5p
+     * @param dataRelease data release
+     * @return target genes, without duplicates
+     * @throws CellBaseException if the index cannot be built
+     */
+    public List<GeneMirnaTarget> getMirnaTargets(List<String> mirnas, int dataRelease) throws CellBaseException {
+        Map<String, List<GeneMirnaTarget>> mirnaTargetIndex = getMirnaTargetIndex(dataRelease);
+
+        Map<String, GeneMirnaTarget> geneMirnaTargets = new LinkedHashMap<>();
+        for (String mirna : mirnas) {
+            for (GeneMirnaTarget geneMirnaTarget : mirnaTargetIndex.getOrDefault(mirna, Collections.emptyList())) {
+                geneMirnaTargets.putIfAbsent(geneMirnaTarget.getId(), geneMirnaTarget);
+            }
+        }
+        return new ArrayList<>(geneMirnaTargets.values());
+    }
+
+    private Map<String, List<GeneMirnaTarget>> getMirnaTargetIndex(int dataRelease) throws CellBaseException {
+        Map<String, List<GeneMirnaTarget>> mirnaTargetIndex = mirnaTargetIndexByRelease.get(dataRelease);
+        if (mirnaTargetIndex == null) {
+            synchronized (mirnaTargetIndexByRelease) {
+                mirnaTargetIndex = mirnaTargetIndexByRelease.get(dataRelease);
+                if (mirnaTargetIndex == null) {
+                    mirnaTargetIndex = buildMirnaTargetIndex(dataRelease);
+                    mirnaTargetIndexByRelease.put(dataRelease, mirnaTargetIndex);
+                }
+            }
+        }
+        return mirnaTargetIndex;
+    }
+
+    /**
+     * Drops the miRNA-target indexes of all data releases, they are built again from the database on next use. Called when
+     * the data releases are refreshed, as the genes of a data release may have changed.
+     */
+    public void clearMirnaTargetIndex() {
+        // Waits for any index being built, so an index of the previous data is not kept
+        synchronized (mirnaTargetIndexByRelease) {
+            mirnaTargetIndexByRelease.clear();
+        }
+    }
+
+    private Map<String, List<GeneMirnaTarget>> buildMirnaTargetIndex(int dataRelease) throws CellBaseException {
+        long startTime = System.currentTimeMillis();
+        Map<String, List<GeneMirnaTarget>> mirnaTargetIndex = new HashMap<>();
+        try (CellBaseIterator<Gene> iterator = geneDBAdaptor.mirnaTargetIterator(dataRelease)) {
+            while (iterator.hasNext()) {
+                Gene gene = iterator.next();
+                if (gene.getAnnotation() == null || gene.getAnnotation().getMirnaTargets() == null) {
+                    continue;
+                }
+                GeneMirnaTarget geneMirnaTarget = new GeneMirnaTarget(gene.getId(), gene.getName(), gene.getBiotype());
+                for (MirnaTarget mirnaTarget : gene.getAnnotation().getMirnaTargets()) {
+                    addMirnaTarget(mirnaTargetIndex, mirnaTarget.getId(), geneMirnaTarget);
+                    addMirnaTarget(mirnaTargetIndex, mirnaTarget.getSourceId(), geneMirnaTarget);
+                }
+            }
+        }
+        logger.info("miRNA target index for data release {} built with {} miRNAs in {} ms", dataRelease, mirnaTargetIndex.size(),
+                System.currentTimeMillis() - startTime);
+        return mirnaTargetIndex;
+    }
+
+    private void addMirnaTarget(Map<String, List<GeneMirnaTarget>> mirnaTargetIndex, String mirna, GeneMirnaTarget geneMirnaTarget) {
+        if (mirna == null) {
+            return;
+        }
+        List<GeneMirnaTarget> targets = mirnaTargetIndex.computeIfAbsent(mirna, k -> new ArrayList<>());
+        // A gene can be targeted several times by the same miRNA
+        if (targets.isEmpty() || !targets.get(targets.size() - 1).getId().equals(geneMirnaTarget.getId())) {
+            targets.add(geneMirnaTarget);
+        }
+    }
 }
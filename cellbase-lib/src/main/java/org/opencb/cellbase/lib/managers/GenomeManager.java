@@ -39,6 +39,7 @@ import java.util.Set;
 public class GenomeManager extends AbstractManager implements AggregationApi<GenomeQuery, Chromosome> {
 
     private GenomeMongoDBAdaptor genomeDBAdaptor;
+    private GenomeSequenceCache sequenceCache;
 
     public GenomeManager(String species, CellBaseConfiguration configuration) throws CellBaseException {
         this(species, null, configuration);
@@ -53,6 +54,7 @@ public class GenomeManager extends AbstractManager implements AggregationApi<Gen
 
     private void init() {
         genomeDBAdaptor = dbAdaptorFactory.getGenomeDBAdaptor();
+        sequenceCache = GenomeSequenceCache.get(mongoDatastore.getDatabaseName());
     }
 
     @Override
@@ -164,6 +166,34 @@ public class GenomeManager extends AbstractManager implements AggregationApi<Gen
         return genomeDBAdaptor.getGenomicSequence(query, queryOptions, dataRelease);
     }
 
+    /**
+     * Returns the forward strand sequence of a region from the genome sequence cache shared by all the managers of this
+     * database. Used by annotation, which requests the sequence around the same variants many times.
+     *
+     * @param chromosome chromosome
+     * @param start start, 1-based
+     * @param end end, 1-based and inclusive
+     * @param dataRelease data release
+     * @return sequence of the region, truncated if end is out of the chromosome, null if there is no sequence
+     * @throws CellBaseException if the sequence can not be read
+     */
+    public String getCachedSequence(String chromosome, int start, int end, int dataRelease) throws CellBaseException {
+        return sequenceCache.getSequence(chromosome, start, end, dataRelease, this::loadSequence);
+    }
+
+    public GenomeSequenceCache getSequenceCache() {
+        return sequenceCache;
+    }
+
+    private String loadSequence(String chromosome, int start, int end, int dataRelease) throws CellBaseException {
+        CellBaseDataResult<GenomeSequenceFeature> result = genomeDBAdaptor.getSequence(new Region(chromosome, start, end),
+                QueryOptions.empty(), dataRelease);
+        if (result.getResults() == null || result.getResults().isEmpty()) {
+            return null;
+        }
+        return result.getResults().get(0).getSequence();
+    }
+
     public CellBaseDataResult<Cytoband> getCytobands(Region region, QueryOptions queryOptions, int dataRelease) throws CellBaseException {
         return genomeDBAdaptor.getCytobands(region, queryOptions, dataRelease);
     }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.lib.managers;
+
+import org.opencb.cellbase.core.exception.CellBaseException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of reference genome sequence, shared by all the GenomeManagers of a CellBase database. The genome is
+ * split in fixed-size blocks aligned to the block size, any sequence request is served from the blocks covering it
+ * and only missing blocks are fetched. Blocks are cached per data release and evicted in LRU order.
+ */
+public final class GenomeSequenceCache {
+
+    public static final int DEFAULT_BLOCK_SIZE = 8 * 1024;
+    public static final int DEFAULT_MAX_BLOCKS = 2048;
+
+    // key = database name
+    private static final Map<String, GenomeSequenceCache> CACHES = new ConcurrentHashMap<>();
+
+    private final int blockSize;
+    // key = dataRelease:chromosome:block index, value = sequence of the block, shorter than the block size at the end
+    // of the chromosome and empty if there is no sequence
+    private final Map<String, String> blocks;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * Fetches the sequence of a region from the database.
+     */
+    @FunctionalInterface
+    public interface SequenceLoader {
+        /**
+         * @param chromosome chromosome
+         * @param start start, 1-based
+         * @param end end, 1-based and inclusive
+         * @param dataRelease data release
+         * @return available sequence of the region, null if there is none
+         * @throws CellBaseException if the sequence can not be read
+         */
+        String load(String chromosome, int start, int end, int dataRelease) throws CellBaseException;
+    }
+
+    public GenomeSequenceCache(int blockSize, int maxBlocks) {
+        this.blockSize = blockSize;
+        this.blocks = new LinkedHashMap<String, String>(Math.min(maxBlocks, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxBlocks;
+            }
+        };
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    public static GenomeSequenceCache get(String databaseName) {
+        return CACHES.computeIfAbsent(databaseName, key -> new GenomeSequenceCache(DEFAULT_BLOCK_SIZE, DEFAULT_MAX_BLOCKS));
+    }
+
+    /**
+     * Returns the sequence of a region. As GenomeManager.getSequence, if the end is out of the right bound of the
+     * chromosome the available nucleotides are returned.
+     *
+     * @param chromosome chromosome
+     * @param start start, 1-based
+     * @param end end, 1-based and inclusive
+     * @param dataRelease data release
+     * @param sequenceLoader loader of the missing blocks
+     * @return sequence of the region, null if the chromosome does not exist or start is out of its bounds
+     * @throws CellBaseException if a missing block can not be read
+     */
+    public String getSequence(String chromosome, int start, int end, int dataRelease, SequenceLoader sequenceLoader)
+            throws CellBaseException {
+        if (start < 1 || end < start) {
+            return null;
+        }
+        int firstBlock = (start - 1) / blockSize;
+        int lastBlock = (end - 1) / blockSize;
+        StringBuilder sequence = new StringBuilder((lastBlock - firstBlock + 1) * blockSize);
+        for (int block = firstBlock; block <= lastBlock; block++) {
+            String blockSequence = getBlock(chromosome, block, dataRelease, sequenceLoader);
+            sequence.append(blockSequence);
+            if (blockSequence.length() < blockSize) {
+                // End of the chromosome
+                break;
+            }
+        }
+
+        int offset = start - 1 - firstBlock * blockSize;
+        if (offset >= sequence.length()) {
+            return null;
+        }
+        return sequence.substring(offset, Math.min(offset + end - start + 1, sequence.length()));
+    }
+
+    private String getBlock(String chromosome, int block, int dataRelease, SequenceLoader sequenceLoader) throws CellBaseException {
+        String key = dataRelease + ":" + chromosome + ":" + block;
+        String blockSequence;
+        synchronized (blocks) {
+            blockSequence = blocks.get(key);
+        }
+        if (blockSequence != null) {
+            hits.incrementAndGet();
+            return blockSequence;
+        }
+
+        // Loaded out of the lock, concurrent misses of the same block fetch it more than once
+        misses.incrementAndGet();
+        blockSequence = sequenceLoader.load(chromosome, block * blockSize + 1, (block + 1) * blockSize, dataRelease);
+        if (blockSequence == null) {
+            blockSequence = "";
+        }
+        synchronized (blocks) {
+            blocks.put(key, blockSequence);
+        }
+        return blockSequence;
+    }
+
+    public void clear() {
+        synchronized (blocks) {
+            blocks.clear();
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int size() {
+        synchronized (blocks) {
+            return blocks.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
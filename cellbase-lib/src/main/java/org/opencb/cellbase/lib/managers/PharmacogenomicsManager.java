@@ -17,6 +17,7 @@
 package org.opencb.cellbase.lib.managers;
 
 import org.opencb.biodata.models.pharma.PharmaChemical;
+import org.opencb.biodata.models.variant.Variant;
 import org.opencb.cellbase.core.api.PharmaChemicalQuery;
 import org.opencb.cellbase.core.api.query.ProjectionQueryOptions;
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
@@ -54,4 +55,23 @@ public class PharmacogenomicsManager extends AbstractManager implements Aggregat
                                                String token) throws CellBaseException {
         return pharmacogenomicsDBAdaptor.info(ids, query, dataRelease, token);
     }
+
+    public boolean hasVariantIndex(int dataRelease) {
+        return pharmacogenomicsDBAdaptor.hasVariantIndex(dataRelease);
+    }
+
+    /**
+     * Returns the chemicals with clinical annotations matching each variant by position and HOM ALT genotype, using the
+     * variant-keyed pharmacogenomics index. Check hasVariantIndex first, older data releases do not have this index.
+     *
+     * @param variants variants
+     * @param query projection options
+     * @param dataRelease data release
+     * @return one result per variant, in the same order
+     * @throws CellBaseException if the index is not available for the data release
+     */
+    public List<CellBaseDataResult<PharmaChemical>> getByVariants(List<Variant> variants, ProjectionQueryOptions query,
+                                                                  int dataRelease) throws CellBaseException {
+        return pharmacogenomicsDBAdaptor.getByVariants(variants, query, dataRelease);
+    }
 }
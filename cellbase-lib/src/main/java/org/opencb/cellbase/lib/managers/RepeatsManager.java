@@ -16,13 +16,17 @@
 
 package org.opencb.cellbase.lib.managers;
 
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.avro.Repeat;
 import org.opencb.cellbase.core.api.RepeatsQuery;
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
 import org.opencb.cellbase.core.exception.CellBaseException;
+import org.opencb.cellbase.core.result.CellBaseDataResult;
 import org.opencb.cellbase.lib.impl.core.CellBaseCoreDBAdaptor;
 import org.opencb.cellbase.lib.impl.core.RepeatsMongoDBAdaptor;
 
+import java.util.List;
+
 public class RepeatsManager extends AbstractManager implements AggregationApi<RepeatsQuery, Repeat> {
 
     private RepeatsMongoDBAdaptor repeatsDBAdaptor;
@@ -46,4 +50,17 @@ public class RepeatsManager extends AbstractManager implements AggregationApi<Re
     public CellBaseCoreDBAdaptor<RepeatsQuery, Repeat> getDBAdaptor() {
         return repeatsDBAdaptor;
     }
+
+    /**
+     * Returns the repeats overlapping the breakpoints of each variant of a batch, with one query per chromosome.
+     *
+     * @param breakpointsList list of breakpoint regions of each variant
+     * @param dataRelease data release
+     * @return one result per variant, in the same order
+     * @throws CellBaseException if the data release is not valid
+     */
+    public List<CellBaseDataResult<Repeat>> getByBreakpoints(List<List<Region>> breakpointsList, int dataRelease)
+            throws CellBaseException {
+        return repeatsDBAdaptor.getByBreakpoints(breakpointsList, dataRelease);
+    }
 }
@@ -156,6 +156,44 @@ public class VariantManager extends AbstractManager implements AggregationApi<Va
         List<Variant> variantList = parseVariants(variants);
         logger.debug("queryOptions: " + queryOptions);
 
+        initAnnotationQueryOptions(queryOptions, normalize, decompose, leftAlign, ignorePhase, phased, imprecise, svExtraPadding,
+                cnvExtraPadding, checkAminoAcidChange, consequenceTypeSource);
+
+        VariantAnnotationCalculator variantAnnotationCalculator = new VariantAnnotationCalculator(species, assembly,
+                dataRelease, token, cellbaseManagerFactory);
+        List<CellBaseDataResult<VariantAnnotation>> queryResults = variantAnnotationCalculator.getAnnotationByVariantList(variantList,
+                queryOptions);
+        return queryResults;
+    }
+
+    /**
+     * Adds the annotation parameters received by the web services to the QueryOptions passed to the
+     * VariantAnnotationCalculator.
+     *
+     * @param queryOptions query options to be updated
+     * @param normalize normalize input variants
+     * @param decompose decompose MNVs
+     * @param leftAlign left align indels
+     * @param ignorePhase ignore phase data
+     * @param phased deprecated, use ignorePhase instead
+     * @param imprecise use imprecise search for structural variants
+     * @param svExtraPadding extra padding for structural variants
+     * @param cnvExtraPadding extra padding for CNVs
+     * @param checkAminoAcidChange match clinical variants at the aminoacid change level
+     * @param consequenceTypeSource gene set, either ensembl or refseq
+     * @return the updated query options
+     */
+    public QueryOptions initAnnotationQueryOptions(QueryOptions queryOptions,
+                                                   Boolean normalize,
+                                                   Boolean decompose,
+                                                   Boolean leftAlign,
+                                                   Boolean ignorePhase,
+                                                   @Deprecated Boolean phased,
+                                                   Boolean imprecise,
+                                                   Integer svExtraPadding,
+                                                   Integer cnvExtraPadding,
+                                                   Boolean checkAminoAcidChange,
+                                                   String consequenceTypeSource) {
         // If ignorePhase (new parameter) is present, then overrides presence of "phased"
         if (ignorePhase != null) {
             queryOptions.put("ignorePhase", ignorePhase);
@@ -193,11 +231,20 @@ public class VariantManager extends AbstractManager implements AggregationApi<Va
             queryOptions.put("consequenceTypeSource", consequenceTypeSource);
         }
 
-        VariantAnnotationCalculator variantAnnotationCalculator = new VariantAnnotationCalculator(species, assembly,
-                dataRelease, token, cellbaseManagerFactory);
-        List<CellBaseDataResult<VariantAnnotation>> queryResults = variantAnnotationCalculator.getAnnotationByVariantList(variantList,
-                queryOptions);
-        return queryResults;
+        return queryOptions;
+    }
+
+    /**
+     * Creates a VariantAnnotationCalculator for this species and assembly. The calculator can be reused to annotate
+     * several batches of variants, e.g. when streaming large annotation requests.
+     *
+     * @param dataRelease data release
+     * @param token data access token
+     * @return the variant annotation calculator
+     * @throws CellBaseException if the calculator can not be created
+     */
+    public VariantAnnotationCalculator getVariantAnnotationCalculator(int dataRelease, String token) throws CellBaseException {
+        return new VariantAnnotationCalculator(species, assembly, dataRelease, token, cellbaseManagerFactory);
     }
 
     private List<Variant> parseVariants(String variantsString) {
@@ -213,7 +260,13 @@ public class VariantManager extends AbstractManager implements AggregationApi<Va
         return variants;
     }
 
-    private Variant parseVariant(String variantString) {
+    /**
+     * Parses a variant string, optionally followed by genotype and phase set: variantString+GT+PS.
+     *
+     * @param variantString variant string
+     * @return the parsed variant
+     */
+    public Variant parseVariant(String variantString) {
         String[] variantStringPartArray = variantString.split(PHASE_DATA_URL_SEPARATOR);
 
         VariantBuilder variantBuilder;
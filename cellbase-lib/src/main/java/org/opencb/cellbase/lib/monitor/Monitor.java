@@ -18,6 +18,7 @@ package org.opencb.cellbase.lib.monitor;
 
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
 import org.opencb.cellbase.core.config.Databases;
+import org.opencb.cellbase.lib.managers.CellBaseManagerFactory;
 import org.opencb.cellbase.lib.managers.MetaManager;
 import org.opencb.commons.monitor.DatastoreStatus;
 import org.opencb.commons.monitor.HealthCheckDependencies;
@@ -37,6 +38,7 @@ public class Monitor {
     private static final String CELLBASE_TOKEN = "cellbase-health-token";
     private static Logger logger;
     private MetaManager metaManager = null;
+    private CellBaseManagerFactory cellBaseManagerFactory = null;
 
     static {
         logger = LoggerFactory.getLogger(Monitor.class);
@@ -50,6 +52,11 @@ public class Monitor {
         this.metaManager = metaManager;
     }
 
+    public Monitor(MetaManager metaManager, CellBaseManagerFactory cellBaseManagerFactory) {
+        this.metaManager = metaManager;
+        this.cellBaseManagerFactory = cellBaseManagerFactory;
+    }
+
     public HealthCheckResponse run(String requestUri, CellBaseConfiguration configuration, String species,
                                    String assembly, String token) {
         HealthCheckResponse healthCheckResponse = new HealthCheckResponse();
@@ -57,7 +64,12 @@ public class Monitor {
         healthCheckResponse.setDatetime();
         healthCheckResponse.setComponents(Collections.singletonList(COMPONENT));
         HealthCheckResponse.Status mongoStatus = checkMongoStatus(species, assembly);
-        healthCheckResponse.setStatus(mongoStatus);
+        // The server answers while the managers are being warmed up, but it is not ready yet
+        if (mongoStatus == HealthCheckResponse.Status.OK && cellBaseManagerFactory != null && cellBaseManagerFactory.isWarmingUp()) {
+            healthCheckResponse.setStatus(HealthCheckResponse.Status.DEGRADED);
+        } else {
+            healthCheckResponse.setStatus(mongoStatus);
+        }
         healthCheckResponse.setRequestUrl(requestUri);
 
         // only return info if token set
@@ -70,17 +70,32 @@ public final class DataAccessTokenUtils {
     public static Variant filterDataSources(Variant variant, Set<String> validSources) {
         if (variant.getAnnotation() != null && CollectionUtils.isNotEmpty(variant.getAnnotation().getTraitAssociation())) {
             // Filtering clinical data sources
-            List<EvidenceEntry> filteredTraits = new ArrayList<>();
-            for (EvidenceEntry trait : variant.getAnnotation().getTraitAssociation()) {
-                if (validSources.contains(trait.getSource().getName().toLowerCase())) {
-                    filteredTraits.add(trait);
+            List<EvidenceEntry> traits = variant.getAnnotation().getTraitAssociation();
+            int numValidTraits = 0;
+            while (numValidTraits < traits.size() && isValidSource(traits.get(numValidTraits), validSources)) {
+                numValidTraits++;
+            }
+            // Fast path: when all the sources are valid the trait list is kept as it is
+            if (numValidTraits < traits.size()) {
+                List<EvidenceEntry> filteredTraits = new ArrayList<>(traits.subList(0, numValidTraits));
+                for (int i = numValidTraits + 1; i < traits.size(); i++) {
+                    if (isValidSource(traits.get(i), validSources)) {
+                        filteredTraits.add(traits.get(i));
+                    }
                 }
+                variant.getAnnotation().setTraitAssociation(filteredTraits);
             }
-            variant.getAnnotation().setTraitAssociation(filteredTraits);
         }
         return variant;
     }
 
+    private static boolean isValidSource(EvidenceEntry trait, Set<String> validSources) {
+        if (trait.getSource() == null || trait.getSource().getName() == null) {
+            return false;
+        }
+        return validSources.contains(trait.getSource().getName().toLowerCase());
+    }
+
     public static List<CellBaseDataResult<Variant>> filterDataSources(List<CellBaseDataResult<Variant>> results,
                                                                       Set<String> validTokenSources) {
         List<CellBaseDataResult<Variant>> output = new ArrayList<>();
@@ -19,15 +19,18 @@ package org.opencb.cellbase.lib.token;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.cellbase.lib.iterator.CellBaseIterator;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 
 public class TokenFilteredVariantIterator extends CellBaseIterator<Variant> {
 
-    private Set<String> validSources;
+    // allowed sources, resolved once for the whole iteration so each variant only needs hash set lookups
+    private final Set<String> validSources;
 
     public TokenFilteredVariantIterator(CellBaseIterator iterator, Set<String> validSources) {
         super(iterator);
-        this.validSources = validSources;
+        this.validSources = Collections.unmodifiableSet(new HashSet<>(validSources));
     }
 
     @Override
@@ -17,12 +17,9 @@
 package org.opencb.cellbase.lib.variant.annotation;
 
 import org.apache.commons.lang3.StringUtils;
-import org.opencb.biodata.models.core.GenomeSequenceFeature;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.tools.sequence.SequenceAdaptor;
-import org.opencb.cellbase.core.result.CellBaseDataResult;
 import org.opencb.cellbase.lib.managers.GenomeManager;
-import org.opencb.commons.datastore.core.QueryOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,22 +52,21 @@ public class CellBaseNormalizerSequenceAdaptor implements SequenceAdaptor {
      * @throws RuntimeException if something goes wrong
      */
     public String query(String contig, int start, int end) throws Exception {
-        Region region = new Region(contig, start, end);
-        CellBaseDataResult<GenomeSequenceFeature> cellBaseDataResult = genomeManager.getSequence(region, QueryOptions.empty(), dataRelease);
+        // Served from the genome sequence cache, nearby normalization requests share the same blocks
+        String sequence = genomeManager.getCachedSequence(contig, start, end, dataRelease);
 
         // This behaviour mimics the behaviour of the org.opencb.biodata.tools.sequence.SamtoolsFastaIndex with one
         // difference. If contig does not exist, start is under the left bound, start AND end are out of the right
         // bound, then a RunTime exception will be thrown. HOWEVER: if start is within the bounds BUT end is out of the
         // right bound, then THIS implementaiton will return available nucleotides while SamtoolsFastaIndex will keep
         // returning the exception.
-        if (cellBaseDataResult.getResults() != null && cellBaseDataResult.getResults().size() > 0
-                && StringUtils.isNotBlank(cellBaseDataResult.getResults().get(0).getSequence())) {
-            if (cellBaseDataResult.getResults().get(0).getSequence().length() < (end - start + 1)) {
+        if (StringUtils.isNotBlank(sequence)) {
+            if (sequence.length() < (end - start + 1)) {
                 logger.warn("End coordinate out of the right bound. Returning available nucleotides.");
             }
-            return cellBaseDataResult.getResults().get(0).getSequence();
+            return sequence;
         } else {
-            throw new RuntimeException("Unable to find entry for " + region.toString());
+            throw new RuntimeException("Unable to find entry for " + new Region(contig, start, end));
         }
     }
 }
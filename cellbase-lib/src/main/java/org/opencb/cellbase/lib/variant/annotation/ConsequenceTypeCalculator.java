@@ -34,6 +34,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by fjlopez on 19/06/15.
@@ -51,6 +52,7 @@ public abstract class ConsequenceTypeCalculator {
     protected Variant variant;
     protected GenomeManager genomeManager;
     protected int dataRelease;
+    protected String databaseName;
     protected Boolean imprecise = true;
     protected int svExtraPadding = 0;
     protected int cnvExtraPadding = 0;
@@ -61,9 +63,24 @@ public abstract class ConsequenceTypeCalculator {
     protected static final String DOWN_UP_STREAM_GENE_TAG = "_gene";
     protected static final int NO_EXON_OVERLAP = 0;
 
+    // SO terms are never modified once added to a consequence type, so a single instance per SO name is shared
+    private static final Map<String, SequenceOntologyTerm> SO_TERMS = new ConcurrentHashMap<>();
+    // exon labels (e.g. 3/12) of transcripts with up to MAX_CACHED_EXONS exons, indexed by [numExons][exonNumber]
+    private static final int MAX_CACHED_EXONS = 512;
+    private static final String[][] EXON_LABELS = new String[MAX_CACHED_EXONS + 1][];
+
     public abstract List<ConsequenceType> run(Variant variant, List<Gene> geneList,
                                               boolean[] overlapsRegulatoryRegion, QueryOptions queryOptions) throws CellBaseException;
 
+    public int getDataRelease() {
+        return dataRelease;
+    }
+
+    public ConsequenceTypeCalculator setDataRelease(int dataRelease) {
+        this.dataRelease = dataRelease;
+        return this;
+    }
+
     protected void parseQueryParam(QueryOptions queryOptions) {
         imprecise = queryOptions.get(IMPRECISE) != null ? (Boolean) queryOptions.get(IMPRECISE) : true;
         svExtraPadding = queryOptions.get(SV_EXTRA_PADDING) != null
@@ -163,10 +180,30 @@ public abstract class ConsequenceTypeCalculator {
         }
     }
 
+    public String getDatabaseName() {
+        return databaseName;
+    }
+
+    public ConsequenceTypeCalculator setDatabaseName(String databaseName) {
+        this.databaseName = databaseName;
+        return this;
+    }
+
     protected abstract void solveNonCodingNegativeTranscript();
 
     protected abstract void solveCodingNegativeTranscript() throws CellBaseException;
 
+    /**
+     * Spliced sequence of the first exons of the current transcript, in genomic order. The spliced sequence of each
+     * transcript is built once per database and data release and shared by all the variants.
+     *
+     * @param numExons number of exons, from the first one in transcript order
+     * @return spliced sequence of the exons
+     */
+    protected String getSplicedSequence(int numExons) {
+        return SplicedTranscriptSequence.get(transcript, databaseName, dataRelease).getSequence(numExons);
+    }
+
     protected char[] getReverseComplementaryCodon(String transcriptSequence, int modifiedCodonStart) {
         char[] reverseCodon = (new StringBuilder(transcriptSequence.substring(transcriptSequence.length() - modifiedCodonStart - 2,
                 // Rigth limit of the substring sums +1 because substring does not include that position
@@ -323,8 +360,53 @@ public abstract class ConsequenceTypeCalculator {
         return sequenceOntologyTerms;
     }
 
-    private SequenceOntologyTerm newSequenceOntologyTerm(String name) {
-        return new SequenceOntologyTerm(ConsequenceTypeMappings.getSoAccessionString(name), name);
+    protected static SequenceOntologyTerm newSequenceOntologyTerm(String name) {
+        SequenceOntologyTerm sequenceOntologyTerm = SO_TERMS.get(name);
+        if (sequenceOntologyTerm == null) {
+            sequenceOntologyTerm = SO_TERMS.computeIfAbsent(name,
+                    key -> new SequenceOntologyTerm(ConsequenceTypeMappings.getSoAccessionString(key), key));
+        }
+        return sequenceOntologyTerm;
+    }
+
+    /**
+     * Returns the exon label used in the exon overlaps, e.g. 3/12. Labels of transcripts with up to 512 exons are
+     * built once and shared.
+     *
+     * @param exonNumber exon number
+     * @param numExons   number of exons of the transcript
+     * @return exon label
+     */
+    protected static String getExonLabel(int exonNumber, int numExons) {
+        if (numExons < 1 || numExons > MAX_CACHED_EXONS || exonNumber < 0 || exonNumber > numExons) {
+            return exonNumber + "/" + numExons;
+        }
+        String[] labels = EXON_LABELS[numExons];
+        if (labels == null) {
+            // Concurrent initialisations build equal labels, whichever array is kept is fine
+            labels = new String[numExons + 1];
+            for (int i = 0; i <= numExons; i++) {
+                labels[i] = i + "/" + numExons;
+            }
+            EXON_LABELS[numExons] = labels;
+        }
+        String label = labels[exonNumber];
+        return label != null ? label : exonNumber + "/" + numExons;
+    }
+
+    /**
+     * Returns the SO name of a variant within 2kb of the transcript, e.g. 2KB_upstream_variant for upstream_gene_variant.
+     *
+     * @param regionTag upstream or downstream SO name
+     * @return 2kb SO name
+     */
+    protected static String getTwoKbRegionTag(String regionTag) {
+        if (VariantAnnotationUtils.UPSTREAM_GENE_VARIANT.equals(regionTag)) {
+            return VariantAnnotationUtils.TWOKB_UPSTREAM_VARIANT;
+        } else if (VariantAnnotationUtils.DOWNSTREAM_GENE_VARIANT.equals(regionTag)) {
+            return VariantAnnotationUtils.TWOKB_DOWNSTREAM_VARIANT;
+        }
+        return "2KB_" + regionTag.replace(DOWN_UP_STREAM_GENE_TAG, "");
     }
 
     protected int updateNegativeInsertionCodonArrays(String reverseTranscriptSequence,
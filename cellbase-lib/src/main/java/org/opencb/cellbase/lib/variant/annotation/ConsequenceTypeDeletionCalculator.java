@@ -19,7 +19,6 @@ package org.opencb.cellbase.lib.variant.annotation;
 import org.opencb.biodata.models.core.Gene;
 import org.opencb.biodata.models.core.Transcript;
 import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.models.variant.annotation.ConsequenceTypeMappings;
 import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.ProteinVariantAnnotation;
 import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
@@ -132,8 +131,7 @@ public class ConsequenceTypeDeletionCalculator extends ConsequenceTypeGenericReg
                     }
                 } catch (Exception e) {
                     logger.error("Error computing consequence type: {}", Arrays.toString(e.getStackTrace()));
-                    SequenceOntologyTerm soTerm = new SequenceOntologyTerm(ConsequenceTypeMappings.getSoAccessionString(
-                            VariantAnnotationUtils.FUNCTION_UNCERTAIN_VARIANT), VariantAnnotationUtils.FUNCTION_UNCERTAIN_VARIANT);
+                    SequenceOntologyTerm soTerm = newSequenceOntologyTerm(VariantAnnotationUtils.FUNCTION_UNCERTAIN_VARIANT);
                     consequenceType.setSequenceOntologyTerms(Collections.singletonList(soTerm));
                     consequenceTypeList.add(consequenceType);
                 }
@@ -124,7 +124,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
         if (regionsOverlap(transcript.getStart() - 5000, transcript.getStart() - 1, variantStart, variantEnd)) {
             // Variant overlaps with -2kb region
             if (regionsOverlap(transcript.getStart() - 2000, transcript.getStart() - 1, variantStart, variantEnd)) {
-                SoNames.add("2KB_" + leftRegionTag.replace(DOWN_UP_STREAM_GENE_TAG, ""));
+                SoNames.add(getTwoKbRegionTag(leftRegionTag));
             } else {
                 SoNames.add(leftRegionTag);
             }
@@ -133,7 +133,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
         if (regionsOverlap(transcript.getEnd() + 1, transcript.getEnd() + 5000, variantStart, variantEnd)) {
             // Variant overlaps with +2kb region
             if (regionsOverlap(transcript.getEnd() + 1, transcript.getEnd() + 2000, variantStart, variantEnd)) {
-                SoNames.add("2KB_" + rightRegionTag.replace(DOWN_UP_STREAM_GENE_TAG, ""));
+                SoNames.add(getTwoKbRegionTag(rightRegionTag));
             } else {
                 SoNames.add(rightRegionTag);
             }
@@ -143,7 +143,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
     protected void solveNonCodingNegativeTranscript() {
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
-        String exonStringSuffix = "/" + transcript.getExons().size();
+        int numExons = transcript.getExons().size();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantStart = -1;
@@ -166,10 +166,10 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //                variantStartExonNumber = exon.getExonNumber();
                 if (variantStart >= exon.getStart()) {  // Both variant start and variant end within the exon  ----||||S|||||E||||----
                     cdnaVariantEnd = cdnaExonEnd - (variantStart - exon.getStart());
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (variantEnd - variantStart + 1) * 100f / exonSize));
                 } else {
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (variantEnd - exon.getStart() + 1) * 100f / exonSize));
                 }
             }
@@ -177,11 +177,11 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
             // We do not contemplate that variant end can be located before this exon since this is the first exon
             cdnaVariantEnd = cdnaExonEnd - (variantEnd - exon.getStart());
 //            variantEndExonNumber = exon.getExonNumber();
-            exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+            exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                     (exon.getEnd() - variantStart + 1) * 100f / exonSize));
         // Variant includes the whole exon. Variant end is located before the exon, variant start is located after the exon
         } else {
-            exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix, 100f));
+            exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons), 100f));
         }
 
         int exonCounter = 1;
@@ -206,10 +206,10 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //                    variantStartExonNumber = exon.getExonNumber();
                     if (variantStart >= exon.getStart()) {  // Both variant start and variant end within the exon  ----||||S|||||E||||----
                         cdnaVariantEnd = cdnaExonEnd - (variantStart - exon.getStart());
-                        exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                        exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                                 (variantEnd - variantStart + 1) * 100f / exonSize));
                     } else {
-                        exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                        exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                                 (variantEnd - exon.getStart() + 1) * 100f / exonSize));
                     }
                 }
@@ -217,7 +217,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
                 if (variantStart <= exon.getEnd()) {  // Only variant start within the exon  ----||||||||||E||||----
                     cdnaExonEnd += (exon.getEnd() - exon.getStart() + 1);
                     cdnaVariantEnd = cdnaExonEnd - (variantStart - exon.getStart());
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (exon.getEnd() - variantStart + 1) * 100f / exonSize));
 //                    variantEndExonNumber = exon.getExonNumber();
                 } else {  // Variant does not include this exon, variant is located before this exon
@@ -225,7 +225,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
                 }
             } else {  // Variant includes the whole exon. Variant start is located before the exon, variant end is located after the exon
                 cdnaExonEnd += (exon.getEnd() - exon.getStart() + 1);
-                exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix, 100f));
+                exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons), 100f));
             }
             exonCounter++;
         }
@@ -239,8 +239,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
     protected void solveCodingNegativeTranscript() throws CellBaseException {
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
-        String exonStringSuffix = "/" + transcript.getExons().size();
-        String transcriptSequence = exon.getSequence();
+        int numExons = transcript.getExons().size();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantStart = -1;
@@ -262,10 +261,10 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //                variantStartExonNumber = exon.getExonNumber();
                 if (variantStart >= exon.getStart()) {  // Both variant start and variant end within the exon  ----||||S|||||E||||----
                     cdnaVariantEnd = cdnaExonEnd - (variantStart - exon.getStart());
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (variantEnd - variantStart + 1) * 100f / exonSize));
                 } else {
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (variantEnd - exon.getStart() + 1) * 100f / exonSize));
                 }
 
@@ -274,11 +273,11 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
             // We do not contemplate that variant end can be located before this exon since this is the first exon
             cdnaVariantEnd = cdnaExonEnd - (variantEnd - exon.getStart());
 //            variantEndExonNumber = exon.getExonNumber();
-            exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+            exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                     (exon.getEnd() - variantStart + 1) * 100f / exonSize));
             // Variant includes the whole exon. Variant end is located before the exon, variant start is located after the exon
         } else {
-            exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix, 100f));
+            exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons), 100f));
         }
 
         int exonCounter = 1;
@@ -287,7 +286,6 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
             int prevSpliceSite = exon.getStart() - 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
             exonSize = exon.getEnd() - exon.getStart() + 1;
-            transcriptSequence = exon.getSequence() + transcriptSequence;
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && transcript.getGenomicCodingEnd() >= exon.getStart()) {
                 firstCdsPhase = exon.getPhase();
@@ -304,10 +302,10 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //                    variantStartExonNumber = exon.getExonNumber();
                     if (variantStart >= exon.getStart()) {  // Both variant start and variant end within the exon  ----||||S|||||E||||----
                         cdnaVariantEnd = cdnaExonEnd - (variantStart - exon.getStart());
-                        exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                        exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                                 (variantEnd - variantStart + 1) * 100f / exonSize));
                     } else {
-                        exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                        exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                                 (variantEnd - exon.getStart() + 1) * 100f / exonSize));
                     }
                 }
@@ -315,7 +313,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
                 if (variantStart <= exon.getEnd()) {  // Only variant start within the exon  ----||||||||||E||||----
                     cdnaExonEnd += (exon.getEnd() - exon.getStart() + 1);
                     cdnaVariantEnd = cdnaExonEnd - (variantStart - exon.getStart());
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (exon.getEnd() - variantStart + 1) * 100f / exonSize));
 //                    variantEndExonNumber = exon.getExonNumber();
                 } else {  // Variant does not include this exon, variant is located before this exon
@@ -323,7 +321,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
                 }
             } else {  // Variant includes the whole exon. Variant start is located before the exon, variant end is located after the exon
                 cdnaExonEnd += (exon.getEnd() - exon.getStart() + 1);
-                exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix, 100f));
+                exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons), 100f));
             }
             exonCounter++;
         }
@@ -333,7 +331,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //        consequenceType.setExonNumber(variantStartExonNumber != null ? variantStartExonNumber : variantEndExonNumber);
         // Is not intron variant (both ends fall within the same intron)
         if (!junctionSolution[1]) {
-            solveExonVariantInNegativeTranscript(splicing, transcriptSequence, cdnaVariantStart, cdnaVariantEnd,
+            solveExonVariantInNegativeTranscript(splicing, getSplicedSequence(exonCounter), cdnaVariantStart, cdnaVariantEnd,
                     firstCdsPhase);
         }
 
@@ -503,8 +501,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
     protected void solveCodingPositiveTranscript() throws CellBaseException {
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
-        String exonStringSuffix = "/" + transcript.getExons().size();
-        String transcriptSequence = exon.getSequence();
+        int numExons = transcript.getExons().size();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantStart = -1;
@@ -526,17 +523,17 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //                variantStartExonNumber = exon.getExonNumber();
                 if (variantEnd <= exon.getEnd()) {  // Both variant start and variant end within the exon  ----||||S|||||E||||----
                     cdnaVariantEnd = cdnaExonEnd - (exon.getEnd() - variantEnd);
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (variantEnd - variantStart + 1) * 100f / exonSize));
                 } else {
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (exon.getEnd() - variantStart + 1) * 100f / exonSize));
                 }
             }
         } else if (variantEnd <= exon.getEnd()) {
             // We do not contemplate that variant end can be located before this exon since this is the first exon
             cdnaVariantEnd = cdnaExonEnd - (exon.getEnd() - variantEnd);
-            exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+            exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                     (variantEnd - exon.getStart() + 1) * 100f / exonSize));
 //            variantEndExonNumber = exon.getExonNumber();
         // Variant includes the whole exon. Variant start is located before the exon, variant end is located after the exon
@@ -551,7 +548,6 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
             int prevSpliceSite = exon.getEnd() + 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
             exonSize = exon.getEnd() - exon.getStart() + 1;
-            transcriptSequence = transcriptSequence + exon.getSequence();
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && transcript.getGenomicCodingStart() <= exon.getEnd()) {
                 firstCdsPhase = exon.getPhase();
@@ -568,10 +564,10 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //                    variantStartExonNumber = exon.getExonNumber();
                     if (variantEnd <= exon.getEnd()) {  // Both variant start and variant end within the exon  ----||||S|||||E||||----
                         cdnaVariantEnd = cdnaExonEnd - (exon.getEnd() - variantEnd);
-                        exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                        exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                                 (variantEnd - variantStart + 1) * 100f / exonSize));
                     } else {
-                        exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                        exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                                 (exon.getEnd() - variantStart + 1) * 100f / exonSize));
                     }
                 }
@@ -579,7 +575,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
                 if (variantEnd >= exon.getStart()) {  // Only variant end within the exon  ----||||||||||E||||----
                     cdnaExonEnd += (exon.getEnd() - exon.getStart() + 1);
                     cdnaVariantEnd = cdnaExonEnd - (exon.getEnd() - variantEnd);
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (variantEnd - exon.getStart() + 1) * 100f / exonSize));
 //                    variantEndExonNumber = exon.getExonNumber();
                 } else {  // Variant does not include this exon, variant is located before this exon
@@ -587,7 +583,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
                 }
             } else {  // Variant includes the whole exon. Variant start is located before the exon, variant end is located after the exon
                 cdnaExonEnd += (exon.getEnd() - exon.getStart() + 1);
-                exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix, 100f));
+                exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons), 100f));
             }
             exonCounter++;
         }
@@ -597,7 +593,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //        consequenceType.setExonNumber(variantStartExonNumber != null ? variantStartExonNumber : variantEndExonNumber);
         // Is not intron variant (both ends fall within the same intron)
         if (!junctionSolution[1]) {
-            solveExonVariantInPositiveTranscript(splicing, transcriptSequence, cdnaVariantStart, cdnaVariantEnd,
+            solveExonVariantInPositiveTranscript(splicing, getSplicedSequence(exonCounter), cdnaVariantStart, cdnaVariantEnd,
                     firstCdsPhase);
         }
 
@@ -709,7 +705,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
     protected void solveNonCodingPositiveTranscript() {
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
-        String exonStringSuffix = "/" + transcript.getExons().size();
+        int numExons = transcript.getExons().size();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantStart = -1;
@@ -731,10 +727,10 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //                variantStartExonNumber = exon.getExonNumber();
                 if (variantEnd <= exon.getEnd()) {  // Both variant start and variant end within the exon  ----||||S|||||E||||----
                     cdnaVariantEnd = cdnaExonEnd - (exon.getEnd() - variantEnd);
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (variantEnd - variantStart + 1) * 100f / exonSize));
                 } else {
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (exon.getEnd() - variantStart + 1) * 100f / exonSize));
                 }
 
@@ -742,12 +738,12 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
         } else if (variantEnd <= exon.getEnd()) {
             // We do not contemplate that variant end can be located before this exon since this is the first exon
             cdnaVariantEnd = cdnaExonEnd - (exon.getEnd() - variantEnd);
-            exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+            exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                     (variantEnd - exon.getStart() + 1) * 100f / exonSize));
 //            variantEndExonNumber = exon.getExonNumber();
             // Variant includes the whole exon. Variant start is located before the exon, variant end is located after the exon
         } else {
-            exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix, 100f));
+            exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons), 100f));
         }
 
         int exonCounter = 1;
@@ -772,10 +768,10 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
 //                    variantStartExonNumber = exon.getExonNumber();
                     if (variantEnd <= exon.getEnd()) {  // Both variant start and variant end within the exon  ----||||S|||||E||||----
                         cdnaVariantEnd = cdnaExonEnd - (exon.getEnd() - variantEnd);
-                        exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                        exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                                 (variantEnd - variantStart + 1) * 100f / exonSize));
                     } else {
-                        exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                        exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                                 (exon.getEnd() - variantStart + 1) * 100f / exonSize));
                     }
                 }
@@ -783,7 +779,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
                 if (variantEnd >= exon.getStart()) {  // Only variant end within the exon  ----||||||||||E||||----
                     cdnaExonEnd += (exon.getEnd() - exon.getStart() + 1);
                     cdnaVariantEnd = cdnaExonEnd - (exon.getEnd() - variantEnd);
-                    exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix,
+                    exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons),
                             (variantEnd - exon.getStart() + 1) * 100f / exonSize));
 //                    variantEndExonNumber = exon.getExonNumber();
                 } else {  // Variant does not include this exon, variant is located before this exon
@@ -791,7 +787,7 @@ public class ConsequenceTypeGenericRegionCalculator extends ConsequenceTypeCalcu
                 }
             } else {  // Variant includes the whole exon. Variant start is located before the exon, variant end is located after the exon
                 cdnaExonEnd += (exon.getEnd() - exon.getStart() + 1);
-                exonOverlap.add(new ExonOverlap(exon.getExonNumber() + exonStringSuffix, 100f));
+                exonOverlap.add(new ExonOverlap(getExonLabel(exon.getExonNumber(), numExons), 100f));
             }
             exonCounter++;
         }
@@ -191,8 +191,7 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
         }
         if (exonNumber != NO_EXON_OVERLAP) {
             consequenceType.setExonOverlap(
-                    Collections.singletonList(new ExonOverlap((new StringBuilder()).append(exonNumber).append("/")
-                            .append(transcript.getExons().size()).toString(),
+                    Collections.singletonList(new ExonOverlap(getExonLabel(exonNumber, transcript.getExons().size()),
                     INVALID_OVERLAP_PERCENTAGE)));
         }
         solveMiRNA(cdnaVariantStart, cdnaVariantEnd, junctionSolution[1]);
@@ -200,7 +199,6 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
 
     protected void solveCodingNegativeTranscript() throws CellBaseException {
         Exon exon = transcript.getExons().get(0);
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantStart = -1;
@@ -237,7 +235,6 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
         while (exonCounter < transcript.getExons().size() && variantAhead) {
             int prevSpliceSite = exon.getStart() - 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
-            transcriptSequence = exon.getSequence() + transcriptSequence;
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && exon.getGenomicCodingEnd() >= exon.getStart()) {
                 firstCdsPhase = exon.getPhase();
@@ -270,7 +267,7 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
         }
         if (exonNumber != NO_EXON_OVERLAP) {
             consequenceType.setExonOverlap(Collections.singletonList(new ExonOverlap(
-                    (new StringBuilder()).append(exonNumber).append("/").append(transcript.getExons().size()).toString(),
+                    getExonLabel(exonNumber, transcript.getExons().size()),
                     INVALID_OVERLAP_PERCENTAGE)));
         }
         // Is not intron variant (both ends fall within the same intron)
@@ -280,7 +277,7 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
             } else if (cdnaVariantEnd == -1 && cdnaVariantStart != -1) {  // To account for those insertions in the 5' end of an intron
                 cdnaVariantEnd = cdnaVariantStart + 1;
             }
-            solveExonVariantInNegativeTranscript(splicing, transcriptSequence, cdnaVariantStart, cdnaVariantEnd,
+            solveExonVariantInNegativeTranscript(splicing, getSplicedSequence(exonCounter), cdnaVariantStart, cdnaVariantEnd,
                     firstCdsPhase);
         }
     }
@@ -466,7 +463,7 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
         if (variantEnd > (transcript.getStart() - 5001) && variantStart < transcript.getStart()) {
             // Variant within -2kb region
             if (variantEnd > (transcript.getStart() - 2001)) {
-                SoNames.add("2KB_" + leftRegionTag.replace(DOWN_UP_STREAM_GENE_TAG, ""));
+                SoNames.add(getTwoKbRegionTag(leftRegionTag));
             } else {
                 SoNames.add(leftRegionTag);
             }
@@ -475,7 +472,7 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
         if (variantEnd > transcript.getEnd() && variantStart < (transcript.getEnd() + 5001)) {
             // Variant within +2kb region
             if (variantStart < (transcript.getEnd() + 2001)) {
-                SoNames.add("2KB_" + rightRegionTag.replace(DOWN_UP_STREAM_GENE_TAG, ""));
+                SoNames.add(getTwoKbRegionTag(rightRegionTag));
             } else {
                 SoNames.add(rightRegionTag);
             }
@@ -558,7 +555,7 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
         }
         if (exonNumber != NO_EXON_OVERLAP) {
             consequenceType.setExonOverlap(Collections.singletonList(new ExonOverlap(
-                    (new StringBuilder()).append(exonNumber).append("/").append(transcript.getExons().size()).toString(),
+                    getExonLabel(exonNumber, transcript.getExons().size()),
                     INVALID_OVERLAP_PERCENTAGE)));
         }
         solveMiRNA(cdnaVariantStart, cdnaVariantEnd, junctionSolution[1]);
@@ -567,7 +564,6 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
     protected void solveCodingPositiveTranscript() throws CellBaseException {
 
         Exon exon = transcript.getExons().get(0);
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantStart = -1;
@@ -606,7 +602,6 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
         while (exonCounter < transcript.getExons().size() && variantAhead) {
             int prevSpliceSite = exon.getEnd() + 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
-            transcriptSequence = transcriptSequence + exon.getSequence();
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && transcript.getGenomicCodingStart() <= exon.getEnd()) {
                 firstCdsPhase = exon.getPhase();
@@ -642,7 +637,7 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
         }
         if (exonNumber != NO_EXON_OVERLAP) {
             consequenceType.setExonOverlap(Collections.singletonList(new ExonOverlap(
-                    (new StringBuilder()).append(exonNumber).append("/").append(transcript.getExons().size()).toString(),
+                    getExonLabel(exonNumber, transcript.getExons().size()),
                     INVALID_OVERLAP_PERCENTAGE)));
         }
         // Is not intron variant (both ends fall within the same intron)
@@ -652,7 +647,7 @@ public class ConsequenceTypeInsertionCalculator extends ConsequenceTypeCalculato
             } else if (cdnaVariantEnd == -1 && cdnaVariantStart != -1) {  // To account for those insertions in the 5' end of an intron
                 cdnaVariantEnd = cdnaVariantStart + 1;
             }
-            solveExonVariantInPositiveTranscript(splicing, transcriptSequence, cdnaVariantStart, cdnaVariantEnd,
+            solveExonVariantInPositiveTranscript(splicing, getSplicedSequence(exonCounter), cdnaVariantStart, cdnaVariantEnd,
                     firstCdsPhase);
         }
     }
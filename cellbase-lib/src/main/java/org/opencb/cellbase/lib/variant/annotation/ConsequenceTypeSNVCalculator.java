@@ -18,7 +18,6 @@ package org.opencb.cellbase.lib.variant.annotation;
 
 import org.opencb.biodata.models.core.*;
 import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.models.variant.annotation.ConsequenceTypeMappings;
 import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.ExonOverlap;
 import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
@@ -106,8 +105,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
                     }
                 } catch (Exception e) {
                     logger.error("Error computing consequence type: {}", Arrays.toString(e.getStackTrace()));
-                    SequenceOntologyTerm soTerm = new SequenceOntologyTerm(ConsequenceTypeMappings.getSoAccessionString(
-                            VariantAnnotationUtils.FUNCTION_UNCERTAIN_VARIANT), VariantAnnotationUtils.FUNCTION_UNCERTAIN_VARIANT);
+                    SequenceOntologyTerm soTerm = newSequenceOntologyTerm(VariantAnnotationUtils.FUNCTION_UNCERTAIN_VARIANT);
                     consequenceType.setSequenceOntologyTerms(Collections.singletonList(soTerm));
                     consequenceTypeList.add(consequenceType);
                 }
@@ -123,7 +121,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
     protected void solveNonCodingNegativeTranscript() {
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);  // cdnaExonEnd poinst to the same base than exonStart
         int cdnaVariantPosition = -1;
@@ -134,8 +131,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
             cdnaVariantPosition = cdnaExonEnd - (variant.getStart() - exon.getStart());
             consequenceType.setCdnaPosition(cdnaVariantPosition);
             exonOverlap = new ExonOverlap(
-                    (new StringBuilder()).append(exon.getExonNumber()).append("/").append(transcript.getExons().size())
-                            .toString(),
+                    getExonLabel(exon.getExonNumber(), transcript.getExons().size()),
                     100f / exonSize);
 //            consequenceType.setExonNumber(exon.getExonNumber());
         }
@@ -146,7 +142,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
             int prevSpliceSite = exon.getStart() - 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
             exonSize = exon.getEnd() - exon.getStart() + 1;
-            transcriptSequence = exon.getSequence() + transcriptSequence;
             solveJunction(exon.getEnd() + 1, prevSpliceSite, VariantAnnotationUtils.SPLICE_ACCEPTOR_VARIANT,
                     VariantAnnotationUtils.SPLICE_DONOR_VARIANT, junctionSolution);
 
@@ -156,8 +151,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
                     cdnaVariantPosition = cdnaExonEnd - (variant.getStart() - exon.getStart());
                     consequenceType.setCdnaPosition(cdnaVariantPosition);
                     exonOverlap = new ExonOverlap(
-                            (new StringBuilder()).append(exon.getExonNumber()).append("/").append(transcript.getExons().size())
-                                    .toString(),
+                            getExonLabel(exon.getExonNumber(), transcript.getExons().size()),
                             100f / exonSize);
 //                    consequenceType.setExonNumber(exon.getExonNumber());
                 }
@@ -175,7 +169,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
     protected void solveCodingNegativeTranscript() {
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);  // cdnaExonEnd poinst to the same base than exonStart
         int cdnaVariantPosition = -1;
@@ -191,8 +184,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
             cdnaVariantPosition = cdnaExonEnd - (variant.getStart() - exon.getStart());
             consequenceType.setCdnaPosition(cdnaVariantPosition);
             exonOverlap = new ExonOverlap(
-                    (new StringBuilder()).append(exon.getExonNumber()).append("/").append(transcript.getExons().size())
-                            .toString(),
+                    getExonLabel(exon.getExonNumber(), transcript.getExons().size()),
                     100f / exonSize);
 //            consequenceType.setExonNumber(exon.getExonNumber());
         }
@@ -203,7 +195,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
             int prevSpliceSite = exon.getStart() - 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
             exonSize = exon.getEnd() - exon.getStart() + 1;
-            transcriptSequence = exon.getSequence() + transcriptSequence;
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && transcript.getGenomicCodingEnd() >= exon.getStart()) {
                 firstCdsPhase = exon.getPhase();
@@ -218,8 +209,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
                     cdnaVariantPosition = cdnaExonEnd - (variant.getStart() - exon.getStart());
                     consequenceType.setCdnaPosition(cdnaVariantPosition);
                     exonOverlap = new ExonOverlap(
-                            (new StringBuilder()).append(exon.getExonNumber()).append("/").append(transcript.getExons()
-                                    .size()).toString(),
+                            getExonLabel(exon.getExonNumber(), transcript.getExons().size()),
                             100f / exonSize);
 //                    consequenceType.setExonNumber(exon.getExonNumber());
                 }
@@ -233,7 +223,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
         }
         // Is not intron variant (both ends fall within the same intron)
         if (!junctionSolution[1]) {
-            solveExonVariantInNegativeTranscript(splicing, transcriptSequence, cdnaVariantPosition, firstCdsPhase);
+            solveExonVariantInNegativeTranscript(splicing, getSplicedSequence(exonCounter), cdnaVariantPosition, firstCdsPhase);
         }
     }
 
@@ -347,7 +337,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
         if (variant.getStart() > (transcript.getStart() - 5001) && variant.getStart() < transcript.getStart()) {
             // Variant within -2kb region
             if (variant.getStart() > (transcript.getStart() - 2001)) {
-                SoNames.add("2KB_" + leftRegionTag.replace(DOWN_UP_STREAM_GENE_TAG, ""));
+                SoNames.add(getTwoKbRegionTag(leftRegionTag));
             } else {
                 SoNames.add(leftRegionTag);
             }
@@ -356,7 +346,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
         if (variant.getStart() > transcript.getEnd() && variant.getStart() < (transcript.getEnd() + 5001)) {
             // Variant within +2kb region
             if (variant.getStart() < (transcript.getEnd() + 2001)) {
-                SoNames.add("2KB_" + rightRegionTag.replace(DOWN_UP_STREAM_GENE_TAG, ""));
+                SoNames.add(getTwoKbRegionTag(rightRegionTag));
             } else {
                 SoNames.add(rightRegionTag);
             }
@@ -379,8 +369,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
                 cdnaVariantPosition = cdnaExonEnd - (exon.getEnd() - variant.getStart());
                 consequenceType.setCdnaPosition(cdnaVariantPosition);
                 exonOverlap = new ExonOverlap(
-                        (new StringBuilder()).append(exon.getExonNumber()).append("/").append(transcript.getExons()
-                                .size()).toString(),
+                        getExonLabel(exon.getExonNumber(), transcript.getExons().size()),
                         100f / exonSize);
 //                consequenceType.setExonNumber(exon.getExonNumber());
             }
@@ -401,8 +390,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
                     cdnaVariantPosition = cdnaExonEnd - (exon.getEnd() - variant.getStart());
                     consequenceType.setCdnaPosition(cdnaVariantPosition);
                     exonOverlap = new ExonOverlap(
-                            (new StringBuilder()).append(exon.getExonNumber()).append("/").append(transcript.getExons()
-                                    .size()).toString(),
+                            getExonLabel(exon.getExonNumber(), transcript.getExons().size()),
                             100f / exonSize);
 //                    consequenceType.setExonNumber(exon.getExonNumber());
                 }
@@ -448,7 +436,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
     protected void solveCodingPositiveTranscript() {
         Exon exon = transcript.getExons().get(0);
         int exonSize = exon.getEnd() - exon.getStart() + 1;
-        String transcriptSequence = exon.getSequence();
         boolean variantAhead = true; // we need a first iteration within the while to ensure junction is solved in case needed
         int cdnaExonEnd = (exon.getEnd() - exon.getStart() + 1);
         int cdnaVariantPosition = -1;
@@ -464,8 +451,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
             cdnaVariantPosition = cdnaExonEnd - (exon.getEnd() - variant.getStart());
             consequenceType.setCdnaPosition(cdnaVariantPosition);
             exonOverlap = new ExonOverlap(
-                    (new StringBuilder()).append(exon.getExonNumber()).append("/").append(transcript.getExons().size())
-                            .toString(),
+                    getExonLabel(exon.getExonNumber(), transcript.getExons().size()),
                     100f / exonSize);
 //            consequenceType.setExonNumber(exon.getExonNumber());
         }
@@ -476,7 +462,6 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
             int prevSpliceSite = exon.getEnd() + 1;
             exon = transcript.getExons().get(exonCounter);          // next exon has been loaded
             exonSize = exon.getEnd() - exon.getStart() + 1;
-            transcriptSequence = transcriptSequence + exon.getSequence();
             // Set firsCdsPhase only when the first coding exon is reached
             if (firstCdsPhase == -1 && transcript.getGenomicCodingStart() <= exon.getEnd()) {
                 firstCdsPhase = exon.getPhase();
@@ -491,8 +476,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
                     cdnaVariantPosition = cdnaExonEnd - (exon.getEnd() - variant.getStart());
                     consequenceType.setCdnaPosition(cdnaVariantPosition);
                     exonOverlap = new ExonOverlap(
-                            (new StringBuilder()).append(exon.getExonNumber()).append("/").append(transcript.getExons()
-                                    .size()).toString(),
+                            getExonLabel(exon.getExonNumber(), transcript.getExons().size()),
                             100f / exonSize);
 //                    consequenceType.setExonNumber(exon.getExonNumber());
                 }
@@ -506,7 +490,7 @@ public class ConsequenceTypeSNVCalculator extends ConsequenceTypeCalculator {
         }
         // Is not intron variant (both ends fall within the same intron)
         if (!junctionSolution[1]) {
-            solveExonVariantInPositiveTranscript(splicing, transcriptSequence, cdnaVariantPosition, firstCdsPhase);
+            solveExonVariantInPositiveTranscript(splicing, getSplicedSequence(exonCounter), cdnaVariantPosition, firstCdsPhase);
         }
     }
 
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.lib.variant.annotation;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.tools.sequence.SequenceAdaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * SequenceAdaptor that fetches, before a batch of variants is normalized, one reference window for each cluster of
+ * nearby variants. Queries falling inside a prefetched window are answered from memory, any other query goes to the
+ * wrapped adaptor. Windows are replaced on every prefetch, so memory is bounded by the batch. Not thread safe, each
+ * normalizer must use its own instance.
+ */
+public class PrefetchSequenceAdaptor implements SequenceAdaptor {
+
+    // Bases fetched at each side of the variants, enough for the left alignment of most indels
+    public static final int DEFAULT_FLANK = 1000;
+    // Variants closer than this are fetched in the same window
+    public static final int DEFAULT_MAX_GAP = 10000;
+    public static final int DEFAULT_MAX_WINDOW_SIZE = 1000000;
+
+    private final SequenceAdaptor sequenceAdaptor;
+    private int flank;
+    private int maxGap;
+    private int maxWindowSize;
+
+    // key = contig, value = window start to sequence
+    private Map<String, TreeMap<Integer, String>> windows;
+    private long hits;
+    private long misses;
+
+    private final Logger logger = LoggerFactory.getLogger(PrefetchSequenceAdaptor.class);
+
+    public PrefetchSequenceAdaptor(SequenceAdaptor sequenceAdaptor) {
+        this.sequenceAdaptor = sequenceAdaptor;
+        this.flank = DEFAULT_FLANK;
+        this.maxGap = DEFAULT_MAX_GAP;
+        this.maxWindowSize = DEFAULT_MAX_WINDOW_SIZE;
+        this.windows = Collections.emptyMap();
+    }
+
+    /**
+     * Fetches the reference windows of a batch of variants, replacing the windows of the previous batch. Variants are
+     * sorted by position and grouped while the window covering them is not larger than the maximum window size.
+     *
+     * @param variants variants about to be normalized
+     */
+    public void prefetch(List<Variant> variants) {
+        List<int[]> ranges = new ArrayList<>(variants.size());
+        // index in ranges to contig
+        List<String> contigs = new ArrayList<>(variants.size());
+        Map<String, Integer> contigIds = new HashMap<>();
+        for (Variant variant : variants) {
+            if (variant.getChromosome() == null || variant.getStart() == null || variant.getEnd() == null) {
+                continue;
+            }
+            Integer contigId = contigIds.get(variant.getChromosome());
+            if (contigId == null) {
+                contigId = contigIds.size();
+                contigIds.put(variant.getChromosome(), contigId);
+                contigs.add(variant.getChromosome());
+            }
+            int start = Math.max(1, Math.min(variant.getStart(), variant.getEnd()) - flank);
+            int end = Math.max(variant.getStart(), variant.getEnd()) + flank;
+            ranges.add(new int[]{contigId, start, end});
+        }
+        ranges.sort(Comparator.<int[]>comparingInt(range -> range[0]).thenComparingInt(range -> range[1]));
+
+        Map<String, TreeMap<Integer, String>> newWindows = new HashMap<>();
+        int i = 0;
+        while (i < ranges.size()) {
+            int[] window = ranges.get(i++).clone();
+            while (i < ranges.size() && ranges.get(i)[0] == window[0] && ranges.get(i)[1] <= window[2] + maxGap
+                    && Math.max(window[2], ranges.get(i)[2]) - window[1] < maxWindowSize) {
+                window[2] = Math.max(window[2], ranges.get(i++)[2]);
+            }
+            String contig = contigs.get(window[0]);
+            try {
+                String sequence = sequenceAdaptor.query(contig, window[1], window[2]);
+                if (sequence != null && !sequence.isEmpty()) {
+                    newWindows.computeIfAbsent(contig, k -> new TreeMap<>()).put(window[1], sequence);
+                }
+            } catch (Exception e) {
+                // Unknown contig or out of bounds, the queries of these variants will reach the wrapped adaptor
+                logger.debug("Unable to prefetch {}:{}-{}: {}", contig, window[1], window[2], e.getMessage());
+            }
+        }
+        windows = newWindows;
+    }
+
+    @Override
+    public String query(String contig, int start, int end) throws Exception {
+        TreeMap<Integer, String> contigWindows = windows.get(contig);
+        if (contigWindows != null) {
+            Map.Entry<Integer, String> window = contigWindows.floorEntry(start);
+            if (window != null && end >= start && end < window.getKey() + window.getValue().length()) {
+                hits++;
+                return window.getValue().substring(start - window.getKey(), end - window.getKey() + 1);
+            }
+        }
+        misses++;
+        return sequenceAdaptor.query(contig, start, end);
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int getFlank() {
+        return flank;
+    }
+
+    public PrefetchSequenceAdaptor setFlank(int flank) {
+        this.flank = flank;
+        return this;
+    }
+
+    public int getMaxGap() {
+        return maxGap;
+    }
+
+    public PrefetchSequenceAdaptor setMaxGap(int maxGap) {
+        this.maxGap = maxGap;
+        return this;
+    }
+
+    public int getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+    public PrefetchSequenceAdaptor setMaxWindowSize(int maxWindowSize) {
+        this.maxWindowSize = maxWindowSize;
+        return this;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.lib.variant.annotation;
+
+import org.opencb.biodata.models.core.Exon;
+import org.opencb.biodata.models.core.Transcript;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spliced sequence of a transcript, the exon sequences concatenated in genomic order, and the cumulative length of the
+ * exons in transcript order. Built once per transcript, database and data release, consequence type calculators take the
+ * sequence of the first exons from it instead of concatenating the exon sequences for every variant.
+ */
+final class SplicedTranscriptSequence {
+
+    private static final int MAX_TRANSCRIPTS = 20000;
+
+    // key = database name:dataRelease:source:transcript id, transcripts of different species share ids and sources
+    private static final Map<String, SplicedTranscriptSequence> CACHE =
+            new LinkedHashMap<String, SplicedTranscriptSequence>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SplicedTranscriptSequence> eldest) {
+                    return size() > MAX_TRANSCRIPTS;
+                }
+            };
+
+    private final boolean negativeStrand;
+    private final String sequence;
+    // exonOffsets[i] = length of the sequences of exons 0..i-1, in transcript order
+    private final int[] exonOffsets;
+
+    private SplicedTranscriptSequence(Transcript transcript) {
+        List<Exon> exons = transcript.getExons();
+        negativeStrand = !"+".equals(transcript.getStrand());
+        exonOffsets = new int[exons.size() + 1];
+        for (int i = 0; i < exons.size(); i++) {
+            exonOffsets[i + 1] = exonOffsets[i] + getLength(exons.get(i));
+        }
+
+        // Genomic order: exons are sorted in transcript order, the last exon goes first in negative strand transcripts
+        StringBuilder sb = new StringBuilder(exonOffsets[exons.size()]);
+        for (int i = 0; i < exons.size(); i++) {
+            Exon exon = exons.get(negativeStrand ? exons.size() - 1 - i : i);
+            if (exon.getSequence() != null) {
+                sb.append(exon.getSequence());
+            }
+        }
+        sequence = sb.toString();
+    }
+
+    static SplicedTranscriptSequence get(Transcript transcript, String databaseName, int dataRelease) {
+        String key = databaseName + ":" + dataRelease + ":" + transcript.getSource() + ":" + transcript.getId();
+        SplicedTranscriptSequence splicedSequence;
+        synchronized (CACHE) {
+            splicedSequence = CACHE.get(key);
+        }
+        // Transcripts read with a projection may lack the exon sequences, those are not shared
+        if (splicedSequence == null || !splicedSequence.matches(transcript)) {
+            splicedSequence = new SplicedTranscriptSequence(transcript);
+            synchronized (CACHE) {
+                CACHE.put(key, splicedSequence);
+            }
+        }
+        return splicedSequence;
+    }
+
+    /**
+     * Spliced sequence of the first exons in transcript order, the same sequence obtained by concatenating those exon
+     * sequences in genomic order.
+     *
+     * @param numExons number of exons, from the first one in transcript order
+     * @return spliced sequence of the exons
+     */
+    String getSequence(int numExons) {
+        int length = exonOffsets[Math.min(numExons, exonOffsets.length - 1)];
+        if (length == sequence.length()) {
+            return sequence;
+        }
+        // Exons in transcript order are at the end of the sequence in negative strand transcripts
+        return negativeStrand ? sequence.substring(sequence.length() - length) : sequence.substring(0, length);
+    }
+
+    private boolean matches(Transcript transcript) {
+        List<Exon> exons = transcript.getExons();
+        if (exons.size() + 1 != exonOffsets.length || negativeStrand == "+".equals(transcript.getStrand())) {
+            return false;
+        }
+        for (int i = 0; i < exons.size(); i++) {
+            if (getLength(exons.get(i)) != exonOffsets[i + 1] - exonOffsets[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int getLength(Exon exon) {
+        return exon.getSequence() != null ? exon.getSequence().length() : 0;
+    }
+}
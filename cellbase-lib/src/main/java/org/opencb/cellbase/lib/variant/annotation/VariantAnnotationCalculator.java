@@ -30,8 +30,6 @@ import org.opencb.biodata.tools.variant.exceptions.VariantNormalizerException;
 import org.opencb.cellbase.core.ParamConstants;
 import org.opencb.cellbase.core.api.GeneQuery;
 import org.opencb.cellbase.core.api.RegulationQuery;
-import org.opencb.cellbase.core.api.RepeatsQuery;
-import org.opencb.cellbase.core.api.query.LogicalList;
 import org.opencb.cellbase.core.api.query.QueryException;
 import org.opencb.cellbase.core.exception.CellBaseException;
 import org.opencb.cellbase.core.result.CellBaseDataResult;
@@ -422,21 +420,14 @@ public class VariantAnnotationCalculator {
         return geneList;
     }
 
-    private List<GeneMirnaTarget> getTargets(Gene mirna) throws QueryException, IllegalAccessException, CellBaseException {
+    private List<GeneMirnaTarget> getTargets(Gene mirna) throws CellBaseException {
         List<String> mirnas = new ArrayList<>();
         for (MiRnaMature mature : mirna.getMirna().getMatures()) {
             if (mature.getId() != null) {
                 mirnas.add(mature.getId());
             }
         }
-        GeneQuery geneQuery = new GeneQuery();
-        geneQuery.setAnnotationTargets(new LogicalList<>(mirnas, false));
-        List<GeneMirnaTarget> geneMirnaTargets = new ArrayList<>();
-        List<Gene> genes = (geneManager.search(geneQuery)).getResults();
-        for (Gene gene : genes) {
-            geneMirnaTargets.add(new GeneMirnaTarget(gene.getId(), gene.getName(), gene.getBiotype()));
-        }
-        return geneMirnaTargets;
+        return geneManager.getMirnaTargets(mirnas, dataRelease);
     }
 
     private List<VariantAnnotation> runAnnotationProcess(List<Variant> normalizedVariantList, int dataRelease)
@@ -1398,7 +1389,8 @@ public class VariantAnnotationCalculator {
         if (regulatoryAnnotation) {
             overlapsRegulatoryRegion = getRegulatoryRegionOverlaps(variant);
         }
-        ConsequenceTypeCalculator consequenceTypeCalculator = getConsequenceTypeCalculator(variant);
+        ConsequenceTypeCalculator consequenceTypeCalculator = getConsequenceTypeCalculator(variant).setDataRelease(dataRelease)
+                .setDatabaseName(genomeManager.getDatabaseName());
         List<ConsequenceType> consequenceTypeList = consequenceTypeCalculator.run(variant, geneList,
                 overlapsRegulatoryRegion, queryOptions);
         if (variant.getType() == VariantType.SNV
@@ -1771,32 +1763,13 @@ public class VariantAnnotationCalculator {
             List<CellBaseDataResult<Repeat>> cellBaseDataResultList = new ArrayList<>(variantList.size());
 
             logger.debug("Query repeats");
-            // Want to return only one CellBaseDataResult object per Variant
+            // Want to return only one CellBaseDataResult object per Variant. There may be two breakpoints for non SNV
+            // variants, the whole batch is resolved with one query per chromosome
+            List<List<Region>> breakpointsList = new ArrayList<>(variantList.size());
             for (Variant variant : variantList) {
-                List<RepeatsQuery> queries = new ArrayList<>();
-                for (Region region :  breakpointsToRegionList(variant)) {
-                    RepeatsQuery query = new RepeatsQuery();
-                    query.setDataRelease(dataRelease);
-                    query.setRegions(Collections.singletonList(region));
-                    queries.add(query);
-                }
-                List<CellBaseDataResult<Repeat>> tmpCellBaseDataResultList = repeatsManager.search(queries);
-
-                // There may be more than one CellBaseDataResult per variant for non SNV variants since there will be
-                // two breakpoints
-                // Reuse one of the CellBaseDataResult objects returned by the adaptor
-                CellBaseDataResult newCellBaseDataResult = tmpCellBaseDataResultList.get(0);
-                if (tmpCellBaseDataResultList.size() > 1) {
-                    Set<Repeat> repeatSet = new HashSet<>(newCellBaseDataResult.getResults());
-                    // Reuse one of the CellBaseDataResult objects - new result is the set formed by the repeats corresponding
-                    // to the two breakpoints
-                    repeatSet.addAll(tmpCellBaseDataResultList.get(1).getResults());
-                    newCellBaseDataResult.setNumResults(repeatSet.size());
-                    newCellBaseDataResult.setNumMatches(repeatSet.size());
-                    newCellBaseDataResult.setResults(new ArrayList(repeatSet));
-                }
-                cellBaseDataResultList.add(newCellBaseDataResult);
+                breakpointsList.add(breakpointsToRegionList(variant));
             }
+            cellBaseDataResultList.addAll(repeatsManager.getByBreakpoints(breakpointsList, dataRelease));
 
             logger.debug("Repeat query performance is {}ms for {} variants", System.currentTimeMillis() - startTime,
                     variantList.size());
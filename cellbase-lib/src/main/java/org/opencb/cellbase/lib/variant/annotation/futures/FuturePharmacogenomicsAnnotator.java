@@ -83,12 +83,19 @@ public class FuturePharmacogenomicsAnnotator implements Callable<List<CellBaseDa
         includes.add("variants.evidences.variantAssociations.discussion");
         includes.add("variants.alleles");
         logger.info("Pharmacogenomics variant annotation/search includes: {}", StringUtils.join(includes, ","));
-        for (Variant variant : variantList) {
+        if (pharmacogenomicsManager.hasVariantIndex(dataRelease)) {
+            // One single query for the whole batch, only the clinical annotations of these variants are returned
             PharmaChemicalQuery query = new PharmaChemicalQuery();
-            query.setLocations(Collections.singletonList(variant.getChromosome() + ":" + variant.getStart()));
-            query.setDataRelease(dataRelease);
             query.setIncludes(includes);
-            cellBaseDataResultList.add(pharmacogenomicsManager.search(query));
+            cellBaseDataResultList.addAll(pharmacogenomicsManager.getByVariants(variantList, query, dataRelease));
+        } else {
+            for (Variant variant : variantList) {
+                PharmaChemicalQuery query = new PharmaChemicalQuery();
+                query.setLocations(Collections.singletonList(variant.getChromosome() + ":" + variant.getStart()));
+                query.setDataRelease(dataRelease);
+                query.setIncludes(includes);
+                cellBaseDataResultList.add(pharmacogenomicsManager.search(query));
+            }
         }
         logger.info("Pharmacogenomics queries performance in {} ms for {} variants", System.currentTimeMillis() - startTime,
                 variantList.size());
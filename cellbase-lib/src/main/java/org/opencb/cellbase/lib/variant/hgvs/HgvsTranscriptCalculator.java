@@ -24,8 +24,6 @@ import org.opencb.biodata.models.variant.Variant;
 import org.opencb.cellbase.core.exception.CellBaseException;
 import org.opencb.cellbase.lib.managers.GenomeManager;
 import org.opencb.cellbase.lib.variant.VariantAnnotationUtils;
-import org.opencb.commons.datastore.core.Query;
-import org.opencb.commons.datastore.core.QueryOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -432,15 +430,22 @@ public class HgvsTranscriptCalculator {
         buildingComponents.setCdnaEnd(HgvsCalculator.genomicToCdnaCoord(transcript, end));
     }
 
+    private String getGenomicSequence(String chromosome, int start, int end) throws CellBaseException {
+        // All the transcripts overlapping the variant request the same neighbourhood, served from the genome sequence cache
+        String genomicSequence = genomeManager.getCachedSequence(chromosome, start, end, dataRelease);
+        if (genomicSequence == null) {
+            throw new CellBaseException("Unable to find genomic sequence for " + chromosome + ":" + start + "-" + end);
+        }
+        return genomicSequence;
+    }
+
     private BuildingComponents.MutationType genomicInsertionHgvsNormalize(Variant variant, Transcript transcript,
                                                                           Variant normalizedVariant) throws CellBaseException {
         // Get genomic sequence around the lesion.
         int neighbouringSequenceSize = Math.max(MINIMUM_NEIGHBOURING_SEQUENCE_SIZE, variant.getAlternate().length());
         int start = Math.max(variant.getStart() - neighbouringSequenceSize, 1);  // TODO: might need to adjust +-1 nt
         int end = variant.getStart() + neighbouringSequenceSize + variant.getAlternate().length(); // TODO: might need to adjust +-1 nt
-        Query query = new Query("region", variant.getChromosome()
-                + ":" + start + "-" + end);
-        String genomicSequence = genomeManager.getGenomicSequence(query, new QueryOptions(), dataRelease).getResults().get(0).getSequence();
+        String genomicSequence = getGenomicSequence(variant.getChromosome(), start, end);
 
         // Create normalizedVariant and justify sequence to the right/left as appropriate
         normalizedVariant.setChromosome(variant.getChromosome());
@@ -499,10 +504,7 @@ public class HgvsTranscriptCalculator {
         // Get genomic sequence around the lesion.
         int start = Math.max(variant.getStart() - MINIMUM_NEIGHBOURING_SEQUENCE_SIZE, 1);  // TODO: might need to adjust +-1 nt
         int end = variant.getStart() + MINIMUM_NEIGHBOURING_SEQUENCE_SIZE;                 // TODO: might need to adjust +-1 nt
-        Query query = new Query("region", variant.getChromosome()
-                + ":" + start + "-" + end);
-        String genomicSequence
-                = genomeManager.getGenomicSequence(query, new QueryOptions(), dataRelease).getResults().get(0).getSequence();
+        String genomicSequence = getGenomicSequence(variant.getChromosome(), start, end);
 
         // Create normalizedVariant and justify sequence to the right/left as appropriate
         normalizedVariant.setChromosome(variant.getChromosome());
@@ -20,6 +20,7 @@ package org.opencb.cellbase.lib.builders;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -34,14 +35,17 @@ import org.opencb.cellbase.core.serializer.CellBaseSerializer;
 import org.opencb.commons.utils.FileUtils;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -128,6 +132,82 @@ public class GeneBuilderTest {
         assertEquals("ENSP00000490709", transcript.getProteinId());
     }
 
+    @Test
+    public void testParallelBuild() throws Exception {
+        Path tmpDir = Files.createTempDirectory("gene_builder");
+        try {
+            Path genomeFastaFile = createGenomeFasta(tmpDir.resolve("genome.fa"));
+            String serialGenes = buildGenes(tmpDir.resolve("serial"), genomeFastaFile, 1);
+            String parallelGenes = buildGenes(tmpDir.resolve("parallel"), genomeFastaFile, 4);
+
+            // Genes are serialized in GTF order whatever the number of threads
+            assertEquals(15, serialGenes.split("\n").length);
+            assertEquals(serialGenes, parallelGenes);
+        } finally {
+            org.apache.commons.io.FileUtils.deleteDirectory(tmpDir.toFile());
+        }
+    }
+
+    private String buildGenes(Path buildDir, Path genomeFastaFile, int numThreads) throws Exception {
+        // Each build gets its own copy of the input files, the gene indexer creates its RocksDB in the gene folder
+        Path geneDir = buildDir.resolve("gene");
+        org.apache.commons.io.FileUtils.copyDirectory(Paths.get(GeneBuilderTest.class.getResource("/gene").toURI()).toFile(),
+                geneDir.toFile());
+        org.apache.commons.io.FileUtils.copyDirectory(Paths.get(GeneBuilderTest.class.getResource("/regulation").toURI()).toFile(),
+                buildDir.resolve("regulation").toFile());
+        // The cancer hotspots file is mandatory, a header is enough
+        try (HSSFWorkbook workbook = new HSSFWorkbook();
+             OutputStream outputStream = Files.newOutputStream(geneDir.resolve("hotspots_v2.xls"))) {
+            workbook.createSheet().createRow(0).createCell(0).setCellValue("Hugo_Symbol");
+            workbook.write(outputStream);
+        }
+        Path outDir = Files.createDirectories(buildDir.resolve("output"));
+
+        CellBaseSerializer serializer = new CellBaseJsonFileSerializer(outDir, "gene", true);
+        new GeneBuilder(geneDir, genomeFastaFile, SPECIES, serializer).setNumThreads(numThreads).parse();
+
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(outDir.resolve("gene.json.gz")))) {
+            return org.apache.commons.io.IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Random genome covering the genes of the test GTF, with its FASTA index.
+     */
+    private Path createGenomeFasta(Path fastaFile) throws IOException {
+        Map<String, Integer> chromosomes = new LinkedHashMap<>();
+        chromosomes.put("1", 140000);
+        chromosomes.put("16", 28500000);
+        int lineLength = 60;
+
+        Random random = new Random(3);
+        char[] bases = {'A', 'C', 'G', 'T'};
+        StringBuilder fai = new StringBuilder();
+        long offset = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(fastaFile)) {
+            for (Map.Entry<String, Integer> chromosome : chromosomes.entrySet()) {
+                String header = ">" + chromosome.getKey() + "\n";
+                writer.write(header);
+                offset += header.length();
+                fai.append(chromosome.getKey()).append('\t').append(chromosome.getValue()).append('\t').append(offset)
+                        .append('\t').append(lineLength).append('\t').append(lineLength + 1).append('\n');
+
+                char[] line = new char[lineLength];
+                for (int position = 0; position < chromosome.getValue(); position += lineLength) {
+                    int length = Math.min(lineLength, chromosome.getValue() - position);
+                    for (int i = 0; i < length; i++) {
+                        line[i] = bases[random.nextInt(bases.length)];
+                    }
+                    writer.write(line, 0, length);
+                    writer.write('\n');
+                    offset += length + 1;
+                }
+            }
+        }
+        Files.write(Paths.get(fastaFile + ".fai"), fai.toString().getBytes(StandardCharsets.UTF_8));
+        return fastaFile;
+    }
+
     private Xref getXref(Transcript transcript, String xrefId) {
         for (Xref xref : transcript.getXrefs()) {
             if (xref.getId().equals(xrefId)) {
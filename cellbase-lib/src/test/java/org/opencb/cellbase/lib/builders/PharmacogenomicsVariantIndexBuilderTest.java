@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.builders;
+
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.pharma.PharmaChemical;
+import org.opencb.biodata.models.pharma.PharmaClinicalAllele;
+import org.opencb.biodata.models.pharma.PharmaVariantAnnotation;
+import org.opencb.biodata.models.variant.Variant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PharmacogenomicsVariantIndexBuilderTest {
+
+    private PharmaVariantAnnotation createVariantAnnotation(String chromosome, int position, String... alleles) {
+        PharmaVariantAnnotation pharmaVariantAnnotation = new PharmaVariantAnnotation();
+        pharmaVariantAnnotation.setChromosome(chromosome);
+        pharmaVariantAnnotation.setPosition(position);
+        List<PharmaClinicalAllele> clinicalAlleles = new ArrayList<>();
+        for (String allele : alleles) {
+            PharmaClinicalAllele clinicalAllele = new PharmaClinicalAllele();
+            clinicalAllele.setAllele(allele);
+            clinicalAlleles.add(clinicalAllele);
+        }
+        pharmaVariantAnnotation.setAlleles(clinicalAlleles);
+        return pharmaVariantAnnotation;
+    }
+
+    @Test
+    public void testVariantKeys() {
+        assertEquals(Arrays.asList("19:45411941:CC", "19:45411941:CT"),
+                PharmacogenomicsVariantIndexBuilder.getVariantKeys(createVariantAnnotation("19", 45411941, "CC", "ct")));
+        assertEquals(Arrays.asList("19:45411941:CC", "19:45411941:*"),
+                PharmacogenomicsVariantIndexBuilder.getVariantKeys(createVariantAnnotation("19", 45411941, "CC", "*1/*2")));
+        assertEquals(Collections.singletonList("19:45411941:*"),
+                PharmacogenomicsVariantIndexBuilder.getVariantKeys(createVariantAnnotation("19", 45411941)));
+
+        assertEquals(Arrays.asList("19:45411941:CC", "19:45411941:*"),
+                PharmacogenomicsVariantIndexBuilder.getQueryKeys(new Variant("19:45411941:T:C")));
+    }
+
+    @Test
+    public void testBuild() {
+        PharmaChemical pharmaChemical = new PharmaChemical();
+        pharmaChemical.setId("PA448015");
+        pharmaChemical.setName("atorvastatin");
+        pharmaChemical.setVariants(Arrays.asList(createVariantAnnotation("19", 45411941, "CC"),
+                createVariantAnnotation(null, 0, "AA"), createVariantAnnotation("1", 100, "GG")));
+
+        List<Map<String, Object>> documents = new PharmacogenomicsVariantIndexBuilder().build(pharmaChemical);
+        // Clinical annotations without location are not indexed
+        assertEquals(2, documents.size());
+        assertEquals("PA448015", documents.get(0).get("id"));
+        assertEquals(1, ((List) documents.get(0).get("variants")).size());
+        assertEquals(Collections.singletonList("1:100:GG"), documents.get(1).get(PharmacogenomicsVariantIndexBuilder.VARIANT_KEYS_FIELD));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.builders.clinical.variant;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksIterator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClinVarIndexerTest {
+
+    private Path outdir;
+    private Path clinicalVariantDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        outdir = Files.createTempDirectory("clinvar_index");
+        clinicalVariantDir = Paths.get(getClass().getResource("/variant/annotation/clinicalVariant").toURI());
+
+        // The same release twice, so that every record of the second chunk updates an entry written by the first one
+        Path chunksDir = Files.createDirectories(outdir.resolve("clinvar_chunks"));
+        Path clinvarXmlFile = clinicalVariantDir.resolve("ClinVarFullRelease_2020-02.xml.gz");
+        Files.copy(clinvarXmlFile, chunksDir.resolve("chunk_1.xml.gz"));
+        Files.copy(clinvarXmlFile, chunksDir.resolve("chunk_2.xml.gz"));
+
+        // The variant_summary fixture predates the PositionVCF, ReferenceAlleleVCF and AlternateAlleleVCF columns the
+        // indexer reads the alleles from, they are filled in from the Start, ReferenceAllele and AlternateAllele columns
+        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                Files.newInputStream(clinicalVariantDir.resolve("variant_summary.txt.gz")))));
+             BufferedWriter bufferedWriter = Files.newBufferedWriter(outdir.resolve("variant_summary.txt"))) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+                bufferedWriter.write(line + "\t-\t" + parts[19] + "\t" + parts[21] + "\t" + parts[22]);
+                bufferedWriter.newLine();
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(outdir.toFile());
+    }
+
+    @Test
+    public void testSameIndexAsSerial() throws Exception {
+        // Reference: each chunk unmarshalled whole with JAXB and every entry put straight into RocksDB
+        Map<String, byte[]> expected = index("serial", false, 10000);
+        assertFalse(expected.isEmpty());
+
+        // Streamed chunks, entries pending in the write batch are read-modified-written
+        assertSameIndex(expected, index("streamed", true, 10000));
+        // Small batches, entries are also read back from RocksDB after the batches are flushed
+        assertSameIndex(expected, index("streamed_small_batches", true, 3));
+    }
+
+    private Map<String, byte[]> index(String name, boolean streamXml, int writeBatchSize) throws Exception {
+        RocksDB.loadLibrary();
+        Options options = new Options().setCreateIfMissing(true);
+        RocksDB rdb = RocksDB.open(options, outdir.resolve(name + ".idx").toString());
+        try {
+            ClinVarIndexer clinVarIndexer = new ClinVarIndexer(outdir.resolve("clinvar_chunks"),
+                    outdir.resolve("variant_summary.txt"), clinicalVariantDir.resolve("variation_allele.txt.gz"),
+                    null, false, null, "GRCh37", rdb);
+            clinVarIndexer.setWriteBatchSize(writeBatchSize).index(streamXml);
+
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            RocksIterator rocksIterator = rdb.newIterator();
+            try {
+                for (rocksIterator.seekToFirst(); rocksIterator.isValid(); rocksIterator.next()) {
+                    entries.put(new String(rocksIterator.key()), rocksIterator.value());
+                }
+            } finally {
+                rocksIterator.dispose();
+            }
+            return entries;
+        } finally {
+            rdb.close();
+            options.dispose();
+        }
+    }
+
+    private void assertSameIndex(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.builders.clinical.variant;
+
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.formats.variant.clinvar.rcv.ClinvarParser;
+import org.opencb.biodata.formats.variant.clinvar.rcv.v64jaxb.PublicSetType;
+import org.opencb.biodata.formats.variant.clinvar.rcv.v64jaxb.ReleaseType;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClinVarXmlReaderTest {
+
+    @Test
+    public void testSameRecordsAsJaxb() throws Exception {
+        Path clinvarXmlFile = Paths.get(getClass()
+                .getResource("/variant/annotation/clinicalVariant/ClinVarFullRelease_2020-02.xml.gz").toURI());
+
+        // Reference: the whole release unmarshalled at once
+        JAXBElement<ReleaseType> release = (JAXBElement<ReleaseType>) ClinvarParser.loadXMLInfo(clinvarXmlFile.toString(),
+                ClinVarXmlReader.CLINVAR_CONTEXT);
+        List<PublicSetType> expected = release.getValue().getClinVarSet();
+
+        List<PublicSetType> actual = new ArrayList<>();
+        try (ClinVarXmlReader reader = new ClinVarXmlReader(clinvarXmlFile)) {
+            PublicSetType publicSet;
+            while ((publicSet = reader.read()) != null) {
+                actual.add(publicSet);
+            }
+            // Reading past the end keeps returning null
+            assertNull(reader.read());
+        }
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+
+        // ClinVar indexing only depends on these records, marshalling them back must produce exactly the same XML
+        Marshaller marshaller = JAXBContext.newInstance(ClinVarXmlReader.CLINVAR_CONTEXT).createMarshaller();
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(marshal(marshaller, expected.get(i)), marshal(marshaller, actual.get(i)));
+        }
+    }
+
+    private String marshal(Marshaller marshaller, PublicSetType publicSet) throws Exception {
+        StringWriter writer = new StringWriter();
+        marshaller.marshal(new JAXBElement<>(new QName("ClinVarSet"), PublicSetType.class, publicSet), writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.lib.download;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileDownloaderTest {
+
+    private static final int FILE_SIZE = 1_000_000;
+
+    @TempDir
+    public Path tempDir;
+
+    private HttpServer server;
+    private String baseUrl;
+    private byte[] content;
+    private AtomicLong bytesServed;
+    private List<String> ranges;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        bytesServed = new AtomicLong();
+        ranges = new CopyOnWriteArrayList<>();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/file.gz", this::serveFile);
+        server.createContext("/file.gz.md5", exchange -> {
+            byte[] md5 = ("MD5(file.gz)= " + DigestUtils.md5Hex(content) + "\n").getBytes();
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, md5.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(md5);
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private void serveFile(HttpExchange exchange) throws IOException {
+        int start = 0;
+        int end = content.length;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null) {
+            ranges.add(range);
+            String[] limits = range.substring("bytes=".length()).split("-", -1);
+            start = Integer.parseInt(limits[0]);
+            end = limits[1].isEmpty() ? content.length : Integer.parseInt(limits[1]) + 1;
+            status = 206;
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + content.length);
+        }
+        exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(content.length));
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(status, end - start);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(content, start, end - start);
+        }
+        bytesServed.addAndGet(end - start);
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        Path outputFile = tempDir.resolve("file.gz");
+        FileDownloader.Result result = new FileDownloader().download(baseUrl + "/file.gz", outputFile);
+
+        assertArrayEquals(content, Files.readAllBytes(outputFile));
+        assertEquals(FILE_SIZE, result.getExpectedSize());
+        assertEquals(FILE_SIZE, result.getSize());
+        assertEquals(DigestUtils.md5Hex(content), result.getMd5());
+        assertFalse(Files.exists(tempDir.resolve("file.gz.part")));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        // A previous download was interrupted after 300000 bytes
+        Path outputFile = tempDir.resolve("file.gz");
+        Files.write(tempDir.resolve("file.gz.part"), Arrays.copyOf(content, 300_000));
+
+        new FileDownloader().download(baseUrl + "/file.gz", outputFile);
+
+        assertArrayEquals(content, Files.readAllBytes(outputFile));
+        assertEquals(FILE_SIZE - 300_000, bytesServed.get());
+        assertTrue(ranges.contains("bytes=300000-" + (FILE_SIZE - 1)));
+    }
+
+    @Test
+    public void testSegments() throws Exception {
+        Path outputFile = tempDir.resolve("file.gz");
+        FileDownloader fileDownloader = new FileDownloader().setSegments(4).setSegmentThreshold(FILE_SIZE / 2);
+        FileDownloader.Result result = fileDownloader.download(baseUrl + "/file.gz", outputFile);
+
+        assertArrayEquals(content, Files.readAllBytes(outputFile));
+        assertEquals(DigestUtils.md5Hex(content), result.getMd5());
+        assertEquals(FILE_SIZE, bytesServed.get());
+        assertEquals(4, ranges.size());
+        for (int i = 0; i < 4; i++) {
+            assertFalse(Files.exists(tempDir.resolve("file.gz.part" + i)));
+        }
+    }
+
+    @Test
+    public void testResumeSegments() throws Exception {
+        // The first segment was completely downloaded and the second one partially
+        Path outputFile = tempDir.resolve("file.gz");
+        Files.write(tempDir.resolve("file.gz.part0"), Arrays.copyOfRange(content, 0, 250_000));
+        Files.write(tempDir.resolve("file.gz.part1"), Arrays.copyOfRange(content, 250_000, 300_000));
+
+        FileDownloader fileDownloader = new FileDownloader().setSegments(4).setSegmentThreshold(FILE_SIZE / 2);
+        fileDownloader.download(baseUrl + "/file.gz", outputFile);
+
+        assertArrayEquals(content, Files.readAllBytes(outputFile));
+        assertEquals(FILE_SIZE - 300_000, bytesServed.get());
+        assertEquals(3, ranges.size());
+    }
+
+    @Test
+    public void testMd5File() throws Exception {
+        assertEquals(DigestUtils.md5Hex(content), new FileDownloader().getMd5(baseUrl + "/file.gz.md5"));
+    }
+
+    @Test
+    public void testFileNotFound() {
+        FileDownloader fileDownloader = new FileDownloader().setRetries(3);
+        assertThrows(FileNotFoundException.class, () -> fileDownloader.download(baseUrl + "/missing.gz",
+                tempDir.resolve("missing.gz")));
+        assertFalse(Files.exists(tempDir.resolve("missing.gz")));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.impl.core;
+
+import org.junit.jupiter.api.Test;
+import org.opencb.cellbase.core.models.DataRelease;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataReleaseRegistryTest {
+
+    @Test
+    public void testRefresh() {
+        String databaseName = "cellbase_hsapiens_grch38_test_" + UUID.randomUUID();
+        DataRelease release1 = createRelease(1, "gene", "gene__v1", Collections.singletonList("v5.7"));
+        DataRelease release2 = createRelease(2, "gene", "gene__v2", Collections.emptyList());
+
+        assertNull(DataReleaseRegistry.get(databaseName));
+        assertTrue(DataReleaseRegistry.update(databaseName, Arrays.asList(release1, release2)));
+        DataReleaseRegistry.Snapshot snapshot = DataReleaseRegistry.get(databaseName);
+        assertEquals(0, snapshot.getVersion());
+        assertEquals(2, snapshot.getDataReleases().size());
+
+        // Same releases in a different order, the snapshot is kept
+        assertFalse(DataReleaseRegistry.update(databaseName, Arrays.asList(release2, release1)));
+        assertSame(snapshot, DataReleaseRegistry.get(databaseName));
+
+        // New default data release
+        DataRelease newDefault = createRelease(2, "gene", "gene__v2", Collections.singletonList("v5.7"));
+        assertTrue(DataReleaseRegistry.update(databaseName, Arrays.asList(release1, newDefault)));
+        assertEquals(1, DataReleaseRegistry.get(databaseName).getVersion());
+
+        // New data release
+        DataRelease release3 = createRelease(3, "gene", "gene__v3", Collections.emptyList());
+        assertTrue(DataReleaseRegistry.update(databaseName, Arrays.asList(release1, newDefault, release3)));
+        assertEquals(2, DataReleaseRegistry.get(databaseName).getVersion());
+        assertEquals(3, DataReleaseRegistry.get(databaseName).getDataReleases().size());
+
+        // Other databases are not affected
+        assertNull(DataReleaseRegistry.get(databaseName + "_other"));
+    }
+
+    private DataRelease createRelease(int release, String data, String collection, List<String> activeByDefaultIn) {
+        DataRelease dataRelease = new DataRelease();
+        dataRelease.setRelease(release);
+        dataRelease.setCollections(Collections.singletonMap(data, collection));
+        dataRelease.setActiveByDefaultIn(new ArrayList<>(activeByDefaultIn));
+        return dataRelease;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.impl.core;
+
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.avro.Repeat;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RepeatBreakpointsTest {
+
+    private static final int MAX_MERGE_DISTANCE = 5000;
+
+    private static final List<Repeat> REPEATS = Arrays.asList(
+            repeat("r1", "1", 100, 200),
+            repeat("r2", "1", 150, 400),
+            repeat("r3", "1", 201, 210),
+            repeat("r4", "1", 1000, 100000),
+            repeat("r5", "1", 50000, 50010),
+            repeat("r6", "1", 200000, 200500),
+            repeat("r7", "2", 100, 300),
+            repeat("r8", "2", 300, 300),
+            repeat("r9", "X", 5000, 6000));
+
+    @Test
+    public void testOverlapping() {
+        // Several SNVs in the same repeats, and a deletion containing the next breakpoints
+        assertSameAsPerVariant(Arrays.asList(
+                Collections.singletonList(new Region("1", 160, 160)),
+                Collections.singletonList(new Region("1", 150, 150)),
+                Collections.singletonList(new Region("1", 120, 60000)),
+                Collections.singletonList(new Region("1", 50005, 50005)),
+                Collections.singletonList(new Region("1", 199, 205))));
+    }
+
+    @Test
+    public void testAdjacent() {
+        // Breakpoints touching the first and last base of a repeat overlap it, the bases right before or after do not
+        assertSameAsPerVariant(Arrays.asList(
+                Collections.singletonList(new Region("1", 99, 99)),
+                Collections.singletonList(new Region("1", 100, 100)),
+                Collections.singletonList(new Region("1", 200, 200)),
+                Collections.singletonList(new Region("1", 401, 999)),
+                Collections.singletonList(new Region("1", 100001, 100001)),
+                Collections.singletonList(new Region("2", 300, 300)),
+                Collections.singletonList(new Region("2", 301, 301))));
+    }
+
+    @Test
+    public void testMultipleBreakpoints() {
+        // SVs: two breakpoints far apart in the same chromosome, a translocation and a CNV with both breakpoints in the
+        // same repeat, which must be returned only once
+        assertSameAsPerVariant(Arrays.asList(
+                Arrays.asList(new Region("1", 150, 150), new Region("1", 200100, 200100)),
+                Arrays.asList(new Region("1", 50000, 50000), new Region("X", 5500, 5500)),
+                Arrays.asList(new Region("1", 2000, 2000), new Region("1", 90000, 90000)),
+                Collections.singletonList(new Region("2", 250, 250)),
+                Collections.emptyList(),
+                Arrays.asList(new Region("3", 100, 100), new Region("X", 7000, 7000))));
+    }
+
+    @Test
+    public void testRandomBreakpoints() {
+        Random random = new Random(42);
+        List<Repeat> repeats = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int start = random.nextInt(100000) + 1;
+            repeats.add(repeat("r" + i, random.nextBoolean() ? "1" : "2", start, start + random.nextInt(2000)));
+        }
+        List<List<Region>> breakpointsList = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            List<Region> breakpoints = new ArrayList<>();
+            for (int j = 0; j < 1 + random.nextInt(2); j++) {
+                int start = random.nextInt(100000) + 1;
+                breakpoints.add(new Region(random.nextBoolean() ? "1" : "2", start, start + random.nextInt(50)));
+            }
+            breakpointsList.add(breakpoints);
+        }
+        assertSameAsPerVariant(breakpointsList, repeats);
+    }
+
+    private void assertSameAsPerVariant(List<List<Region>> breakpointsList) {
+        assertSameAsPerVariant(breakpointsList, REPEATS);
+    }
+
+    private void assertSameAsPerVariant(List<List<Region>> breakpointsList, List<Repeat> repeats) {
+        RepeatBreakpoints repeatBreakpoints = new RepeatBreakpoints(breakpointsList, MAX_MERGE_DISTANCE);
+        for (String chromosome : repeatBreakpoints.getChromosomes()) {
+            List<Region> ranges = repeatBreakpoints.getRanges(chromosome);
+            for (List<Region> breakpoints : breakpointsList) {
+                for (Region breakpoint : breakpoints) {
+                    if (breakpoint.getChromosome().equals(chromosome)) {
+                        assertTrue(ranges.stream().anyMatch(range -> range.getStart() <= breakpoint.getStart()
+                                && range.getEnd() >= breakpoint.getEnd()), breakpoint + " not covered by " + ranges);
+                    }
+                }
+            }
+            // Same repeats the database returns for the merged ranges, in reverse order as the order is not guaranteed
+            List<Repeat> found = new ArrayList<>();
+            for (Region range : ranges) {
+                found.addAll(overlapping(repeats, range));
+            }
+            Collections.reverse(found);
+            repeatBreakpoints.assign(chromosome, new ArrayList<>(new LinkedHashSet<>(found)));
+        }
+
+        for (int i = 0; i < breakpointsList.size(); i++) {
+            // Previous per-variant lookup: one region query for each breakpoint of the variant
+            Set<Repeat> expected = new HashSet<>();
+            for (Region breakpoint : breakpointsList.get(i)) {
+                expected.addAll(overlapping(repeats, breakpoint));
+            }
+            List<Repeat> actual = repeatBreakpoints.getRepeats(i);
+            assertEquals(expected.size(), actual.size(), "Variant " + i + ": " + breakpointsList.get(i));
+            assertEquals(expected, new HashSet<>(actual), "Variant " + i + ": " + breakpointsList.get(i));
+        }
+    }
+
+    private static List<Repeat> overlapping(List<Repeat> repeats, Region region) {
+        List<Repeat> overlapping = new ArrayList<>();
+        for (Repeat repeat : repeats) {
+            if (repeat.getChromosome().equals(region.getChromosome()) && repeat.getStart() <= region.getEnd()
+                    && repeat.getEnd() >= region.getStart()) {
+                overlapping.add(repeat);
+            }
+        }
+        return overlapping;
+    }
+
+    private static Repeat repeat(String id, String chromosome, int start, int end) {
+        return new Repeat(id, chromosome, start, end, 1, 1, 1f, 1f, 1f, "A", "trf");
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.managers;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.cellbase.core.config.AnnotationJobProperties;
+import org.opencb.cellbase.core.exception.CellBaseException;
+import org.opencb.cellbase.core.models.AnnotationJob;
+import org.opencb.cellbase.core.result.CellBaseDataResult;
+import org.opencb.commons.datastore.core.QueryOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnnotationJobManagerTest {
+
+    private static final int NUM_VARIANTS = 2500;
+
+    private Path outdir;
+    private AnnotationJobManager annotationJobManager;
+
+    @BeforeEach
+    public void setUp() throws IOException, CellBaseException {
+        outdir = Files.createTempDirectory("annotation_jobs");
+        annotationJobManager = new AnnotationJobManager(new AnnotationJobProperties()
+                .setOutputDir(outdir.toString())
+                .setNumThreads(1)
+                .setBatchSize(300)
+                .setRetentionHours(0));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        annotationJobManager.close();
+        FileUtils.deleteDirectory(outdir.toFile());
+    }
+
+    @Test
+    public void testJob() throws Exception {
+        AnnotationJob job = submit(NUM_VARIANTS);
+        assertEquals("hsapiens", job.getSpecies());
+        waitFor(job);
+
+        assertEquals(AnnotationJob.Status.DONE, annotationJobManager.getJob(job.getId()).getStatus());
+        assertEquals(NUM_VARIANTS, job.getNumVariants());
+        // Variants at positions multiple of 10 are not annotated
+        assertEquals(NUM_VARIANTS - NUM_VARIANTS / 10, job.getNumAnnotations());
+
+        // Pages starting before, at and after the indexed offsets return the same annotations as a full read
+        List<VariantAnnotation> allAnnotations = annotationJobManager.getResults(job.getId(), 0, NUM_VARIANTS).getResults();
+        assertEquals(job.getNumAnnotations(), allAnnotations.size());
+        for (int skip : new int[]{0, 7, 999, 1000, 1001, 1999, 2240}) {
+            CellBaseDataResult<VariantAnnotation> page = annotationJobManager.getResults(job.getId(), skip, 20);
+            assertEquals(job.getNumAnnotations(), page.getNumMatches());
+            assertEquals(allAnnotations.subList(skip, (int) Math.min(skip + 20, job.getNumAnnotations())), page.getResults(),
+                    "skip " + skip);
+        }
+        assertEquals(0, annotationJobManager.getResults(job.getId(), NUM_VARIANTS, 20).getNumResults());
+
+        // Annotations keep the input order
+        assertEquals(1, (int) allAnnotations.get(0).getStart());
+        assertEquals(11, (int) allAnnotations.get(9).getStart());
+
+        annotationJobManager.delete(job.getId());
+        assertThrows(CellBaseException.class, () -> annotationJobManager.getJob(job.getId()));
+        assertFalse(Files.exists(outdir.resolve(job.getId())));
+    }
+
+    @Test
+    public void testExpiredJob() throws Exception {
+        AnnotationJob job = submit(10);
+        waitFor(job);
+        Thread.sleep(10);
+
+        // Retention time is 0 hours, finished jobs are removed the next time the cleaner runs
+        annotationJobManager.removeExpiredJobs();
+        assertThrows(CellBaseException.class, () -> annotationJobManager.getJob(job.getId()));
+        assertFalse(Files.exists(outdir.resolve(job.getId())));
+    }
+
+    @Test
+    public void testFailedJob() throws Exception {
+        AnnotationJob job = annotationJobManager.submit("hsapiens", "grch38", variants(10), new QueryOptions(), 1,
+                Variant::new, (variants, queryOptions) -> {
+                    throw new CellBaseException("annotation failed");
+                });
+        waitFor(job);
+
+        assertEquals(AnnotationJob.Status.ERROR, job.getStatus());
+        assertTrue(job.getErrorMessage().contains("annotation failed"));
+        assertThrows(CellBaseException.class, () -> annotationJobManager.getResults(job.getId(), 0, 10));
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        AnnotationJob job = submit(NUM_VARIANTS);
+        waitFor(job);
+        AnnotationJob failedJob = annotationJobManager.submit("hsapiens", "grch38", variants(10), new QueryOptions(), 1,
+                Variant::new, (variants, queryOptions) -> {
+                    throw new CellBaseException("annotation failed");
+                });
+        waitFor(failedJob);
+        List<VariantAnnotation> page = annotationJobManager.getResults(job.getId(), 1500, 20).getResults();
+
+        // Restart: a job interrupted while running left its input and part of its results
+        annotationJobManager.close();
+        Path interruptedJobDir = Files.createDirectories(outdir.resolve(UUID.randomUUID().toString()));
+        Files.write(interruptedJobDir.resolve("input.txt"), "1:100:A:T\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(interruptedJobDir.resolve("annotations.json"), "{}\n".getBytes(StandardCharsets.UTF_8));
+        annotationJobManager = new AnnotationJobManager(new AnnotationJobProperties()
+                .setOutputDir(outdir.toString())
+                .setNumThreads(1)
+                .setRetentionHours(0));
+
+        AnnotationJob reloadedJob = annotationJobManager.getJob(job.getId());
+        assertEquals(AnnotationJob.Status.DONE, reloadedJob.getStatus());
+        assertEquals(job.getNumVariants(), reloadedJob.getNumVariants());
+        assertEquals(job.getNumAnnotations(), reloadedJob.getNumAnnotations());
+        assertEquals(job.getEndDate(), reloadedJob.getEndDate());
+        CellBaseDataResult<VariantAnnotation> reloadedPage = annotationJobManager.getResults(job.getId(), 1500, 20);
+        assertEquals(page, reloadedPage.getResults());
+        assertEquals(job.getNumAnnotations(), reloadedPage.getNumMatches());
+
+        assertEquals(AnnotationJob.Status.ERROR, annotationJobManager.getJob(failedJob.getId()).getStatus());
+        assertTrue(annotationJobManager.getJob(failedJob.getId()).getErrorMessage().contains("annotation failed"));
+
+        assertFalse(Files.exists(interruptedJobDir));
+        assertThrows(CellBaseException.class, () -> annotationJobManager.getJob(interruptedJobDir.getFileName().toString()));
+
+        // Reloaded jobs keep expiring
+        Thread.sleep(10);
+        annotationJobManager.removeExpiredJobs();
+        assertThrows(CellBaseException.class, () -> annotationJobManager.getJob(job.getId()));
+        assertFalse(Files.exists(outdir.resolve(job.getId())));
+    }
+
+    private AnnotationJob submit(int numVariants) throws CellBaseException {
+        return annotationJobManager.submit("hsapiens", "grch38", variants(numVariants), new QueryOptions(), 1, Variant::new,
+                (variants, queryOptions) -> {
+                    List<CellBaseDataResult<VariantAnnotation>> results = new ArrayList<>();
+                    for (Variant variant : variants) {
+                        CellBaseDataResult<VariantAnnotation> result = new CellBaseDataResult<>(variant.toString());
+                        if (variant.getStart() % 10 != 0) {
+                            VariantAnnotation variantAnnotation = new VariantAnnotation();
+                            variantAnnotation.setChromosome(variant.getChromosome());
+                            variantAnnotation.setStart(variant.getStart());
+                            variantAnnotation.setReference(variant.getReference());
+                            variantAnnotation.setAlternate(variant.getAlternate());
+                            result.setResults(Collections.singletonList(variantAnnotation));
+                        }
+                        results.add(result);
+                    }
+                    return results;
+                });
+    }
+
+    private ByteArrayInputStream variants(int numVariants) {
+        // Both comma and new line separated variants
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= numVariants; i++) {
+            sb.append("1:").append(i).append(":A:T").append(i % 3 == 0 ? "\n" : ",");
+        }
+        return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void waitFor(AnnotationJob job) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 30000;
+        while ((job.getStatus() == AnnotationJob.Status.QUEUED || job.getStatus() == AnnotationJob.Status.RUNNING)
+                && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -8,8 +8,7 @@ import org.opencb.cellbase.core.token.DataAccessTokenManager;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 import static org.junit.Assert.*;
 
@@ -139,4 +138,49 @@ public class DataAccessTokenSourcesManagerTest {
 
         datManager.getValidSources(token);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCachedToken() throws ParseException {
+        DateFormat formatter = new SimpleDateFormat("dd/MM/yyyy");
+
+        DataAccessTokenSources dat = new DataAccessTokenSources();
+        dat.setVersion("1.0");
+        Map<String, Long> sources = new HashMap<>();
+        sources.put("cosmic", formatter.parse("25/09/2099").getTime());
+        sources.put("hgmd", formatter.parse("25/09/2099").getTime());
+        dat.setSources(sources);
+
+        String token = datManager.encode("ucam", dat);
+
+        // The second call is served from the verified token cache
+        Set<String> validSources = datManager.getValidSources(token, Collections.singleton("clinvar"));
+        assertEquals(validSources, datManager.getValidSources(token, Collections.singleton("clinvar")));
+        assertEquals(new HashSet<>(Arrays.asList("clinvar", "cosmic", "hgmd")), validSources);
+        assertEquals("ucam", datManager.getOrganization(token));
+
+        // A tampered token is never served from the cache
+        try {
+            datManager.validate(token + "tototo");
+        } catch (Exception e) {
+            return;
+        }
+        fail();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCachedTokenExpiredSource() throws ParseException {
+        DateFormat formatter = new SimpleDateFormat("dd/MM/yyyy");
+
+        DataAccessTokenSources dat = new DataAccessTokenSources();
+        dat.setVersion("1.0");
+        Map<String, Long> sources = new HashMap<>();
+        sources.put("cosmic", formatter.parse("25/09/2020").getTime());
+        dat.setSources(sources);
+
+        String token = datManager.encode("ucam", dat);
+        datManager.validate(token);
+
+        // The token is cached but source expiration is still checked
+        datManager.getValidSources(token);
+    }
+}
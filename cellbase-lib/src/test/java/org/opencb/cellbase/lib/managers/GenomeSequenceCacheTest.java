@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.lib.managers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GenomeSequenceCacheTest {
+
+    @Test
+    public void testGetSequence() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(1);
+        for (int i = 0; i < 10050; i++) {
+            sb.append("ACGT".charAt(random.nextInt(4)));
+        }
+        String chromosome = sb.toString();
+
+        AtomicInteger numLoads = new AtomicInteger();
+        GenomeSequenceCache.SequenceLoader sequenceLoader = (chr, start, end, dataRelease) -> {
+            numLoads.incrementAndGet();
+            if (!"1".equals(chr) || start > chromosome.length()) {
+                return null;
+            }
+            return chromosome.substring(start - 1, Math.min(end, chromosome.length()));
+        };
+        GenomeSequenceCache cache = new GenomeSequenceCache(1000, 5);
+
+        assertEquals(chromosome.substring(899, 1100), cache.getSequence("1", 900, 1100, 1, sequenceLoader));
+        assertEquals(2, numLoads.get());
+        assertEquals(chromosome.substring(949, 1050), cache.getSequence("1", 950, 1050, 1, sequenceLoader));
+        assertEquals(2, numLoads.get());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // Blocks are cached per data release
+        assertEquals(chromosome.substring(949, 1050), cache.getSequence("1", 950, 1050, 2, sequenceLoader));
+        assertEquals(4, numLoads.get());
+
+        // End out of the chromosome returns the available nucleotides, start out of the chromosome returns null
+        assertEquals(chromosome.substring(9999), cache.getSequence("1", 10000, 10100, 1, sequenceLoader));
+        assertNull(cache.getSequence("1", 10060, 10100, 1, sequenceLoader));
+        assertNull(cache.getSequence("2", 1, 10, 1, sequenceLoader));
+
+        // Least recently used blocks are evicted
+        assertTrue(cache.size() <= 5);
+        int loads = numLoads.get();
+        cache.getSequence("1", 1, 10, 1, sequenceLoader);
+        assertEquals(loads + 1, numLoads.get());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.lib.variant.annotation;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.core.Exon;
+import org.opencb.biodata.models.core.Gene;
+import org.opencb.biodata.models.core.Transcript;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation benchmark of the SNV consequence type calculator: bytes allocated and time spent per annotated variant,
+ * measured with the allocation counter of the current thread. Variants are SNVs every few bases of the exons of the
+ * test genes. The class name does not match the unit test patterns so it is not part of the default test run, run it
+ * with:
+ *
+ *   mvn test -pl cellbase-lib -Dtest=ConsequenceTypeCalculatorBenchmark
+ */
+public class ConsequenceTypeCalculatorBenchmark {
+
+    private static final int MAX_VARIANTS = 20000;
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void testAllocationPerVariant() throws Exception {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        List<Gene> genes = loadGenes();
+        List<Variant> variants = new ArrayList<>();
+        List<List<Gene>> variantGenes = new ArrayList<>();
+        for (Gene gene : genes) {
+            for (Transcript transcript : gene.getTranscripts()) {
+                for (Exon exon : transcript.getExons()) {
+                    for (int position = exon.getStart(); position <= exon.getEnd() && variants.size() < MAX_VARIANTS; position += 7) {
+                        Variant variant = new Variant(gene.getChromosome(), position, "C", "T");
+                        variants.add(variant);
+                        variantGenes.add(getOverlappingGenes(variant, genes));
+                    }
+                }
+            }
+        }
+
+        ConsequenceTypeCalculator consequenceTypeCalculator = new ConsequenceTypeSNVCalculator().setDataRelease(1);
+        // Warm up, so that JIT compilation and cached sequences are not measured
+        long numConsequenceTypes = 0;
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            numConsequenceTypes = annotate(consequenceTypeCalculator, variants, variantGenes);
+        }
+        assertTrue(numConsequenceTypes >= variants.size());
+
+        long threadId = Thread.currentThread().getId();
+        long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            assertEquals(numConsequenceTypes, annotate(consequenceTypeCalculator, variants, variantGenes));
+        }
+        long bytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+        long time = System.nanoTime() - startTime;
+
+        long numVariants = (long) variants.size() * ROUNDS;
+        System.out.println(String.format("%d variants, %d consequence types per round: %d bytes/variant, %.2f us/variant",
+                variants.size(), numConsequenceTypes, bytes / numVariants, time / 1000.0 / numVariants));
+    }
+
+    private long annotate(ConsequenceTypeCalculator consequenceTypeCalculator, List<Variant> variants, List<List<Gene>> variantGenes)
+            throws Exception {
+        long numConsequenceTypes = 0;
+        for (int i = 0; i < variants.size(); i++) {
+            List<ConsequenceType> consequenceTypes = consequenceTypeCalculator.run(variants.get(i), variantGenes.get(i),
+                    new boolean[]{false, false}, new QueryOptions());
+            numConsequenceTypes += consequenceTypes.size();
+        }
+        return numConsequenceTypes;
+    }
+
+    private List<Gene> getOverlappingGenes(Variant variant, List<Gene> genes) {
+        // Same padding used by VariantAnnotationCalculator to get the genes of a variant
+        List<Gene> overlappingGenes = new ArrayList<>();
+        for (Gene gene : genes) {
+            if (gene.getChromosome().equals(variant.getChromosome()) && gene.getStart() <= variant.getEnd() + 5000
+                    && gene.getEnd() >= variant.getStart() - 5000) {
+                overlappingGenes.add(gene);
+            }
+        }
+        return overlappingGenes;
+    }
+
+    private List<Gene> loadGenes() throws Exception {
+        ObjectMapper jsonObjectMapper = new ObjectMapper();
+        jsonObjectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        List<Gene> genes = new ArrayList<>();
+        try (BufferedReader bufferedReader = FileUtils.newBufferedReader(Paths.get(ConsequenceTypeCalculatorBenchmark.class
+                .getResource("/gene.test.json.gz").toURI()))) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                Gene gene = jsonObjectMapper.readValue(line, Gene.class);
+                if (gene.getTranscripts() != null) {
+                    genes.add(gene);
+                }
+            }
+        }
+        return genes;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.lib.variant.annotation;
+
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
+import org.opencb.cellbase.lib.variant.VariantAnnotationUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsequenceTypeCalculatorTest {
+
+    @Test
+    public void testExonLabel() {
+        assertEquals("3/12", ConsequenceTypeCalculator.getExonLabel(3, 12));
+        assertSame(ConsequenceTypeCalculator.getExonLabel(3, 12), ConsequenceTypeCalculator.getExonLabel(3, 12));
+        assertEquals("12/12", ConsequenceTypeCalculator.getExonLabel(12, 12));
+
+        // Transcripts with too many exons, or unexpected exon numbers, get the same label built on the fly
+        assertEquals("600/1000", ConsequenceTypeCalculator.getExonLabel(600, 1000));
+        assertEquals("13/12", ConsequenceTypeCalculator.getExonLabel(13, 12));
+    }
+
+    @Test
+    public void testTwoKbRegionTag() {
+        assertEquals(VariantAnnotationUtils.TWOKB_UPSTREAM_VARIANT,
+                ConsequenceTypeCalculator.getTwoKbRegionTag(VariantAnnotationUtils.UPSTREAM_GENE_VARIANT));
+        assertEquals(VariantAnnotationUtils.TWOKB_DOWNSTREAM_VARIANT,
+                ConsequenceTypeCalculator.getTwoKbRegionTag(VariantAnnotationUtils.DOWNSTREAM_GENE_VARIANT));
+    }
+
+    @Test
+    public void testSequenceOntologyTerm() {
+        SequenceOntologyTerm sequenceOntologyTerm = ConsequenceTypeCalculator.newSequenceOntologyTerm("missense_variant");
+        assertEquals(new SequenceOntologyTerm("SO:0001583", "missense_variant"), sequenceOntologyTerm);
+        assertSame(sequenceOntologyTerm, ConsequenceTypeCalculator.newSequenceOntologyTerm("missense_variant"));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.lib.variant.annotation;
+
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.variant.Variant;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrefetchSequenceAdaptorTest {
+
+    @Test
+    public void testPrefetch() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(1);
+        for (int i = 0; i < 300000; i++) {
+            sb.append("ACGT".charAt(random.nextInt(4)));
+        }
+        String sequence = sb.toString();
+
+        AtomicInteger numQueries = new AtomicInteger();
+        PrefetchSequenceAdaptor sequenceAdaptor = new PrefetchSequenceAdaptor((contig, start, end) -> {
+            numQueries.incrementAndGet();
+            if (!"1".equals(contig) || start < 1 || start > sequence.length()) {
+                throw new RuntimeException("Unable to find entry for " + contig + ":" + start + "-" + end);
+            }
+            return sequence.substring(start - 1, Math.min(end, sequence.length()));
+        });
+
+        // Variants in the first 13 kb are fetched together, the others on their own
+        sequenceAdaptor.prefetch(Arrays.asList(new Variant("1:5000:A:T"), new Variant("1:100:A:T"), new Variant("2:10:A:T"),
+                new Variant("1:12000:AAAA:-"), new Variant("1:250000:A:T"), new Variant("1:299990:A:T")));
+        assertEquals(4, numQueries.get());
+
+        for (int[] region : new int[][]{{90, 110}, {4500, 5500}, {1, 1}, {11500, 13003}, {249500, 250500}, {299500, 300000}}) {
+            assertEquals(sequence.substring(region[0] - 1, region[1]), sequenceAdaptor.query("1", region[0], region[1]));
+        }
+        assertEquals(6, sequenceAdaptor.getHits());
+        assertEquals(0, sequenceAdaptor.getMisses());
+
+        // Not prefetched
+        assertEquals(sequence.substring(19999, 20010), sequenceAdaptor.query("1", 20000, 20010));
+        assertThrows(RuntimeException.class, () -> sequenceAdaptor.query("2", 5, 6));
+        assertEquals(2, sequenceAdaptor.getMisses());
+        assertEquals(6, numQueries.get());
+    }
+}
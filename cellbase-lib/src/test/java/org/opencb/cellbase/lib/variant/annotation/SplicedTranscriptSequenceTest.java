@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.opencb.cellbase.lib.variant.annotation;
+
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.core.Exon;
+import org.opencb.biodata.models.core.Transcript;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SplicedTranscriptSequenceTest {
+
+    private static final String DATABASE = "cellbase_hsapiens_grch38_test";
+
+    @Test
+    public void testPositiveStrand() {
+        Transcript transcript = createTranscript("ENST01", "+", "ACGT", "GG", "TTTAC");
+        SplicedTranscriptSequence splicedSequence = SplicedTranscriptSequence.get(transcript, DATABASE, 1);
+
+        // Same sequences the calculators built concatenating exons in genomic order
+        assertEquals("ACGT", splicedSequence.getSequence(1));
+        assertEquals("ACGTGG", splicedSequence.getSequence(2));
+        assertEquals("ACGTGGTTTAC", splicedSequence.getSequence(3));
+        assertSame(splicedSequence, SplicedTranscriptSequence.get(transcript, DATABASE, 1));
+    }
+
+    @Test
+    public void testNegativeStrand() {
+        Transcript transcript = createTranscript("ENST02", "-", "ACGT", "GG", "TTTAC");
+        SplicedTranscriptSequence splicedSequence = SplicedTranscriptSequence.get(transcript, DATABASE, 1);
+
+        assertEquals("ACGT", splicedSequence.getSequence(1));
+        assertEquals("GGACGT", splicedSequence.getSequence(2));
+        assertEquals("TTTACGGACGT", splicedSequence.getSequence(3));
+    }
+
+    @Test
+    public void testDifferentExons() {
+        SplicedTranscriptSequence splicedSequence = SplicedTranscriptSequence.get(createTranscript("ENST03", "+", "ACGT", "GG"),
+                DATABASE, 1);
+        assertEquals("ACGTGG", splicedSequence.getSequence(2));
+
+        // Same transcript without exon sequences, e.g. read with a projection, is not served from the cache
+        splicedSequence = SplicedTranscriptSequence.get(createTranscript("ENST03", "+", null, null), DATABASE, 1);
+        assertEquals("", splicedSequence.getSequence(2));
+
+        // Different data release
+        splicedSequence = SplicedTranscriptSequence.get(createTranscript("ENST03", "+", "ACGA", "GG"), DATABASE, 2);
+        assertEquals("ACGAGG", splicedSequence.getSequence(2));
+
+        // Same transcript id, source, release and exon lengths in a different database
+        splicedSequence = SplicedTranscriptSequence.get(createTranscript("ENST03", "+", "TTTT", "CC"), DATABASE + "_other", 2);
+        assertEquals("TTTTCC", splicedSequence.getSequence(2));
+        assertEquals("ACGAGG", SplicedTranscriptSequence.get(createTranscript("ENST03", "+", "ACGA", "GG"), DATABASE, 2).getSequence(2));
+    }
+
+    private Transcript createTranscript(String id, String strand, String... exonSequences) {
+        List<Exon> exons = new ArrayList<>();
+        for (String exonSequence : exonSequences) {
+            Exon exon = new Exon();
+            exon.setSequence(exonSequence);
+            exons.add(exon);
+        }
+        Transcript transcript = new Transcript();
+        transcript.setId(id);
+        transcript.setSource("ensembl");
+        transcript.setStrand(strand);
+        transcript.setExons(exons);
+        return transcript;
+    }
+}
@@ -20,7 +20,10 @@ import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.opencb.cellbase.core.config.CellBaseConfiguration;
+import org.opencb.cellbase.core.result.ResponseFormat;
+import org.opencb.cellbase.server.grpc.GrpcServer;
 import org.opencb.cellbase.server.rest.AdminRestWebService;
+import org.opencb.cellbase.server.rest.GenericRestWSServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +35,8 @@ import java.util.Optional;
 public class RestServer  {
 
     private static Server server;
+    private GrpcServer grpcServer;
+    private CellBaseConfiguration configuration;
     private Path cellbaseHome;
     private boolean exit;
     private int port;
@@ -58,7 +63,7 @@ public class RestServer  {
         logger.info("| This message must appear only once.");
 
         try {
-            CellBaseConfiguration configuration = CellBaseConfiguration.load(cellbaseHome.resolve("conf").resolve("configuration.yml"));
+            configuration = CellBaseConfiguration.load(cellbaseHome.resolve("conf").resolve("configuration.yml"));
             this.port = (this.port == 0) ? configuration.getServer().getRest().getPort() : this.port;
 
             logger.info("|  * Configuration folder: '{}'", cellbaseHome.resolve("conf").toAbsolutePath());
@@ -95,7 +100,7 @@ public class RestServer  {
         // This enables the compression of the response
         final GzipHandler gzipHandler = new GzipHandler();
         gzipHandler.addIncludedMimeTypes("text/html", "text/xml", "text/css", "text/plain", "text/javascript", "application/javascript",
-                "application/json", "application/xml");
+                "application/json", "application/xml", ResponseFormat.SMILE.getMediaType(), ResponseFormat.CBOR.getMediaType());
         gzipHandler.setIncludedMethods("GET", "POST");
         gzipHandler.setCompressionLevel(1);
         gzipHandler.setHandler(webapp);
@@ -105,6 +110,13 @@ public class RestServer  {
         server.start();
         logger.info("REST server started, listening on port: " + port + " at " + server.getURI());
 
+        // gRPC server is only started when a port is configured
+        if (configuration.getServer().getGrpc() != null && configuration.getServer().getGrpc().getPort() > 0) {
+            grpcServer = new GrpcServer(configuration, GenericRestWSServer.getCellBaseManagerFactory(cellbaseHome.toString()),
+                    configuration.getServer().getGrpc().getPort());
+            grpcServer.start();
+        }
+
         // A hook is added in case the JVM is shutting down
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
@@ -142,6 +154,9 @@ public class RestServer  {
 
     private void stopJettyServer() throws Exception {
         // By setting exit to true the monitor thread will close the Jetty server
+        if (grpcServer != null) {
+            grpcServer.stop();
+        }
         logger.info("Stopping REST server ...");
         server.stop();
         logger.info("REST server is shutdown");
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.server.grpc;
+
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import org.opencb.cellbase.core.config.CellBaseConfiguration;
+import org.opencb.cellbase.lib.managers.CellBaseManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Launches the CellBase gRPC server, it runs alongside the REST server and shares its configuration and managers.
+ */
+public class GrpcServer {
+
+    private final CellBaseConfiguration configuration;
+    private final CellBaseManagerFactory cellBaseManagerFactory;
+    private final int port;
+    private Server server;
+
+    private final Logger logger = LoggerFactory.getLogger(GrpcServer.class);
+
+    public GrpcServer(CellBaseConfiguration configuration, CellBaseManagerFactory cellBaseManagerFactory, int port) {
+        this.configuration = configuration;
+        this.cellBaseManagerFactory = cellBaseManagerFactory;
+        this.port = port;
+    }
+
+    public void start() throws IOException {
+        server = ServerBuilder.forPort(port)
+                .addService(new VariantAnnotationGrpcService(configuration, cellBaseManagerFactory))
+                .build()
+                .start();
+        logger.info("gRPC server started, listening on port: {}", port);
+    }
+
+    public void stop() throws InterruptedException {
+        if (server != null && !server.isShutdown()) {
+            logger.info("Stopping gRPC server ...");
+            server.shutdown();
+            if (!server.awaitTermination(30, TimeUnit.SECONDS)) {
+                server.shutdownNow();
+            }
+            logger.info("gRPC server is shutdown");
+        }
+    }
+
+    public boolean isRunning() {
+        return server != null && !server.isShutdown();
+    }
+
+    public int getPort() {
+        return port;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.server.grpc;
+
+import io.grpc.BindableService;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+import org.opencb.cellbase.core.config.CellBaseConfiguration;
+import org.opencb.cellbase.core.result.CellBaseDataResult;
+import org.opencb.cellbase.core.utils.SpeciesUtils;
+import org.opencb.cellbase.lib.managers.CellBaseManagerFactory;
+import org.opencb.cellbase.lib.managers.VariantManager;
+import org.opencb.cellbase.lib.variant.annotation.VariantAnnotationCalculator;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+import static org.opencb.cellbase.core.grpc.VariantAnnotationServiceGrpc.*;
+
+/**
+ * gRPC implementation of the variant annotation service defined in VariantAnnotationServiceGrpc. Variants received
+ * from the client stream are annotated in batches and annotations are sent back as soon as each batch is ready, one
+ * or more annotations for each variant and in the same order. Variants that can not be annotated get an empty annotation.
+ */
+public class VariantAnnotationGrpcService implements BindableService {
+
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    private static final Context.Key<Metadata> HEADERS_CONTEXT_KEY = Context.key("headers");
+
+    private final CellBaseConfiguration configuration;
+    private final CellBaseManagerFactory cellBaseManagerFactory;
+    private final int batchSize;
+
+    private final Logger logger = LoggerFactory.getLogger(VariantAnnotationGrpcService.class);
+
+    /**
+     * Annotates a batch of variants, VariantAnnotationCalculator.getAnnotationByVariantList for gRPC calls.
+     */
+    interface BatchAnnotator {
+        List<CellBaseDataResult<VariantAnnotation>> annotate(List<Variant> variants, QueryOptions queryOptions) throws Exception;
+    }
+
+    public VariantAnnotationGrpcService(CellBaseConfiguration configuration, CellBaseManagerFactory cellBaseManagerFactory) {
+        this(configuration, cellBaseManagerFactory, DEFAULT_BATCH_SIZE);
+    }
+
+    public VariantAnnotationGrpcService(CellBaseConfiguration configuration, CellBaseManagerFactory cellBaseManagerFactory,
+                                        int batchSize) {
+        this.configuration = configuration;
+        this.cellBaseManagerFactory = cellBaseManagerFactory;
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    @Override
+    public ServerServiceDefinition bindService() {
+        ServerServiceDefinition serviceDefinition = ServerServiceDefinition.builder(SERVICE_NAME)
+                .addMethod(ANNOTATE_METHOD, ServerCalls.asyncBidiStreamingCall(this::annotate))
+                .build();
+        // Call headers are only visible to interceptors, they are made available to the call through the gRPC context
+        return ServerInterceptors.intercept(serviceDefinition, new ServerInterceptor() {
+            @Override
+            public <REQ, RESP> ServerCall.Listener<REQ> interceptCall(ServerCall<REQ, RESP> call, Metadata headers,
+                                                                      ServerCallHandler<REQ, RESP> next) {
+                return Contexts.interceptCall(Context.current().withValue(HEADERS_CONTEXT_KEY, headers), call, headers, next);
+            }
+        });
+    }
+
+    private StreamObserver<VariantAvro> annotate(StreamObserver<VariantAnnotation> responseObserver) {
+        Metadata headers = HEADERS_CONTEXT_KEY.get();
+        VariantAnnotationCalculator variantAnnotationCalculator;
+        QueryOptions queryOptions;
+        try {
+            String species = headers.get(SPECIES_KEY);
+            if (StringUtils.isEmpty(species)) {
+                throw new IllegalArgumentException("Missing species header");
+            }
+            String assembly = headers.get(ASSEMBLY_KEY);
+            if (StringUtils.isEmpty(assembly)) {
+                assembly = SpeciesUtils.getDefaultAssembly(configuration, species).getName();
+            }
+            int dataRelease = getDataRelease(species, assembly, headers.get(DATA_RELEASE_KEY));
+
+            VariantManager variantManager = cellBaseManagerFactory.getVariantManager(species, assembly);
+            variantAnnotationCalculator = variantManager.getVariantAnnotationCalculator(dataRelease, headers.get(TOKEN_KEY));
+            queryOptions = getQueryOptions(variantManager, headers);
+        } catch (Exception e) {
+            logger.error("Error initialising gRPC variant annotation", e);
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).withCause(e).asRuntimeException());
+            return new NoOpStreamObserver();
+        }
+
+        return annotate(responseObserver, variantAnnotationCalculator::getAnnotationByVariantList, queryOptions, batchSize);
+    }
+
+    /**
+     * Creates the observer of the variants sent by the client. Inbound flow control is manual: at most one batch of
+     * variants is requested from the client at a time, and the next one only once the annotations of the previous batch
+     * have been accepted by the outbound buffer. A client reading the annotations slowly slows down the variants it can
+     * send instead of filling the server memory.
+     *
+     * @param responseObserver observer of the call, a ServerCallStreamObserver
+     * @param batchAnnotator annotates each batch of variants
+     * @param queryOptions annotation options
+     * @param batchSize number of variants annotated together
+     * @return observer of the variants
+     */
+    static StreamObserver<VariantAvro> annotate(StreamObserver<VariantAnnotation> responseObserver, BatchAnnotator batchAnnotator,
+                                                QueryOptions queryOptions, int batchSize) {
+        ServerCallStreamObserver<VariantAnnotation> serverCallStreamObserver =
+                (ServerCallStreamObserver<VariantAnnotation>) responseObserver;
+        serverCallStreamObserver.disableAutoInboundFlowControl();
+
+        AnnotationStreamObserver annotationStreamObserver =
+                new AnnotationStreamObserver(serverCallStreamObserver, batchAnnotator, queryOptions, batchSize);
+        serverCallStreamObserver.setOnReadyHandler(annotationStreamObserver::onReady);
+        return annotationStreamObserver;
+    }
+
+    private static class AnnotationStreamObserver implements StreamObserver<VariantAvro> {
+
+        private final ServerCallStreamObserver<VariantAnnotation> responseObserver;
+        private final BatchAnnotator batchAnnotator;
+        private final QueryOptions queryOptions;
+        private final int batchSize;
+
+        private List<Variant> batch;
+        private int numVariants = 0;
+        // Set when the variants of the last request have been received but the response buffer was full
+        private boolean wasReady = false;
+        private boolean failed = false;
+        private final long startTime = System.currentTimeMillis();
+
+        private final Logger logger = LoggerFactory.getLogger(VariantAnnotationGrpcService.class);
+
+        AnnotationStreamObserver(ServerCallStreamObserver<VariantAnnotation> responseObserver, BatchAnnotator batchAnnotator,
+                                 QueryOptions queryOptions, int batchSize) {
+            this.responseObserver = responseObserver;
+            this.batchAnnotator = batchAnnotator;
+            this.queryOptions = queryOptions;
+            this.batchSize = batchSize;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        // gRPC serializes this handler with the StreamObserver callbacks, no synchronization is needed
+        void onReady() {
+            if (responseObserver.isReady() && !wasReady && !failed) {
+                wasReady = true;
+                responseObserver.request(batchSize);
+            }
+        }
+
+        @Override
+        public void onNext(VariantAvro variantAvro) {
+            if (failed) {
+                return;
+            }
+            batch.add(new Variant(variantAvro));
+            if (batch.size() >= batchSize) {
+                flush();
+                if (failed) {
+                    return;
+                }
+                if (responseObserver.isReady()) {
+                    responseObserver.request(batchSize);
+                } else {
+                    // onReady() requests the next batch when the client catches up
+                    wasReady = false;
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            logger.warn("gRPC variant annotation cancelled by the client: {}", throwable.getMessage());
+        }
+
+        @Override
+        public void onCompleted() {
+            if (!batch.isEmpty()) {
+                flush();
+            }
+            if (!failed) {
+                responseObserver.onCompleted();
+                logger.info("{} variants annotated through gRPC in {} ms", numVariants, System.currentTimeMillis() - startTime);
+            }
+        }
+
+        private void flush() {
+            try {
+                // key = input variant, results are matched by the variant they belong to and not by their position
+                Map<String, Deque<CellBaseDataResult<VariantAnnotation>>> resultMap = new HashMap<>();
+                // VariantAnnotationCalculator modifies the options received, a copy is used for each batch
+                for (CellBaseDataResult<VariantAnnotation> result
+                        : batchAnnotator.annotate(batch, new QueryOptions(queryOptions))) {
+                    resultMap.computeIfAbsent(result.getId(), k -> new ArrayDeque<>()).add(result);
+                }
+
+                for (Variant variant : batch) {
+                    Deque<CellBaseDataResult<VariantAnnotation>> results = resultMap.get(variant.toString());
+                    CellBaseDataResult<VariantAnnotation> result = results != null ? results.poll() : null;
+                    if (result == null || result.getResults() == null || result.getResults().isEmpty() || result.first() == null) {
+                        // Keep one annotation per input variant so the client can match input and output
+                        responseObserver.onNext(emptyAnnotation(variant));
+                    } else {
+                        for (VariantAnnotation variantAnnotation : result.getResults()) {
+                            responseObserver.onNext(variantAnnotation);
+                        }
+                    }
+                }
+                numVariants += batch.size();
+                batch = new ArrayList<>(batchSize);
+            } catch (Exception e) {
+                logger.error("Error annotating variant batch through gRPC", e);
+                failed = true;
+                responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).withCause(e).asRuntimeException());
+            }
+        }
+
+        private VariantAnnotation emptyAnnotation(Variant variant) {
+            VariantAnnotation variantAnnotation = new VariantAnnotation();
+            variantAnnotation.setId(variant.toString());
+            variantAnnotation.setChromosome(variant.getChromosome());
+            variantAnnotation.setStart(variant.getStart());
+            variantAnnotation.setReference(variant.getReference());
+            variantAnnotation.setAlternate(variant.getAlternate());
+            return variantAnnotation;
+        }
+    }
+
+    private int getDataRelease(String species, String assembly, String dataRelease) throws Exception {
+        if (StringUtils.isNotEmpty(dataRelease) && Integer.parseInt(dataRelease) > 0) {
+            return Integer.parseInt(dataRelease);
+        }
+        // Same as the REST API, data release 0 or no data release means the default one for this CellBase version
+        return cellBaseManagerFactory.getDataReleaseManager(species, assembly).getDefault(configuration.getVersion()).getRelease();
+    }
+
+    private QueryOptions getQueryOptions(VariantManager variantManager, Metadata headers) {
+        QueryOptions queryOptions = new QueryOptions();
+        for (String option : ANNOTATION_OPTIONS) {
+            String value = headers.get(optionKey(option));
+            if (StringUtils.isNotEmpty(value)) {
+                queryOptions.put(option, value);
+            }
+        }
+        return variantManager.initAnnotationQueryOptions(queryOptions,
+                queryOptions.containsKey("normalize") ? queryOptions.getBoolean("normalize") : null,
+                queryOptions.containsKey("decompose") ? queryOptions.getBoolean("decompose") : null,
+                queryOptions.containsKey("leftAlign") ? queryOptions.getBoolean("leftAlign") : null,
+                queryOptions.containsKey("ignorePhase") ? queryOptions.getBoolean("ignorePhase") : null,
+                null,
+                queryOptions.containsKey("imprecise") ? queryOptions.getBoolean("imprecise") : null,
+                queryOptions.containsKey("svExtraPadding") ? queryOptions.getInt("svExtraPadding") : null,
+                queryOptions.containsKey("cnvExtraPadding") ? queryOptions.getInt("cnvExtraPadding") : null,
+                queryOptions.containsKey("checkAminoAcidChange") ? queryOptions.getBoolean("checkAminoAcidChange") : null,
+                queryOptions.getString("consequenceTypeSource"));
+    }
+
+    private static class NoOpStreamObserver implements StreamObserver<VariantAvro> {
+        @Override
+        public void onNext(VariantAvro variantAvro) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    }
+}
@@ -16,7 +16,10 @@
 
 package org.opencb.cellbase.server.rest;
 
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.cellbase.core.exception.CellBaseException;
 import org.opencb.cellbase.core.result.CellBaseDataResponse;
+import org.opencb.cellbase.lib.managers.CellBaseManagerFactory;
 import org.opencb.cellbase.server.RestServer;
 
 
@@ -24,9 +27,12 @@ import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,13 +46,18 @@ public class AdminRestWebService {
     @QueryParam("apiVersion")
     protected String apiVersion;
 
+    private static final String BEARER = "Bearer ";
+
     private static RestServer server;
 
+    private final ServletContext context;
+
     public AdminRestWebService(@PathParam("apiVersion") String version, @Context UriInfo uriInfo,
                                @Context HttpServletRequest httpServletRequest, @Context ServletContext context)
         throws IOException {
 //        super(version, uriInfo, httpServletRequest, context);
         System.out.println("Build AdminWSServer");
+        this.context = context;
     }
 
 
@@ -62,6 +73,48 @@ public class AdminRestWebService {
         return createOkResponse("bye!");
     }
 
+    @POST
+    @Path("/dataReleases/refresh")
+    @Produces("text/plain")
+    public Response refreshDataReleases(@HeaderParam(HttpHeaders.AUTHORIZATION) String authorization) {
+        // New data releases, or changes in the default data release, are used without restarting the server
+        try {
+            CellBaseManagerFactory cellBaseManagerFactory =
+                    GenericRestWSServer.getCellBaseManagerFactory(GenericRestWSServer.getCellBaseHome(context));
+            Response.Status status = checkSecretKey(GenericRestWSServer.cellBaseConfiguration.getSecretKey(), authorization);
+            if (status != null) {
+                return buildResponse(Response.status(status).header(HttpHeaders.WWW_AUTHENTICATE, BEARER.trim())
+                        .entity("The secret key of the CellBase configuration is required: 'Authorization: Bearer <secretKey>'"));
+            }
+            List<String> updated = cellBaseManagerFactory.refreshDataReleases();
+            return buildResponse(Response.ok("Data releases refreshed, changed: " + updated));
+        } catch (IOException | CellBaseException e) {
+            return buildResponse(Response.serverError().entity("Error refreshing data releases: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Checks the Authorization header of admin requests carries the secret key of the configuration.
+     *
+     * @param secretKey secret key of the CellBase configuration
+     * @param authorization value of the Authorization header, i.e. "Bearer " followed by the secret key
+     * @return null if the request is authorized, FORBIDDEN if there is no secret key configured, UNAUTHORIZED otherwise
+     */
+    static Response.Status checkSecretKey(String secretKey, String authorization) {
+        if (StringUtils.isEmpty(secretKey)) {
+            return Response.Status.FORBIDDEN;
+        }
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return Response.Status.UNAUTHORIZED;
+        }
+        // Constant-time comparison, the time taken does not tell how much of the key is right
+        byte[] key = authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(secretKey.getBytes(StandardCharsets.UTF_8), key)) {
+            return Response.Status.UNAUTHORIZED;
+        }
+        return null;
+    }
+
     public static RestServer getServer() {
         return server;
     }
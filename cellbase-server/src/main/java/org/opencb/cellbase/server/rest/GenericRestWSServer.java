@@ -33,6 +33,7 @@ import org.opencb.cellbase.core.config.CellBaseConfiguration;
 import org.opencb.cellbase.core.exception.CellBaseException;
 import org.opencb.cellbase.core.result.CellBaseDataResponse;
 import org.opencb.cellbase.core.result.CellBaseDataResult;
+import org.opencb.cellbase.core.result.ResponseFormat;
 import org.opencb.cellbase.core.utils.SpeciesUtils;
 import org.opencb.cellbase.lib.managers.CellBaseManagerFactory;
 import org.opencb.cellbase.lib.managers.DataReleaseManager;
@@ -75,6 +76,7 @@ public class GenericRestWSServer implements IWSServer {
     protected HttpServletRequest httpServletRequest;
     protected static ObjectMapper jsonObjectMapper;
     protected static ObjectWriter jsonObjectWriter;
+    private static Map<ResponseFormat, ObjectWriter> binaryObjectWriters;
     protected String SERVICE_START_DATE;
     protected StopWatch WATCH;
     private static final AtomicBoolean INITIALIZED = new AtomicBoolean(false);
@@ -114,42 +116,116 @@ public class GenericRestWSServer implements IWSServer {
 
     private void init() throws IOException, CellBaseException {
         // we need to make sure we only init one single time
-        if (INITIALIZED.compareAndSet(false, true)) {
+        if (!INITIALIZED.get()) {
             SERVICE_START_DATE = new SimpleDateFormat("yyyyMMdd_HHmmss").format(Calendar.getInstance().getTime());
             WATCH = new StopWatch();
             WATCH.start();
 
-            jsonObjectMapper = new ObjectMapper();
-            jsonObjectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-            jsonObjectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
-            jsonObjectWriter = jsonObjectMapper.writer();
+            init(getCellBaseHome(httpServletRequest.getServletContext()));
+        }
+    }
 
-            logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Returns the CellBase installation directory, from the CELLBASE_HOME environment variable or, if not set, from the
+     * servlet context parameter with the same name.
+     *
+     * @param context servlet context
+     * @return CellBase home
+     * @throws CellBaseException if CellBase home is not set
+     */
+    static String getCellBaseHome(ServletContext context) throws CellBaseException {
+        String cellbaseHome = System.getenv("CELLBASE_HOME");
+        if (StringUtils.isEmpty(cellbaseHome)) {
+            // ENV variable isn't set, try the servlet context instead
+            if (context != null && StringUtils.isNotEmpty(context.getInitParameter("CELLBASE_HOME"))) {
+                cellbaseHome = context.getInitParameter("CELLBASE_HOME");
+            } else {
+                LoggerFactory.getLogger(GenericRestWSServer.class).error("No valid configuration directory provided!");
+                throw new CellBaseException("No CELLBASE_HOME found");
+            }
+        }
+        return cellbaseHome;
+    }
 
-            // We must load the configuration file from CELLBASE_HOME, this must happen only the first time!
-            String cellbaseHome = System.getenv("CELLBASE_HOME");
-            if (StringUtils.isEmpty(cellbaseHome)) {
+    /**
+     * Loads the configuration and creates the shared objects used by all the web services. It is called by the first
+     * request or, when the web application starts, by StartupListener. Only the first call has any effect.
+     *
+     * @param cellbaseHome CellBase installation directory
+     * @throws IOException if the configuration file cannot be read
+     * @throws CellBaseException if the managers cannot be created
+     */
+    static synchronized void init(String cellbaseHome) throws IOException, CellBaseException {
+        if (INITIALIZED.get()) {
+            return;
+        }
 
-                // ENV variable isn't set, try the servlet context instead
-                ServletContext context = httpServletRequest.getServletContext();
-                if (StringUtils.isNotEmpty(context.getInitParameter("CELLBASE_HOME"))) {
-                    cellbaseHome = context.getInitParameter("CELLBASE_HOME");
-                } else {
-                    logger.error("No valid configuration directory provided!");
-                    throw new CellBaseException("No CELLBASE_HOME found");
-                }
+        jsonObjectMapper = new ObjectMapper();
+        jsonObjectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        jsonObjectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+        jsonObjectWriter = jsonObjectMapper.writer();
+
+        // Binary formats encode the same document as JSON, the same mapper configuration is used for all of them
+        binaryObjectWriters = new EnumMap<>(ResponseFormat.class);
+        for (ResponseFormat responseFormat : ResponseFormat.values()) {
+            if (responseFormat.isBinary()) {
+                ObjectMapper binaryObjectMapper = new ObjectMapper(responseFormat.createJsonFactory());
+                binaryObjectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+                binaryObjectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+                binaryObjectWriters.put(responseFormat, binaryObjectMapper.writer());
             }
+        }
+
+        logger = LoggerFactory.getLogger(GenericRestWSServer.class);
+
+        logger.info("CELLBASE_HOME set to: {}", cellbaseHome);
+
+        logger.info("***************************************************");
+        logger.info("cellbaseHome = " + cellbaseHome);
+        cellBaseConfiguration = CellBaseConfiguration.load(Paths.get(cellbaseHome).resolve("conf").resolve("configuration.yml"));
+        cellBaseManagerFactory = new CellBaseManagerFactory(cellBaseConfiguration);
+        logger.info("***************************************************");
 
-            logger.info("CELLBASE_HOME set to: {}", cellbaseHome);
+        // Initialize Monitor
+        monitor = new Monitor(cellBaseManagerFactory.getMetaManager(), cellBaseManagerFactory);
 
-            logger.info("***************************************************");
-            logger.info("cellbaseHome = " + cellbaseHome);
-            cellBaseConfiguration = CellBaseConfiguration.load(Paths.get(cellbaseHome).resolve("conf").resolve("configuration.yml"));
-            cellBaseManagerFactory = new CellBaseManagerFactory(cellBaseConfiguration);
-            logger.info("***************************************************");
+        // Managers are warmed up in the background, meanwhile the health endpoint reports the service as degraded
+        if (cellBaseConfiguration.getServer() != null && cellBaseConfiguration.getServer().getRest() != null
+                && cellBaseConfiguration.getServer().getRest().isWarmUp()) {
+            Thread warmUpThread = new Thread(cellBaseManagerFactory::warmUp, "cellbase-warm-up");
+            warmUpThread.setDaemon(true);
+            warmUpThread.start();
+        }
+
+        // New data releases, or a new default data release, are picked up without restarting the server
+        if (cellBaseConfiguration.getServer() != null && cellBaseConfiguration.getServer().getRest() != null) {
+            cellBaseManagerFactory.startDataReleaseRefresher(cellBaseConfiguration.getServer().getRest().getDataReleaseRefreshInterval());
+        }
+
+        INITIALIZED.set(true);
+    }
+
+    /**
+     * Returns the manager factory shared by all the web services, initializing them if needed. The gRPC server uses it
+     * too, so database connections and caches are not duplicated.
+     *
+     * @param cellbaseHome CellBase installation directory
+     * @return the shared manager factory
+     * @throws IOException if the configuration file cannot be read
+     * @throws CellBaseException if the managers cannot be created
+     */
+    public static CellBaseManagerFactory getCellBaseManagerFactory(String cellbaseHome) throws IOException, CellBaseException {
+        init(cellbaseHome);
+        return cellBaseManagerFactory;
+    }
 
-            // Initialize Monitor
-            monitor = new Monitor(cellBaseManagerFactory.getMetaManager());
+    /**
+     * Stops the background threads of the managers, called when the web application is stopped.
+     */
+    static void shutdown() {
+        if (cellBaseManagerFactory != null) {
+            cellBaseManagerFactory.stopDataReleaseRefresher();
+            cellBaseManagerFactory.closeAnnotationJobManager();
         }
     }
 
@@ -381,22 +457,27 @@ public class GenericRestWSServer implements IWSServer {
         return buildResponse(Response.ok(str));
     }
 
-    protected Response createJsonResponse(CellBaseDataResponse queryResponse) {
-        try {
-//            if (CollectionUtils.isNotEmpty(queryResponse.getResponses()) && queryResponse.getResponses().get(0) != null) {
-//                System.out.println("queryResponse.getResponses().get(0).toString() = " + queryResponse.getResponses().get(0).toString());
-//            }
-            String value = jsonObjectWriter.writeValueAsString(queryResponse);
-            ResponseBuilder ok = Response.ok(value, MediaType.APPLICATION_JSON_TYPE.withCharset("utf-8"));
-            return buildResponse(ok);
-        } catch (JsonProcessingException e) {
-            logger.error("Error parsing queryResponse object", e);
-            return createErrorResponse("", "Error parsing QueryResponse object:\n" + Arrays.toString(e.getStackTrace()));
+    /**
+     * Response format requested in the Accept header. Binary formats are only used when the client explicitly asks for
+     * them, browsers and any other client keep receiving JSON.
+     *
+     * @return the response format
+     */
+    protected ResponseFormat getResponseFormat() {
+        if (httpServletRequest == null) {
+            return ResponseFormat.JSON;
         }
+        return ResponseFormat.fromAcceptHeader(httpServletRequest.getHeader(HttpHeaders.ACCEPT));
     }
 
     protected Response createJsonResponse(Object obj) {
         try {
+            // Any response body, not only CellBaseDataResponse, is written in the format negotiated with the Accept header
+            ResponseFormat responseFormat = getResponseFormat();
+            if (responseFormat.isBinary()) {
+                byte[] value = binaryObjectWriters.get(responseFormat).writeValueAsBytes(obj);
+                return buildResponse(Response.ok(value, responseFormat.getMediaType()));
+            }
             return buildResponse(Response.ok(jsonObjectWriter.writeValueAsString(obj),
                     MediaType.APPLICATION_JSON_TYPE.withCharset("utf-8")));
         } catch (JsonProcessingException e) {
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.server.rest;
+
+import org.opencb.cellbase.core.exception.CellBaseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.io.IOException;
+
+/**
+ * Initializes the web services when the web application starts, so the configuration is loaded and the managers are
+ * warmed up before the first request arrives. If this fails the web services are initialized by the first request.
+ */
+public class StartupListener implements ServletContextListener {
+
+    private final Logger logger = LoggerFactory.getLogger(StartupListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent servletContextEvent) {
+        try {
+            GenericRestWSServer.init(GenericRestWSServer.getCellBaseHome(servletContextEvent.getServletContext()));
+        } catch (IOException | CellBaseException e) {
+            logger.error("Error initializing CellBase web services at startup: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent servletContextEvent) {
+        GenericRestWSServer.shutdown();
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.server.rest.genomic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.cellbase.core.result.CellBaseDataResult;
+import org.opencb.cellbase.lib.managers.VariantManager;
+import org.opencb.cellbase.lib.variant.annotation.VariantAnnotationCalculator;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Annotates the variants read from a request body and writes the annotations back as NDJSON, one VariantAnnotation
+ * per line. Variants are read and annotated in batches of batchSize so memory usage does not depend on the size of
+ * the request, and every batch is flushed to the client as soon as it is annotated.
+ *
+ * Each input line can be:
+ *  - a VCF data line, VCF header lines starting with '#' are skipped. Multi-allelic lines produce one variant per allele
+ *    and reference-only records, i.e. ALT '.', are written back unannotated
+ *  - a JSON Variant object, i.e. NDJSON
+ *  - a variant string such as 19:45411941:T:C, optionally with phase data: variantString+GT+PS
+ *
+ * Errors found before anything is written are thrown so the client gets an error status. Once the response has been
+ * sent, the HTTP status can not be changed anymore and the stream ends with an error record: {"error": "..."}.
+ */
+public class VariantAnnotationStreamingOutput implements StreamingOutput {
+
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    public static final int DEFAULT_BATCH_SIZE = 200;
+    public static final String ERROR_FIELD = "error";
+
+    private static final String VCF_SEPARATOR = "\t";
+    private static final String VCF_MISSING_VALUE = ".";
+
+    private final InputStream inputStream;
+    private final Function<String, Variant> variantParser;
+    private final BatchAnnotator batchAnnotator;
+    private final QueryOptions queryOptions;
+    private final int batchSize;
+    private final ObjectMapper jsonObjectMapper;
+    private final ObjectWriter jsonObjectWriter;
+
+    private int numLinesWritten;
+
+    private final Logger logger = LoggerFactory.getLogger(VariantAnnotationStreamingOutput.class);
+
+    /**
+     * Annotates a batch of variants, VariantAnnotationCalculator.getAnnotationByVariantList for REST requests.
+     */
+    interface BatchAnnotator {
+        List<CellBaseDataResult<VariantAnnotation>> annotate(List<Variant> variants, QueryOptions queryOptions) throws Exception;
+    }
+
+    public VariantAnnotationStreamingOutput(InputStream inputStream, VariantManager variantManager,
+                                            VariantAnnotationCalculator variantAnnotationCalculator, QueryOptions queryOptions,
+                                            int batchSize, ObjectMapper jsonObjectMapper) {
+        this(inputStream, variantManager::parseVariant, variantAnnotationCalculator::getAnnotationByVariantList, queryOptions,
+                batchSize, jsonObjectMapper);
+    }
+
+    VariantAnnotationStreamingOutput(InputStream inputStream, Function<String, Variant> variantParser,
+                                     BatchAnnotator batchAnnotator, QueryOptions queryOptions, int batchSize,
+                                     ObjectMapper jsonObjectMapper) {
+        this.inputStream = inputStream;
+        this.variantParser = variantParser;
+        this.batchAnnotator = batchAnnotator;
+        this.queryOptions = queryOptions;
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+        this.jsonObjectMapper = jsonObjectMapper;
+        this.jsonObjectWriter = jsonObjectMapper.writer();
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException, WebApplicationException {
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        long startTime = System.currentTimeMillis();
+        int numLines = 0;
+        int numVariants = 0;
+        List<Variant> batch = new ArrayList<>(batchSize);
+        // Reference-only VCF records, they are written back in order but never annotated
+        Set<Variant> noCalls = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                numLines++;
+                if (StringUtils.isBlank(line) || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    parseLine(line, batch, noCalls);
+                } catch (IllegalArgumentException | IOException e) {
+                    throw new WebApplicationException("Error parsing line " + numLines + ": '" + line + "'. " + e.getMessage(), e);
+                }
+
+                if (batch.size() >= batchSize) {
+                    numVariants += annotate(batch, noCalls, bufferedWriter);
+                    batch = new ArrayList<>(batchSize);
+                    noCalls.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                numVariants += annotate(batch, noCalls, bufferedWriter);
+            }
+        } catch (WebApplicationException e) {
+            if (numLinesWritten == 0) {
+                throw e;
+            }
+            // The response has already been sent, the client is told with a last record instead of a truncated stream
+            logger.error("Error streaming variant annotation after {} variants, aborting stream", numVariants, e);
+            ObjectNode error = jsonObjectMapper.createObjectNode().put(ERROR_FIELD, e.getMessage());
+            bufferedWriter.write(jsonObjectWriter.writeValueAsString(error));
+            bufferedWriter.newLine();
+        }
+        bufferedWriter.flush();
+
+        logger.info("{} variants streamed for annotation in {} ms", numVariants, System.currentTimeMillis() - startTime);
+    }
+
+    private int annotate(List<Variant> batch, Set<Variant> noCalls, BufferedWriter bufferedWriter) throws IOException {
+        List<Variant> variants = new ArrayList<>(batch.size());
+        for (Variant variant : batch) {
+            if (!noCalls.contains(variant)) {
+                variants.add(variant);
+            }
+        }
+
+        // key = input variant, results are matched by the variant they belong to and not by their position
+        Map<String, Deque<CellBaseDataResult<VariantAnnotation>>> resultMap = new HashMap<>();
+        if (!variants.isEmpty()) {
+            try {
+                // VariantAnnotationCalculator modifies the options received, a copy is used for each batch
+                for (CellBaseDataResult<VariantAnnotation> result : batchAnnotator.annotate(variants, new QueryOptions(queryOptions))) {
+                    resultMap.computeIfAbsent(result.getId(), k -> new ArrayDeque<>()).add(result);
+                }
+            } catch (Exception e) {
+                throw new WebApplicationException("Error annotating variant batch: " + e.getMessage(), e);
+            }
+        }
+
+        for (Variant variant : batch) {
+            Deque<CellBaseDataResult<VariantAnnotation>> results = noCalls.contains(variant) ? null : resultMap.get(variant.toString());
+            CellBaseDataResult<VariantAnnotation> result = results != null ? results.poll() : null;
+            if (result == null || result.getResults() == null || result.getResults().isEmpty() || result.first() == null) {
+                // Keep one line per input variant so the client can match input and output
+                writeLine(emptyAnnotation(variant), bufferedWriter);
+            } else {
+                for (VariantAnnotation variantAnnotation : result.getResults()) {
+                    writeLine(variantAnnotation, bufferedWriter);
+                }
+            }
+        }
+        // Send this chunk to the client right away
+        bufferedWriter.flush();
+        return variants.size();
+    }
+
+    private void writeLine(VariantAnnotation variantAnnotation, BufferedWriter bufferedWriter) throws IOException {
+        bufferedWriter.write(jsonObjectWriter.writeValueAsString(variantAnnotation));
+        bufferedWriter.newLine();
+        numLinesWritten++;
+    }
+
+    private void parseLine(String line, List<Variant> batch, Set<Variant> noCalls) throws IOException {
+        if (line.startsWith("{")) {
+            batch.add(jsonObjectMapper.readValue(line, Variant.class));
+        } else if (line.contains(VCF_SEPARATOR)) {
+            String[] fields = line.split(VCF_SEPARATOR);
+            if (fields.length < 5) {
+                throw new IllegalArgumentException("VCF line with less than 5 columns");
+            }
+            int start = Integer.parseInt(fields[1]);
+            for (String alternate : fields[4].split(",")) {
+                Variant variant = new Variant(fields[0], start, fields[3], alternate);
+                if (!VCF_MISSING_VALUE.equals(fields[2])) {
+                    variant.setId(fields[2]);
+                }
+                if (VCF_MISSING_VALUE.equals(alternate)) {
+                    noCalls.add(variant);
+                }
+                batch.add(variant);
+            }
+        } else {
+            batch.add(variantParser.apply(line.trim()));
+        }
+    }
+
+    private VariantAnnotation emptyAnnotation(Variant variant) {
+        VariantAnnotation variantAnnotation = new VariantAnnotation();
+        variantAnnotation.setId(variant.toString());
+        variantAnnotation.setChromosome(variant.getChromosome());
+        variantAnnotation.setStart(variant.getStart());
+        variantAnnotation.setReference(variant.getReference());
+        variantAnnotation.setAlternate(variant.getAlternate());
+        return variantAnnotation;
+    }
+}
@@ -23,19 +23,24 @@ import org.opencb.biodata.models.variant.avro.VariantAnnotation;
 import org.opencb.cellbase.core.api.VariantQuery;
 import org.opencb.cellbase.core.api.query.QueryException;
 import org.opencb.cellbase.core.exception.CellBaseException;
+import org.opencb.cellbase.core.models.AnnotationJob;
 import org.opencb.cellbase.core.result.CellBaseDataResult;
 import org.opencb.cellbase.core.utils.SpeciesUtils;
 import org.opencb.cellbase.lib.managers.VariantManager;
 import org.opencb.cellbase.server.rest.GenericRestWSServer;
+import org.opencb.commons.datastore.core.QueryOptions;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -47,6 +52,7 @@ import static org.opencb.cellbase.core.ParamConstants.*;
 public class VariantWSServer extends GenericRestWSServer {
 
     private VariantManager variantManager;
+    private String assembly;
 
     public VariantWSServer(@PathParam("apiVersion") @ApiParam(name = "apiVersion", value = VERSION_DESCRIPTION,
             defaultValue = DEFAULT_VERSION) String apiVersion,
@@ -64,6 +70,7 @@ public class VariantWSServer extends GenericRestWSServer {
             assembly = SpeciesUtils.getDefaultAssembly(cellBaseConfiguration, species).getName();
         }
 
+        this.assembly = assembly;
         variantManager = cellBaseManagerFactory.getVariantManager(species, assembly);
     }
 
@@ -226,6 +233,215 @@ public class VariantWSServer extends GenericRestWSServer {
                 consequenceTypeSource);
     }
 
+    @POST
+    @Consumes({VariantAnnotationStreamingOutput.NDJSON_MEDIA_TYPE, "text/x-vcf", "text/plain"})
+    @Produces(VariantAnnotationStreamingOutput.NDJSON_MEDIA_TYPE)
+    @Path("/annotation/stream")
+    @ApiOperation(httpMethod = "POST",
+            value = "Streams variant annotation for large lists of variants.", notes = "The request body can be a VCF file,"
+            + " NDJSON with one Variant per line or one variant string per line, e.g. 19:45411941:T:C. Variants are annotated"
+            + " in batches as the body is read and one VariantAnnotation per line is streamed back as NDJSON. Include and"
+            + " exclude lists take values from the following set: {variation, traitAssociation, conservation, consequenceType,"
+            + " expression, geneDisease, drugInteraction, populationFrequencies, repeats, hgvs, geneConstraints, mirnaTargets}."
+            + " Errors found once the stream has started are reported in a last line: {\"error\": \"...\"}.",
+            response = VariantAnnotation.class, hidden = true)
+    public Response getAnnotationByVariantsStream(@ApiParam(name = "variants", value = "VCF, NDJSON or one variant per line",
+            required = true) InputStream variants,
+                                                  @QueryParam("normalize")
+                                                  @ApiParam(name = "normalize", value = NORMALISE,
+                                                          allowableValues = "false,true",
+                                                          defaultValue = "true", required = false) Boolean normalize,
+                                                  @QueryParam("decompose")
+                                                  @ApiParam(name = "decompose", value = DECOMPOSE,
+                                                          allowableValues = "false,true",
+                                                          defaultValue = "false") Boolean decompose,
+                                                  @QueryParam("leftAlign")
+                                                  @ApiParam(name = "leftAlign", value = LEFT_ALIGN,
+                                                          allowableValues = "false,true",
+                                                          defaultValue = "false") Boolean leftAlign,
+                                                  @QueryParam("ignorePhase")
+                                                  @ApiParam(name = "ignorePhase", value = IGNORE_PHASE,
+                                                          allowableValues = "false,true",
+                                                          required = false) Boolean ignorePhase,
+                                                  @QueryParam("imprecise")
+                                                  @ApiParam(name = "imprecise",
+                                                          value = IMPRECISE, allowableValues = "false,true",
+                                                          defaultValue = "true", required = false) Boolean imprecise,
+                                                  @QueryParam("svExtraPadding")
+                                                  @ApiParam(name = "svExtraPadding",
+                                                          value = SV_EXTRA_PADDING,
+                                                          defaultValue = "0", required = false) Integer svExtraPadding,
+                                                  @QueryParam("cnvExtraPadding")
+                                                  @ApiParam(name = "cnvExtraPadding",
+                                                          value = "Integer to optionally provide the size of the extra"
+                                                                  + " padding to be used when annotating imprecise (or not)"
+                                                                  + " CNVs",
+                                                          defaultValue = "0", required = false) Integer cnvExtraPadding,
+                                                  @QueryParam("checkAminoAcidChange")
+                                                  @ApiParam(name = "checkAminoAcidChange",
+                                                          value = "true/false to specify whether variant match in the clinical variant"
+                                                                  + " collection should also be performed at the aminoacid change level",
+                                                          allowableValues = "false,true",
+                                                          defaultValue = "false", required = false) Boolean checkAminoAcidChange,
+                                                  @QueryParam("consequenceTypeSource")
+                                                  @ApiParam(name = "consequenceTypeSource", value = "Gene set, either ensembl (default) "
+                                                          + "or refseq", allowableValues = "ensembl,refseq", defaultValue = "ensembl",
+                                                          required = false) String consequenceTypeSource,
+                                                  @QueryParam("batchSize")
+                                                  @ApiParam(name = "batchSize", value = "Number of variants annotated per batch",
+                                                          defaultValue = "200", required = false) Integer batchSize) {
+        try {
+            checkNormalizationConfig();
+
+            // batchSize is a parameter of this end point only, it must not reach the VariantQuery
+            uriParams.remove("batchSize");
+            VariantQuery query = new VariantQuery(uriParams);
+            String consequenceTypeSources = (StringUtils.isEmpty(uriParams.get("consequenceTypeSource")) ? consequenceTypeSource
+                    : uriParams.get("consequenceTypeSource"));
+            QueryOptions queryOptions = variantManager.initAnnotationQueryOptions(query.toQueryOptions(), normalize, decompose,
+                    leftAlign, ignorePhase, null, imprecise, svExtraPadding, cnvExtraPadding, checkAminoAcidChange,
+                    consequenceTypeSources);
+
+            StreamingOutput streamingOutput = new VariantAnnotationStreamingOutput(variants, variantManager,
+                    variantManager.getVariantAnnotationCalculator(getDataRelease(), getToken()), queryOptions,
+                    batchSize != null ? batchSize : VariantAnnotationStreamingOutput.DEFAULT_BATCH_SIZE, jsonObjectMapper);
+            logQuery("ok");
+            return Response.ok(streamingOutput, VariantAnnotationStreamingOutput.NDJSON_MEDIA_TYPE).build();
+        } catch (Exception e) {
+            return createErrorResponse(e);
+        }
+    }
+
+    @POST
+    @Consumes("text/plain")
+    @Path("/annotation/jobs")
+    @ApiOperation(httpMethod = "POST",
+            value = "Submits an asynchronous variant annotation job.", notes = "The request body is a comma or new line"
+            + " separated list of variants. The job is queued and annotated in the server, use the returned job ID to check"
+            + " its status and fetch the annotations once the status is DONE. Include and exclude lists take values from"
+            + " the following set: {variation, traitAssociation, conservation, consequenceType, expression, geneDisease,"
+            + " drugInteraction, populationFrequencies, repeats, hgvs, geneConstraints, mirnaTargets}.",
+            response = AnnotationJob.class, responseContainer = "QueryResponse")
+    public Response submitAnnotationJob(@ApiParam(name = "variants", value = "Comma or new line separated list of variants to"
+            + " annotate, e.g. 19:45411941:T:C,14:38679764:-:GATCTG", required = true) InputStream variants,
+                                        @QueryParam("normalize")
+                                        @ApiParam(name = "normalize", value = NORMALISE,
+                                                allowableValues = "false,true",
+                                                defaultValue = "true", required = false) Boolean normalize,
+                                        @QueryParam("decompose")
+                                        @ApiParam(name = "decompose", value = DECOMPOSE,
+                                                allowableValues = "false,true",
+                                                defaultValue = "false") Boolean decompose,
+                                        @QueryParam("leftAlign")
+                                        @ApiParam(name = "leftAlign", value = LEFT_ALIGN,
+                                                allowableValues = "false,true",
+                                                defaultValue = "false") Boolean leftAlign,
+                                        @QueryParam("ignorePhase")
+                                        @ApiParam(name = "ignorePhase", value = IGNORE_PHASE,
+                                                allowableValues = "false,true",
+                                                required = false) Boolean ignorePhase,
+                                        @QueryParam("imprecise")
+                                        @ApiParam(name = "imprecise",
+                                                value = IMPRECISE, allowableValues = "false,true",
+                                                defaultValue = "true", required = false) Boolean imprecise,
+                                        @QueryParam("svExtraPadding")
+                                        @ApiParam(name = "svExtraPadding",
+                                                value = SV_EXTRA_PADDING,
+                                                defaultValue = "0", required = false) Integer svExtraPadding,
+                                        @QueryParam("cnvExtraPadding")
+                                        @ApiParam(name = "cnvExtraPadding",
+                                                value = "Integer to optionally provide the size of the extra"
+                                                        + " padding to be used when annotating imprecise (or not)"
+                                                        + " CNVs",
+                                                defaultValue = "0", required = false) Integer cnvExtraPadding,
+                                        @QueryParam("checkAminoAcidChange")
+                                        @ApiParam(name = "checkAminoAcidChange",
+                                                value = "true/false to specify whether variant match in the clinical variant"
+                                                        + " collection should also be performed at the aminoacid change level",
+                                                allowableValues = "false,true",
+                                                defaultValue = "false", required = false) Boolean checkAminoAcidChange,
+                                        @QueryParam("consequenceTypeSource")
+                                        @ApiParam(name = "consequenceTypeSource", value = "Gene set, either ensembl (default) "
+                                                + "or refseq", allowableValues = "ensembl,refseq", defaultValue = "ensembl",
+                                                required = false) String consequenceTypeSource) {
+        try {
+            checkNormalizationConfig();
+
+            VariantQuery query = new VariantQuery(uriParams);
+            String consequenceTypeSources = (StringUtils.isEmpty(uriParams.get("consequenceTypeSource")) ? consequenceTypeSource
+                    : uriParams.get("consequenceTypeSource"));
+            QueryOptions queryOptions = variantManager.initAnnotationQueryOptions(query.toQueryOptions(), normalize, decompose,
+                    leftAlign, ignorePhase, null, imprecise, svExtraPadding, cnvExtraPadding, checkAminoAcidChange,
+                    consequenceTypeSources);
+            // limit and skip are used to page the job results, not to annotate
+            queryOptions.remove(QueryOptions.LIMIT);
+            queryOptions.remove(QueryOptions.SKIP);
+
+            AnnotationJob job = cellBaseManagerFactory.getAnnotationJobManager().submit(variantManager, species, assembly, variants,
+                    queryOptions, getDataRelease(), getToken());
+            return createOkResponse(new CellBaseDataResult<>(job.getId(), 0, Collections.emptyList(), 1,
+                    Collections.singletonList(job), 1));
+        } catch (Exception e) {
+            return createErrorResponse(e);
+        }
+    }
+
+    @GET
+    @Path("/annotation/jobs/{jobId}")
+    @ApiOperation(httpMethod = "GET", value = "Returns the status of an asynchronous variant annotation job",
+            response = AnnotationJob.class, responseContainer = "QueryResponse")
+    public Response getAnnotationJob(@PathParam("jobId") @ApiParam(name = "jobId", value = "Annotation job ID", required = true)
+                                             String jobId) {
+        try {
+            AnnotationJob job = cellBaseManagerFactory.getAnnotationJobManager().getJob(jobId);
+            return createOkResponse(new CellBaseDataResult<>(job.getId(), 0, Collections.emptyList(), 1,
+                    Collections.singletonList(job), 1));
+        } catch (Exception e) {
+            return createErrorResponse(e);
+        }
+    }
+
+    @GET
+    @Path("/annotation/jobs/{jobId}/results")
+    @ApiOperation(httpMethod = "GET", value = "Returns a page of the annotations of a finished variant annotation job. Annotations"
+            + " are returned in the same order as the submitted variants",
+            response = VariantAnnotation.class, responseContainer = "QueryResponse")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "limit", value = LIMIT_DESCRIPTION,
+                    required = false, defaultValue = DEFAULT_LIMIT, dataType = "java.util.List",
+                    paramType = "query"),
+            @ApiImplicitParam(name = "skip", value = SKIP_DESCRIPTION,
+                    required = false, defaultValue = DEFAULT_SKIP, dataType = "java.util.List",
+                    paramType = "query")
+    })
+    public Response getAnnotationJobResults(@PathParam("jobId") @ApiParam(name = "jobId", value = "Annotation job ID",
+            required = true) String jobId) {
+        try {
+            int skip = StringUtils.isNotEmpty(uriParams.get(QueryOptions.SKIP)) ? Integer.parseInt(uriParams.get(QueryOptions.SKIP)) : 0;
+            int limit = Integer.parseInt(uriParams.get(QueryOptions.LIMIT));
+            CellBaseDataResult<VariantAnnotation> queryResult = cellBaseManagerFactory.getAnnotationJobManager().getResults(jobId,
+                    skip, limit);
+            return createOkResponse(queryResult);
+        } catch (Exception e) {
+            return createErrorResponse(e);
+        }
+    }
+
+    @DELETE
+    @Path("/annotation/jobs/{jobId}")
+    @ApiOperation(httpMethod = "DELETE", value = "Deletes a finished variant annotation job and its results",
+            response = AnnotationJob.class, responseContainer = "QueryResponse")
+    public Response deleteAnnotationJob(@PathParam("jobId") @ApiParam(name = "jobId", value = "Annotation job ID", required = true)
+                                                String jobId) {
+        try {
+            AnnotationJob job = cellBaseManagerFactory.getAnnotationJobManager().delete(jobId);
+            return createOkResponse(new CellBaseDataResult<>(job.getId(), 0, Collections.emptyList(), 1,
+                    Collections.singletonList(job), 1));
+        } catch (Exception e) {
+            return createErrorResponse(e);
+        }
+    }
+
     @GET
     @Path("/{variants}/annotation")
     @ApiOperation(httpMethod = "GET",
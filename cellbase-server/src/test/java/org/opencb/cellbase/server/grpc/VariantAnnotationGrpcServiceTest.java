@@ -0,0 +1,227 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.server.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+import org.opencb.cellbase.core.exception.CellBaseException;
+import org.opencb.cellbase.core.result.CellBaseDataResult;
+import org.opencb.commons.datastore.core.QueryOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VariantAnnotationGrpcServiceTest {
+
+    private static final String GENE = "BRCA2";
+
+    private MockServerCallStreamObserver responseObserver;
+    private List<Variant> annotatedVariants;
+
+    @BeforeEach
+    public void setUp() {
+        responseObserver = new MockServerCallStreamObserver();
+        annotatedVariants = new ArrayList<>();
+    }
+
+    @Test
+    public void testFlowControl() {
+        StreamObserver<VariantAvro> requestObserver = VariantAnnotationGrpcService.annotate(responseObserver, this::annotate,
+                new QueryOptions(), 2);
+        assertTrue(responseObserver.autoInboundFlowControlDisabled);
+        assertEquals(0, responseObserver.requested);
+
+        // The first batch is requested once the call is ready
+        responseObserver.setReady(true);
+        assertEquals(2, responseObserver.requested);
+        // Ready notifications while variants are still pending do not request more
+        responseObserver.setReady(true);
+        assertEquals(2, responseObserver.requested);
+
+        requestObserver.onNext(new Variant("1:100:A:T").getImpl());
+        assertEquals(2, responseObserver.requested);
+        requestObserver.onNext(new Variant("1:110:A:T").getImpl());
+        assertEquals(2, responseObserver.annotations.size());
+        assertEquals(4, responseObserver.requested);
+
+        // The client is not reading the annotations, no more variants are requested until it catches up
+        responseObserver.setReady(false);
+        requestObserver.onNext(new Variant("1:120:A:T").getImpl());
+        requestObserver.onNext(new Variant("1:130:A:T").getImpl());
+        assertEquals(4, responseObserver.annotations.size());
+        assertEquals(4, responseObserver.requested);
+        responseObserver.setReady(true);
+        assertEquals(6, responseObserver.requested);
+
+        requestObserver.onNext(new Variant("1:140:A:T").getImpl());
+        requestObserver.onCompleted();
+        assertEquals(5, responseObserver.annotations.size());
+        assertEquals(6, responseObserver.requested);
+        assertTrue(responseObserver.completed);
+        assertEquals(5, annotatedVariants.size());
+    }
+
+    @Test
+    public void testEmptyAnnotations() {
+        StreamObserver<VariantAvro> requestObserver = VariantAnnotationGrpcService.annotate(responseObserver, this::annotate,
+                new QueryOptions(), 3);
+        responseObserver.setReady(true);
+        for (String variant : new String[]{"1:100:A:T", "1:110:A:T", "1:120:A:T", "1:125:A:T"}) {
+            requestObserver.onNext(new Variant(variant).getImpl());
+        }
+        requestObserver.onCompleted();
+
+        // One annotation for each variant and in the same order, although results are returned in reverse order
+        assertEquals(4, responseObserver.annotations.size());
+        assertAnnotation(responseObserver.annotations.get(0), 100, true);
+        assertAnnotation(responseObserver.annotations.get(1), 110, false);
+        assertAnnotation(responseObserver.annotations.get(2), 120, true);
+        assertAnnotation(responseObserver.annotations.get(3), 125, false);
+        assertEquals("1:110:A:T", responseObserver.annotations.get(1).getId());
+        assertTrue(responseObserver.completed);
+    }
+
+    @Test
+    public void testError() {
+        StreamObserver<VariantAvro> requestObserver = VariantAnnotationGrpcService.annotate(responseObserver,
+                (variants, queryOptions) -> {
+                    throw new CellBaseException("annotation failed");
+                }, new QueryOptions(), 2);
+        responseObserver.setReady(true);
+        requestObserver.onNext(new Variant("1:100:A:T").getImpl());
+        requestObserver.onNext(new Variant("1:110:A:T").getImpl());
+
+        assertNotNull(responseObserver.error);
+        assertTrue(responseObserver.error.getMessage().contains("annotation failed"));
+        // Nothing else is requested after the error
+        assertEquals(2, responseObserver.requested);
+        responseObserver.setReady(true);
+        assertEquals(2, responseObserver.requested);
+        requestObserver.onCompleted();
+        assertFalse(responseObserver.completed);
+    }
+
+    /**
+     * Annotates variants at positions multiple of 20, results are returned in reverse order.
+     */
+    private List<CellBaseDataResult<VariantAnnotation>> annotate(List<Variant> variants, QueryOptions queryOptions) {
+        annotatedVariants.addAll(variants);
+        List<CellBaseDataResult<VariantAnnotation>> results = new ArrayList<>();
+        for (Variant variant : variants) {
+            CellBaseDataResult<VariantAnnotation> result = new CellBaseDataResult<>(variant.toString());
+            if (variant.getStart() % 20 == 0) {
+                VariantAnnotation variantAnnotation = new VariantAnnotation();
+                variantAnnotation.setChromosome(variant.getChromosome());
+                variantAnnotation.setStart(variant.getStart());
+                variantAnnotation.setReference(variant.getReference());
+                variantAnnotation.setAlternate(variant.getAlternate());
+                variantAnnotation.setDisplayConsequenceType(GENE);
+                result.setResults(Collections.singletonList(variantAnnotation));
+            }
+            results.add(result);
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    private void assertAnnotation(VariantAnnotation variantAnnotation, int start, boolean annotated) {
+        assertEquals("1", variantAnnotation.getChromosome());
+        assertEquals(start, variantAnnotation.getStart().intValue());
+        assertEquals(annotated, GENE.equals(variantAnnotation.getDisplayConsequenceType()));
+    }
+
+    /**
+     * Call observer recording the requested messages and the annotations sent, readiness is set by the test.
+     */
+    private static class MockServerCallStreamObserver extends ServerCallStreamObserver<VariantAnnotation> {
+
+        private boolean ready = false;
+        private Runnable onReadyHandler;
+        private boolean autoInboundFlowControlDisabled = false;
+        private int requested = 0;
+        private final List<VariantAnnotation> annotations = new ArrayList<>();
+        private Throwable error;
+        private boolean completed = false;
+
+        void setReady(boolean ready) {
+            this.ready = ready;
+            if (ready && onReadyHandler != null) {
+                onReadyHandler.run();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+        }
+
+        @Override
+        public void setCompression(String compression) {
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+            this.onReadyHandler = onReadyHandler;
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+            autoInboundFlowControlDisabled = true;
+        }
+
+        @Override
+        public void request(int count) {
+            requested += count;
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+
+        @Override
+        public void onNext(VariantAnnotation variantAnnotation) {
+            annotations.add(variantAnnotation);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+    }
+}
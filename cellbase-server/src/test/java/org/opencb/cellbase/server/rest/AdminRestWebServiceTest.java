@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.server.rest;
+
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.core.Response;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdminRestWebServiceTest {
+
+    private static final String SECRET_KEY = "secret-key-for-testing";
+
+    @Test
+    public void testCheckSecretKey() {
+        assertNull(AdminRestWebService.checkSecretKey(SECRET_KEY, "Bearer " + SECRET_KEY));
+
+        assertEquals(Response.Status.UNAUTHORIZED, AdminRestWebService.checkSecretKey(SECRET_KEY, null));
+        assertEquals(Response.Status.UNAUTHORIZED, AdminRestWebService.checkSecretKey(SECRET_KEY, ""));
+        assertEquals(Response.Status.UNAUTHORIZED, AdminRestWebService.checkSecretKey(SECRET_KEY, SECRET_KEY));
+        assertEquals(Response.Status.UNAUTHORIZED, AdminRestWebService.checkSecretKey(SECRET_KEY, "Bearer "));
+        assertEquals(Response.Status.UNAUTHORIZED, AdminRestWebService.checkSecretKey(SECRET_KEY,
+                "Bearer " + SECRET_KEY.substring(1)));
+        assertEquals(Response.Status.UNAUTHORIZED, AdminRestWebService.checkSecretKey(SECRET_KEY, "Bearer " + SECRET_KEY + "x"));
+
+        // Refreshing is disabled when no secret key is configured, also for empty keys
+        assertEquals(Response.Status.FORBIDDEN, AdminRestWebService.checkSecretKey(null, "Bearer "));
+        assertEquals(Response.Status.FORBIDDEN, AdminRestWebService.checkSecretKey("", "Bearer "));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.cellbase.server.rest.genomic;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.cellbase.core.exception.CellBaseException;
+import org.opencb.cellbase.core.result.CellBaseDataResult;
+import org.opencb.commons.datastore.core.QueryOptions;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VariantAnnotationStreamingOutputTest {
+
+    private static final String GENE = "BRCA2";
+
+    private ObjectMapper jsonObjectMapper;
+    private List<Variant> annotatedVariants;
+
+    @BeforeEach
+    public void setUp() {
+        // Same configuration as the REST server
+        jsonObjectMapper = new ObjectMapper();
+        jsonObjectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        jsonObjectMapper.configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+        annotatedVariants = new ArrayList<>();
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        String input = "##fileformat=VCFv4.2\n"
+                + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n"
+                + "1\t100\trs1\tA\tT,C\t.\t.\t.\n"
+                + "1\t105\t.\tG\t.\t.\t.\t.\n"
+                + "{\"chromosome\":\"2\",\"start\":200,\"end\":200,\"reference\":\"C\",\"alternate\":\"G\"}\n"
+                + "\n"
+                + "3:300:T:A\n"
+                + "3:310:G:C\n";
+
+        List<JsonNode> lines = stream(input, 2, this::annotate);
+        assertEquals(6, lines.size());
+        assertAnnotation(lines.get(0), "1", 100, "T", true);
+        assertAnnotation(lines.get(1), "1", 100, "C", true);
+        // Reference-only record, written back but not annotated
+        assertAnnotation(lines.get(2), "1", 105, ".", false);
+        assertAnnotation(lines.get(3), "2", 200, "G", true);
+        assertAnnotation(lines.get(4), "3", 300, "A", true);
+        assertAnnotation(lines.get(5), "3", 310, "C", false);
+
+        assertEquals(5, annotatedVariants.size());
+        for (Variant variant : annotatedVariants) {
+            assertNotEquals(".", variant.getAlternate());
+        }
+    }
+
+    @Test
+    public void testErrorBeforeStreaming() {
+        assertThrows(WebApplicationException.class, () -> stream("1:100:A:T\n", 10, (variants, queryOptions) -> {
+            throw new CellBaseException("annotation failed");
+        }));
+        assertThrows(WebApplicationException.class, () -> stream("1\t100\n", 10, this::annotate));
+    }
+
+    @Test
+    public void testErrorAfterStreaming() throws IOException {
+        List<JsonNode> lines = stream("1:100:A:T\n1:110:A:T\n1:120:A:T\n", 2, (variants, queryOptions) -> {
+            if (annotatedVariants.size() >= 2) {
+                throw new CellBaseException("annotation failed");
+            }
+            return annotate(variants, queryOptions);
+        });
+
+        // The first batch is sent, then the stream ends with an error record
+        assertEquals(3, lines.size());
+        assertAnnotation(lines.get(0), "1", 100, "T", true);
+        assertAnnotation(lines.get(1), "1", 110, "T", false);
+        assertTrue(lines.get(2).get(VariantAnnotationStreamingOutput.ERROR_FIELD).asText().contains("annotation failed"));
+
+        // Parsing errors are reported the same way
+        lines = stream("1:100:A:T\n1:110:A:T\n1\t120\n", 2, this::annotate);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(2).get(VariantAnnotationStreamingOutput.ERROR_FIELD).asText().contains("line 3"));
+    }
+
+    private List<JsonNode> stream(String input, int batchSize, VariantAnnotationStreamingOutput.BatchAnnotator batchAnnotator)
+            throws IOException {
+        VariantAnnotationStreamingOutput streamingOutput = new VariantAnnotationStreamingOutput(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), Variant::new, batchAnnotator, new QueryOptions(),
+                batchSize, jsonObjectMapper);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        streamingOutput.write(outputStream);
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            lines.add(jsonObjectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    /**
+     * Annotates variants at positions multiple of 20, results are returned in reverse order.
+     */
+    private List<CellBaseDataResult<VariantAnnotation>> annotate(List<Variant> variants, QueryOptions queryOptions) {
+        annotatedVariants.addAll(variants);
+        List<CellBaseDataResult<VariantAnnotation>> results = new ArrayList<>();
+        for (Variant variant : variants) {
+            CellBaseDataResult<VariantAnnotation> result = new CellBaseDataResult<>(variant.toString());
+            if (variant.getStart() % 20 == 0) {
+                VariantAnnotation variantAnnotation = new VariantAnnotation();
+                variantAnnotation.setChromosome(variant.getChromosome());
+                variantAnnotation.setStart(variant.getStart());
+                variantAnnotation.setReference(variant.getReference());
+                variantAnnotation.setAlternate(variant.getAlternate());
+                variantAnnotation.setDisplayConsequenceType(GENE);
+                result.setResults(Collections.singletonList(variantAnnotation));
+            }
+            results.add(result);
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    private void assertAnnotation(JsonNode line, String chromosome, int start, String alternate, boolean annotated) {
+        assertEquals(chromosome, line.get("chromosome").asText());
+        assertEquals(start, line.get("start").asInt());
+        assertEquals(alternate, line.get("alternate").asText());
+        assertEquals(annotated, line.hasNonNull("displayConsequenceType") && GENE.equals(line.get("displayConsequenceType").asText()));
+    }
+}